@@ -0,0 +1,170 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import javax.annotation.Nullable;
+
+/**
+ * A checkpoint file that records the committed chunks of a seed run, so that an interrupted run can be resumed.
+ * The file is a properties file with the seed, the batch size and the committed chunk indexes per root entity class,
+ * e.g. {@code chunks.com.example.Order=0-41,43}. It is rewritten atomically after every committed chunk.
+ *
+ * @since 2.1.0
+ */
+final class SeedCheckpoint {
+
+    private static final String SEED = "seed";
+    private static final String BATCH_SIZE = "batchSize";
+    private static final String CHUNKS_PREFIX = "chunks.";
+
+    @Nullable
+    private final Path file;
+    private final long seed;
+    private final int batchSize;
+    private final Map<String, BitSet> committedChunks;
+
+    private SeedCheckpoint(@Nullable Path file, long seed, int batchSize, Map<String, BitSet> committedChunks) {
+        this.file = file;
+        this.seed = seed;
+        this.batchSize = batchSize;
+        this.committedChunks = committedChunks;
+    }
+
+    /**
+     * Creates a checkpoint that is not written to a file.
+     *
+     * @param seed seed of the run
+     * @param batchSize batch size of the run
+     * @return the checkpoint
+     */
+    static SeedCheckpoint inMemory(long seed, int batchSize) {
+        return new SeedCheckpoint(null, seed, batchSize, new HashMap<>());
+    }
+
+    /**
+     * Loads the checkpoint from the given file if it exists, else creates a new checkpoint.
+     *
+     * @param file checkpoint file
+     * @param seed seed of the run, or {@code null} to use the seed of an existing checkpoint or the given default
+     * @param defaultSeed seed to use if neither a seed nor an existing checkpoint is given
+     * @param batchSize batch size of the run
+     * @return the checkpoint
+     * @throws IllegalStateException if the existing checkpoint was written with a different seed or batch size
+     */
+    static SeedCheckpoint open(Path file, @Nullable Long seed, long defaultSeed, int batchSize) {
+        if (!Files.exists(file)) {
+            return new SeedCheckpoint(file, seed == null ? defaultSeed : seed, batchSize, new HashMap<>());
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long checkpointSeed = Long.parseLong(properties.getProperty(SEED));
+        int checkpointBatchSize = Integer.parseInt(properties.getProperty(BATCH_SIZE));
+        if ((seed != null && seed != checkpointSeed) || batchSize != checkpointBatchSize) {
+            throw new IllegalStateException(String.format(
+                "Checkpoint %s was written with seed %d and batch size %d", file, checkpointSeed,
+                checkpointBatchSize));
+        }
+        Map<String, BitSet> committedChunks = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(CHUNKS_PREFIX)) {
+                committedChunks.put(key.substring(CHUNKS_PREFIX.length()), parseRanges(properties.getProperty(key)));
+            }
+        }
+        return new SeedCheckpoint(file, checkpointSeed, checkpointBatchSize, committedChunks);
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    synchronized boolean isCommitted(String entityClassName, int chunk) {
+        BitSet chunks = committedChunks.get(entityClassName);
+        return chunks != null && chunks.get(chunk);
+    }
+
+    synchronized void markCommitted(String entityClassName, int chunk) {
+        committedChunks.computeIfAbsent(entityClassName, key -> new BitSet()).set(chunk);
+        write();
+    }
+
+    private void write() {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(SEED, Long.toString(seed));
+        properties.setProperty(BATCH_SIZE, Integer.toString(batchSize));
+        committedChunks.forEach((entityClassName, chunks) ->
+            properties.setProperty(CHUNKS_PREFIX + entityClassName, formatRanges(chunks)));
+        try {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                properties.store(writer, "instancio-jpa seed checkpoint");
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BitSet parseRanges(String ranges) {
+        BitSet chunks = new BitSet();
+        for (String range : ranges.split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int separator = range.indexOf('-');
+            if (separator < 0) {
+                chunks.set(Integer.parseInt(range));
+            } else {
+                chunks.set(Integer.parseInt(range.substring(0, separator)),
+                    Integer.parseInt(range.substring(separator + 1)) + 1);
+            }
+        }
+        return chunks;
+    }
+
+    private static String formatRanges(BitSet chunks) {
+        StringBuilder sb = new StringBuilder();
+        int start = chunks.nextSetBit(0);
+        while (start >= 0) {
+            int end = chunks.nextClearBit(start);
+            sb.append(sb.length() == 0 ? "" : ",").append(start);
+            if (end - 1 > start) {
+                sb.append('-').append(end - 1);
+            }
+            start = chunks.nextSetBit(end);
+        }
+        return sb.toString();
+    }
+}
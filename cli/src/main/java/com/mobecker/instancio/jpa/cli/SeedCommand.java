@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.cli;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+/**
+ * Command line tool that seeds a database with entity graphs generated by
+ * {@link com.mobecker.instancio.jpa.InstancioJpa#jpaModel(Class, javax.persistence.metamodel.Metamodel)} models and
+ * persisted by {@link com.mobecker.instancio.jpa.EntityGraphPersister}. The persistence unit, its JPA provider and
+ * the entity classes must be on the classpath.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *   java -cp app.jar:instancio-jpa-cli.jar:... com.mobecker.instancio.jpa.cli.SeedCommand \
+ *       --persistence-unit shop --entity com.example.Customer=500000 --entity com.example.Order=5000000 \
+ *       --seed 42 --batch-size 500 --threads 4 --checkpoint shop.checkpoint
+ * }</pre>
+ *
+ * <p>The root entity classes are seeded one after another in the given order. The roots are committed in chunks of
+ * {@code batchSize} roots by {@code threads} writer threads while the committed rows and rows per second of every
+ * entity type are reported periodically. If a checkpoint file is given, every committed chunk is recorded in it.
+ * Running the same command again resumes from the checkpoint and skips the committed chunks. Since each chunk is
+ * generated from its own seed, the resumed run produces the same roots as an uninterrupted run. A chunk that was
+ * committed but not yet recorded when the run was interrupted is seeded again.
+ *
+ * @since 2.1.0
+ */
+public final class SeedCommand {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private SeedCommand() { }
+
+    /**
+     * Runs the command and exits the JVM with its exit code.
+     *
+     * @param args command line arguments, see {@code --help}
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param args command line arguments, see {@code --help}
+     * @param out stream for progress reports
+     * @param err stream for errors
+     * @return {@code 0} on success, {@code 1} if seeding failed and {@code 2} if the arguments are invalid
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        if (Arrays.asList(args).contains("--help")) {
+            out.println(SeedOptions.USAGE);
+            return EXIT_SUCCESS;
+        }
+        SeedOptions options;
+        try {
+            options = SeedOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(SeedOptions.USAGE);
+            return EXIT_USAGE;
+        }
+        try {
+            seed(options, out);
+            return EXIT_SUCCESS;
+        } catch (RuntimeException | ClassNotFoundException e) {
+            e.printStackTrace(err);
+            return EXIT_FAILURE;
+        }
+    }
+
+    private static void seed(SeedOptions options, PrintStream out) throws ClassNotFoundException {
+        long defaultSeed = options.getSeed() == null ? new Random().nextLong() : options.getSeed();
+        SeedCheckpoint checkpoint = options.getCheckpointFile() == null
+            ? SeedCheckpoint.inMemory(defaultSeed, options.getBatchSize())
+            : SeedCheckpoint.open(options.getCheckpointFile(), options.getSeed(), defaultSeed,
+                options.getBatchSize());
+        out.println("Seeding persistence unit " + options.getPersistenceUnitName() + " with seed "
+            + checkpoint.getSeed());
+        ThroughputReporter reporter = new ThroughputReporter(out);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "instancio-jpa-cli-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(
+            options.getPersistenceUnitName(), options.getProperties());
+        try {
+            progress.scheduleAtFixedRate(reporter::report, options.getProgressIntervalSeconds(),
+                options.getProgressIntervalSeconds(), TimeUnit.SECONDS);
+            SeedJob job = new SeedJob(entityManagerFactory, checkpoint, reporter, options.getBatchSize(),
+                options.getThreads());
+            for (Map.Entry<String, Long> rootCount : options.getRootCounts().entrySet()) {
+                Class<?> entityClass = Class.forName(rootCount.getKey(), true,
+                    Thread.currentThread().getContextClassLoader());
+                job.run(entityClass, rootCount.getValue());
+            }
+        } finally {
+            progress.shutdownNow();
+            entityManagerFactory.close();
+            reporter.reportSummary();
+        }
+    }
+}
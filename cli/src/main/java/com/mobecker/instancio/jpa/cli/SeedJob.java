@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.cli;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import org.instancio.Instancio;
+import org.instancio.Model;
+
+/**
+ * Seeds the roots of one root entity class in chunks of {@code batchSize} roots. Each chunk is generated with a seed
+ * derived from the run seed, the entity class and the chunk index, and committed in its own transaction by one of
+ * the writer threads. Chunks that are recorded in the checkpoint are skipped, so a resumed run produces the same
+ * roots as an uninterrupted one. The sequences of assigned ids and unique values of a chunk start after
+ * {@code chunkIndex * batchSize}, see {@link JpaKeys#UNIQUE_VALUE_OFFSET}, so roots of different chunks do not
+ * collide.
+ *
+ * <p>A chunk is recorded in the checkpoint after its transaction has been committed, i.e. chunks are seeded at least
+ * once. If the process dies between the commit and the checkpoint write, the resumed run seeds that chunk again and
+ * its roots exist twice.
+ *
+ * @since 2.1.0
+ */
+final class SeedJob {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final SeedCheckpoint checkpoint;
+    private final ThroughputReporter reporter;
+    private final int batchSize;
+    private final int threads;
+
+    SeedJob(EntityManagerFactory entityManagerFactory, SeedCheckpoint checkpoint, ThroughputReporter reporter,
+            int batchSize, int threads) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.checkpoint = checkpoint;
+        this.reporter = reporter;
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Seeds {@code rootCount} roots of the given entity class and blocks until all chunks have been committed.
+     *
+     * @throws IllegalArgumentException if the number of chunks exceeds {@link Integer#MAX_VALUE}
+     * @throws RuntimeException the first exception thrown by a writer thread
+     */
+    <T> void run(Class<T> entityClass, long rootCount) {
+        long chunkCount = (rootCount + batchSize - 1) / batchSize;
+        if (chunkCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chunks for " + entityClass.getName()
+                + ", increase the batch size");
+        }
+        Model<T> model = jpaModel(entityClass, entityManagerFactory.getMetamodel()).build();
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> writers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int chunk = nextChunk.getAndIncrement(); chunk < chunkCount && failure.get() == null;
+                         chunk = nextChunk.getAndIncrement()) {
+                        if (!checkpoint.isCommitted(entityClass.getName(), chunk)) {
+                            int chunkSize = (int) Math.min(batchSize, rootCount - (long) chunk * batchSize);
+                            seedChunk(entityClass, model, chunk, chunkSize);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "instancio-jpa-cli-" + entityClass.getSimpleName() + "-" + i);
+            writer.setDaemon(true);
+            writers.add(writer);
+        }
+        writers.forEach(Thread::start);
+        try {
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            throw t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t);
+        }
+    }
+
+    private <T> void seedChunk(Class<T> entityClass, Model<T> model, int chunk, int chunkSize) {
+        List<T> roots = Instancio.ofList(model)
+            .size(chunkSize)
+            .withSeed(chunkSeed(entityClass, chunk))
+            // Derived from the chunk index like the seed, so that resumed chunks reproduce their values
+            .withSetting(JpaKeys.UNIQUE_VALUE_OFFSET, (long) chunk * batchSize)
+            .create();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction tx = entityManager.getTransaction();
+        try {
+            CountingEntityGraphPersister persister = new CountingEntityGraphPersister(entityManager);
+            tx.begin();
+            roots.forEach(persister::persist);
+            tx.commit();
+            checkpoint.markCommitted(entityClass.getName(), chunk);
+            reporter.addCommittedRows(persister.rowsPerEntityType);
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    private long chunkSeed(Class<?> entityClass, int chunk) {
+        // Independent of the order of the root entity classes, so that they can be reordered between runs
+        long hash = checkpoint.getSeed() * 0x9E3779B97F4A7C15L + entityClass.getName().hashCode();
+        return hash * 0xBF58476D1CE4E5B9L + chunk;
+    }
+
+    /**
+     * Counts the persisted entities per entity type.
+     */
+    private static final class CountingEntityGraphPersister extends EntityGraphPersister {
+        private final Map<Class<?>, Long> rowsPerEntityType = new HashMap<>();
+
+        CountingEntityGraphPersister(EntityManager entityManager) {
+            super(entityManager);
+        }
+
+        @Override
+        protected void persistEntity(Object entity) {
+            super.persistEntity(entity);
+            rowsPerEntityType.merge(entity.getClass(), 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.cli;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The command line options of {@link SeedCommand}.
+ *
+ * @since 2.1.0
+ */
+final class SeedOptions {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java -cp <classpath> com.mobecker.instancio.jpa.cli.SeedCommand [options]",
+        "",
+        "Options:",
+        "  --persistence-unit <name>     persistence unit to seed (required)",
+        "  --entity <class>=<count>      root entity class and number of roots, repeatable (required)",
+        "  --seed <long>                 random seed, defaults to the seed of the checkpoint or a random seed",
+        "  --batch-size <n>              roots per transaction, defaults to 100",
+        "  --threads <n>                 number of writer threads, defaults to 1",
+        "  --checkpoint <file>           checkpoint file to resume an interrupted run from",
+        "  --progress-interval <seconds> interval of throughput reports, defaults to 10",
+        "  --property <key>=<value>      persistence unit property override, repeatable",
+        "  --help                        print this help");
+
+    private final String persistenceUnitName;
+    private final Map<String, Long> rootCounts;
+    @Nullable
+    private final Long seed;
+    private final int batchSize;
+    private final int threads;
+    @Nullable
+    private final Path checkpointFile;
+    private final int progressIntervalSeconds;
+    private final Map<String, String> properties;
+
+    private SeedOptions(String persistenceUnitName, Map<String, Long> rootCounts, @Nullable Long seed, int batchSize,
+                        int threads, @Nullable Path checkpointFile, int progressIntervalSeconds,
+                        Map<String, String> properties) {
+        this.persistenceUnitName = persistenceUnitName;
+        this.rootCounts = Collections.unmodifiableMap(rootCounts);
+        this.seed = seed;
+        this.batchSize = batchSize;
+        this.threads = threads;
+        this.checkpointFile = checkpointFile;
+        this.progressIntervalSeconds = progressIntervalSeconds;
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Parses the given command line arguments.
+     *
+     * @param args command line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    static SeedOptions parse(String[] args) {
+        String persistenceUnitName = null;
+        Map<String, Long> rootCounts = new LinkedHashMap<>();
+        Long seed = null;
+        int batchSize = 100;
+        int threads = 1;
+        Path checkpointFile = null;
+        int progressIntervalSeconds = 10;
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--persistence-unit":
+                    persistenceUnitName = value;
+                    break;
+                case "--entity":
+                    String[] rootCount = splitKeyValue(option, value);
+                    rootCounts.put(rootCount[0], parsePositiveLong(option, rootCount[1]));
+                    break;
+                case "--seed":
+                    seed = parseLong(option, value);
+                    break;
+                case "--batch-size":
+                    batchSize = (int) Math.min(parsePositiveLong(option, value), Integer.MAX_VALUE);
+                    break;
+                case "--threads":
+                    threads = (int) Math.min(parsePositiveLong(option, value), Integer.MAX_VALUE);
+                    break;
+                case "--checkpoint":
+                    checkpointFile = Paths.get(value);
+                    break;
+                case "--progress-interval":
+                    progressIntervalSeconds = (int) Math.min(parsePositiveLong(option, value), Integer.MAX_VALUE);
+                    break;
+                case "--property":
+                    String[] property = splitKeyValue(option, value);
+                    properties.put(property[0], property[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (persistenceUnitName == null) {
+            throw new IllegalArgumentException("Missing option --persistence-unit");
+        }
+        if (rootCounts.isEmpty()) {
+            throw new IllegalArgumentException("Missing option --entity");
+        }
+        return new SeedOptions(persistenceUnitName, rootCounts, seed, batchSize, threads, checkpointFile,
+            progressIntervalSeconds, properties);
+    }
+
+    private static String[] splitKeyValue(String option, String value) {
+        int separator = value.indexOf('=');
+        if (separator <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid value '%s' for option %s, expected <key>=<value>", value, option));
+        }
+        return new String[] {value.substring(0, separator), value.substring(separator + 1)};
+    }
+
+    private static long parsePositiveLong(String option, String value) {
+        long parsedValue = parseLong(option, value);
+        if (parsedValue <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid value '%s' for option %s, expected a positive number", value, option));
+        }
+        return parsedValue;
+    }
+
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid value '%s' for option %s, expected a number", value, option), e);
+        }
+    }
+
+    String getPersistenceUnitName() {
+        return persistenceUnitName;
+    }
+
+    /**
+     * Returns the number of roots per root entity class name, in the order in which they are seeded.
+     */
+    Map<String, Long> getRootCounts() {
+        return rootCounts;
+    }
+
+    @Nullable
+    Long getSeed() {
+        return seed;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    @Nullable
+    Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    int getProgressIntervalSeconds() {
+        return progressIntervalSeconds;
+    }
+
+    Map<String, String> getProperties() {
+        return properties;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.cli;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the committed rows per entity type and reports the throughput of a seed run.
+ *
+ * @since 2.1.0
+ */
+final class ThroughputReporter {
+
+    private final PrintStream out;
+    private final Map<Class<?>, LongAdder> committedRows = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Long> reportedRows = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private long lastReportNanos = startNanos;
+
+    ThroughputReporter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Adds rows of a committed chunk.
+     */
+    void addCommittedRows(Map<Class<?>, Long> rowsPerEntityType) {
+        rowsPerEntityType.forEach((entityType, rows) ->
+            committedRows.computeIfAbsent(entityType, key -> new LongAdder()).add(rows));
+    }
+
+
+    /**
+     * Prints the committed rows per entity type and the rows per second since the previous report.
+     */
+    synchronized void report() {
+        long now = System.nanoTime();
+        double intervalSeconds = Math.max(now - lastReportNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        StringBuilder sb = new StringBuilder(String.format("[%ds]", TimeUnit.NANOSECONDS.toSeconds(now - startNanos)));
+        committedRows.forEach((entityType, adder) -> {
+            long rows = adder.sum();
+            long previousRows = reportedRows.getOrDefault(entityType, 0L);
+            reportedRows.put(entityType, rows);
+            sb.append(String.format(" %s: %d rows (%.1f rows/s)", entityType.getSimpleName(), rows,
+                (rows - previousRows) / intervalSeconds));
+        });
+        lastReportNanos = now;
+        out.println(sb);
+    }
+
+    /**
+     * Prints the committed rows per entity type and the average rows per second of the whole run.
+     */
+    synchronized void reportSummary() {
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        committedRows.forEach((entityType, adder) -> out.println(String.format("%s: %d rows (%.1f rows/s)",
+            entityType.getName(), adder.sum(), adder.sum() / seconds)));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getManagedJavaTypes;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isProxy;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.setAttributeValue;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_MANY;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_ONE;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.ONE_TO_MANY;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.ONE_TO_ONE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Base class for persisters that traverse an entity graph starting from an entity root and write the entities in
+ * an order that satisfies foreign key constraints. Entities referenced via {@code MANY_TO_ONE} and non-owned
+ * {@code ONE_TO_ONE} associations are written before the referencing entity, owned {@code ONE_TO_ONE} associations
+ * and collection elements are written after it.
+ *
+ * <p>Subclasses decide how an individual entity is written.
+ *
+ * @see EntityGraphPersister
+ * @since 2.1.0
+ */
+public abstract class AbstractEntityGraphPersister {
+
+    /**
+     * The JPA metamodel used to navigate the entity graph.
+     */
+    protected final Metamodel metamodel;
+    private final Set<Class<?>> managedJavaTypes;
+    @Nullable
+    private final MetamodelAnalysis metamodelAnalysis;
+
+    /**
+     * Create new {@link AbstractEntityGraphPersister}.
+     *
+     * @param metamodel JPA metamodel
+     */
+    protected AbstractEntityGraphPersister(Metamodel metamodel) {
+        this.metamodel = metamodel;
+        this.managedJavaTypes = getManagedJavaTypes(metamodel);
+        this.metamodelAnalysis = MetamodelAnalysis.find(metamodel);
+    }
+
+    /**
+     * Traverses the entity graph starting at {@code entity} and writes all entities that have not been written yet
+     * in dependency order.
+     *
+     * @param entity JPA entity root
+     */
+    protected final void persistGraph(Object entity) {
+        List<Object> visited = new ArrayList<>();
+        persist0(entity, visited);
+    }
+
+    /**
+     * Checks whether the given entity has already been written.
+     *
+     * @param entity JPA entity
+     * @return true if the entity has already been written, else false
+     */
+    protected abstract boolean isPersisted(Object entity);
+
+    /**
+     * Writes a single entity. All entities the entity depends on have been written before this method is invoked.
+     *
+     * @param entity JPA entity
+     */
+    protected abstract void persistEntity(Object entity);
+
+    /**
+     * Allows subclasses to replace a reference to an entity that has been written before but is no longer
+     * managed with a substitute, e.g. a reference proxy. The default implementation returns {@code null}.
+     *
+     * @param referencedEntity the referenced JPA entity
+     * @return the substitute to assign instead of {@code referencedEntity}, or {@code null} if the referenced entity
+     *     should be handled like any other entity
+     */
+    @Nullable
+    protected Object resolvePersistedReference(Object referencedEntity) {
+        return null;
+    }
+
+    /**
+     * Groups the given entity classes by dependency level. Entity classes of a level only reference entity classes
+     * of lower levels via {@code MANY_TO_ONE} and owning {@code ONE_TO_ONE} associations. References within a
+     * cycle of entity classes are ignored.
+     *
+     * @param entityClasses JPA entity classes
+     * @return the entity classes per dependency level, starting with the entity classes without dependencies
+     */
+    protected final List<Set<Class<?>>> computeDependencyLevels(Collection<Class<?>> entityClasses) {
+        Map<Class<?>, Integer> levels = new HashMap<>();
+        List<Set<Class<?>>> dependencyLevels = new ArrayList<>();
+        for (Class<?> entityClass : entityClasses) {
+            int level = computeDependencyLevel(entityClass, entityClasses, levels, new HashSet<>());
+            while (dependencyLevels.size() <= level) {
+                dependencyLevels.add(new LinkedHashSet<>());
+            }
+            dependencyLevels.get(level).add(entityClass);
+        }
+        return dependencyLevels;
+    }
+
+    private int computeDependencyLevel(Class<?> entityClass, Collection<Class<?>> entityClasses,
+                                       Map<Class<?>, Integer> levels, Set<Class<?>> path) {
+        Integer level = levels.get(entityClass);
+        if (level != null) {
+            return level;
+        }
+        path.add(entityClass);
+        int maxLevel = 0;
+        for (SingularAttribute<?, ?> attr : metamodel.entity(entityClass).getSingularAttributes()) {
+            if ((attr.getPersistentAttributeType() == MANY_TO_ONE
+                || attr.getPersistentAttributeType() == ONE_TO_ONE && !isOwnedSide(attr))
+                && isInsertable(attr)
+            ) {
+                for (Class<?> dependency : entityClasses) {
+                    if (attr.getJavaType().isAssignableFrom(dependency) && !path.contains(dependency)) {
+                        maxLevel = Math.max(
+                            maxLevel, 1 + computeDependencyLevel(dependency, entityClasses, levels, path));
+                    }
+                }
+            }
+        }
+        path.remove(entityClass);
+        levels.put(entityClass, maxLevel);
+        return maxLevel;
+    }
+
+    private void persist0(Object entity, List<Object> visited) {
+        // Proxies refer to existing entities
+        if (isPersisted(entity) || isProxy(managedJavaTypes, entity)) {
+            return;
+        }
+        if (visited.contains(entity)) {
+            String cycle = visited.stream()
+                .map(obj -> String.format("%s@%s", obj.getClass().getName(), System.identityHashCode(obj)))
+                .collect(Collectors.joining(" -> "));
+            cycle += " -> " + String.format("%s@%s", entity.getClass().getName(), System.identityHashCode(entity));
+            throw new IllegalStateException("Cycle detected: " + cycle);
+        }
+        visited.add(entity);
+        EntityType<?> entityType = metamodel.entity(entity.getClass());
+        entityType.getSingularAttributes().forEach(attr -> {
+            if ((attr.getPersistentAttributeType() == MANY_TO_ONE
+                || attr.getPersistentAttributeType() == ONE_TO_ONE && !isOwnedSide(attr))
+                && isInsertable(attr)
+            ) {
+                Object attrValue = resolveAttributeValue(entity, attr);
+                if (attrValue != null) {
+                    Object substitute = resolvePersistedReference(attrValue);
+                    if (substitute == null) {
+                        persist0(attrValue, visited);
+                    } else {
+                        setAttributeValue(entity, attr, substitute);
+                    }
+                }
+            }
+        });
+        persistEntity(entity);
+        entityType.getAttributes().forEach(attr -> {
+            if (attr.getPersistentAttributeType() == ONE_TO_ONE
+                && isOwnedSide(attr)
+                && isInsertable(attr)
+            ) {
+                Object attrValue = resolveAttributeValue(entity, attr);
+                if (attrValue != null && !visited.contains(attrValue)) {
+                    persist0(attrValue, visited);
+                }
+            } else if ((attr.getPersistentAttributeType() == ONE_TO_MANY
+                || attr.getPersistentAttributeType() == MANY_TO_MANY)
+                && isInsertable(attr)
+            ) {
+                Collection<?> collection = (Collection<?>) resolveAttributeValue(entity, attr);
+                if (collection != null) {
+                    collection.stream()
+                        .filter(element -> !visited.contains(element))
+                        .forEach(element -> persist0(element, visited));
+                }
+            }
+        });
+        visited.remove(entity);
+    }
+
+    private boolean isOwnedSide(Attribute<?, ?> attribute) {
+        return metamodelAnalysis == null
+            ? resolveMappedBy(attribute.getJavaMember()) != null : metamodelAnalysis.getMappedBy(attribute) != null;
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.selector.JpaAttributeSelector.jpaAttribute;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.BASIC;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.EMBEDDED;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_ONE;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.ONE_TO_ONE;
+
+import com.mobecker.instancio.jpa.generator.PopulationProbabilityGenerator;
+import com.mobecker.instancio.jpa.generator.ValuePoolGenerator;
+import com.mobecker.instancio.jpa.util.AliasTable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import org.instancio.InstancioApi;
+import org.instancio.settings.Keys;
+import org.instancio.settings.Settings;
+
+/**
+ * Collection size ranges, population probabilities and value cardinalities for individual JPA attributes.
+ */
+final class CardinalityProfile {
+
+    private final Map<AttributeRef, int[]> collectionSizes = new LinkedHashMap<>();
+    private final Map<AttributeRef, Double> populationProbabilities = new LinkedHashMap<>();
+    private final Map<AttributeRef, ValueCardinality> valueCardinalities = new LinkedHashMap<>();
+
+    void addCollectionSize(Class<?> managedClass, String attributeName, int minSize, int maxSize) {
+        if (minSize < 0 || maxSize < minSize) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid collection size range [%d, %d] for %s#%s", minSize, maxSize, managedClass.getName(),
+                attributeName));
+        }
+        collectionSizes.put(new AttributeRef(managedClass, attributeName), new int[] {minSize, maxSize});
+    }
+
+    void addPopulationProbability(Class<?> managedClass, String attributeName, double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid population probability %s for %s#%s", probability, managedClass.getName(), attributeName));
+        }
+        populationProbabilities.put(new AttributeRef(managedClass, attributeName), probability);
+    }
+
+    void addValueCardinality(Class<?> managedClass, String attributeName, int distinctValues, double nullRatio) {
+        if (distinctValues <= 0 || !(nullRatio >= 0 && nullRatio <= 1)) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid value cardinality %d with null ratio %s for %s#%s", distinctValues, nullRatio,
+                managedClass.getName(), attributeName));
+        }
+        valueCardinalities.put(new AttributeRef(managedClass, attributeName),
+            new ValueCardinality(distinctValues, null, nullRatio));
+    }
+
+    void addValueWeights(Class<?> managedClass, String attributeName, double[] weights, double nullRatio) {
+        if (!(nullRatio >= 0 && nullRatio <= 1)) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid null ratio %s for %s#%s", nullRatio, managedClass.getName(), attributeName));
+        }
+        // Fails early on invalid weights
+        AliasTable.of(weights);
+        valueCardinalities.put(new AttributeRef(managedClass, attributeName),
+            new ValueCardinality(weights.length, weights.clone(), nullRatio));
+    }
+
+    void addAll(CardinalityProfile other) {
+        collectionSizes.putAll(other.collectionSizes);
+        populationProbabilities.putAll(other.populationProbabilities);
+        valueCardinalities.putAll(other.valueCardinalities);
+    }
+
+    /**
+     * Checks whether the profile contains an entry for the given attribute.
+     *
+     * @param ownerClass the class declaring the node of the attribute, may be a subclass of the profiled class
+     * @param attributeName the attribute name
+     * @return true if the attribute is profiled, else false
+     */
+    boolean contains(Class<?> ownerClass, String attributeName) {
+        return findEntry(collectionSizes, ownerClass, attributeName) != null
+            || findEntry(populationProbabilities, ownerClass, attributeName) != null
+            || findEntry(valueCardinalities, ownerClass, attributeName) != null;
+    }
+
+    @Nullable
+    int[] findCollectionSize(Class<?> ownerClass, String attributeName) {
+        return findEntry(collectionSizes, ownerClass, attributeName);
+    }
+
+    @Nullable
+    Double findPopulationProbability(Class<?> ownerClass, String attributeName) {
+        return findEntry(populationProbabilities, ownerClass, attributeName);
+    }
+
+    /**
+     * Applies the profile to the given Instancio API.
+     *
+     * @param instancioApi the Instancio API
+     * @param metamodel JPA metamodel
+     * @param settings settings of the Instancio API, used for the string lengths of value pools
+     * @throws IllegalArgumentException if a profiled attribute does not exist or has an unsupported type, or if a
+     *     value cardinality is given for a unique or non-generated id attribute
+     */
+    void apply(InstancioApi<?> instancioApi, Metamodel metamodel, Settings settings) {
+        collectionSizes.forEach((attributeRef, sizeRange) -> {
+            Attribute<?, ?> attribute = attributeRef.resolve(metamodel);
+            if (!(attribute instanceof PluralAttribute<?, ?, ?>)) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot apply collection size to non-collection attribute %s", attributeRef));
+            }
+            if (((PluralAttribute<?, ?, ?>) attribute).getCollectionType() == PluralAttribute.CollectionType.MAP) {
+                instancioApi.generate(jpaAttribute(attributeRef.managedClass, attributeRef.attributeName),
+                    gen -> gen.map().minSize(sizeRange[0]).maxSize(sizeRange[1]));
+            } else {
+                instancioApi.generate(jpaAttribute(attributeRef.managedClass, attributeRef.attributeName),
+                    gen -> gen.collection().minSize(sizeRange[0]).maxSize(sizeRange[1]));
+            }
+        });
+        populationProbabilities.forEach((attributeRef, probability) -> {
+            Attribute<?, ?> attribute = attributeRef.resolve(metamodel);
+            if (!(attribute instanceof SingularAttribute<?, ?>)
+                || !((SingularAttribute<?, ?>) attribute).isOptional()
+                || !Arrays.asList(MANY_TO_ONE, ONE_TO_ONE, EMBEDDED).contains(attribute.getPersistentAttributeType())
+            ) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot apply population probability to attribute %s that is not an optional reference",
+                    attributeRef));
+            }
+            instancioApi.supply(jpaAttribute(attributeRef.managedClass, attributeRef.attributeName),
+                new PopulationProbabilityGenerator<>(attribute.getJavaType(), probability));
+        });
+        valueCardinalities.forEach((attributeRef, valueCardinality) -> {
+            Attribute<?, ?> attribute = attributeRef.resolve(metamodel);
+            if (attribute.getPersistentAttributeType() != BASIC || attribute.isCollection()) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot apply value cardinality to non-basic attribute %s", attributeRef));
+            }
+            if (UniqueValueGeneratorResolver.isBasicUnique(attribute)
+                || UniqueValueGeneratorResolver.isNonGeneratedIdAttribute(attribute)) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot apply value cardinality to unique attribute %s", attributeRef));
+            }
+            if (valueCardinality.nullRatio > 0 && !((SingularAttribute<?, ?>) attribute).isOptional()) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot apply null ratio to mandatory attribute %s", attributeRef));
+            }
+            instancioApi.supply(jpaAttribute(attributeRef.managedClass, attributeRef.attributeName),
+                valueCardinality.createGenerator(attribute, attributeRef, settings));
+        });
+    }
+
+    /**
+     * Parses a profile from the property forms of {@link com.mobecker.instancio.jpa.setting.JpaKeys#COLLECTION_SIZES},
+     * {@link com.mobecker.instancio.jpa.setting.JpaKeys#POPULATION_PROBABILITIES} and
+     * {@link com.mobecker.instancio.jpa.setting.JpaKeys#VALUE_CARDINALITIES}.
+     *
+     * @param rawCollectionSizes collection sizes property value
+     * @param rawPopulationProbabilities population probabilities property value
+     * @param rawValueCardinalities value cardinalities property value
+     * @return the parsed profile
+     * @throws IllegalStateException if a property value cannot be parsed
+     */
+    static CardinalityProfile parse(@Nullable String rawCollectionSizes, @Nullable String rawPopulationProbabilities,
+                                    @Nullable String rawValueCardinalities) {
+        CardinalityProfile profile = new CardinalityProfile();
+        for (String entry : splitEntries(rawCollectionSizes)) {
+            String[] parts = splitEntry(entry);
+            String[] sizeParts = parts[2].split("-");
+            try {
+                if (sizeParts.length == 1) {
+                    int size = Integer.parseInt(sizeParts[0].trim());
+                    profile.addCollectionSize(loadClass(parts[0], entry), parts[1], size, size);
+                } else if (sizeParts.length == 2) {
+                    profile.addCollectionSize(loadClass(parts[0], entry), parts[1],
+                        Integer.parseInt(sizeParts[0].trim()), Integer.parseInt(sizeParts[1].trim()));
+                } else {
+                    throw new IllegalStateException(String.format("Cannot parse collection size '%s'.", entry));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException(String.format("Cannot parse collection size '%s'.", entry), e);
+            }
+        }
+        for (String entry : splitEntries(rawPopulationProbabilities)) {
+            String[] parts = splitEntry(entry);
+            try {
+                profile.addPopulationProbability(loadClass(parts[0], entry), parts[1],
+                    Double.parseDouble(parts[2].trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException(String.format("Cannot parse population probability '%s'.", entry),
+                    e);
+            }
+        }
+        for (String entry : splitEntries(rawValueCardinalities)) {
+            String[] parts = splitEntry(entry);
+            String[] cardinalityParts = parts[2].split("/");
+            try {
+                if (cardinalityParts.length == 1) {
+                    profile.addValueCardinality(loadClass(parts[0], entry), parts[1],
+                        Integer.parseInt(cardinalityParts[0].trim()), 0);
+                } else if (cardinalityParts.length == 2) {
+                    profile.addValueCardinality(loadClass(parts[0], entry), parts[1],
+                        Integer.parseInt(cardinalityParts[0].trim()), Double.parseDouble(cardinalityParts[1].trim()));
+                } else {
+                    throw new IllegalStateException(String.format("Cannot parse value cardinality '%s'.", entry));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException(String.format("Cannot parse value cardinality '%s'.", entry), e);
+            }
+        }
+        return profile;
+    }
+
+    private static String[] splitEntries(@Nullable String rawEntries) {
+        return rawEntries == null || rawEntries.trim().isEmpty() ? new String[0] : Arrays.stream(rawEntries.split(","))
+            .map(String::trim).toArray(String[]::new);
+    }
+
+    private static String[] splitEntry(String entry) {
+        int hashIndex = entry.indexOf('#');
+        int colonIndex = entry.lastIndexOf(':');
+        if (hashIndex <= 0 || colonIndex <= hashIndex + 1 || colonIndex == entry.length() - 1) {
+            throw new IllegalStateException(String.format("Cannot parse entry '%s'.", entry));
+        }
+        return new String[] {
+            entry.substring(0, hashIndex).trim(),
+            entry.substring(hashIndex + 1, colonIndex).trim(),
+            entry.substring(colonIndex + 1).trim()
+        };
+    }
+
+    private static Class<?> loadClass(String className, String entry) {
+        try {
+            return Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(String.format("Cannot resolve class of entry '%s'.", entry), e);
+        }
+    }
+
+    @Nullable
+    private static <V> V findEntry(Map<AttributeRef, V> entries, Class<?> ownerClass, String attributeName) {
+        for (Map.Entry<AttributeRef, V> entry : entries.entrySet()) {
+            AttributeRef attributeRef = entry.getKey();
+            if (attributeRef.attributeName.equals(attributeName)
+                && attributeRef.managedClass.isAssignableFrom(ownerClass)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static final class ValueCardinality {
+        private final int distinctValues;
+        @Nullable
+        private final double[] weights;
+        private final double nullRatio;
+
+        private ValueCardinality(int distinctValues, @Nullable double[] weights, double nullRatio) {
+            this.distinctValues = distinctValues;
+            this.weights = weights;
+            this.nullRatio = nullRatio;
+        }
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        private ValuePoolGenerator<?> createGenerator(
+            Attribute<?, ?> attribute, AttributeRef attributeRef, Settings settings
+        ) {
+            // Strings of the dictionary fit into the column like those of StringGeneratorResolver
+            Integer columnLength = StringGeneratorResolver.getColumnLength(attribute);
+            Integer maxLength = settings.get(Keys.STRING_MAX_LENGTH);
+            Integer minLength = settings.get(Keys.STRING_MIN_LENGTH);
+            int effectiveMaxLength = Math.min(columnLength == null ? Integer.MAX_VALUE : columnLength,
+                maxLength == null ? Keys.STRING_MAX_LENGTH.defaultValue() : maxLength);
+            Settings dictionarySettings = Settings.create()
+                .set(Keys.STRING_MIN_LENGTH, Math.min(effectiveMaxLength,
+                    minLength == null ? Keys.STRING_MIN_LENGTH.defaultValue() : minLength))
+                .set(Keys.STRING_MAX_LENGTH, effectiveMaxLength)
+                .lock();
+            // The dictionary is the same for every model, e.g. in independent seeding jobs
+            long seed = attributeRef.toString().hashCode();
+            Class valueType = attribute.getJavaType();
+            return weights == null
+                ? new ValuePoolGenerator<>(valueType, distinctValues, nullRatio, dictionarySettings, seed)
+                : new ValuePoolGenerator<>(valueType, weights, nullRatio, dictionarySettings, seed);
+        }
+    }
+
+    private static final class AttributeRef {
+        private final Class<?> managedClass;
+        private final String attributeName;
+
+        private AttributeRef(Class<?> managedClass, String attributeName) {
+            this.managedClass = managedClass;
+            this.attributeName = attributeName;
+        }
+
+        private Attribute<?, ?> resolve(Metamodel metamodel) {
+            return metamodel.managedType(managedClass).getAttribute(attributeName);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AttributeRef)) {
+                return false;
+            }
+            AttributeRef that = (AttributeRef) o;
+            return managedClass.equals(that.managedClass) && attributeName.equals(that.attributeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(managedClass, attributeName);
+        }
+
+        @Override
+        public String toString() {
+            return managedClass.getName() + "#" + attributeName;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Metamodel;
+import org.instancio.Instancio;
+import org.instancio.Model;
+
+/**
+ * The generation of rows of an entity table as compiled by {@link SeedCompiler}. The rows are either generated inside
+ * the database by a single {@code INSERT ... SELECT} statement or, if that is not possible, generated in Java and
+ * written with {@link JdbcEntityGraphWriter}.
+ *
+ * @since 2.1.0
+ */
+public final class CompiledSeed {
+
+    private static final int FALLBACK_ROOTS_PER_CHUNK = 1000;
+    private static final int FALLBACK_ROWS_PER_STATEMENT = 100;
+
+    private final Class<?> entityClass;
+    private final Metamodel metamodel;
+    private final SeedDialect dialect;
+    private final JdbcMappingResolver mappingResolver;
+    private final List<String> columns;
+    private final List<Function<ExecutionContext, String>> expressions;
+    private final Map<Class<?>, long[]> referenceIdRanges;
+    private final List<String> fallbackReasons;
+
+    CompiledSeed(Class<?> entityClass, Metamodel metamodel, SeedDialect dialect, JdbcMappingResolver mappingResolver,
+                 List<String> columns, List<Function<ExecutionContext, String>> expressions,
+                 Map<Class<?>, long[]> referenceIdRanges) {
+        this.entityClass = entityClass;
+        this.metamodel = metamodel;
+        this.dialect = dialect;
+        this.mappingResolver = mappingResolver;
+        this.columns = columns;
+        this.expressions = expressions;
+        this.referenceIdRanges = referenceIdRanges;
+        this.fallbackReasons = Collections.emptyList();
+    }
+
+    CompiledSeed(Class<?> entityClass, Metamodel metamodel, SeedDialect dialect, JdbcMappingResolver mappingResolver,
+                 List<String> fallbackReasons) {
+        this.entityClass = entityClass;
+        this.metamodel = metamodel;
+        this.dialect = dialect;
+        this.mappingResolver = mappingResolver;
+        this.columns = Collections.emptyList();
+        this.expressions = Collections.emptyList();
+        this.referenceIdRanges = Collections.emptyMap();
+        this.fallbackReasons = Collections.unmodifiableList(fallbackReasons);
+    }
+
+    /**
+     * Returns the entity class whose rows are generated.
+     *
+     * @return the JPA entity class
+     */
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Checks whether the rows are generated inside the database.
+     *
+     * @return true if the rows are generated by an {@code INSERT ... SELECT} statement, false if they are generated
+     *     in Java
+     */
+    public boolean isPushedDown() {
+        return fallbackReasons.isEmpty();
+    }
+
+    /**
+     * Returns the reasons why the rows cannot be generated inside the database.
+     *
+     * @return the fallback reasons, empty if the rows are generated inside the database
+     */
+    public List<String> getFallbackReasons() {
+        return fallbackReasons;
+    }
+
+    /**
+     * Returns the {@code INSERT ... SELECT} statement that generates the given number of rows. The statement
+     * depends on the ids that exist in the database at the time of the call.
+     *
+     * @param connection JDBC connection to query existing ids from
+     * @param rowCount the number of rows to generate
+     * @return the SQL statement
+     * @throws IllegalStateException if the rows cannot be generated inside the database or if a mandatory reference
+     *     cannot be generated because the referenced table is empty
+     */
+    public String getSql(Connection connection, long rowCount) {
+        if (!isPushedDown()) {
+            throw new IllegalStateException(String.format(
+                "Rows of %s cannot be generated inside the database: %s", entityClass.getName(), fallbackReasons));
+        }
+        ExecutionContext context = new ExecutionContext(connection);
+        StringBuilder sb = new StringBuilder("insert into ").append(mappingResolver.getTableName(entityClass))
+            .append(" (").append(String.join(", ", columns)).append(") select ");
+        for (int i = 0; i < expressions.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(expressions.get(i).apply(context));
+        }
+        return sb.append(" from ").append(dialect.rowSource(rowCount)).toString();
+    }
+
+    /**
+     * Generates the given number of rows. The caller is responsible for transaction management.
+     *
+     * @param connection JDBC connection to write to
+     * @param rowCount the number of rows to generate
+     * @return the number of rows inserted into the entity table
+     * @throws IllegalStateException if a mandatory reference cannot be generated because the referenced table is
+     *     empty
+     */
+    public long execute(Connection connection, long rowCount) {
+        if (!isPushedDown()) {
+            executeFallback(connection, jpaModel(entityClass, metamodel).build(), rowCount);
+            return rowCount;
+        }
+        String sql = getSql(connection, rowCount);
+        try (Statement statement = connection.createStatement()) {
+            return statement.executeUpdate(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private <T> void executeFallback(Connection connection, Model<T> model, long rowCount) {
+        JdbcEntityGraphWriter writer = new JdbcEntityGraphWriter(connection, metamodel, FALLBACK_ROWS_PER_STATEMENT);
+        for (long written = 0; written < rowCount; written += FALLBACK_ROOTS_PER_CHUNK) {
+            int chunkSize = (int) Math.min(FALLBACK_ROOTS_PER_CHUNK, rowCount - written);
+            writer.writeAll(Instancio.ofList(model).size(chunkSize).create());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledSeed{entityClass=" + entityClass.getName() + ", pushedDown=" + isPushedDown()
+            + (isPushedDown() ? "" : ", fallbackReasons=" + fallbackReasons) + '}';
+    }
+
+    /**
+     * The ids that exist in the database when a statement is created.
+     */
+    final class ExecutionContext {
+        private final Connection connection;
+        private final Map<Class<?>, long[]> queriedIdRanges = new HashMap<>();
+        private String idExpression;
+
+        private ExecutionContext(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns an expression for the ids of the generated rows, which continue after the largest existing id.
+         */
+        String getIdExpression() {
+            if (idExpression == null) {
+                long[] idRange = queryIdRange(entityClass);
+                idExpression = "(" + (idRange == null ? 0 : idRange[1]) + " + " + dialect.rowNumber() + ")";
+            }
+            return idExpression;
+        }
+
+        @Nullable
+        long[] getReferenceIdRange(Class<?> targetClass) {
+            long[] idRange = referenceIdRanges.get(targetClass);
+            return idRange == null ? queryIdRange(targetClass) : idRange;
+        }
+
+        @Nullable
+        private long[] queryIdRange(Class<?> targetClass) {
+            if (queriedIdRanges.containsKey(targetClass)) {
+                return queriedIdRanges.get(targetClass);
+            }
+            String idColumn = mappingResolver.getIdColumnName(targetClass);
+            String sql = "select min(" + idColumn + "), max(" + idColumn + "), count(*) from "
+                + mappingResolver.getTableName(targetClass);
+            long[] idRange;
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                resultSet.next();
+                idRange = resultSet.getLong(3) == 0 ? null : new long[] {resultSet.getLong(1), resultSet.getLong(2)};
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            queriedIdRanges.put(targetClass, idRange);
+            return idRange;
+        }
+    }
+}
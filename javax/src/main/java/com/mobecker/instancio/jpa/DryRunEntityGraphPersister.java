@@ -0,0 +1,279 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.hasCollectionTable;
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.hasElementJoinColumn;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getAnnotation;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getSingleIdAttribute;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
+
+import com.mobecker.instancio.jpa.util.WeakIdentityMap;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import javax.persistence.Column;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.MapAttribute;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+
+/**
+ * A persister that traverses entity graphs in the same order as {@link EntityGraphPersister} without touching the
+ * database and records an {@link InsertPlan} instead. The plan can be used to size seed jobs and to spot entity
+ * graphs that are larger than expected before anything is written.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *     DryRunEntityGraphPersister dryRun = new DryRunEntityGraphPersister(metamodel, 100);
+ *     Instancio.stream(orderModel).limit(10_000).forEach(dryRun::persist);
+ *     InsertPlan insertPlan = dryRun.getInsertPlan();
+ * }</pre>
+ *
+ * <p>Entities are counted once per persister, so entities shared between roots are counted once, just like
+ * {@link EntityGraphPersister} persists them once. Payload bytes are estimated from the mapping, not from the
+ * generated values.
+ *
+ * @since 2.1.0
+ */
+public class DryRunEntityGraphPersister extends AbstractEntityGraphPersister {
+
+    // The default length of string and binary columns as defined by Column#length()
+    private static final int DEFAULT_COLUMN_LENGTH = 255;
+    private static final Map<Class<?>, Integer> FIXED_BYTES = new HashMap<>();
+
+    static {
+        for (Class<?> type : Arrays.asList(boolean.class, Boolean.class, byte.class, Byte.class)) {
+            FIXED_BYTES.put(type, 1);
+        }
+        for (Class<?> type : Arrays.asList(short.class, Short.class, char.class, Character.class)) {
+            FIXED_BYTES.put(type, 2);
+        }
+        for (Class<?> type : Arrays.asList(int.class, Integer.class, float.class, Float.class, LocalDate.class)) {
+            FIXED_BYTES.put(type, 4);
+        }
+        for (Class<?> type : Arrays.asList(long.class, Long.class, double.class, Double.class, Date.class,
+            java.sql.Date.class, java.sql.Time.class, java.sql.Timestamp.class, Calendar.class, Instant.class,
+            LocalDateTime.class, LocalTime.class, Duration.class)) {
+            FIXED_BYTES.put(type, 8);
+        }
+        for (Class<?> type : Arrays.asList(OffsetDateTime.class, OffsetTime.class, ZonedDateTime.class)) {
+            FIXED_BYTES.put(type, 12);
+        }
+        for (Class<?> type : Arrays.asList(BigDecimal.class, BigInteger.class, UUID.class)) {
+            FIXED_BYTES.put(type, 16);
+        }
+    }
+
+    private final int jdbcBatchSize;
+    private final WeakIdentityMap<Object, Boolean> persistedEntities = new WeakIdentityMap<>();
+    private final Map<Class<?>, Long> rowCounts = new LinkedHashMap<>();
+    private final Map<Class<?>, Long> estimatedBytes = new LinkedHashMap<>();
+    private final Map<String, Long> collectionRowCounts = new LinkedHashMap<>();
+    private final Map<String, Long> collectionEstimatedBytes = new LinkedHashMap<>();
+    private final Map<Class<?>, Long> rowBytesCache = new HashMap<>();
+    private final Map<Attribute<?, ?>, Long> collectionRowBytesCache = new HashMap<>();
+
+    /**
+     * Create new {@link DryRunEntityGraphPersister}.
+     *
+     * @param metamodel JPA metamodel
+     * @param jdbcBatchSize the JDBC batch size the batch counts of the {@link InsertPlan} are based on
+     * @throws IllegalArgumentException if {@code jdbcBatchSize} is not positive
+     */
+    public DryRunEntityGraphPersister(Metamodel metamodel, int jdbcBatchSize) {
+        super(metamodel);
+        if (jdbcBatchSize <= 0) {
+            throw new IllegalArgumentException("jdbcBatchSize must be positive");
+        }
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /**
+     * Records the inserts required to persist the entity graph of the given root. See
+     * {@link DryRunEntityGraphPersister}.
+     *
+     * @param entity JPA entity root
+     */
+    public void persist(Object entity) {
+        persistGraph(entity);
+    }
+
+    /**
+     * Returns the {@link InsertPlan} for all roots recorded so far.
+     *
+     * @return the insert plan
+     */
+    public InsertPlan getInsertPlan() {
+        return new InsertPlan(jdbcBatchSize, computeDependencyLevels(rowCounts.keySet()),
+            new LinkedHashMap<>(rowCounts), new LinkedHashMap<>(estimatedBytes),
+            new LinkedHashMap<>(collectionRowCounts), new LinkedHashMap<>(collectionEstimatedBytes));
+    }
+
+    @Override
+    protected boolean isPersisted(Object entity) {
+        return persistedEntities.get(entity) != null;
+    }
+
+    @Override
+    protected void persistEntity(Object entity) {
+        persistedEntities.put(entity, Boolean.TRUE);
+        Class<?> entityClass = entity.getClass();
+        EntityType<?> entityType = metamodel.entity(entityClass);
+        rowCounts.merge(entityClass, 1L, Long::sum);
+        estimatedBytes.merge(entityClass,
+            rowBytesCache.computeIfAbsent(entityClass, type -> estimateBytes(entityType)), Long::sum);
+        for (PluralAttribute<?, ?, ?> attr : entityType.getPluralAttributes()) {
+            if (!hasCollectionTable(attr) && !hasElementJoinColumn(attr) || !isInsertable(attr)) {
+                continue;
+            }
+            Object value = resolveAttributeValue(entity, attr);
+            int size = value instanceof Collection<?> ? ((Collection<?>) value).size()
+                : value instanceof Map<?, ?> ? ((Map<?, ?>) value).size() : 0;
+            if (size > 0) {
+                String table = attr.getDeclaringType().getJavaType().getName() + "#" + attr.getName();
+                collectionRowCounts.merge(table, (long) size, Long::sum);
+                collectionEstimatedBytes.merge(table,
+                    size * collectionRowBytesCache.computeIfAbsent(attr, a -> estimateCollectionRowBytes(attr)),
+                    Long::sum);
+            }
+        }
+    }
+
+    private long estimateBytes(ManagedType<?> managedType) {
+        long bytes = 0;
+        for (SingularAttribute<?, ?> attr : managedType.getSingularAttributes()) {
+            if (!isInsertable(attr)) {
+                continue;
+            }
+            switch (attr.getPersistentAttributeType()) {
+                case BASIC:
+                    bytes += estimateBasicBytes(attr.getJavaType(), attr);
+                    break;
+                case EMBEDDED:
+                    bytes += estimateBytes(metamodel.embeddable(attr.getJavaType()));
+                    break;
+                case MANY_TO_ONE:
+                case ONE_TO_ONE:
+                    if (isForeignKey(attr)) {
+                        bytes += estimateIdBytes(attr.getJavaType());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return bytes;
+    }
+
+    private long estimateCollectionRowBytes(PluralAttribute<?, ?, ?> attr) {
+        long bytes = estimateIdBytes(attr.getDeclaringType().getJavaType())
+            + estimateTypeBytes(attr.getElementType(), attr);
+        if (attr instanceof MapAttribute<?, ?, ?>) {
+            bytes += estimateTypeBytes(((MapAttribute<?, ?, ?>) attr).getKeyType(), null);
+        }
+        return bytes;
+    }
+
+    private long estimateTypeBytes(Type<?> type, @Nullable Attribute<?, ?> attr) {
+        switch (type.getPersistenceType()) {
+            case ENTITY:
+                return estimateIdBytes(type.getJavaType());
+            case EMBEDDABLE:
+                return estimateBytes(metamodel.embeddable(type.getJavaType()));
+            default:
+                return estimateBasicBytes(type.getJavaType(), attr);
+        }
+    }
+
+    private long estimateIdBytes(Class<?> entityClass) {
+        IdentifiableType<?> entityType = metamodel.entity(entityClass);
+        if (!entityType.hasSingleIdAttribute()) {
+            long bytes = 0;
+            for (SingularAttribute<?, ?> idAttr : entityType.getIdClassAttributes()) {
+                bytes += estimateIdAttributeBytes(idAttr);
+            }
+            return bytes;
+        }
+        return estimateIdAttributeBytes(getSingleIdAttribute(entityType));
+    }
+
+    private long estimateIdAttributeBytes(SingularAttribute<?, ?> idAttr) {
+        switch (idAttr.getPersistentAttributeType()) {
+            case EMBEDDED:
+                return estimateBytes(metamodel.embeddable(idAttr.getJavaType()));
+            case MANY_TO_ONE:
+            case ONE_TO_ONE:
+                // Derived identity
+                return estimateIdBytes(idAttr.getJavaType());
+            default:
+                return estimateBasicBytes(idAttr.getJavaType(), idAttr);
+        }
+    }
+
+    private static long estimateBasicBytes(Class<?> type, @Nullable Attribute<?, ?> attr) {
+        if (type == String.class || type == char[].class || type == Character[].class
+            || type == byte[].class || type == Byte[].class) {
+            Column column = attr == null ? null : getAnnotation(attr, Column.class);
+            return column == null ? DEFAULT_COLUMN_LENGTH : column.length();
+        }
+        if (type.isEnum()) {
+            Enumerated enumerated = attr == null ? null : getAnnotation(attr, Enumerated.class);
+            if (enumerated != null && enumerated.value() == EnumType.STRING) {
+                return Arrays.stream(type.getEnumConstants())
+                    .mapToInt(constant -> ((Enum<?>) constant).name().length())
+                    .max()
+                    .orElse(0);
+            }
+            return 4;
+        }
+        // Other types are mostly converted or serialized, assume a column of default length
+        Integer bytes = FIXED_BYTES.get(type);
+        return bytes == null ? DEFAULT_COLUMN_LENGTH : bytes;
+    }
+
+    private static boolean isForeignKey(SingularAttribute<?, ?> attr) {
+        return attr.getPersistentAttributeType() == Attribute.PersistentAttributeType.MANY_TO_ONE
+            || attr.getPersistentAttributeType() == Attribute.PersistentAttributeType.ONE_TO_ONE
+            && resolveMappedBy(attr.getJavaMember()) == null;
+    }
+}
@@ -17,8 +17,9 @@
 package com.mobecker.instancio.jpa;
 
 
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getManagedJavaTypes;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isProxy;
 import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
-import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
 import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.setAttributeValue;
 import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_MANY;
 import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_ONE;
@@ -60,7 +61,10 @@ public class EntityGraphAssociationFixer {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityGraphAssociationFixer.class);
     private final Metamodel metamodel;
+    private final Set<Class<?>> managedJavaTypes;
     private final Integer stopAssociationFixingAtDepth;
+    @Nullable
+    private final MetamodelAnalysis metamodelAnalysis;
 
     /**
      * Create new {@link EntityGraphAssociationFixer}.
@@ -72,7 +76,9 @@ public class EntityGraphAssociationFixer {
      */
     public EntityGraphAssociationFixer(Metamodel metamodel, @Nullable Integer stopAssociationFixingAtDepth) {
         this.metamodel = metamodel;
+        this.managedJavaTypes = getManagedJavaTypes(metamodel);
         this.stopAssociationFixingAtDepth = stopAssociationFixingAtDepth;
+        this.metamodelAnalysis = MetamodelAnalysis.find(metamodel);
     }
 
     /**
@@ -86,7 +92,8 @@ public class EntityGraphAssociationFixer {
     }
 
     private void fixAssociations0(Object entity, Set<Object> visited, int currentDepth) {
-        if (visited.contains(entity) || stopAssociationFixingAtDepth(currentDepth)) {
+        if (visited.contains(entity) || stopAssociationFixingAtDepth(currentDepth)
+            || isProxy(managedJavaTypes, entity)) {
             return;
         }
         visited.add(entity);
@@ -134,7 +141,8 @@ public class EntityGraphAssociationFixer {
 
     private <X, Y> void fixManyToOneAssociation(Object associationStartValue, SingularAttribute<X, Y> manyToOneAttr) {
         Object associationEndValue = resolveAttributeValue(associationStartValue, manyToOneAttr);
-        if (associationEndValue != null) {
+        // Proxies refer to existing entities whose inverse side must not be loaded or modified
+        if (associationEndValue != null && !isProxy(managedJavaTypes, associationEndValue)) {
             EntityType<Y> associationEndType = metamodel.entity(manyToOneAttr.getJavaType());
             findReflectiveAttributesForManyToOne(associationEndType, manyToOneAttr)
                 .forEach(associationEnd -> {
@@ -145,8 +153,8 @@ public class EntityGraphAssociationFixer {
 
     private <X, Y> void fixOneToOneAssociation(Object associationStartValue, Attribute<X, Y> associationStart) {
         Object associationEndValue = resolveAttributeValue(associationStartValue, associationStart);
-        if (associationEndValue != null) {
-            String mappedByOnStartSide = resolveMappedBy(associationStart.getJavaMember());
+        if (associationEndValue != null && !isProxy(managedJavaTypes, associationEndValue)) {
+            String mappedByOnStartSide = resolveMappedBy(associationStart);
             EntityType<Y> associationEndType =
                 metamodel.entity(associationStart.getJavaType());
             if (mappedByOnStartSide != null) {
@@ -168,7 +176,7 @@ public class EntityGraphAssociationFixer {
         if (associationStart.getCollectionType() == PluralAttribute.CollectionType.MAP) {
             Map<?, ?> associationEndMap = (Map<?, ?>) resolveAttributeValue(associationStartValue, associationStart);
             if (associationEndMap != null) {
-                String mappedByOnStartSide = resolveMappedBy(associationStart.getJavaMember());
+                String mappedByOnStartSide = resolveMappedBy(associationStart);
                 if (mappedByOnStartSide != null) {
                     LOG.trace("Fixing oneToMany for owned side map attribute {} in entity {}",
                         associationStart,
@@ -185,7 +193,7 @@ public class EntityGraphAssociationFixer {
             Collection<?> associationEndCollection = (Collection<?>) resolveAttributeValue(
                 associationStartValue, associationStart);
             if (associationEndCollection != null) {
-                String mappedByOnStartSide = resolveMappedBy(associationStart.getJavaMember());
+                String mappedByOnStartSide = resolveMappedBy(associationStart);
                 if (mappedByOnStartSide != null) {
                     LOG.trace("Fixing oneToMany for owned side collection attribute {} in entity {}",
                         associationStart,
@@ -207,7 +215,7 @@ public class EntityGraphAssociationFixer {
         if (associationStart.getCollectionType() == PluralAttribute.CollectionType.MAP) {
             Map<?, ?> associationEndMap = (Map<?, ?>) resolveAttributeValue(associationStartValue, associationStart);
             if (associationEndMap != null) {
-                String mappedByOnStartSide = resolveMappedBy(associationStart.getJavaMember());
+                String mappedByOnStartSide = resolveMappedBy(associationStart);
                 EntityType<E> associationEndType = metamodel.entity(associationStart.getElementType().getJavaType());
                 if (mappedByOnStartSide != null) {
                     LOG.trace("Fixing manyToMany for owned side map attribute {} in entity {}",
@@ -233,7 +241,7 @@ public class EntityGraphAssociationFixer {
             Collection<?> associationEndCollection = (Collection<?>) resolveAttributeValue(
                 associationStartValue, associationStart);
             if (associationEndCollection != null) {
-                String mappedByOnStartSide = resolveMappedBy(associationStart.getJavaMember());
+                String mappedByOnStartSide = resolveMappedBy(associationStart);
                 EntityType<E> associationEndType = metamodel.entity(associationStart.getElementType().getJavaType());
                 if (mappedByOnStartSide != null) {
                     LOG.trace("Fixing manyToMany for owned side collection attribute {} in entity {}",
@@ -356,25 +364,25 @@ public class EntityGraphAssociationFixer {
         return idClassInstance;
     }
 
-    private static <T, E> Iterable<PluralAttribute<? super T, ?, E>> findReflectiveAttributesForManyToOne(
+    private <T, E> Iterable<PluralAttribute<? super T, ?, E>> findReflectiveAttributesForManyToOne(
         ManagedType<T> managedType, SingularAttribute<? super E, T> manyToOneAttr
     ) {
         return managedType.getPluralAttributes().stream()
             .filter(attr -> attr.getPersistentAttributeType() == ONE_TO_MANY)
             .map(attr -> (PluralAttribute<? super T, ?, E>) attr)
-            .filter(attr -> manyToOneAttr.getName().equals(resolveMappedBy(attr.getJavaMember())))
+            .filter(attr -> manyToOneAttr.getName().equals(resolveMappedBy(attr)))
             .filter(attr -> manyToOneAttr.getDeclaringType().equals(attr.getElementType()))
             .collect(Collectors.toList());
     }
 
-    private static <T, D, X extends D> Iterable<Attribute<D, T>> findOneToOneWithMappedBy(
+    private <T, D, X extends D> Iterable<Attribute<D, T>> findOneToOneWithMappedBy(
         ManagedType<T> targetType, ManagedType<X> managedType, String mappedBy
     ) {
         return managedType.getAttributes().stream()
             .filter(attr -> attr.getPersistentAttributeType() == ONE_TO_ONE)
             .filter(attr -> attr.getJavaType().equals(targetType.getJavaType()))
             .map(attr -> (Attribute<D, T>) attr)
-            .filter(attr -> mappedBy.equals(resolveMappedBy(attr.getJavaMember())))
+            .filter(attr -> mappedBy.equals(resolveMappedBy(attr)))
             .collect(Collectors.toList());
     }
 
@@ -396,12 +404,12 @@ public class EntityGraphAssociationFixer {
             .findAny();
     }
 
-    private static <T> Iterable<PluralAttribute<? super T, ?, ?>> findManyToManyWithMappedBy(
+    private <T> Iterable<PluralAttribute<? super T, ?, ?>> findManyToManyWithMappedBy(
         ManagedType<T> managedType, String mappedBy
     ) {
         return managedType.getPluralAttributes().stream()
             .filter(attr -> attr.getPersistentAttributeType() == MANY_TO_MANY)
-            .filter(attr -> mappedBy.equals(resolveMappedBy(attr.getJavaMember())))
+            .filter(attr -> mappedBy.equals(resolveMappedBy(attr)))
             .collect(Collectors.toList());
     }
 
@@ -417,4 +425,10 @@ public class EntityGraphAssociationFixer {
     private boolean stopAssociationFixingAtDepth(int depth) {
         return stopAssociationFixingAtDepth != null && depth >= stopAssociationFixingAtDepth;
     }
+
+    @Nullable
+    private String resolveMappedBy(Attribute<?, ?> attribute) {
+        return metamodelAnalysis == null
+            ? JpaMetamodelUtil.resolveMappedBy(attribute.getJavaMember()) : metamodelAnalysis.getMappedBy(attribute);
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getManagedJavaTypes;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isHibernateTenantId;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isProxy;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.setAttributeValue;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.BASIC;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starting from an entity root, traverses the entity graph depth-first and completes mandatory references that
+ * are missing or that are not persistable, e.g. because generation stopped at the max depth. Such references are
+ * replaced by values obtained from a reference supplier, which may generate a new persistable entity graph for
+ * the type or return an already persisted entity from a pool. This allows generating with a small max depth and
+ * filling the gaps afterwards instead of generating deep and pruning, see {@link EntityGraphShrinker}.
+ *
+ * <p>Values returned by the reference supplier are assumed to be persistable and are not traversed. If the
+ * supplier returns {@code null} for a type, the reference is left as is and will be pruned by
+ * {@link EntityGraphShrinker} if possible.
+ *
+ * <p>Example using an entity pool:
+ * <pre>{@code
+ *   EntityGraphCompleter completer = new EntityGraphCompleter(metamodel,
+ *       type -> type == Country.class ? entityManager.getReference(Country.class, "CH") : null);
+ * }</pre>
+ *
+ * @see InstancioJpa.Builder#withEntityGraphCompleter(EntityGraphCompleter)
+ * @since 2.1.0
+ */
+public class EntityGraphCompleter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityGraphCompleter.class);
+
+    private final Metamodel metamodel;
+    private final Set<Class<?>> managedJavaTypes;
+    private final Function<Class<?>, ?> referenceSupplier;
+
+    /**
+     * Create new {@link EntityGraphCompleter}.
+     *
+     * @param metamodel JPA metamodel
+     * @param referenceSupplier returns a persistable value for a JPA entity or embeddable type or {@code null}
+     *                          if no value can be provided
+     */
+    public EntityGraphCompleter(Metamodel metamodel, Function<Class<?>, ?> referenceSupplier) {
+        this.metamodel = metamodel;
+        this.managedJavaTypes = getManagedJavaTypes(metamodel);
+        this.referenceSupplier = referenceSupplier;
+    }
+
+    /**
+     * Creates new {@link EntityGraphCompleter} that completes missing references with entity graphs generated
+     * from {@link InstancioJpa#jpaModel(Class, Metamodel)} models with default settings. The models are created
+     * lazily once per type.
+     *
+     * @param metamodel JPA metamodel
+     * @return entity graph completer
+     */
+    public static EntityGraphCompleter generating(Metamodel metamodel) {
+        Map<Class<?>, Model<?>> models = new ConcurrentHashMap<>();
+        return new EntityGraphCompleter(metamodel, type -> Instancio.create(
+            models.computeIfAbsent(type, key -> jpaModel(key, metamodel).build())));
+    }
+
+    /**
+     * See {@link EntityGraphCompleter}.
+     *
+     * @param entity JPA entity
+     * @throws NullPointerException if the JPA entity is null
+     */
+    public void complete(Object entity) {
+        Objects.requireNonNull(entity, "Entity must not be null");
+        complete0(entity, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private void complete0(Object node, Set<Object> visited) {
+        if (!visited.add(node) || isProxy(managedJavaTypes, node)) {
+            return;
+        }
+        ManagedType<?> managedType = metamodel.managedType(node.getClass());
+        managedType.getAttributes().forEach(attr -> {
+            if (attr.getPersistentAttributeType() == BASIC) {
+                return;
+            }
+            Object attrValue = resolveAttributeValue(node, attr);
+            if (attr instanceof SingularAttribute<?, ?>) {
+                SingularAttribute<?, ?> singularAttribute = (SingularAttribute<?, ?>) attr;
+                if (attrValue != null) {
+                    complete0(attrValue, visited);
+                }
+                if (isMandatory(singularAttribute) && (attrValue == null || !isValid(attrValue))) {
+                    Object reference = referenceSupplier.apply(singularAttribute.getJavaType());
+                    if (reference != null) {
+                        LOG.debug("Completing {} for node {}", attr, node);
+                        setAttributeValue(node, attr, reference);
+                    }
+                }
+            } else if (attrValue != null && attr instanceof PluralAttribute<?, ?, ?>
+                && attr.getPersistentAttributeType() != Attribute.PersistentAttributeType.ELEMENT_COLLECTION) {
+                Collection<?> elements = ((PluralAttribute<?, ?, ?>) attr).getCollectionType()
+                    == PluralAttribute.CollectionType.MAP
+                    ? ((Map<?, ?>) attrValue).values() : (Collection<?>) attrValue;
+                elements.forEach(element -> complete0(element, visited));
+            }
+        });
+    }
+
+    private boolean isValid(Object node) {
+        if (isProxy(managedJavaTypes, node)) {
+            // Proxies refer to existing entities
+            return true;
+        }
+        ManagedType<?> managedType = metamodel.managedType(node.getClass());
+        return managedType.getAttributes().stream()
+            .filter(attr -> attr instanceof SingularAttribute<?, ?>)
+            .map(attr -> (SingularAttribute<?, ?>) attr)
+            // Non-null references have already been completed at this point, see EntityGraphShrinker#isValid0
+            .allMatch(attr -> !isMandatory(attr) || resolveAttributeValue(node, attr) != null);
+    }
+
+    private static boolean isMandatory(SingularAttribute<?, ?> attribute) {
+        return !attribute.isId()
+            && !attribute.isOptional()
+            && isInsertable(attribute)
+            && !isHibernateTenantId(attribute);
+    }
+}
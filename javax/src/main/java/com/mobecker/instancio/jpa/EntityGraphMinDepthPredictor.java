@@ -16,16 +16,22 @@
 
 package com.mobecker.instancio.jpa;
 
+import com.mobecker.instancio.jpa.util.EntityGraphScope;
+import com.mobecker.instancio.jpa.util.JpaNullabilityIndex;
 import java.util.HashSet;
 import java.util.Set;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.ManagedType;
 import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
 import javax.persistence.metamodel.SingularAttribute;
 import javax.persistence.metamodel.Type;
 
 /**
  * Given an entity class predicts the minimum graph depth that is required to yield a persistable entity graph.
- * See {@link EntityGraphShrinker} for the meaning of "persistable" in this context.
+ * See {@link EntityGraphShrinker} for the meaning of "persistable" in this context. If a {@link MetamodelAnalysis}
+ * has been created for the metamodel, the predictions are taken from it.
  *
  * @see EntityGraphShrinker
  * @since 1.0.0
@@ -33,6 +39,9 @@ import javax.persistence.metamodel.Type;
 public class EntityGraphMinDepthPredictor {
 
     private final Metamodel metamodel;
+    private final JpaNullabilityIndex nullabilityIndex;
+    @Nullable
+    private final MetamodelAnalysis metamodelAnalysis;
 
     /**
      * Create new {@link EntityGraphMinDepthPredictor}.
@@ -41,6 +50,8 @@ public class EntityGraphMinDepthPredictor {
      */
     public EntityGraphMinDepthPredictor(Metamodel metamodel) {
         this.metamodel = metamodel;
+        this.nullabilityIndex = JpaNullabilityIndex.of(metamodel);
+        this.metamodelAnalysis = MetamodelAnalysis.find(metamodel);
     }
 
     /**
@@ -51,29 +62,95 @@ public class EntityGraphMinDepthPredictor {
      * @see org.instancio.InstancioApi#withMaxDepth(int)
      */
     public int predictRequiredDepth(Class<?> entityClass) {
+        Integer analysedDepth = metamodelAnalysis == null ? null : metamodelAnalysis.getRequiredDepth(entityClass);
+        if (analysedDepth != null) {
+            return analysedDepth;
+        }
+        Set<Class<?>> visited = new HashSet<>();
+        return predictRequiredMaxDepth0(entityClass, visited, entityClass, "");
+    }
+
+    /**
+     * Predicts the minimum graph depth that is required to yield a persistable entity graph in which all
+     * associations of the given {@link EntityGraphScope} are generated. Attributes of the scope that the managed
+     * types do not declare, e.g. attributes of subtypes, are ignored.
+     *
+     * @param entityClass JPA entity class
+     * @param scope scope of the entity
+     * @return the required depth aligned with the semantics of {@link org.instancio.InstancioApi#withMaxDepth(int)}.
+     * @since 2.1.0
+     */
+    public int predictRequiredDepth(Class<?> entityClass, EntityGraphScope scope) {
+        return Math.max(predictRequiredDepth(entityClass),
+            predictScopeDepth0(metamodel.managedType(entityClass), scope, new HashSet<>()));
+    }
+
+    /**
+     * Predicts the minimum graph depth, relative to the declaring entity or embeddable, that is required to yield
+     * a persistable entity graph for the value of the given association. For collection associations this is the
+     * depth required for the collection elements. The declaring type is not expanded again, i.e. mandatory back
+     * references to it are not taken into account.
+     *
+     * @param attribute JPA association attribute
+     * @return the required depth relative to the declaring type, or 0 if the attribute is not an association
+     * @since 2.1.0
+     */
+    public int predictRequiredDepth(Attribute<?, ?> attribute) {
+        Integer analysedDepth = metamodelAnalysis == null ? null : metamodelAnalysis.getRequiredDepth(attribute);
+        if (analysedDepth != null) {
+            return analysedDepth;
+        }
         Set<Class<?>> visited = new HashSet<>();
-        return predictRequiredMaxDepth0(entityClass, visited);
+        Class<?> declaringClass = attribute.getDeclaringType().getJavaType();
+        visited.add(declaringClass);
+        switch (attribute.getPersistentAttributeType()) {
+            case ONE_TO_ONE:
+            case MANY_TO_ONE:
+                return 1 + predictRequiredMaxDepth0(attribute.getJavaType(), visited, attribute.getJavaType(), "");
+            case EMBEDDED:
+                return 1 + predictRequiredMaxDepth0(
+                    attribute.getJavaType(), visited, declaringClass, attribute.getName() + ".");
+            case ONE_TO_MANY:
+            case MANY_TO_MANY:
+                // Collection elements are one level deeper than the collection itself
+                Class<?> elementClass = ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType();
+                return 2 + predictRequiredMaxDepth0(elementClass, visited, elementClass, "");
+            default:
+                return 0;
+        }
     }
 
-    private int predictRequiredMaxDepth0(Class<?> entityClass, Set<Class<?>> visited) {
-        if (visited.contains(entityClass)) {
+    /**
+     * Predicts the required depth of a managed type.
+     *
+     * @param managedClass the entity or embeddable class
+     * @param visited the classes on the current path
+     * @param entityClass the entity class that embeds {@code managedClass} or {@code managedClass} itself
+     * @param pathPrefix the path of {@code managedClass} relative to {@code entityClass} followed by a dot, or an
+     *                   empty string if {@code managedClass} is an entity
+     * @return the required depth
+     */
+    private int predictRequiredMaxDepth0(
+        Class<?> managedClass, Set<Class<?>> visited, Class<?> entityClass, String pathPrefix) {
+        if (visited.contains(managedClass)) {
             return 0;
         }
-        visited.add(entityClass);
+        visited.add(managedClass);
 
-        ManagedType<?> managedType = metamodel.managedType(entityClass);
+        ManagedType<?> managedType = metamodel.managedType(managedClass);
         int maxDepth = managedType.getAttributes().stream()
-            .filter(attr -> ignoreAttributeNullability(managedType)
-                || attr instanceof SingularAttribute && !((SingularAttribute<?, ?>) attr).isOptional())
+            .filter(attr -> attr instanceof SingularAttribute
+                && isMandatory(managedType, (SingularAttribute<?, ?>) attr, entityClass, pathPrefix))
             .mapToInt(attr -> {
                 int depth;
                 switch (attr.getPersistentAttributeType()) {
                     case ONE_TO_ONE:
                     case MANY_TO_ONE:
-                        depth = 1 + predictRequiredMaxDepth0(attr.getJavaType(), visited);
+                        depth = 1 + predictRequiredMaxDepth0(attr.getJavaType(), visited, attr.getJavaType(), "");
                         break;
                     case EMBEDDED:
-                        depth = 1 + predictRequiredMaxDepth0(attr.getJavaType(), visited);
+                        depth = 1 + predictRequiredMaxDepth0(
+                            attr.getJavaType(), visited, entityClass, pathPrefix + attr.getName() + ".");
                         break;
                     case BASIC:
                         depth = 1;
@@ -84,10 +161,67 @@ public class EntityGraphMinDepthPredictor {
                 return depth;
             }).max().orElse(0);
 
-        visited.remove(entityClass);
+        visited.remove(managedClass);
         return maxDepth;
     }
 
+    private int predictScopeDepth0(ManagedType<?> managedType, EntityGraphScope scope, Set<EntityGraphScope> visited) {
+        Set<String> attributeNames = scope.getAttributeNames();
+        // Recursive subgraphs cannot be generated completely in any case
+        if (attributeNames == null || !visited.add(scope)) {
+            return 0;
+        }
+        int maxDepth = 0;
+        for (String attributeName : attributeNames) {
+            Attribute<?, ?> attr = findAttribute(managedType, attributeName);
+            if (attr == null) {
+                continue;
+            }
+            EntityGraphScope attributeScope = scope.getAttributeScope(attributeName);
+            int depth;
+            switch (attr.getPersistentAttributeType()) {
+                case ONE_TO_ONE:
+                case MANY_TO_ONE:
+                case EMBEDDED:
+                    depth = Math.max(predictRequiredDepth(attr),
+                        1 + predictScopeDepth0(metamodel.managedType(attr.getJavaType()), attributeScope, visited));
+                    break;
+                case ONE_TO_MANY:
+                case MANY_TO_MANY:
+                case ELEMENT_COLLECTION:
+                    Type<?> elementType = ((PluralAttribute<?, ?, ?>) attr).getElementType();
+                    depth = elementType.getPersistenceType() == Type.PersistenceType.BASIC
+                        ? 2
+                        : Math.max(predictRequiredDepth(attr), 2 + predictScopeDepth0(
+                            metamodel.managedType(elementType.getJavaType()), attributeScope, visited));
+                    break;
+                default:
+                    depth = 1;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        visited.remove(scope);
+        return maxDepth;
+    }
+
+    @Nullable
+    private static Attribute<?, ?> findAttribute(ManagedType<?> managedType, String attributeName) {
+        try {
+            return managedType.getAttribute(attributeName);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isMandatory(
+        ManagedType<?> managedType, SingularAttribute<?, ?> attr, Class<?> entityClass, String pathPrefix) {
+        Boolean optional = nullabilityIndex.isOptional(entityClass, pathPrefix + attr.getName());
+        if (optional != null) {
+            return !optional;
+        }
+        return ignoreAttributeNullability(managedType) || !attr.isOptional();
+    }
+
     private static boolean ignoreAttributeNullability(ManagedType<?> attributeContainer) {
         return
             // The nullability information for attributes in embeddables is not always correct
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getManagedJavaTypes;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isProxy;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
+import static javax.persistence.metamodel.Attribute.PersistentAttributeType.BASIC;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.MapAttribute;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+
+/**
+ * Splits a batch of entity roots into groups whose entity graphs are independent of each other, i.e. no entity is
+ * reachable from the roots of more than one group. The groups are the connected components of the union of all
+ * entity graphs, computed with a union-find structure over object identity. Groups can be persisted in separate
+ * transactions, e.g. by {@link ParallelEntityGraphPersister}, without violating foreign key constraints.
+ * Proxies of existing entities, e.g. obtained via {@link javax.persistence.EntityManager#getReference(Class, Object)},
+ * do not connect entity graphs.
+ *
+ * @since 2.1.0
+ */
+public class EntityGraphPartitioner {
+
+    private final Metamodel metamodel;
+    private final Set<Class<?>> managedJavaTypes;
+
+    /**
+     * Create new {@link EntityGraphPartitioner}.
+     *
+     * @param metamodel JPA metamodel
+     */
+    public EntityGraphPartitioner(Metamodel metamodel) {
+        this.metamodel = metamodel;
+        this.managedJavaTypes = getManagedJavaTypes(metamodel);
+    }
+
+    /**
+     * See {@link EntityGraphPartitioner}.
+     *
+     * @param roots JPA entity roots
+     * @return the roots grouped by connected component, in the order in which the first root of each component
+     *     was encountered
+     */
+    public List<List<Object>> partition(Iterable<?> roots) {
+        List<Object> rootList = new ArrayList<>();
+        roots.forEach(rootList::add);
+        Map<Object, Object> parents = new IdentityHashMap<>();
+        Deque<Object> pending = new ArrayDeque<>();
+        for (Object root : rootList) {
+            if (parents.containsKey(root)) {
+                continue;
+            }
+            parents.put(root, root);
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Object node = pending.pop();
+                forEachAssociatedNode(node, associatedNode -> {
+                    if (!parents.containsKey(associatedNode)) {
+                        parents.put(associatedNode, associatedNode);
+                        pending.push(associatedNode);
+                    }
+                    union(parents, node, associatedNode);
+                });
+            }
+        }
+
+        Map<Object, List<Object>> partitions = new LinkedHashMap<>();
+        Map<Object, Boolean> seenRoots = new IdentityHashMap<>();
+        for (Object root : rootList) {
+            if (seenRoots.put(root, Boolean.TRUE) == null) {
+                partitions.computeIfAbsent(new IdentityKey(find(parents, root)), key -> new ArrayList<>()).add(root);
+            }
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    private void forEachAssociatedNode(Object node, Consumer<Object> action) {
+        ManagedType<?> managedType = metamodel.managedType(node.getClass());
+        managedType.getAttributes().forEach(attr -> {
+            if (attr.getPersistentAttributeType() == BASIC) {
+                return;
+            }
+            Object attrValue = resolveAttributeValue(node, attr);
+            if (attrValue == null) {
+                return;
+            }
+            if (attr instanceof SingularAttribute<?, ?>) {
+                if (!isProxy(managedJavaTypes, attrValue)) {
+                    action.accept(attrValue);
+                }
+            } else if (attr instanceof PluralAttribute<?, ?, ?>) {
+                PluralAttribute<?, ?, ?> pluralAttribute = (PluralAttribute<?, ?, ?>) attr;
+                boolean managedElements = isManaged(pluralAttribute.getElementType());
+                if (pluralAttribute.getCollectionType() == PluralAttribute.CollectionType.MAP) {
+                    Map<?, ?> attrMap = (Map<?, ?>) attrValue;
+                    if (isManaged(((MapAttribute<?, ?, ?>) pluralAttribute).getKeyType())) {
+                        attrMap.keySet().forEach(action);
+                    }
+                    if (managedElements) {
+                        attrMap.values().forEach(action);
+                    }
+                } else if (managedElements) {
+                    ((Collection<?>) attrValue).forEach(action);
+                }
+            }
+        });
+    }
+
+    private static boolean isManaged(Type<?> type) {
+        return type.getPersistenceType() != Type.PersistenceType.BASIC;
+    }
+
+    private static Object find(Map<Object, Object> parents, Object node) {
+        Object root = node;
+        Object parent;
+        while ((parent = parents.get(root)) != root) {
+            root = parent;
+        }
+        Object current = node;
+        while (current != root) {
+            Object next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    private static void union(Map<Object, Object> parents, Object node1, Object node2) {
+        Object root1 = find(parents, node1);
+        Object root2 = find(parents, node2);
+        if (root1 != root2) {
+            parents.put(root2, root1);
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object object;
+
+        private IdentityKey(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).object == object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+    }
+}
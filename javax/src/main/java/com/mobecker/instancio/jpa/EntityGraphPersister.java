@@ -16,32 +16,31 @@
 
 package com.mobecker.instancio.jpa;
 
-import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
-import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
-import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
-import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_MANY;
-import static javax.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_ONE;
-import static javax.persistence.metamodel.Attribute.PersistentAttributeType.ONE_TO_MANY;
-import static javax.persistence.metamodel.Attribute.PersistentAttributeType.ONE_TO_ONE;
-
-import java.lang.reflect.Member;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.stream.Collectors;
+import com.mobecker.instancio.jpa.util.WeakIdentityMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import javax.persistence.EntityManager;
-import javax.persistence.metamodel.EntityType;
-import javax.persistence.metamodel.Metamodel;
+import javax.persistence.PersistenceUnitUtil;
 
 /**
  * Starting from an entity root, traverses the entity graph and persists entities in the right order.
  *
+ * <p>By default, all persisted entities stay managed by the {@link EntityManager}. When persisting a large number
+ * of roots, the persister can be operated in streaming mode by specifying a flush interval. In streaming mode, the
+ * {@link EntityManager} is flushed and cleared every {@code flushInterval} roots so that the size of the
+ * persistence context stays bounded. References from later roots to entities that have been persisted and cleared
+ * before are replaced with {@link EntityManager#getReference(Class, Object)} proxies.
+ *
  * @since 1.0.0
  */
-public class EntityGraphPersister {
+public class EntityGraphPersister extends AbstractEntityGraphPersister {
 
     private final EntityManager entityManager;
-    private final Metamodel metamodel;
+    private final int flushInterval;
+    private final Set<Object> persistedInCurrentChunk = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final WeakIdentityMap<Object, Object> clearedEntityIds = new WeakIdentityMap<>();
+    private int rootsInCurrentChunk;
 
     /**
      * Create new {@link EntityGraphPersister}.
@@ -49,8 +48,26 @@ public class EntityGraphPersister {
      * @param entityManager JPA entity manager
      */
     public EntityGraphPersister(EntityManager entityManager) {
+        this(entityManager, 0);
+    }
+
+    /**
+     * Create new {@link EntityGraphPersister} that operates in streaming mode if {@code flushInterval} is
+     * positive.
+     *
+     * @param entityManager JPA entity manager
+     * @param flushInterval number of persisted roots after which the entity manager is flushed and cleared, or
+     *                      {@code 0} to disable streaming mode
+     * @throws IllegalArgumentException if {@code flushInterval} is negative
+     * @since 2.1.0
+     */
+    public EntityGraphPersister(EntityManager entityManager, int flushInterval) {
+        super(entityManager.getMetamodel());
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("flushInterval must not be negative");
+        }
         this.entityManager = entityManager;
-        this.metamodel = entityManager.getMetamodel();
+        this.flushInterval = flushInterval;
     }
 
     /**
@@ -59,60 +76,55 @@ public class EntityGraphPersister {
      * @param entity JPA entity
      */
     public void persist(Object entity) {
-        List<Object> visited = new ArrayList<>();
-        persist0(entity, visited);
+        persistGraph(entity);
+        if (isStreaming() && ++rootsInCurrentChunk >= flushInterval) {
+            flushAndClear();
+        }
     }
 
-    private void persist0(Object entity, List<Object> visited) {
-        if (entityManager.contains(entity)) {
-            return;
+    /**
+     * Flushes and clears the underlying {@link EntityManager}. Entities persisted by this persister before the
+     * clear can still be referenced by subsequently persisted roots.
+     *
+     * @since 2.1.0
+     */
+    public void flushAndClear() {
+        entityManager.flush();
+        PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        for (Object persistedEntity : persistedInCurrentChunk) {
+            clearedEntityIds.put(persistedEntity, persistenceUnitUtil.getIdentifier(persistedEntity));
         }
-        if (visited.contains(entity)) {
-            String cycle = visited.stream()
-                .map(obj -> String.format("%s@%s", obj.getClass().getName(), System.identityHashCode(obj)))
-                .collect(Collectors.joining(" -> "));
-            cycle += " -> " + String.format("%s@%s", entity.getClass().getName(), System.identityHashCode(entity));
-            throw new IllegalStateException("Cycle detected: " + cycle);
+        persistedInCurrentChunk.clear();
+        entityManager.clear();
+        rootsInCurrentChunk = 0;
+    }
+
+    private boolean isStreaming() {
+        return flushInterval > 0;
+    }
+
+    @Override
+    protected boolean isPersisted(Object entity) {
+        if (isStreaming()) {
+            return persistedInCurrentChunk.contains(entity)
+                || clearedEntityIds.containsKey(entity)
+                || entityManager.contains(entity);
         }
-        visited.add(entity);
-        EntityType<?> entityType = metamodel.entity(entity.getClass());
-        entityType.getSingularAttributes().forEach(attr -> {
-            if ((attr.getPersistentAttributeType() == MANY_TO_ONE
-                || attr.getPersistentAttributeType() == ONE_TO_ONE && !isOwnedSide(attr.getJavaMember()))
-                && isInsertable(attr)
-            ) {
-                Object attrValue = resolveAttributeValue(entity, attr);
-                if (attrValue != null) {
-                    persist0(attrValue, visited);
-                }
-            }
-        });
+        return entityManager.contains(entity);
+    }
+
+    @Override
+    protected void persistEntity(Object entity) {
         entityManager.persist(entity);
-        entityType.getAttributes().forEach(attr -> {
-            if (attr.getPersistentAttributeType() == ONE_TO_ONE
-                && isOwnedSide(attr.getJavaMember())
-                && isInsertable(attr)
-            ) {
-                Object attrValue = resolveAttributeValue(entity, attr);
-                if (attrValue != null && !visited.contains(attrValue)) {
-                    persist0(attrValue, visited);
-                }
-            } else if ((attr.getPersistentAttributeType() == ONE_TO_MANY
-                || attr.getPersistentAttributeType() == MANY_TO_MANY)
-                && isInsertable(attr)
-            ) {
-                Collection<?> collection = (Collection<?>) resolveAttributeValue(entity, attr);
-                if (collection != null) {
-                    collection.stream()
-                        .filter(element -> !visited.contains(element))
-                        .forEach(element -> persist0(element, visited));
-                }
-            }
-        });
-        visited.remove(entity);
+        if (isStreaming()) {
+            persistedInCurrentChunk.add(entity);
+        }
     }
 
-    private static boolean isOwnedSide(Member member) {
-        return resolveMappedBy(member) != null;
+    @Override
+    protected Object resolvePersistedReference(Object referencedEntity) {
+        Object clearedEntityId = isStreaming() ? clearedEntityIds.get(referencedEntity) : null;
+        return clearedEntityId == null
+            ? null : entityManager.getReference(referencedEntity.getClass(), clearedEntityId);
     }
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+/**
+ * Seeds a database by generating entity roots and persisting them concurrently. Generator threads obtain roots
+ * from a supplier, e.g. {@code () -> Instancio.create(model)}, and push them into a bounded queue. Writer threads
+ * drain the queue, each with its own {@link EntityManager}, and persist the roots with an
+ * {@link EntityGraphPersister} in transactions of {@code batchSize} roots. Generation and persistence therefore
+ * overlap instead of running one after the other.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *   long persisted = EntityGraphSeedPipeline.pipeline(entityManagerFactory, () -> Instancio.create(orderModel))
+ *       .withGeneratorThreads(4)
+ *       .withWriterThreads(2)
+ *       .withBatchSize(500)
+ *       .build()
+ *       .run(1_000_000);
+ * }</pre>
+ *
+ * <p>Roots that are handed to different writers are persisted in different transactions, so roots produced by the
+ * supplier must not share entities with each other. The first exception thrown by the supplier or by a writer stops
+ * the pipeline; transactions of batches that have been committed before are not rolled back.
+ *
+ * @since 2.1.0
+ */
+public final class EntityGraphSeedPipeline {
+
+    private static final Object POISON_PILL = new Object();
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY;
+
+    static {
+        ThreadFactory virtualThreadFactory;
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            virtualThreadFactory = (ThreadFactory) factory.invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+                 | InvocationTargetException e) {
+            virtualThreadFactory = null;
+        }
+        VIRTUAL_THREAD_FACTORY = virtualThreadFactory;
+    }
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Supplier<?> rootSupplier;
+    private final int generatorThreads;
+    private final int writerThreads;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final boolean useVirtualThreads;
+
+    private EntityGraphSeedPipeline(Builder builder) {
+        this.entityManagerFactory = builder.entityManagerFactory;
+        this.rootSupplier = builder.rootSupplier;
+        this.generatorThreads = builder.generatorThreads;
+        this.writerThreads = builder.writerThreads;
+        this.queueCapacity = builder.queueCapacity;
+        this.batchSize = builder.batchSize;
+        this.useVirtualThreads = builder.useVirtualThreads;
+    }
+
+    /**
+     * Creates a builder for a pipeline that persists roots obtained from {@code rootSupplier}.
+     *
+     * @param entityManagerFactory JPA entity manager factory used to create an entity manager per writer thread
+     * @param rootSupplier supplier of JPA entity roots, invoked concurrently by the generator threads
+     * @return EntityGraphSeedPipeline builder reference
+     */
+    public static Builder pipeline(EntityManagerFactory entityManagerFactory, Supplier<?> rootSupplier) {
+        return new Builder(entityManagerFactory, rootSupplier);
+    }
+
+    /**
+     * Checks if virtual threads are available at runtime, i.e. if the application runs on Java 21 or newer.
+     *
+     * @return true if virtual threads are available, else false.
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Generates and persists {@code rootCount} roots and blocks until all of them have been committed.
+     *
+     * @param rootCount number of roots to generate and persist
+     * @return number of persisted roots
+     * @throws IllegalArgumentException if {@code rootCount} is negative
+     */
+    public long run(long rootCount) {
+        if (rootCount < 0) {
+            throw new IllegalArgumentException("rootCount must not be negative");
+        }
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong remainingRoots = new AtomicLong(rootCount);
+        AtomicLong persistedRoots = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ThreadFactory threadFactory = createThreadFactory();
+
+        List<Thread> generators = new ArrayList<>(generatorThreads);
+        for (int i = 0; i < generatorThreads; i++) {
+            generators.add(threadFactory.newThread(() -> generate(queue, remainingRoots, failure)));
+        }
+        List<Thread> writers = new ArrayList<>(writerThreads);
+        for (int i = 0; i < writerThreads; i++) {
+            writers.add(threadFactory.newThread(() -> write(queue, persistedRoots, failure)));
+        }
+        generators.forEach(Thread::start);
+        writers.forEach(Thread::start);
+
+        try {
+            for (Thread generator : generators) {
+                generator.join();
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                if (!offer(queue, POISON_PILL, failure)) {
+                    break;
+                }
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause != null) {
+            throw new RuntimeException("Seeding entity graphs failed", cause);
+        }
+        return persistedRoots.get();
+    }
+
+    private void generate(BlockingQueue<Object> queue, AtomicLong remainingRoots,
+                          AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null && remainingRoots.getAndDecrement() > 0) {
+                Object root = rootSupplier.get();
+                if (!offer(queue, root, failure)) {
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    private void write(BlockingQueue<Object> queue, AtomicLong persistedRoots, AtomicReference<Throwable> failure) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction tx = null;
+        try {
+            EntityGraphPersister persister = new EntityGraphPersister(entityManager, batchSize);
+            int rootsInBatch = 0;
+            while (true) {
+                Object root = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (root == POISON_PILL || root == null && failure.get() != null) {
+                    break;
+                } else if (root != null) {
+                    if (tx == null) {
+                        tx = entityManager.getTransaction();
+                        tx.begin();
+                    }
+                    persister.persist(root);
+                    if (++rootsInBatch == batchSize) {
+                        tx.commit();
+                        tx = null;
+                        persistedRoots.addAndGet(rootsInBatch);
+                        rootsInBatch = 0;
+                    }
+                }
+            }
+            if (tx != null && failure.get() == null) {
+                tx.commit();
+                tx = null;
+                persistedRoots.addAndGet(rootsInBatch);
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        } finally {
+            if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    private static boolean offer(BlockingQueue<Object> queue, Object element, AtomicReference<Throwable> failure)
+        throws InterruptedException {
+        while (!queue.offer(element, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ThreadFactory createThreadFactory() {
+        if (useVirtualThreads && isVirtualThreadsAvailable()) {
+            return VIRTUAL_THREAD_FACTORY;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "instancio-jpa-seed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Builder for constructing an {@link EntityGraphSeedPipeline}.
+     */
+    public static final class Builder {
+
+        private final EntityManagerFactory entityManagerFactory;
+        private final Supplier<?> rootSupplier;
+        private int generatorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        private int writerThreads = 1;
+        private int queueCapacity = 1000;
+        private int batchSize = 100;
+        private boolean useVirtualThreads;
+
+        private Builder(EntityManagerFactory entityManagerFactory, Supplier<?> rootSupplier) {
+            this.entityManagerFactory = entityManagerFactory;
+            this.rootSupplier = rootSupplier;
+        }
+
+        /**
+         * Sets the number of threads generating roots. Defaults to the number of available processors minus one.
+         *
+         * @param generatorThreads number of generator threads
+         * @return EntityGraphSeedPipeline builder reference
+         */
+        public Builder withGeneratorThreads(int generatorThreads) {
+            this.generatorThreads = generatorThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads persisting roots, each using its own {@link EntityManager}. Defaults to 1.
+         *
+         * @param writerThreads number of writer threads
+         * @return EntityGraphSeedPipeline builder reference
+         */
+        public Builder withWriterThreads(int writerThreads) {
+            this.writerThreads = writerThreads;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of generated roots waiting to be persisted. Generator threads block while the
+         * queue is full. Defaults to 1000.
+         *
+         * @param queueCapacity capacity of the queue between generator and writer threads
+         * @return EntityGraphSeedPipeline builder reference
+         */
+        public Builder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the number of roots a writer persists per transaction. The writer's {@link EntityManager} is
+         * flushed and cleared after each batch. Defaults to 100.
+         *
+         * @param batchSize number of roots per transaction
+         * @return EntityGraphSeedPipeline builder reference
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Runs generator and writer threads as virtual threads if they are available at runtime, i.e. on Java 21
+         * or newer. Platform threads are used otherwise.
+         *
+         * @param useVirtualThreads whether to use virtual threads if available
+         * @return EntityGraphSeedPipeline builder reference
+         * @see #isVirtualThreadsAvailable()
+         */
+        public Builder withVirtualThreads(boolean useVirtualThreads) {
+            this.useVirtualThreads = useVirtualThreads;
+            return this;
+        }
+
+        /**
+         * Creates the pipeline.
+         *
+         * @return the configured pipeline
+         * @throws IllegalArgumentException if a thread count, the queue capacity or the batch size is not positive
+         */
+        public EntityGraphSeedPipeline build() {
+            if (generatorThreads <= 0 || writerThreads <= 0) {
+                throw new IllegalArgumentException("Thread counts must be positive");
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be positive");
+            }
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            return new EntityGraphSeedPipeline(this);
+        }
+    }
+}
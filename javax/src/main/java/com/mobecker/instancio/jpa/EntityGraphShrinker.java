@@ -16,8 +16,10 @@
 
 package com.mobecker.instancio.jpa;
 
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getManagedJavaTypes;
 import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isHibernateTenantId;
 import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isProxy;
 import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
 import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.setAttributeValue;
 import static javax.persistence.metamodel.Attribute.PersistentAttributeType.BASIC;
@@ -54,6 +56,7 @@ public class EntityGraphShrinker {
     private static final Logger LOG = LoggerFactory.getLogger(EntityGraphShrinker.class);
 
     private final Metamodel metamodel;
+    private final Set<Class<?>> managedJavaTypes;
     private final Integer stopShrinkingAtDepth;
 
     /**
@@ -65,6 +68,7 @@ public class EntityGraphShrinker {
      */
     public EntityGraphShrinker(Metamodel metamodel, @Nullable Integer stopShrinkingAtDepth) {
         this.metamodel = metamodel;
+        this.managedJavaTypes = getManagedJavaTypes(metamodel);
         this.stopShrinkingAtDepth = stopShrinkingAtDepth;
     }
 
@@ -84,7 +88,7 @@ public class EntityGraphShrinker {
     }
 
     private void shrink0(Object node, Set<Object> visited, int currentDepth) {
-        if (visited.contains(node) || stopShrinkingAtDepth(currentDepth)) {
+        if (visited.contains(node) || stopShrinkingAtDepth(currentDepth) || isProxy(managedJavaTypes, node)) {
             return;
         }
         visited.add(node);
@@ -145,6 +149,10 @@ public class EntityGraphShrinker {
     }
 
     private boolean isValid(Object node) {
+        if (isProxy(managedJavaTypes, node)) {
+            // Proxies refer to existing entities
+            return true;
+        }
         ManagedType<?> managedType = metamodel.managedType(node.getClass());
         return managedType.getAttributes().stream()
             .filter(attr -> attr instanceof SingularAttribute<?, ?>)
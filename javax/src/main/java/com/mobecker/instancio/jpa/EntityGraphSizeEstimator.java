@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static javax.persistence.metamodel.Type.PersistenceType.EMBEDDABLE;
+import static javax.persistence.metamodel.Type.PersistenceType.ENTITY;
+
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import org.instancio.settings.Keys;
+import org.instancio.settings.SettingKey;
+import org.instancio.settings.Settings;
+
+/**
+ * Given an entity class, estimates the expected number of entity and embeddable instances per type that Instancio
+ * creates for a single root. The estimation follows the rules Instancio applies during generation: nodes deeper
+ * than the max depth are not generated, a type that already occurs on the path from the root is not generated
+ * again, nullable nodes are {@code null} with a probability of 1/6 and collection sizes are uniformly distributed
+ * in their configured range. Unless disabled via {@link JpaKeys#LIMIT_ASSOCIATION_DEPTH}, optional associations
+ * that cannot be persisted within the max depth are not generated. {@link JpaKeys#MINIMAL_GRAPH} is taken into
+ * account as well. The estimation does not take
+ * {@link JpaKeys#MAX_NODES} into account.
+ *
+ * @see EntityGraphMinDepthPredictor
+ * @since 2.1.0
+ */
+public class EntityGraphSizeEstimator {
+
+    // Instancio assigns null to nullable nodes with this probability
+    private static final double NULL_PROBABILITY = 1.0 / 6;
+
+    private final Metamodel metamodel;
+
+    /**
+     * Create new {@link EntityGraphSizeEstimator}.
+     *
+     * @param metamodel JPA metamodel
+     */
+    public EntityGraphSizeEstimator(Metamodel metamodel) {
+        this.metamodel = metamodel;
+    }
+
+    /**
+     * Estimates the expected number of instances per type for the max depth that
+     * {@link EntityGraphMinDepthPredictor} predicts for {@code entityClass}, i.e. the max depth that
+     * {@link InstancioJpa#jpaModel(Class, Metamodel)} uses by default.
+     *
+     * @param entityClass JPA entity class
+     * @param settings the settings used for generation, see {@link InstancioJpa.Builder#withSettings(Settings)}
+     * @return expected number of instances per entity or embeddable type, including the root
+     */
+    public Map<Class<?>, Double> estimateNodeCounts(Class<?> entityClass, Settings settings) {
+        int maxDepth = new EntityGraphMinDepthPredictor(metamodel).predictRequiredDepth(entityClass);
+        return estimateNodeCounts(entityClass, maxDepth, settings);
+    }
+
+    /**
+     * See {@link EntityGraphSizeEstimator}.
+     *
+     * @param entityClass JPA entity class
+     * @param maxDepth the max depth used for generation
+     * @param settings the settings used for generation, see {@link InstancioJpa.Builder#withSettings(Settings)}
+     * @return expected number of instances per entity or embeddable type, including the root
+     */
+    public Map<Class<?>, Double> estimateNodeCounts(Class<?> entityClass, int maxDepth, Settings settings) {
+        Boolean useJpaNullability = settings.get(JpaKeys.USE_JPA_NULLABILITY);
+        Boolean limitAssociationDepth = settings.get(JpaKeys.LIMIT_ASSOCIATION_DEPTH);
+        Boolean minimalGraph = settings.get(JpaKeys.MINIMAL_GRAPH);
+        Estimation estimation = new Estimation(
+            maxDepth,
+            useJpaNullability == null || useJpaNullability,
+            limitAssociationDepth == null || limitAssociationDepth,
+            minimalGraph != null && minimalGraph,
+            CardinalityProfile.parse(
+                settings.get(JpaKeys.COLLECTION_SIZES), settings.get(JpaKeys.POPULATION_PROBABILITIES),
+                settings.get(JpaKeys.VALUE_CARDINALITIES)),
+            average(settings, Keys.COLLECTION_MIN_SIZE, Keys.COLLECTION_MAX_SIZE),
+            average(settings, Keys.MAP_MIN_SIZE, Keys.MAP_MAX_SIZE)
+        );
+        estimation.estimate(entityClass, 0, 1, new HashSet<>());
+        return estimation.nodeCounts;
+    }
+
+    /**
+     * Estimates the expected total number of entity and embeddable instances for a single root.
+     *
+     * @param entityClass JPA entity class
+     * @param maxDepth the max depth used for generation
+     * @param settings the settings used for generation, see {@link InstancioJpa.Builder#withSettings(Settings)}
+     * @return expected total number of instances, including the root
+     */
+    public double estimateTotalNodeCount(Class<?> entityClass, int maxDepth, Settings settings) {
+        return estimateNodeCounts(entityClass, maxDepth, settings).values().stream()
+            .mapToDouble(Double::doubleValue)
+            .sum();
+    }
+
+    private static double average(Settings settings, SettingKey<Integer> minKey, SettingKey<Integer> maxKey) {
+        Integer min = settings.get(minKey);
+        Integer max = settings.get(maxKey);
+        return ((min == null ? (Integer) minKey.defaultValue() : min)
+            + (max == null ? (Integer) maxKey.defaultValue() : max)) / 2.0;
+    }
+
+    private final class Estimation {
+        private final int maxDepth;
+        private final boolean useJpaNullability;
+        private final boolean limitAssociationDepth;
+        private final boolean minimalGraph;
+        private final CardinalityProfile cardinalityProfile;
+        private final double averageCollectionSize;
+        private final double averageMapSize;
+        private final EntityGraphMinDepthPredictor entityGraphMinDepthPredictor =
+            new EntityGraphMinDepthPredictor(metamodel);
+        private final Map<Class<?>, Double> nodeCounts = new LinkedHashMap<>();
+
+        private Estimation(int maxDepth, boolean useJpaNullability, boolean limitAssociationDepth,
+                           boolean minimalGraph, CardinalityProfile cardinalityProfile,
+                           double averageCollectionSize, double averageMapSize) {
+            this.maxDepth = maxDepth;
+            this.useJpaNullability = useJpaNullability;
+            this.limitAssociationDepth = limitAssociationDepth;
+            this.minimalGraph = minimalGraph;
+            this.cardinalityProfile = cardinalityProfile;
+            this.averageCollectionSize = averageCollectionSize;
+            this.averageMapSize = averageMapSize;
+        }
+
+        private void estimate(Class<?> managedClass, int depth, double expectedCount, Set<Class<?>> ancestors) {
+            nodeCounts.merge(managedClass, expectedCount, Double::sum);
+            ancestors.add(managedClass);
+            ManagedType<?> managedType = metamodel.managedType(managedClass);
+            for (Attribute<?, ?> attr : managedType.getAttributes()) {
+                if (attr instanceof SingularAttribute<?, ?>) {
+                    switch (attr.getPersistentAttributeType()) {
+                        case MANY_TO_ONE:
+                        case ONE_TO_ONE:
+                        case EMBEDDED:
+                            SingularAttribute<?, ?> singularAttr = (SingularAttribute<?, ?>) attr;
+                            if (singularAttr.isOptional() && managedType.getPersistenceType() == ENTITY
+                                && exceedsDepthLimit(managedClass, singularAttr, depth)) {
+                                break;
+                            }
+                            estimateChild(attr.getJavaType(), depth + 1,
+                                expectedCount * populationProbability(managedType, singularAttr), ancestors);
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (attr instanceof PluralAttribute<?, ?, ?>) {
+                    PluralAttribute<?, ?, ?> pluralAttr = (PluralAttribute<?, ?, ?>) attr;
+                    if (pluralAttr.getElementType().getPersistenceType() != Type.PersistenceType.BASIC
+                        && !exceedsDepthLimit(managedClass, pluralAttr, depth)) {
+                        // Collection elements are one level deeper than the collection itself
+                        estimateChild(pluralAttr.getElementType().getJavaType(), depth + 2,
+                            expectedCount * expectedCollectionSize(managedType, pluralAttr), ancestors);
+                    }
+                }
+            }
+            ancestors.remove(managedClass);
+        }
+
+        private void estimateChild(Class<?> childClass, int childDepth, double expectedCount,
+                                   Set<Class<?>> ancestors) {
+            if (childDepth <= maxDepth && expectedCount > 0 && !ancestors.contains(childClass)) {
+                estimate(childClass, childDepth, expectedCount, ancestors);
+            }
+        }
+
+        // See JpaDepthLimitSelector, profiled attributes are not limited
+        private boolean exceedsDepthLimit(Class<?> ownerClass, Attribute<?, ?> attr, int ownerDepth) {
+            return limitAssociationDepth
+                && !cardinalityProfile.contains(ownerClass, attr.getName())
+                && ownerDepth + entityGraphMinDepthPredictor.predictRequiredDepth(attr) > maxDepth;
+        }
+
+        private double populationProbability(ManagedType<?> ownerType, SingularAttribute<?, ?> attr) {
+            Double probability = cardinalityProfile.findPopulationProbability(ownerType.getJavaType(), attr.getName());
+            if (probability != null) {
+                return probability;
+            } else if (minimalGraph && ownerType.getPersistenceType() != EMBEDDABLE) {
+                return attr.isOptional() ? 0 : 1;
+            }
+            return useJpaNullability && attr.isOptional() ? 1 - NULL_PROBABILITY : 1;
+        }
+
+        private double expectedCollectionSize(ManagedType<?> ownerType, PluralAttribute<?, ?, ?> attr) {
+            int[] sizeRange = cardinalityProfile.findCollectionSize(ownerType.getJavaType(), attr.getName());
+            if (sizeRange != null) {
+                return (sizeRange[0] + sizeRange[1]) / 2.0;
+            } else if (minimalGraph && ownerType.getPersistenceType() != EMBEDDABLE) {
+                return 0;
+            }
+            double averageSize = attr.getCollectionType() == PluralAttribute.CollectionType.MAP
+                ? averageMapSize : averageCollectionSize;
+            // JPA collections are always nullable
+            return useJpaNullability ? averageSize * (1 - NULL_PROBABILITY) : averageSize;
+        }
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getAnnotation;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getManagedJavaTypes;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isProxy;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveIdAttribute;
+
+import com.mobecker.instancio.jpa.util.AttributeAccessor;
+import com.mobecker.instancio.jpa.util.JpaMetamodelUtil;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.persistence.GeneratedValue;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.MapAttribute;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import org.instancio.Random;
+import org.instancio.generator.Generator;
+import org.instancio.support.DefaultRandom;
+
+/**
+ * Stamps out copies of an entity graph that has been generated and post-processed once, e.g. by
+ * {@code Instancio.create(model)} with a model created via {@link InstancioJpa#jpaModel(Class, Metamodel)}.
+ * Copying a known-valid graph is much cheaper than generating, shrinking and fixing a new one.
+ *
+ * <p>When the template is built, a copy plan is compiled for every entity and embeddable class in the template
+ * graph. A copy is a deep copy of all JPA attributes that keeps references within the graph consistent, i.e. an
+ * entity that is referenced multiple times in the template is copied once. The following attribute values are
+ * drawn anew for every copy:
+ * <ul>
+ *     <li>Id attributes that are not generated by the JPA provider and basic attributes annotated with
+ *     {@code @Column(unique = true)} get the next value of a sequence per attribute, see
+ *     {@link UniqueValueGeneratorResolver}. Values that occur in the template are skipped.</li>
+ *     <li>Id attributes annotated with {@link GeneratedValue} are set to {@code null}.</li>
+ *     <li>Attributes configured via {@link Builder#withVariedAttribute(Class, String, Supplier)} get the next value
+ *     of the supplier.</li>
+ * </ul>
+ * All other basic values are shared between the template and its copies, except for arrays and {@link Date}s,
+ * which are cloned. Attributes of embedded ids are copied unchanged unless they are varied explicitly. Proxies of
+ * existing entities, e.g. supplied via {@link InstancioJpa.Builder#withReferenceIds(Class, List,
+ * javax.persistence.EntityManager)}, are shared by reference, see {@link JpaMetamodelUtil#isProxy(Metamodel, Object)}.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *   EntityGraphTemplate<Order> template = EntityGraphTemplate.template(Instancio.create(orderModel), metamodel)
+ *       .withVariedAttribute(Order.class, "orderDate", () -> LocalDate.now().minusDays(random.nextInt(365)))
+ *       .build();
+ *   List<Order> orders = template.copies(100_000);
+ * }</pre>
+ *
+ * <p>Instances of this class are not thread-safe.
+ *
+ * @since 2.1.0
+ */
+public final class EntityGraphTemplate<T> {
+
+    private final T root;
+    private final Metamodel metamodel;
+    private final Set<Class<?>> managedJavaTypes;
+    private final Map<AttributeRef, Supplier<?>> variedAttributes;
+    private final Map<Class<?>, CopyPlan> copyPlans = new HashMap<>();
+    private final Map<AttributeRef, UniqueValueSequence> uniqueValueSequences = new HashMap<>();
+    private final Random random = new DefaultRandom();
+
+    private EntityGraphTemplate(Builder<T> builder) {
+        this.root = builder.root;
+        this.metamodel = builder.metamodel;
+        this.managedJavaTypes = getManagedJavaTypes(metamodel);
+        this.variedAttributes = new LinkedHashMap<>(builder.variedAttributes);
+    }
+
+    /**
+     * Creates a builder for a template of the entity graph reachable from {@code root}.
+     *
+     * @param root JPA entity root of a persistable entity graph
+     * @param metamodel JPA metamodel
+     * @param <T> the root type
+     * @return EntityGraphTemplate builder reference
+     */
+    public static <T> Builder<T> template(T root, Metamodel metamodel) {
+        return new Builder<>(Objects.requireNonNull(root, "Root must not be null"), metamodel);
+    }
+
+    /**
+     * Creates a copy of the template graph, see {@link EntityGraphTemplate}.
+     *
+     * @return the root of the copy
+     */
+    @SuppressWarnings("unchecked")
+    public T copy() {
+        return (T) copyManaged(root, new IdentityHashMap<>());
+    }
+
+    /**
+     * Creates {@code count} copies of the template graph, see {@link EntityGraphTemplate}. The copies do not share
+     * any entities with each other.
+     *
+     * @param count number of copies
+     * @return the roots of the copies
+     * @throws IllegalArgumentException if {@code count} is negative
+     */
+    public List<T> copies(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        List<T> copies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copies.add(copy());
+        }
+        return copies;
+    }
+
+    private void compile(Object node, Set<Object> visited) {
+        // Proxies refer to existing entities and are shared by the copies
+        if (!visited.add(node) || isProxy(managedJavaTypes, node)) {
+            return;
+        }
+        CopyPlan copyPlan = copyPlans.computeIfAbsent(node.getClass(), this::compileCopyPlan);
+        for (AttributeCopier copier : copyPlan.copiers) {
+            Object value = copier.access.get(node);
+            if (value == null) {
+                continue;
+            }
+            switch (copier.kind) {
+                case REDRAW:
+                    uniqueValueSequences.get(copier.attributeRef).excludedValues.add(value);
+                    break;
+                case MANAGED:
+                    compile(value, visited);
+                    break;
+                case COLLECTION:
+                    if (copier.managedElements) {
+                        ((Collection<?>) value).forEach(element -> compile(element, visited));
+                    }
+                    break;
+                case MAP:
+                    ((Map<?, ?>) value).forEach((key, element) -> {
+                        if (copier.managedKeys) {
+                            compile(key, visited);
+                        }
+                        if (copier.managedElements) {
+                            compile(element, visited);
+                        }
+                    });
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private CopyPlan compileCopyPlan(Class<?> managedClass) {
+        ManagedType<?> managedType = metamodel.managedType(managedClass);
+        List<AttributeCopier> copiers = new ArrayList<>();
+        for (Attribute<?, ?> attribute : managedType.getAttributes()) {
+            AttributeRef attributeRef = new AttributeRef(
+                attribute.getDeclaringType().getJavaType(), attribute.getName());
+            Supplier<?> variedValueSupplier = findVariedValueSupplier(managedClass, attribute.getName());
+            AttributeCopier copier;
+            if (variedValueSupplier != null) {
+                copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.VARY);
+                copier.variedValueSupplier = variedValueSupplier;
+            } else if (attribute instanceof PluralAttribute<?, ?, ?>) {
+                PluralAttribute<?, ?, ?> pluralAttribute = (PluralAttribute<?, ?, ?>) attribute;
+                if (pluralAttribute.getCollectionType() == PluralAttribute.CollectionType.MAP) {
+                    copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.MAP);
+                    copier.managedKeys = isManaged(((MapAttribute<?, ?, ?>) pluralAttribute).getKeyType());
+                } else {
+                    copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.COLLECTION);
+                }
+                copier.managedElements = isManaged(pluralAttribute.getElementType());
+            } else if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.MANAGED);
+            } else if (isGeneratedIdAttribute(attribute)) {
+                copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.CLEAR);
+            } else if (UniqueValueGeneratorResolver.isBasicUnique(attribute)
+                || UniqueValueGeneratorResolver.isNonGeneratedIdAttribute(attribute)) {
+                copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.REDRAW);
+                uniqueValueSequences.computeIfAbsent(attributeRef, ref -> createUniqueValueSequence(attribute));
+            } else {
+                copier = new AttributeCopier(managedClass, attribute, attributeRef, CopyKind.BASIC);
+            }
+            copiers.add(copier);
+        }
+        return new CopyPlan(findNoArgConstructor(managedClass), copiers);
+    }
+
+    @Nullable
+    private Supplier<?> findVariedValueSupplier(Class<?> ownerClass, String attributeName) {
+        for (Map.Entry<AttributeRef, Supplier<?>> entry : variedAttributes.entrySet()) {
+            AttributeRef attributeRef = entry.getKey();
+            if (attributeRef.attributeName.equals(attributeName)
+                && attributeRef.managedClass.isAssignableFrom(ownerClass)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static UniqueValueSequence createUniqueValueSequence(Attribute<?, ?> attribute) {
+        Generator<?> generator = UniqueValueGeneratorResolver.instantiateIdGenerator(attribute.getJavaType());
+        if (generator == null) {
+            throw new IllegalArgumentException(String.format(
+                "Cannot draw unique values of type %s for attribute %s#%s, vary the attribute explicitly",
+                attribute.getJavaType().getName(), attribute.getDeclaringType().getJavaType().getName(),
+                attribute.getName()));
+        }
+        return new UniqueValueSequence(generator);
+    }
+
+    private static boolean isGeneratedIdAttribute(Attribute<?, ?> attribute) {
+        ManagedType<?> declaringType = attribute.getDeclaringType();
+        return declaringType instanceof IdentifiableType
+            && Objects.equals(attribute, resolveIdAttribute((IdentifiableType<?>) declaringType, attribute.getName()))
+            && getAnnotation(attribute, GeneratedValue.class) != null;
+    }
+
+    private static boolean isManaged(Type<?> type) {
+        return type.getPersistenceType() != Type.PersistenceType.BASIC;
+    }
+
+    private Object copyManaged(Object source, Map<Object, Object> copies) {
+        Object copy = copies.get(source);
+        if (copy != null) {
+            return copy;
+        } else if (isProxy(managedJavaTypes, source)) {
+            return source;
+        }
+        CopyPlan copyPlan = copyPlans.get(source.getClass());
+        if (copyPlan == null) {
+            throw new IllegalStateException("The template graph has been modified after the template was built, no "
+                + "copy plan exists for " + source.getClass().getName());
+        }
+        copy = newInstance(copyPlan.constructor);
+        copies.put(source, copy);
+        for (AttributeCopier copier : copyPlan.copiers) {
+            copier.access.set(copy, copyValue(copier, copier.access.get(source), copies));
+        }
+        return copy;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private Object copyValue(AttributeCopier copier, @Nullable Object value, Map<Object, Object> copies) {
+        switch (copier.kind) {
+            case VARY:
+                return copier.variedValueSupplier.get();
+            case CLEAR:
+                return null;
+            case REDRAW:
+                return value == null ? null : uniqueValueSequences.get(copier.attributeRef).next(random);
+            default:
+                break;
+        }
+        if (value == null) {
+            return null;
+        }
+        switch (copier.kind) {
+            case MANAGED:
+                return copyManaged(value, copies);
+            case COLLECTION:
+                Collection<Object> collection = newCollection((Collection<Object>) value);
+                for (Object element : (Collection<?>) value) {
+                    collection.add(copier.managedElements && element != null
+                        ? copyManaged(element, copies) : copyBasic(element));
+                }
+                return collection;
+            case MAP:
+                Map<Object, Object> map = newMap((Map<Object, Object>) value);
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    Object key = entry.getKey();
+                    Object element = entry.getValue();
+                    map.put(copier.managedKeys && key != null ? copyManaged(key, copies) : copyBasic(key),
+                        copier.managedElements && element != null ? copyManaged(element, copies) : copyBasic(element));
+                }
+                return map;
+            default:
+                return copyBasic(value);
+        }
+    }
+
+    @Nullable
+    private static Object copyBasic(@Nullable Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        } else if (value instanceof Object[]) {
+            return ((Object[]) value).clone();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof char[]) {
+            return ((char[]) value).clone();
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Collection<Object> source) {
+        if (source instanceof SortedSet<?>) {
+            return new TreeSet<>(((SortedSet<Object>) source).comparator());
+        }
+        Collection<Object> collection = (Collection<Object>) newJdkInstance(source.getClass());
+        if (collection != null) {
+            return collection;
+        }
+        return source instanceof Set<?> ? new LinkedHashSet<>() : new ArrayList<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Map<Object, Object> source) {
+        if (source instanceof SortedMap<?, ?>) {
+            return new TreeMap<>(((SortedMap<Object, Object>) source).comparator());
+        }
+        Map<Object, Object> map = (Map<Object, Object>) newJdkInstance(source.getClass());
+        return map == null ? new LinkedHashMap<>() : map;
+    }
+
+    // Only collection classes of the JDK are instantiated directly, e.g. not the collection wrappers of the JPA
+    // provider
+    @Nullable
+    private static Object newJdkInstance(Class<?> type) {
+        if (!type.getName().startsWith("java.util.") || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            return type.getConstructor().newInstance();
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                 | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    private static Constructor<?> findNoArgConstructor(Class<?> managedClass) {
+        try {
+            Constructor<?> constructor = managedClass.getDeclaredConstructor();
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No no-arg constructor found for " + managedClass.getName(), e);
+        }
+    }
+
+    private static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Builder for {@link EntityGraphTemplate}.
+     *
+     * @param <T> the root type
+     */
+    public static final class Builder<T> {
+        private final T root;
+        private final Metamodel metamodel;
+        private final Map<AttributeRef, Supplier<?>> variedAttributes = new LinkedHashMap<>();
+
+        private Builder(T root, Metamodel metamodel) {
+            this.root = root;
+            this.metamodel = metamodel;
+        }
+
+        /**
+         * Sets a supplier that provides the value of the given attribute for every copy instead of copying the
+         * value from the template. Takes precedence over drawing unique values.
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of a singular attribute
+         * @param valueSupplier supplier of attribute values
+         * @return EntityGraphTemplate builder reference
+         * @throws IllegalArgumentException if the attribute does not exist or is not a singular attribute
+         */
+        public Builder<T> withVariedAttribute(Class<?> managedClass, String attributeName, Supplier<?> valueSupplier) {
+            if (!(metamodel.managedType(managedClass).getAttribute(attributeName) instanceof SingularAttribute<?, ?>)) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot vary non-singular attribute %s#%s", managedClass.getName(), attributeName));
+            }
+            variedAttributes.put(new AttributeRef(managedClass, attributeName),
+                Objects.requireNonNull(valueSupplier, "Value supplier must not be null"));
+            return this;
+        }
+
+        /**
+         * Compiles the copy plans for the template graph.
+         *
+         * @return the entity graph template
+         * @throws IllegalArgumentException if an entity or embeddable class of the template graph has no no-arg
+         *     constructor, or if unique values cannot be drawn for the type of an attribute that is not varied
+         */
+        public EntityGraphTemplate<T> build() {
+            EntityGraphTemplate<T> template = new EntityGraphTemplate<>(this);
+            template.compile(root, Collections.newSetFromMap(new IdentityHashMap<>()));
+            return template;
+        }
+    }
+
+    private enum CopyKind {
+        BASIC, CLEAR, REDRAW, VARY, MANAGED, COLLECTION, MAP
+    }
+
+    private static final class CopyPlan {
+        private final Constructor<?> constructor;
+        private final List<AttributeCopier> copiers;
+
+        private CopyPlan(Constructor<?> constructor, List<AttributeCopier> copiers) {
+            this.constructor = constructor;
+            this.copiers = copiers;
+        }
+    }
+
+    private static final class AttributeCopier {
+        private final AttributeRef attributeRef;
+        private final CopyKind kind;
+        private final AttributeAccessor access;
+        private Supplier<?> variedValueSupplier;
+        private boolean managedKeys;
+        private boolean managedElements;
+
+        private AttributeCopier(Class<?> ownerClass, Attribute<?, ?> attribute, AttributeRef attributeRef,
+                                CopyKind kind) {
+            this.attributeRef = attributeRef;
+            this.kind = kind;
+            this.access = new AttributeAccessor(ownerClass, attribute);
+        }
+    }
+
+    private static final class UniqueValueSequence {
+        private final Generator<?> generator;
+        private final Set<Object> excludedValues = new HashSet<>();
+
+        private UniqueValueSequence(Generator<?> generator) {
+            this.generator = generator;
+        }
+
+        private Object next(Random random) {
+            Object value;
+            do {
+                value = generator.generate(random);
+            } while (excludedValues.contains(value));
+            return value;
+        }
+    }
+
+    private static final class AttributeRef {
+        private final Class<?> managedClass;
+        private final String attributeName;
+
+        private AttributeRef(Class<?> managedClass, String attributeName) {
+            this.managedClass = managedClass;
+            this.attributeName = attributeName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AttributeRef)) {
+                return false;
+            }
+            AttributeRef that = (AttributeRef) o;
+            return managedClass.equals(that.managedClass) && attributeName.equals(that.attributeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(managedClass, attributeName);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import javax.persistence.TemporalType;
+
+/**
+ * {@link SeedDialect} for H2, which produces rows with {@code SYSTEM_RANGE}.
+ *
+ * @since 2.1.0
+ */
+public class H2SeedDialect implements SeedDialect {
+
+    // Random points in time are drawn from the last ten years
+    private static final long TEMPORAL_RANGE_SECONDS = 10L * 365 * 24 * 60 * 60;
+    private static final int UUID_HEX_LENGTH = 32;
+
+    @Override
+    public String rowSource(long rowCount) {
+        return "system_range(1, " + rowCount + ")";
+    }
+
+    @Override
+    public String rowNumber() {
+        return "x";
+    }
+
+    @Override
+    public String randomInteger(String min, String max) {
+        return "cast(floor(rand() * ((" + max + ") - (" + min + ") + 1)) + (" + min + ") as bigint)";
+    }
+
+    @Override
+    public String randomDecimal(long min, long max) {
+        return "(" + min + " + rand() * " + (max - min) + ")";
+    }
+
+    @Override
+    public String randomBoolean() {
+        return "(rand() < 0.5)";
+    }
+
+    @Override
+    public String randomString(int minLength, int maxLength) {
+        long repetitions = (maxLength + (long) UUID_HEX_LENGTH - 1) / UUID_HEX_LENGTH;
+        return "left(repeat(upper(replace(cast(random_uuid() as varchar), '-', '')), " + repetitions + "), "
+            + "cast(" + randomInteger(String.valueOf(minLength), String.valueOf(maxLength)) + " as int))";
+    }
+
+    @Override
+    public String randomTemporal(TemporalType temporalType) {
+        String timestamp = "dateadd(second, -" + randomInteger("0", String.valueOf(TEMPORAL_RANGE_SECONDS))
+            + ", localtimestamp)";
+        switch (temporalType) {
+            case DATE:
+                return "cast(" + timestamp + " as date)";
+            case TIME:
+                return "cast(" + timestamp + " as time)";
+            default:
+                return timestamp;
+        }
+    }
+
+    @Override
+    public String toVarchar(String expression) {
+        return "cast(" + expression + " as varchar)";
+    }
+}
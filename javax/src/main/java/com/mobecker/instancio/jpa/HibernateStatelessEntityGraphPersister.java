@@ -0,0 +1,176 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import com.mobecker.instancio.jpa.util.WeakIdentityMap;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+/**
+ * A Hibernate specific alternative to {@link EntityGraphPersister} that inserts entity graphs through a Hibernate
+ * {@code StatelessSession} with JDBC batching enabled. Entities are written in the same order as with
+ * {@link EntityGraphPersister} but bypass the persistence context, dirty checking, the second-level cache and
+ * entity event listeners.
+ *
+ * <p>Hibernate is accessed reflectively, so this class can be loaded without Hibernate being present. Use
+ * {@link #isAvailable()} to check if Hibernate is available at runtime.
+ *
+ * <p>Limitations: a {@code StatelessSession} does not write collection state. Associations that are mapped via a
+ * join table, i.e. {@code MANY_TO_MANY} associations and unidirectional {@code ONE_TO_MANY} associations, are
+ * therefore not persisted. All entities in the graph are inserted, so the graph must not contain entities that
+ * already exist in the database. JDBC batching is disabled by Hibernate for entities that use
+ * {@code GenerationType.IDENTITY}.
+ *
+ * @since 2.1.0
+ */
+public class HibernateStatelessEntityGraphPersister extends AbstractEntityGraphPersister {
+
+    private static final Class<?> HIBERNATE_SESSION_FACTORY;
+    private static final Method OPEN_STATELESS_SESSION;
+    private static final Method SET_JDBC_BATCH_SIZE;
+    private static final Method BEGIN_TRANSACTION;
+    private static final Method INSERT;
+    private static final Method CLOSE;
+
+    static {
+        Class<?> sessionFactory;
+        Method openStatelessSession;
+        Method setJdbcBatchSize;
+        Method beginTransaction;
+        Method insert;
+        Method close;
+        try {
+            sessionFactory = Class.forName("org.hibernate.SessionFactory");
+            Class<?> statelessSession = Class.forName("org.hibernate.StatelessSession");
+            openStatelessSession = sessionFactory.getMethod("openStatelessSession");
+            setJdbcBatchSize = statelessSession.getMethod("setJdbcBatchSize", Integer.class);
+            beginTransaction = statelessSession.getMethod("beginTransaction");
+            insert = statelessSession.getMethod("insert", Object.class);
+            close = statelessSession.getMethod("close");
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            sessionFactory = null;
+            openStatelessSession = null;
+            setJdbcBatchSize = null;
+            beginTransaction = null;
+            insert = null;
+            close = null;
+        }
+        HIBERNATE_SESSION_FACTORY = sessionFactory;
+        OPEN_STATELESS_SESSION = openStatelessSession;
+        SET_JDBC_BATCH_SIZE = setJdbcBatchSize;
+        BEGIN_TRANSACTION = beginTransaction;
+        INSERT = insert;
+        CLOSE = close;
+    }
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int jdbcBatchSize;
+    private final WeakIdentityMap<Object, Boolean> insertedEntities = new WeakIdentityMap<>();
+    // Entities inserted by the current transaction, which are only known to be persisted once it has committed
+    private final Set<Object> uncommittedEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Object statelessSession;
+
+    /**
+     * Create new {@link HibernateStatelessEntityGraphPersister}.
+     *
+     * @param entityManagerFactory JPA entity manager factory backed by Hibernate
+     * @param jdbcBatchSize the JDBC batch size to use for inserts
+     * @throws IllegalStateException if Hibernate is not available
+     * @throws IllegalArgumentException if {@code jdbcBatchSize} is not positive
+     */
+    public HibernateStatelessEntityGraphPersister(EntityManagerFactory entityManagerFactory, int jdbcBatchSize) {
+        super(entityManagerFactory.getMetamodel());
+        if (!isAvailable()) {
+            throw new IllegalStateException("Hibernate is not available on the classpath");
+        }
+        if (jdbcBatchSize <= 0) {
+            throw new IllegalArgumentException("jdbcBatchSize must be positive");
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /**
+     * Checks if Hibernate's {@code StatelessSession} API is available at runtime.
+     *
+     * @return true if Hibernate is available, else false.
+     */
+    public static boolean isAvailable() {
+        return HIBERNATE_SESSION_FACTORY != null;
+    }
+
+    /**
+     * Inserts the entity graphs of all provided roots in a single transaction of a newly opened
+     * {@code StatelessSession}. The transaction is rolled back if an exception occurs, in which case the entities
+     * of the failed call are inserted again by a subsequent call.
+     *
+     * @param roots JPA entity roots
+     */
+    public void persistAll(Iterable<?> roots) {
+        Object sessionFactory = entityManagerFactory.unwrap(HIBERNATE_SESSION_FACTORY);
+        Object session = invoke(OPEN_STATELESS_SESSION, sessionFactory);
+        try {
+            invoke(SET_JDBC_BATCH_SIZE, session, jdbcBatchSize);
+            EntityTransaction tx = (EntityTransaction) invoke(BEGIN_TRANSACTION, session);
+            try {
+                statelessSession = session;
+                for (Object root : roots) {
+                    persistGraph(root);
+                }
+                tx.commit();
+                uncommittedEntities.forEach(entity -> insertedEntities.put(entity, Boolean.TRUE));
+            } finally {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+            }
+        } finally {
+            uncommittedEntities.clear();
+            statelessSession = null;
+            invoke(CLOSE, session);
+        }
+    }
+
+    @Override
+    protected boolean isPersisted(Object entity) {
+        return uncommittedEntities.contains(entity) || insertedEntities.containsKey(entity);
+    }
+
+    @Override
+    protected void persistEntity(Object entity) {
+        invoke(INSERT, statelessSession, entity);
+        uncommittedEntities.add(entity);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
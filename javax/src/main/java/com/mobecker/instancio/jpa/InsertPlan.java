@@ -0,0 +1,192 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The inserts that persisting a set of entity graphs would issue, as computed by
+ * {@link DryRunEntityGraphPersister}. Rows are counted per entity type and per collection table, i.e. per
+ * {@code MANY_TO_MANY}, join table {@code ONE_TO_MANY} or element collection attribute. Collection tables are
+ * keyed by {@code <entity class name>#<attribute name>}. Unidirectional {@code ONE_TO_MANY} attributes with a join
+ * column are counted like collection tables, their rows being the foreign key updates of the referenced rows.
+ *
+ * @since 2.1.0
+ */
+public final class InsertPlan {
+
+    private final int jdbcBatchSize;
+    private final List<Set<Class<?>>> dependencyLevels;
+    private final Map<Class<?>, Long> rowCounts;
+    private final Map<Class<?>, Long> estimatedBytes;
+    private final Map<String, Long> collectionRowCounts;
+    private final Map<String, Long> collectionEstimatedBytes;
+
+    InsertPlan(int jdbcBatchSize, List<Set<Class<?>>> dependencyLevels,
+               Map<Class<?>, Long> rowCounts, Map<Class<?>, Long> estimatedBytes,
+               Map<String, Long> collectionRowCounts, Map<String, Long> collectionEstimatedBytes) {
+        this.jdbcBatchSize = jdbcBatchSize;
+        this.dependencyLevels = Collections.unmodifiableList(dependencyLevels);
+        this.rowCounts = Collections.unmodifiableMap(rowCounts);
+        this.estimatedBytes = Collections.unmodifiableMap(estimatedBytes);
+        this.collectionRowCounts = Collections.unmodifiableMap(collectionRowCounts);
+        this.collectionEstimatedBytes = Collections.unmodifiableMap(collectionEstimatedBytes);
+    }
+
+    /**
+     * Returns the entity types grouped by dependency level. Entity types of a level only reference entity types of
+     * lower levels via {@code MANY_TO_ONE} and owning {@code ONE_TO_ONE} associations, so all inserts of a level
+     * can be issued once the lower levels have been inserted. References within a cycle of entity types are
+     * ignored. Collection tables are inserted after both of their sides.
+     *
+     * @return the entity types per dependency level, starting with the entity types without dependencies
+     */
+    public List<Set<Class<?>>> getDependencyLevels() {
+        return dependencyLevels;
+    }
+
+    /**
+     * Returns the number of rows per entity type.
+     *
+     * @return the number of rows per entity type in insertion order of the first entity of each type
+     */
+    public Map<Class<?>, Long> getRowCounts() {
+        return rowCounts;
+    }
+
+    /**
+     * Returns the number of rows per collection table.
+     *
+     * @return the number of rows per collection table
+     */
+    public Map<String, Long> getCollectionRowCounts() {
+        return collectionRowCounts;
+    }
+
+    /**
+     * Returns the total number of rows of all entity and collection tables.
+     *
+     * @return the total number of rows
+     */
+    public long getTotalRowCount() {
+        return sum(rowCounts) + sum(collectionRowCounts);
+    }
+
+    /**
+     * Returns the JDBC batch size the batch counts are based on.
+     *
+     * @return the JDBC batch size
+     */
+    public int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    /**
+     * Returns the number of JDBC batches per entity type, assuming that inserts are ordered by entity type, e.g.
+     * via {@code hibernate.order_inserts}.
+     *
+     * @return the number of JDBC batches per entity type
+     */
+    public Map<Class<?>, Long> getBatchCounts() {
+        Map<Class<?>, Long> batchCounts = new LinkedHashMap<>();
+        rowCounts.forEach((type, rows) -> batchCounts.put(type, batches(rows)));
+        return batchCounts;
+    }
+
+    /**
+     * Returns the total number of JDBC batches of all entity and collection tables, assuming that inserts are
+     * ordered by table.
+     *
+     * @return the total number of JDBC batches
+     */
+    public long getTotalBatchCount() {
+        long batchCount = 0;
+        for (Long rows : rowCounts.values()) {
+            batchCount += batches(rows);
+        }
+        for (Long rows : collectionRowCounts.values()) {
+            batchCount += batches(rows);
+        }
+        return batchCount;
+    }
+
+    /**
+     * Returns the estimated payload bytes per entity type. The estimation is based on the column lengths of
+     * string and binary attributes and the size of the Java type of all other attributes. Foreign keys are
+     * estimated by the size of the referenced id.
+     *
+     * @return the estimated payload bytes per entity type
+     */
+    public Map<Class<?>, Long> getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Returns the estimated payload bytes per collection table, see {@link #getEstimatedBytes()}.
+     *
+     * @return the estimated payload bytes per collection table
+     */
+    public Map<String, Long> getCollectionEstimatedBytes() {
+        return collectionEstimatedBytes;
+    }
+
+    /**
+     * Returns the estimated payload bytes of all entity and collection tables, see {@link #getEstimatedBytes()}.
+     *
+     * @return the total estimated payload bytes
+     */
+    public long getTotalEstimatedBytes() {
+        return sum(estimatedBytes) + sum(collectionEstimatedBytes);
+    }
+
+    private long batches(long rows) {
+        return (rows + jdbcBatchSize - 1) / jdbcBatchSize;
+    }
+
+    private static long sum(Map<?, Long> values) {
+        return values.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("InsertPlan{rows=").append(getTotalRowCount())
+            .append(", batches=").append(getTotalBatchCount())
+            .append(", estimatedBytes=").append(getTotalEstimatedBytes())
+            .append(", levels=[");
+        for (int i = 0; i < dependencyLevels.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('[');
+            boolean first = true;
+            for (Class<?> type : dependencyLevels.get(i)) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append(type.getSimpleName()).append('=').append(rowCounts.get(type));
+                first = false;
+            }
+            sb.append(']');
+        }
+        sb.append("], collectionTables=").append(collectionRowCounts).append('}');
+        return sb.toString();
+    }
+}
@@ -16,18 +16,37 @@
 
 package com.mobecker.instancio.jpa;
 
+import static com.mobecker.instancio.jpa.selector.JpaAttributeSelector.jpaAttribute;
 import static com.mobecker.instancio.jpa.setting.JpaKeys.filterJpaKeys;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
 import static org.instancio.Select.root;
 
+import com.mobecker.instancio.jpa.generator.EntityReferenceGenerator;
+import com.mobecker.instancio.jpa.generator.ReferenceDistribution;
+import com.mobecker.instancio.jpa.selector.JpaDepthLimitSelector;
+import com.mobecker.instancio.jpa.selector.JpaEntityGraphScopeSelector;
 import com.mobecker.instancio.jpa.selector.JpaGeneratedIdSelector;
 import com.mobecker.instancio.jpa.selector.JpaOptionalAttributeSelector;
+import com.mobecker.instancio.jpa.selector.JpaReferenceSelector;
 import com.mobecker.instancio.jpa.selector.JpaTransientAttributeSelector;
 import com.mobecker.instancio.jpa.setting.JpaKeys;
+import com.mobecker.instancio.jpa.util.EntityGraphScope;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
 import org.instancio.Instancio;
 import org.instancio.InstancioApi;
 import org.instancio.Model;
 import org.instancio.OnCompleteCallback;
+import org.instancio.generator.Generator;
 import org.instancio.settings.Keys;
 import org.instancio.settings.Settings;
 import org.instancio.support.Global;
@@ -74,6 +93,23 @@ public final class InstancioJpa {
         return new Builder<>(entityClass, metamodel);
     }
 
+    /**
+     * Warms up instancio-jpa for the given metamodel on a background daemon thread, so that the first test does
+     * not pay for class loading, metamodel analysis and cold code paths. The warm-up creates the
+     * {@link MetamodelAnalysis} and the {@link com.mobecker.instancio.jpa.util.JpaNullabilityIndex} of the
+     * metamodel and generates, shrinks and fixes a few entity graphs for every concrete entity with the default
+     * configuration. The generated entities are discarded; nothing is persisted. The warm-up runs once per
+     * metamodel, subsequent calls return the same future.
+     *
+     * @param metamodel JPA metamodel
+     * @return future that is completed when the warm-up has finished
+     * @see JpaKeys#WARM_UP
+     * @since 2.1.0
+     */
+    public static CompletableFuture<Void> warmUp(Metamodel metamodel) {
+        return MetamodelWarmUp.start(metamodel);
+    }
+
     /**
      * Builder for constructing an Instancio model that produces persistable JPA entities.
      *
@@ -83,9 +119,15 @@ public final class InstancioJpa {
 
         private final Class<T> entityClass;
         private final Metamodel metamodel;
+        private final CardinalityProfile cardinalityProfile = new CardinalityProfile();
+        private final Map<Class<?>, Function<ReferenceDistribution, Generator<?>>> referenceGenerators =
+            new LinkedHashMap<>();
+        private final Map<Attribute<?, ?>, ReferenceDistribution> referenceDistributions = new LinkedHashMap<>();
         private Settings settings;
         private OnCompleteCallback<T> onCompleteCallback;
         private Integer maxDepth;
+        private EntityGraphCompleter entityGraphCompleter;
+        private EntityGraphScope entityGraphScope;
         private EntityGraphShrinker entityGraphShrinker;
         private EntityGraphAssociationFixer entityGraphAssociationFixer;
 
@@ -135,6 +177,260 @@ public final class InstancioJpa {
             return this;
         }
 
+        /**
+         * Sets the size range of the collection or map generated for a JPA collection attribute. This takes
+         * precedence over Instancio's global collection and map size settings and keeps the size of the generated
+         * entity graph predictable. The range applies to subtypes of {@code managedClass} as well.
+         *
+         * <p>The same can be configured with {@link JpaKeys#COLLECTION_SIZES}. Sizes specified via this method
+         * take precedence.
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of the JPA collection attribute
+         * @param minSize minimum collection size
+         * @param maxSize maximum collection size
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if {@code minSize} is negative or greater than {@code maxSize}
+         * @since 2.1.0
+         */
+        public Builder<T> withCollectionSize(Class<?> managedClass, String attributeName, int minSize, int maxSize) {
+            cardinalityProfile.addCollectionSize(managedClass, attributeName, minSize, maxSize);
+            return this;
+        }
+
+        /**
+         * Sets the probability with which an optional JPA reference, i.e. an optional {@code MANY_TO_ONE},
+         * {@code ONE_TO_ONE} or embedded attribute, is populated. Otherwise, the reference is {@code null}. The
+         * probability applies to subtypes of {@code managedClass} as well.
+         *
+         * <p>The same can be configured with {@link JpaKeys#POPULATION_PROBABILITIES}. Probabilities specified via
+         * this method take precedence.
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of the optional JPA reference attribute
+         * @param probability probability in the range {@code [0, 1]}
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if {@code probability} is out of range
+         * @since 2.1.0
+         */
+        public Builder<T> withPopulationProbability(Class<?> managedClass, String attributeName, double probability) {
+            cardinalityProfile.addPopulationProbability(managedClass, attributeName, probability);
+            return this;
+        }
+
+        /**
+         * Generates the values of a basic JPA attribute from a pool of {@code distinctValues} distinct values,
+         * which are sampled uniformly, and {@code null} with the probability {@code nullRatio}. This gives the
+         * column a production-like number of distinct values instead of nearly unique random values, e.g. for
+         * testing the selectivity of indexes, and is cheaper than generating a fresh value per row. Strings in the
+         * pool respect the column length like {@link StringGeneratorResolver}. The pool is the same for every model,
+         * so independently seeded tables share their values. The cardinality applies to subtypes of
+         * {@code managedClass} as well. Unique attributes and ids that are not generated by the JPA provider cannot
+         * be generated from a pool and are rejected when the model is built.
+         *
+         * <p>The same can be configured with {@link JpaKeys#VALUE_CARDINALITIES}. Cardinalities specified via this
+         * method take precedence.
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of the basic JPA attribute
+         * @param distinctValues number of distinct values
+         * @param nullRatio ratio of {@code null} values in the range {@code [0, 1]}, must be {@code 0} for mandatory
+         *     attributes
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if {@code distinctValues} is not positive or {@code nullRatio} is out of
+         *     range
+         * @since 2.1.0
+         */
+        public Builder<T> withValueCardinality(
+            Class<?> managedClass, String attributeName, int distinctValues, double nullRatio
+        ) {
+            cardinalityProfile.addValueCardinality(managedClass, attributeName, distinctValues, nullRatio);
+            return this;
+        }
+
+        /**
+         * Generates the values of a basic JPA attribute from a pool of {@code weights.length} distinct values and
+         * {@code null} with the probability {@code nullRatio}. Value {@code i} of the pool is sampled with a
+         * probability proportional to {@code weights[i]} in constant time, e.g. {@code {70, 20, 10}} for a column
+         * with one dominant value. See {@link #withValueCardinality(Class, String, int, double)}.
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of the basic JPA attribute
+         * @param weights non-negative frequency weights, one per distinct value
+         * @param nullRatio ratio of {@code null} values in the range {@code [0, 1]}, must be {@code 0} for mandatory
+         *     attributes
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if the weights are empty, negative, not finite or sum up to zero, or if
+         *     {@code nullRatio} is out of range
+         * @since 2.1.0
+         */
+        public Builder<T> withValueWeights(
+            Class<?> managedClass, String attributeName, double[] weights, double nullRatio
+        ) {
+            cardinalityProfile.addValueWeights(managedClass, attributeName, weights, nullRatio);
+            return this;
+        }
+
+        /**
+         * Populates {@code MANY_TO_ONE} attributes that reference {@code entityClass} with references to existing
+         * entities whose ids are sampled uniformly from the given range. The references are obtained via
+         * {@link EntityManager#getReference(Class, Object)}, so no referenced entities or their entity graphs are
+         * generated, traversed or loaded. This allows generating the children of already persisted parents in
+         * independent jobs with constant memory, e.g. one model with its own entity manager per job.
+         *
+         * <p>Example:
+         * <pre>{@code
+         *     Model<Order> orderModel = jpaModel(Order.class, metamodel)
+         *         .withReferenceIds(Customer.class, 1, 100_000, em)
+         *         .build();
+         * }</pre>
+         *
+         * @param entityClass referenced JPA entity class with a {@code Long}, {@code Integer} or {@code Short} id
+         * @param minId minimum id, inclusive
+         * @param maxId maximum id, inclusive
+         * @param entityManager entity manager to obtain the references from
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if {@code entityClass} is not an entity, if its id type is not supported
+         *     or if {@code maxId} is less than {@code minId}
+         * @since 2.1.0
+         */
+        public Builder<T> withReferenceIds(Class<?> entityClass, long minId, long maxId, EntityManager entityManager) {
+            Class<?> idType = metamodel.entity(entityClass).getIdType().getJavaType();
+            return withReferenceGenerator(entityClass, distribution -> new EntityReferenceGenerator<>(
+                minId, maxId, idType, distribution, id -> entityManager.getReference(entityClass, id)));
+        }
+
+        /**
+         * Same as {@link #withReferenceIds(Class, long, long, EntityManager)} with ids that are sampled uniformly
+         * from the given list.
+         *
+         * @param entityClass referenced JPA entity class
+         * @param ids ids of existing entities of the id type of {@code entityClass}
+         * @param entityManager entity manager to obtain the references from
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if {@code entityClass} is not an entity or if {@code ids} is empty
+         * @since 2.1.0
+         */
+        public Builder<T> withReferenceIds(Class<?> entityClass, List<?> ids, EntityManager entityManager) {
+            metamodel.entity(entityClass);
+            return withReferenceGenerator(entityClass, distribution -> new EntityReferenceGenerator<>(
+                ids, distribution, id -> entityManager.getReference(entityClass, id)));
+        }
+
+        private Builder<T> withReferenceGenerator(
+            Class<?> entityClass, Function<ReferenceDistribution, Generator<?>> generatorFactory
+        ) {
+            // Fails early on invalid ids
+            generatorFactory.apply(ReferenceDistribution.uniform());
+            referenceGenerators.put(entityClass, generatorFactory);
+            return this;
+        }
+
+        /**
+         * Sets the distribution of the references created via {@link #withReferenceIds(Class, List, EntityManager)}
+         * or {@link #withReferenceIds(Class, long, long, EntityManager)} for a {@code MANY_TO_ONE} attribute or
+         * for the {@code MANY_TO_ONE} attribute that maps a {@code ONE_TO_MANY} attribute, e.g. a Zipf
+         * distribution of orders over customers. The references of other attributes are distributed uniformly. The
+         * distribution has no effect if no reference ids are configured for the referenced entity class.
+         *
+         * <p>Example:
+         * <pre>{@code
+         *     Model<Order> orderModel = jpaModel(Order.class, metamodel)
+         *         .withReferenceIds(Customer.class, 1, 100_000, em)
+         *         .withReferenceDistribution(Customer.class, "orders", ReferenceDistribution.zipf(1.1))
+         *         .build();
+         * }</pre>
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of the {@code MANY_TO_ONE} or mapped {@code ONE_TO_MANY} attribute
+         * @param distribution distribution of the references over the referenced ids
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if the attribute does not exist or is neither a {@code MANY_TO_ONE} nor
+         *     a {@code ONE_TO_MANY} attribute mapped by a {@code MANY_TO_ONE} attribute
+         * @since 2.1.0
+         */
+        public Builder<T> withReferenceDistribution(
+            Class<?> managedClass, String attributeName, ReferenceDistribution distribution
+        ) {
+            Attribute<?, ?> attr = metamodel.managedType(managedClass).getAttribute(attributeName);
+            if (attr.getPersistentAttributeType() == Attribute.PersistentAttributeType.ONE_TO_MANY) {
+                String mappedBy = resolveMappedBy(attr.getJavaMember());
+                if (mappedBy == null) {
+                    throw new IllegalArgumentException(attr + " is not mapped by a MANY_TO_ONE attribute");
+                }
+                attr = metamodel.managedType(((PluralAttribute<?, ?, ?>) attr).getElementType().getJavaType())
+                    .getAttribute(mappedBy);
+            }
+            if (attr.getPersistentAttributeType() != Attribute.PersistentAttributeType.MANY_TO_ONE) {
+                throw new IllegalArgumentException(attr + " is not a MANY_TO_ONE attribute");
+            }
+            referenceDistributions.put(attr, distribution);
+            return this;
+        }
+
+        /**
+         * Sets an {@link EntityGraphCompleter} that completes missing or unpersistable mandatory references of
+         * the generated entity graph before it is shrunk. Combined with a small {@link #withMaxDepth(int)} this
+         * generates the entity graph shallow and fills the gaps on demand instead of generating it deep enough
+         * for the longest mandatory chain.
+         *
+         * <p>Example:
+         * <pre>{@code
+         *     Model<Invoice> invoiceModel = jpaModel(Invoice.class, metamodel)
+         *         .withMaxDepth(1)
+         *         .withEntityGraphCompleter(EntityGraphCompleter.generating(metamodel))
+         *         .build();
+         * }</pre>
+         *
+         * @param entityGraphCompleter the entity graph completer
+         * @return InstancioJpa builder reference
+         * @since 2.1.0
+         */
+        public Builder<T> withEntityGraphCompleter(EntityGraphCompleter entityGraphCompleter) {
+            this.entityGraphCompleter = entityGraphCompleter;
+            return this;
+        }
+
+        /**
+         * Limits the generated associations to the attribute nodes and subgraphs of the given entity graph. Optional
+         * references outside the entity graph are {@code null} and collections and maps outside the entity graph
+         * are empty, whereas optional associations in the entity graph are always generated. Mandatory references
+         * are generated regardless of the entity graph to keep the entity graph persistable. If no maxDepth is
+         * specified, the detected maxDepth is raised to cover the entity graph.
+         *
+         * <p>Example:
+         * <pre>{@code
+         *     EntityGraph<Order> orderWithLines = em.createEntityGraph(Order.class);
+         *     orderWithLines.addSubgraph("lines").addAttributeNodes("product");
+         *     Model<Order> orderModel = jpaModel(Order.class, metamodel)
+         *         .withEntityGraph(orderWithLines)
+         *         .build();
+         * }</pre>
+         *
+         * @param entityGraph JPA entity graph rooted at the entity class of this builder
+         * @return InstancioJpa builder reference
+         * @see EntityGraphScope
+         * @since 2.1.0
+         */
+        public Builder<T> withEntityGraph(EntityGraph<?> entityGraph) {
+            this.entityGraphScope = EntityGraphScope.of(entityGraph);
+            return this;
+        }
+
+        /**
+         * Same as {@link #withEntityGraph(EntityGraph)} for an entity graph declared via
+         * {@link javax.persistence.NamedEntityGraph} on the entity class of this builder or one of its superclasses.
+         *
+         * @param graphName name of the entity graph
+         * @return InstancioJpa builder reference
+         * @throws IllegalArgumentException if no entity graph with the given name is declared
+         * @since 2.1.0
+         */
+        public Builder<T> withEntityGraph(String graphName) {
+            this.entityGraphScope = EntityGraphScope.ofNamedEntityGraph(entityClass, graphName);
+            return this;
+        }
+
         /**
          * A callback that gets invoked after an object has been fully populated.
          *
@@ -164,37 +460,104 @@ public final class InstancioJpa {
          */
         public Model<T> build() {
             Settings settings = buildSettings();
+            String metamodelSnapshotDirectory = settings.get(JpaKeys.METAMODEL_SNAPSHOT_DIRECTORY);
+            if (metamodelSnapshotDirectory != null) {
+                MetamodelAnalysis.of(metamodel, Paths.get(metamodelSnapshotDirectory));
+            }
             InstancioApi<T> instancioApi = Instancio.of(entityClass)
                 .set(JpaTransientAttributeSelector.jpaTransient(metamodel), null)
                 .set(JpaGeneratedIdSelector.jpaGeneratedId(metamodel), null)
                 .withSettings(settings);
 
-            if (settings.get(JpaKeys.USE_JPA_NULLABILITY)) {
-                instancioApi.withNullable(JpaOptionalAttributeSelector.jpaOptionalAttribute(metamodel));
+            CardinalityProfile effectiveCardinalityProfile = CardinalityProfile.parse(
+                settings.get(JpaKeys.COLLECTION_SIZES), settings.get(JpaKeys.POPULATION_PROBABILITIES),
+                settings.get(JpaKeys.VALUE_CARDINALITIES));
+            effectiveCardinalityProfile.addAll(cardinalityProfile);
+            effectiveCardinalityProfile.apply(instancioApi, metamodel, settings);
+
+            final JpaOptionalAttributeSelector optionalAttributeSelector = entityGraphScope == null
+                ? JpaOptionalAttributeSelector.jpaOptionalAttribute(metamodel, effectiveCardinalityProfile::contains)
+                : JpaOptionalAttributeSelector.jpaOptionalAttribute(
+                    metamodel, entityGraphScope, effectiveCardinalityProfile::contains);
+            if (settings.get(JpaKeys.MINIMAL_GRAPH)) {
+                instancioApi.set(optionalAttributeSelector, null);
+            } else if (settings.get(JpaKeys.USE_JPA_NULLABILITY)) {
+                instancioApi.withNullable(optionalAttributeSelector);
             }
 
             final int effectiveMaxDepth;
             if (maxDepth == null) {
                 EntityGraphMinDepthPredictor entityGraphMinDepthPredictor =
                     new EntityGraphMinDepthPredictor(metamodel);
-                effectiveMaxDepth = entityGraphMinDepthPredictor.predictRequiredDepth(entityClass);
+                effectiveMaxDepth = entityGraphScope == null
+                    ? entityGraphMinDepthPredictor.predictRequiredDepth(entityClass)
+                    : entityGraphMinDepthPredictor.predictRequiredDepth(entityClass, entityGraphScope);
             } else {
                 effectiveMaxDepth = maxDepth;
             }
             instancioApi.withMaxDepth(effectiveMaxDepth);
 
-            entityGraphShrinker = new EntityGraphShrinker(metamodel, effectiveMaxDepth + 1);
-            this.entityGraphAssociationFixer = new EntityGraphAssociationFixer(metamodel, effectiveMaxDepth + 1);
+            if (entityGraphScope != null) {
+                instancioApi
+                    .set(JpaEntityGraphScopeSelector.jpaOutOfScopeReference(
+                        metamodel, entityGraphScope, effectiveCardinalityProfile::contains), null)
+                    .generate(JpaEntityGraphScopeSelector.jpaOutOfScopeCollection(
+                        metamodel, entityGraphScope, effectiveCardinalityProfile::contains),
+                        gen -> gen.collection().size(0))
+                    .generate(JpaEntityGraphScopeSelector.jpaOutOfScopeMap(
+                        metamodel, entityGraphScope, effectiveCardinalityProfile::contains),
+                        gen -> gen.map().size(0));
+            }
+
+            if (settings.get(JpaKeys.LIMIT_ASSOCIATION_DEPTH)) {
+                // Mandatory chains determine the max depth, optional associations are only generated if their
+                // own mandatory chains fit into it
+                instancioApi
+                    .set(JpaDepthLimitSelector.jpaDepthLimitedReference(
+                        metamodel, effectiveMaxDepth, effectiveCardinalityProfile::contains), null)
+                    .generate(JpaDepthLimitSelector.jpaDepthLimitedCollection(
+                        metamodel, effectiveMaxDepth, effectiveCardinalityProfile::contains),
+                        gen -> gen.collection().size(0))
+                    .generate(JpaDepthLimitSelector.jpaDepthLimitedMap(
+                        metamodel, effectiveMaxDepth, effectiveCardinalityProfile::contains),
+                        gen -> gen.map().size(0));
+            }
+
+            // Applied last to take precedence over the selectors above that null out references
+            referenceGenerators.forEach((referencedClass, generatorFactory) -> instancioApi.supply(
+                JpaReferenceSelector.jpaReference(metamodel, referencedClass),
+                generatorFactory.apply(ReferenceDistribution.uniform())));
+            referenceDistributions.forEach((attr, distribution) -> {
+                Function<ReferenceDistribution, Generator<?>> generatorFactory =
+                    referenceGenerators.get(attr.getJavaType());
+                if (generatorFactory != null) {
+                    instancioApi.supply(
+                        jpaAttribute(attr.getDeclaringType().getJavaType(), attr.getName()),
+                        generatorFactory.apply(distribution));
+                }
+            });
+
+            // Completed references may extend beyond the max depth
+            entityGraphShrinker = new EntityGraphShrinker(
+                metamodel, entityGraphCompleter == null ? effectiveMaxDepth + 1 : null);
+            this.entityGraphAssociationFixer = new EntityGraphAssociationFixer(
+                metamodel, entityGraphCompleter == null ? effectiveMaxDepth + 1 : null);
 
             return instancioApi
                 .onComplete(root(), (root) -> {
                     if (root instanceof Iterable<?>) {
+                        if (entityGraphCompleter != null) {
+                            ((Iterable<?>) root).forEach(entityGraphCompleter::complete);
+                        }
                         ((Iterable<?>) root).forEach(entityGraphShrinker::shrink);
                         ((Iterable<?>) root).forEach(entityGraphAssociationFixer::fixAssociations);
                         if (onCompleteCallback != null) {
                             ((Iterable<T>) root).forEach(onCompleteCallback::onComplete);
                         }
                     } else {
+                        if (entityGraphCompleter != null) {
+                            entityGraphCompleter.complete(root);
+                        }
                         entityGraphShrinker.shrink(root);
                         entityGraphAssociationFixer.fixAssociations(root);
                         if (onCompleteCallback != null) {
@@ -227,6 +590,15 @@ public final class InstancioJpa {
             if (settings.get(JpaKeys.USE_JPA_NULLABILITY) == null) {
                 settings.set(JpaKeys.USE_JPA_NULLABILITY, JpaKeys.USE_JPA_NULLABILITY.defaultValue());
             }
+            if (settings.get(JpaKeys.LIMIT_ASSOCIATION_DEPTH) == null) {
+                settings.set(JpaKeys.LIMIT_ASSOCIATION_DEPTH, JpaKeys.LIMIT_ASSOCIATION_DEPTH.defaultValue());
+            }
+            if (settings.get(JpaKeys.MINIMAL_GRAPH) == null) {
+                settings.set(JpaKeys.MINIMAL_GRAPH, JpaKeys.MINIMAL_GRAPH.defaultValue());
+            }
+            if (settings.get(JpaKeys.WARM_UP) == null) {
+                settings.set(JpaKeys.WARM_UP, JpaKeys.WARM_UP.defaultValue());
+            }
         }
     }
 }
@@ -18,6 +18,7 @@ package com.mobecker.instancio.jpa;
 
 import com.mobecker.instancio.jpa.setting.JpaKeys;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +31,7 @@ import org.instancio.Node;
 import org.instancio.generator.Generator;
 import org.instancio.generator.GeneratorSpec;
 import org.instancio.settings.Keys;
+import org.instancio.settings.SettingKey;
 import org.instancio.settings.Settings;
 import org.instancio.spi.InstancioServiceProvider;
 import org.instancio.spi.ServiceProviderContext;
@@ -46,6 +48,8 @@ public class InstancioJpaServiceProvider implements InstancioServiceProvider {
     private static final Logger LOG = LoggerFactory.getLogger(InstancioJpaServiceProvider.class);
 
     private List<JpaAttributeGeneratorResolver> jpaAttributeGeneratorResolvers;
+    @Nullable
+    private NodeBudgetGeneratorResolver nodeBudgetGeneratorResolver;
 
     private volatile Metamodel metamodel;
     private volatile String[] generatorProviderExclusions;
@@ -55,15 +59,31 @@ public class InstancioJpaServiceProvider implements InstancioServiceProvider {
     public void init(ServiceProviderContext context) {
         Settings settings = context.getSettings();
         this.metamodel = settings.get(JpaKeys.METAMODEL);
+        if (metamodel != null && Boolean.TRUE.equals(settings.get(JpaKeys.WARM_UP))) {
+            InstancioJpa.warmUp(metamodel);
+        }
         this.generatorProviderExclusions = convertGeneratorProviderExclusions(
             settings.get(JpaKeys.GENERATOR_PROVIDER_EXCLUSIONS));
         Boolean generatorProvidersEnabled = settings.get(JpaKeys.ENABLE_GENERATOR_PROVIDERS);
         this.generatorProvidersEnabled = generatorProvidersEnabled != null && generatorProvidersEnabled;
-        this.jpaAttributeGeneratorResolvers = Arrays.asList(
+        List<JpaAttributeGeneratorResolver> jpaAttributeGeneratorResolvers = new ArrayList<>(Arrays.asList(
             // Order matters
-            new UniqueValueGeneratorResolver(),
+            new UniqueValueGeneratorResolver(getOrDefault(settings, JpaKeys.UNIQUE_VALUE_OFFSET)),
             new StringGeneratorResolver(settings.get(Keys.STRING_MAX_LENGTH))
-        );
+        ));
+        Integer maxNodes = settings.get(JpaKeys.MAX_NODES);
+        if (maxNodes != null) {
+            nodeBudgetGeneratorResolver = new NodeBudgetGeneratorResolver(maxNodes,
+                getOrDefault(settings, Keys.COLLECTION_MIN_SIZE), getOrDefault(settings, Keys.COLLECTION_MAX_SIZE),
+                getOrDefault(settings, Keys.MAP_MIN_SIZE), getOrDefault(settings, Keys.MAP_MAX_SIZE));
+            jpaAttributeGeneratorResolvers.add(nodeBudgetGeneratorResolver);
+        }
+        this.jpaAttributeGeneratorResolvers = jpaAttributeGeneratorResolvers;
+    }
+
+    private static <T> T getOrDefault(Settings settings, SettingKey<T> key) {
+        T value = settings.get(key);
+        return value == null ? key.defaultValue() : value;
     }
 
     private static String[] convertGeneratorProviderExclusions(@Nullable String rawExclusions) {
@@ -79,6 +99,9 @@ public class InstancioJpaServiceProvider implements InstancioServiceProvider {
         Map<Node, Generator<?>> contextualGenerators = new HashMap<>();
         return (node, generators) -> {
             Field field = node.getField();
+            if (field == null && nodeBudgetGeneratorResolver != null && isRootEntity(node)) {
+                return nodeBudgetGeneratorResolver.getRootGenerator(node);
+            }
             if (field != null && metamodel != null && !isExcluded(field)) {
                 EntityType<?> entityType;
                 try {
@@ -101,6 +124,21 @@ public class InstancioJpaServiceProvider implements InstancioServiceProvider {
         };
     }
 
+    // The root of Instancio.create and Instancio.stream, or an element of the root of Instancio.ofList
+    private boolean isRootEntity(Node node) {
+        Node parent = node.getParent();
+        if (metamodel == null || parent != null && (parent.getField() != null || parent.getParent() != null)) {
+            return false;
+        }
+        try {
+            metamodel.entity(node.getTargetClass());
+            return true;
+        } catch (IllegalArgumentException e) {
+            LOG.trace(null, e);
+            return false;
+        }
+    }
+
     private boolean isExcluded(Field field) {
         for (String exclusion : generatorProviderExclusions) {
             String[] exclusionParts = exclusion.split("#");
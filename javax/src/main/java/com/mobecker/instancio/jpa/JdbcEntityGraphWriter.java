@@ -0,0 +1,617 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.hasCollectionTable;
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.hasElementJoinColumn;
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.wrap;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getAnnotation;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getSingleIdAttribute;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveAttributeValue;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.setAttributeValue;
+
+import com.mobecker.instancio.jpa.util.WeakIdentityMap;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Convert;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.MapKeyEnumerated;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.MapAttribute;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+
+/**
+ * An alternative to {@link EntityGraphPersister} for bulk data that bypasses the
+ * {@link javax.persistence.EntityManager} and writes entity graphs as multi-row {@code INSERT ... VALUES (...), (...)}
+ * statements over a plain JDBC {@link Connection}. Entities are traversed in the same order as with
+ * {@link EntityGraphPersister}. Rows are buffered per entity type and collection table and written when
+ * {@link #flush()} is invoked or the buffer is full. Entity tables are written in dependency order followed by the
+ * collection tables.
+ *
+ * <p>Table and column names are taken from Hibernate's mapping if Hibernate is the JPA provider, otherwise they are
+ * derived from the mapping annotations. Pre-assigned ids are written as they are. Entities with a {@code null}
+ * numeric id get the next id after the largest id found in their table, so ids generated by the database or the
+ * JPA provider later on may collide with these ids.
+ *
+ * <p>The writer neither manages transactions nor closes the connection. Limitations: entities must have a single
+ * basic id and must be mapped to a single table, i.e. {@code JOINED} inheritance is not supported. Collections of
+ * embeddables, collections inside embeddables and foreign keys that form a cycle between entity types are not
+ * supported either. Attribute converters are only applied if they are declared via {@link Convert} on the attribute.
+ * Unidirectional {@code ONE_TO_MANY} associations mapped with a join column are written with batched
+ * {@code UPDATE} statements after the referenced rows like the JPA provider does, so the join column must be
+ * nullable.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *     try (Connection connection = dataSource.getConnection()) {
+ *         connection.setAutoCommit(false);
+ *         new JdbcEntityGraphWriter(connection, metamodel, 100)
+ *             .writeAll(Instancio.ofList(orderModel).size(100_000).create());
+ *         connection.commit();
+ *     }
+ * }</pre>
+ *
+ * @since 2.1.0
+ */
+public class JdbcEntityGraphWriter extends AbstractEntityGraphPersister {
+
+    // Number of full multi-row statements per table that are buffered before the buffer is flushed
+    private static final int STATEMENTS_PER_FLUSH = 16;
+
+    private final Connection connection;
+    private final int rowsPerStatement;
+    private final JdbcMappingResolver mappingResolver;
+    private final WeakIdentityMap<Object, Boolean> writtenEntities = new WeakIdentityMap<>();
+    private final Map<Class<?>, EntityTable> entityTables = new LinkedHashMap<>();
+    private final Map<String, CollectionTable> collectionTables = new LinkedHashMap<>();
+    private final List<Object[]> pendingJoinTableRows = new ArrayList<>();
+    private final Map<String, long[]> idSequences = new HashMap<>();
+    private final Map<Class<?>, AttributeConverter<Object, Object>> converters = new HashMap<>();
+    private int bufferedRows;
+
+    /**
+     * Create new {@link JdbcEntityGraphWriter}.
+     *
+     * @param connection JDBC connection to write to
+     * @param metamodel JPA metamodel
+     * @param rowsPerStatement maximum number of rows per {@code INSERT} statement
+     * @throws IllegalArgumentException if {@code rowsPerStatement} is not positive
+     */
+    public JdbcEntityGraphWriter(Connection connection, Metamodel metamodel, int rowsPerStatement) {
+        super(metamodel);
+        if (rowsPerStatement <= 0) {
+            throw new IllegalArgumentException("rowsPerStatement must be positive");
+        }
+        this.connection = connection;
+        this.rowsPerStatement = rowsPerStatement;
+        this.mappingResolver = new JdbcMappingResolver(metamodel);
+    }
+
+    /**
+     * Buffers the rows of all entities of the entity graph of the given root that have not been written yet.
+     * The buffer is flushed if it is full.
+     *
+     * @param entity JPA entity root
+     * @throws IllegalArgumentException if the entity graph contains mappings that are not supported
+     */
+    public void write(Object entity) {
+        persistGraph(entity);
+        // Join table rows reference entities that are written after the owner, so their ids are only known now
+        for (Object[] pendingJoinTableRow : pendingJoinTableRows) {
+            addCollectionTableRows((CollectionTable) pendingJoinTableRow[0], pendingJoinTableRow[1],
+                pendingJoinTableRow[2]);
+        }
+        pendingJoinTableRows.clear();
+        if (bufferedRows >= rowsPerStatement * STATEMENTS_PER_FLUSH) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the entity graphs of all given roots and flushes the buffer.
+     *
+     * @param roots JPA entity roots
+     */
+    public void writeAll(Iterable<?> roots) {
+        for (Object root : roots) {
+            write(root);
+        }
+        flush();
+    }
+
+    /**
+     * Writes all buffered rows to the database.
+     */
+    public void flush() {
+        for (Set<Class<?>> dependencyLevel : computeDependencyLevels(entityTables.keySet())) {
+            for (Class<?> entityClass : dependencyLevel) {
+                writeRows(entityTables.get(entityClass));
+            }
+        }
+        for (CollectionTable collectionTable : collectionTables.values()) {
+            writeRows(collectionTable);
+        }
+        bufferedRows = 0;
+    }
+
+    @Override
+    protected boolean isPersisted(Object entity) {
+        return writtenEntities.get(entity) != null;
+    }
+
+    @Override
+    protected void persistEntity(Object entity) {
+        writtenEntities.put(entity, Boolean.TRUE);
+        Class<?> entityClass = entity.getClass();
+        EntityTable entityTable = entityTables.get(entityClass);
+        if (entityTable == null) {
+            entityTable = createEntityTable(entityClass);
+            entityTables.put(entityClass, entityTable);
+        }
+        if (resolveAttributeValue(entity, entityTable.idAttribute) == null) {
+            setAttributeValue(entity, entityTable.idAttribute, nextId(entityTable));
+        }
+        Object[] row = new Object[entityTable.valueExtractors.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = entityTable.valueExtractors.get(i).apply(entity);
+        }
+        entityTable.rows.add(row);
+        bufferedRows++;
+
+        for (CollectionTable collectionTable : entityTable.collectionTables) {
+            if (collectionTable.attribute.getElementType().getPersistenceType() == Type.PersistenceType.ENTITY) {
+                pendingJoinTableRows.add(new Object[] {collectionTable, entity, row[0]});
+            } else {
+                addCollectionTableRows(collectionTable, entity, row[0]);
+            }
+        }
+    }
+
+    private void addCollectionTableRows(CollectionTable collectionTable, Object owner, Object ownerId) {
+        Object value = resolveAttributeValue(owner, collectionTable.attribute);
+        if (value == null) {
+            return;
+        }
+        Collection<?> elements = value instanceof Map<?, ?> ? ((Map<?, ?>) value).entrySet() : (Collection<?>) value;
+        int index = 0;
+        for (Object element : elements) {
+            Object key = null;
+            if (element instanceof Map.Entry<?, ?>) {
+                key = ((Map.Entry<?, ?>) element).getKey();
+                element = ((Map.Entry<?, ?>) element).getValue();
+            }
+            Object[] row = new Object[collectionTable.columns.size()];
+            row[0] = ownerId;
+            row[1] = collectionTable.elementExtractor.apply(element);
+            if (row.length > 2) {
+                row[2] = key == null ? index : collectionTable.mapKeyConverter.apply(key);
+            }
+            collectionTable.rows.add(row);
+            bufferedRows++;
+            index++;
+        }
+    }
+
+    private EntityTable createEntityTable(Class<?> entityClass) {
+        EntityType<?> entityType = metamodel.entity(entityClass);
+        if (mappingResolver.getTableSpan(entityClass) != 1) {
+            throw new IllegalArgumentException(String.format(
+                "%s is mapped to multiple tables, which is not supported", entityClass.getName()));
+        }
+        SingularAttribute<?, ?> idAttr = getSupportedIdAttribute(entityType);
+        EntityTable entityTable = new EntityTable(mappingResolver.getTableName(entityClass), idAttr);
+        entityTable.columns.add(mappingResolver.getIdColumnName(entityClass));
+        entityTable.valueExtractors.add(idExtractor(idAttr));
+        String[] discriminator = mappingResolver.getDiscriminator(entityClass);
+        if (discriminator != null) {
+            entityTable.literalColumns.put(discriminator[0], discriminator[1]);
+        }
+        for (SingularAttribute<?, ?> attr : entityType.getSingularAttributes()) {
+            if (!attr.isId()) {
+                addColumns(entityTable, entityClass, Collections.singletonList(attr), entity -> entity);
+            }
+        }
+        for (PluralAttribute<?, ?, ?> attr : entityType.getPluralAttributes()) {
+            if ((hasCollectionTable(attr) || hasElementJoinColumn(attr)) && isInsertable(attr)) {
+                entityTable.collectionTables.add(getCollectionTable(entityClass, attr));
+            }
+        }
+        return entityTable;
+    }
+
+    private void addColumns(EntityTable entityTable, Class<?> entityClass, List<Attribute<?, ?>> path,
+                            Function<Object, Object> ownerExtractor) {
+        Attribute<?, ?> attr = path.get(path.size() - 1);
+        if (!isInsertable(attr)) {
+            return;
+        }
+        Function<Object, Object> valueExtractor = entity -> {
+            Object owner = ownerExtractor.apply(entity);
+            return owner == null ? null : resolveAttributeValue(owner, attr);
+        };
+        switch (attr.getPersistentAttributeType()) {
+            case BASIC:
+                // Providers initialize numeric versions with 0
+                Object nullValue = ((SingularAttribute<?, ?>) attr).isVersion()
+                    && Number.class.isAssignableFrom(wrap(attr.getJavaType())) ? 0 : null;
+                Function<Object, Object> converter = jdbcValueConverter(attr);
+                entityTable.columns.add(mappingResolver.getColumnName(entityClass, path));
+                entityTable.valueExtractors.add(entity -> {
+                    Object value = valueExtractor.apply(entity);
+                    return value == null ? nullValue : converter.apply(value);
+                });
+                break;
+            case EMBEDDED:
+                ManagedType<?> embeddableType = metamodel.embeddable(attr.getJavaType());
+                if (!embeddableType.getPluralAttributes().isEmpty()) {
+                    throw new IllegalArgumentException(String.format(
+                        "Collections of embeddable %s are not supported", attr.getJavaType().getName()));
+                }
+                for (SingularAttribute<?, ?> embeddedAttr : embeddableType.getSingularAttributes()) {
+                    List<Attribute<?, ?>> embeddedPath = new ArrayList<>(path);
+                    embeddedPath.add(embeddedAttr);
+                    addColumns(entityTable, entityClass, embeddedPath, valueExtractor);
+                }
+                break;
+            case MANY_TO_ONE:
+            case ONE_TO_ONE:
+                if (resolveMappedBy(attr.getJavaMember()) == null) {
+                    Function<Object, Object> targetIdExtractor =
+                        idExtractor(getSupportedIdAttribute(metamodel.entity(attr.getJavaType())));
+                    entityTable.columns.add(mappingResolver.getColumnName(entityClass, path));
+                    entityTable.valueExtractors.add(entity -> {
+                        Object target = valueExtractor.apply(entity);
+                        return target == null ? null : targetIdExtractor.apply(target);
+                    });
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private CollectionTable getCollectionTable(Class<?> entityClass, PluralAttribute<?, ?, ?> attr) {
+        String role = attr.getDeclaringType().getJavaType().getName() + "#" + attr.getName();
+        CollectionTable collectionTable = collectionTables.get(role);
+        if (collectionTable != null) {
+            return collectionTable;
+        }
+        Type<?> elementType = attr.getElementType();
+        Function<Object, Object> elementExtractor;
+        if (elementType.getPersistenceType() == Type.PersistenceType.ENTITY) {
+            elementExtractor = idExtractor(getSupportedIdAttribute(metamodel.entity(elementType.getJavaType())));
+        } else if (elementType.getPersistenceType() == Type.PersistenceType.BASIC) {
+            Function<Object, Object> converter = jdbcValueConverter(attr);
+            elementExtractor = element -> element == null ? null : converter.apply(element);
+        } else {
+            throw new IllegalArgumentException(String.format(
+                "%s is a collection of embeddables, which is not supported", role));
+        }
+        collectionTable = new CollectionTable(mappingResolver.getCollectionTableName(entityClass, attr), attr,
+            elementExtractor, mapKeyConverter(attr), hasElementJoinColumn(attr));
+        collectionTable.columns.add(mappingResolver.getCollectionKeyColumnName(entityClass, attr));
+        collectionTable.columns.add(mappingResolver.getCollectionElementColumnName(entityClass, attr));
+        String indexColumnName = mappingResolver.getCollectionIndexColumnName(entityClass, attr);
+        if (indexColumnName != null) {
+            collectionTable.columns.add(indexColumnName);
+        }
+        collectionTables.put(role, collectionTable);
+        return collectionTable;
+    }
+
+    private Object nextId(EntityTable entityTable) {
+        Class<?> idType = wrap(entityTable.idAttribute.getJavaType());
+        if (idType != Long.class && idType != Integer.class) {
+            throw new IllegalStateException(String.format(
+                "Cannot assign an id of type %s to an entity of table %s, assign ids before writing",
+                idType.getName(), entityTable.name));
+        }
+        long[] sequence = idSequences.get(entityTable.name);
+        if (sequence == null) {
+            sequence = new long[] {queryMaxId(entityTable)};
+            idSequences.put(entityTable.name, sequence);
+        }
+        long id = ++sequence[0];
+        return idType == Long.class ? (Object) id : (Object) Math.toIntExact(id);
+    }
+
+    private long queryMaxId(EntityTable entityTable) {
+        String sql = "select max(" + entityTable.columns.get(0) + ") from " + entityTable.name;
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeRows(Table table) {
+        List<Object[]> rows = table.rows;
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (table instanceof CollectionTable && ((CollectionTable) table).joinColumn) {
+            updateJoinColumns((CollectionTable) table);
+            return;
+        }
+        int fullStatements = rows.size() / rowsPerStatement;
+        int remainingRows = rows.size() % rowsPerStatement;
+        try {
+            if (fullStatements > 0) {
+                try (PreparedStatement statement = connection.prepareStatement(table.insertSql(rowsPerStatement))) {
+                    for (int i = 0; i < fullStatements; i++) {
+                        bind(statement, rows, i * rowsPerStatement, rowsPerStatement);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+            if (remainingRows > 0) {
+                try (PreparedStatement statement = connection.prepareStatement(table.insertSql(remainingRows))) {
+                    bind(statement, rows, fullStatements * rowsPerStatement, remainingRows);
+                    statement.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        rows.clear();
+    }
+
+    private void updateJoinColumns(CollectionTable collectionTable) {
+        List<Object[]> rows = collectionTable.rows;
+        try (PreparedStatement statement = connection.prepareStatement(collectionTable.updateSql())) {
+            for (Object[] row : rows) {
+                // The element id of a row identifies the referenced row, the other values are set
+                int parameterIndex = 1;
+                for (int i = 0; i < row.length; i++) {
+                    if (i != 1) {
+                        statement.setObject(parameterIndex++, row[i]);
+                    }
+                }
+                statement.setObject(parameterIndex, row[1]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        rows.clear();
+    }
+
+    private static void bind(PreparedStatement statement, List<Object[]> rows, int offset, int rowCount)
+        throws SQLException {
+        int parameterIndex = 1;
+        for (int i = offset; i < offset + rowCount; i++) {
+            for (Object value : rows.get(i)) {
+                if (value == null) {
+                    statement.setNull(parameterIndex++, Types.NULL);
+                } else {
+                    statement.setObject(parameterIndex++, value);
+                }
+            }
+        }
+    }
+
+    private Function<Object, Object> idExtractor(SingularAttribute<?, ?> idAttr) {
+        Function<Object, Object> converter = jdbcValueConverter(idAttr);
+        return entity -> {
+            Object id = resolveAttributeValue(entity, idAttr);
+            return id == null ? null : converter.apply(id);
+        };
+    }
+
+    /**
+     * Returns a function that converts non-null values of the given attribute to JDBC values. The mapping
+     * annotations are only resolved once per attribute.
+     */
+    private Function<Object, Object> jdbcValueConverter(Attribute<?, ?> attr) {
+        Convert convert = getAnnotation(attr, Convert.class);
+        if (convert != null && !convert.disableConversion() && convert.converter() != AttributeConverter.class) {
+            AttributeConverter<Object, Object> converter = getConverter(convert.converter());
+            return converter::convertToDatabaseColumn;
+        }
+        Class<?> javaType = attr instanceof PluralAttribute<?, ?, ?>
+            ? ((PluralAttribute<?, ?, ?>) attr).getElementType().getJavaType() : attr.getJavaType();
+        if (javaType.isEnum()) {
+            Enumerated enumerated = getAnnotation(attr, Enumerated.class);
+            return enumConverter(enumerated != null && enumerated.value() == EnumType.STRING);
+        }
+        if (Date.class.isAssignableFrom(javaType) || Calendar.class.isAssignableFrom(javaType)) {
+            Temporal temporal = getAnnotation(attr, Temporal.class);
+            TemporalType temporalType = temporal == null ? TemporalType.TIMESTAMP : temporal.value();
+            return value -> {
+                long time = value instanceof Calendar
+                    ? ((Calendar) value).getTimeInMillis() : ((Date) value).getTime();
+                if (temporalType == TemporalType.DATE) {
+                    return new java.sql.Date(time);
+                } else if (temporalType == TemporalType.TIME) {
+                    return new java.sql.Time(time);
+                }
+                return new Timestamp(time);
+            };
+        }
+        if (javaType == Character.class || javaType == char.class) {
+            return Object::toString;
+        }
+        if (javaType == char[].class) {
+            return value -> new String((char[]) value);
+        }
+        if (javaType == Character[].class) {
+            return value -> {
+                StringBuilder sb = new StringBuilder();
+                for (Character c : (Character[]) value) {
+                    sb.append(c);
+                }
+                return sb.toString();
+            };
+        }
+        if (javaType == Byte[].class) {
+            return value -> {
+                Byte[] bytes = (Byte[]) value;
+                byte[] primitiveBytes = new byte[bytes.length];
+                for (int i = 0; i < bytes.length; i++) {
+                    primitiveBytes[i] = bytes[i];
+                }
+                return primitiveBytes;
+            };
+        }
+        return Function.identity();
+    }
+
+    @Nullable
+    private static Function<Object, Object> mapKeyConverter(PluralAttribute<?, ?, ?> attr) {
+        if (!(attr instanceof MapAttribute<?, ?, ?>)) {
+            return null;
+        }
+        Class<?> keyType = ((MapAttribute<?, ?, ?>) attr).getKeyJavaType();
+        if (keyType.isEnum()) {
+            MapKeyEnumerated enumerated = getAnnotation(attr, MapKeyEnumerated.class);
+            return enumConverter(enumerated != null && enumerated.value() == EnumType.STRING);
+        }
+        return keyType == Character.class ? Object::toString : Function.identity();
+    }
+
+    private static Function<Object, Object> enumConverter(boolean byName) {
+        return byName ? value -> ((Enum<?>) value).name() : value -> ((Enum<?>) value).ordinal();
+    }
+
+    @SuppressWarnings("unchecked")
+    private AttributeConverter<Object, Object> getConverter(Class<?> converterClass) {
+        return converters.computeIfAbsent(converterClass, type -> {
+            try {
+                return (AttributeConverter<Object, Object>) type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static SingularAttribute<?, ?> getSupportedIdAttribute(EntityType<?> entityType) {
+        if (!entityType.hasSingleIdAttribute()
+            || getSingleIdAttribute(entityType).getPersistentAttributeType()
+            != Attribute.PersistentAttributeType.BASIC) {
+            throw new IllegalArgumentException(String.format(
+                "%s has a composite or derived id, which is not supported", entityType.getJavaType().getName()));
+        }
+        return getSingleIdAttribute(entityType);
+    }
+
+    /**
+     * The buffered rows of a table with the columns in the order of the row values.
+     */
+    private abstract static class Table {
+        final String name;
+        final List<String> columns = new ArrayList<>();
+        // Columns with a constant SQL literal, e.g. discriminator columns, that are not part of the row values
+        final Map<String, String> literalColumns = new LinkedHashMap<>();
+        final List<Object[]> rows = new ArrayList<>();
+        private final Map<Integer, String> insertSqls = new HashMap<>();
+
+        Table(String name) {
+            this.name = name;
+        }
+
+        String insertSql(int rowCount) {
+            return insertSqls.computeIfAbsent(rowCount, count -> {
+                StringBuilder sb = new StringBuilder("insert into ").append(name).append(" (");
+                List<String> allColumns = new ArrayList<>(columns);
+                allColumns.addAll(literalColumns.keySet());
+                sb.append(String.join(", ", allColumns)).append(") values ");
+                StringBuilder rowSql = new StringBuilder("(");
+                for (int i = 0; i < columns.size(); i++) {
+                    rowSql.append(i == 0 ? "?" : ", ?");
+                }
+                for (String literal : literalColumns.values()) {
+                    rowSql.append(columns.isEmpty() ? "" : ", ").append(literal);
+                }
+                rowSql.append(')');
+                for (int i = 0; i < count; i++) {
+                    sb.append(i == 0 ? "" : ", ").append(rowSql);
+                }
+                return sb.toString();
+            });
+        }
+    }
+
+    private static final class EntityTable extends Table {
+        final SingularAttribute<?, ?> idAttribute;
+        final List<Function<Object, Object>> valueExtractors = new ArrayList<>();
+        final List<CollectionTable> collectionTables = new ArrayList<>();
+
+        EntityTable(String name, SingularAttribute<?, ?> idAttribute) {
+            super(name);
+            this.idAttribute = idAttribute;
+        }
+    }
+
+    private static final class CollectionTable extends Table {
+        final PluralAttribute<?, ?, ?> attribute;
+        final Function<Object, Object> elementExtractor;
+        @Nullable
+        final Function<Object, Object> mapKeyConverter;
+        // Whether the rows update the join column of the referenced table instead of being inserted
+        final boolean joinColumn;
+
+        CollectionTable(String name, PluralAttribute<?, ?, ?> attribute, Function<Object, Object> elementExtractor,
+                        @Nullable Function<Object, Object> mapKeyConverter, boolean joinColumn) {
+            super(name);
+            this.attribute = attribute;
+            this.elementExtractor = elementExtractor;
+            this.mapKeyConverter = mapKeyConverter;
+            this.joinColumn = joinColumn;
+        }
+
+        String updateSql() {
+            StringBuilder sb = new StringBuilder("update ").append(name).append(" set ");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i != 1) {
+                    sb.append(i == 0 ? "" : ", ").append(columns.get(i)).append(" = ?");
+                }
+            }
+            return sb.append(" where ").append(columns.get(1)).append(" = ?").toString();
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getAnnotation;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getSingleIdAttribute;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.DiscriminatorColumn;
+import javax.persistence.DiscriminatorValue;
+import javax.persistence.Entity;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.MapKeyColumn;
+import javax.persistence.OrderColumn;
+import javax.persistence.Table;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves table and column names of entities and collections. If Hibernate is the JPA provider, the names are
+ * taken from Hibernate's entity and collection persisters, which are accessed reflectively so that both Hibernate 5
+ * and 6 are supported and naming strategies are taken into account. Otherwise, the names are derived from the
+ * mapping annotations and the JPA default naming rules.
+ */
+final class JdbcMappingResolver {
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcMappingResolver.class);
+
+    private final Metamodel metamodel;
+    @Nullable
+    private final Method entityPersisterMethod;
+    @Nullable
+    private final Method collectionPersisterMethod;
+
+    JdbcMappingResolver(Metamodel metamodel) {
+        this.metamodel = metamodel;
+        this.entityPersisterMethod = findMethod(metamodel.getClass(), "entityPersister", Class.class);
+        this.collectionPersisterMethod = findMethod(metamodel.getClass(), "collectionPersister", String.class);
+    }
+
+    String getTableName(Class<?> entityClass) {
+        Object tableName = invoke(entityPersister(entityClass), "getTableName");
+        if (tableName != null) {
+            return (String) tableName;
+        }
+        Class<?> tableClass = isSingleTableInheritance(entityClass) ? getRootEntityClass(entityClass) : entityClass;
+        Table table = tableClass.getAnnotation(Table.class);
+        return table == null || table.name().isEmpty() ? getEntityName(tableClass) : table.name();
+    }
+
+    int getTableSpan(Class<?> entityClass) {
+        Object tableSpan = invoke(entityPersister(entityClass), "getTableSpan");
+        if (tableSpan != null) {
+            return (Integer) tableSpan;
+        }
+        Inheritance inheritance = getRootEntityClass(entityClass).getAnnotation(Inheritance.class);
+        return inheritance != null && inheritance.strategy() == InheritanceType.JOINED
+            && getRootEntityClass(entityClass) != entityClass ? 2 : 1;
+    }
+
+    String getIdColumnName(Class<?> entityClass) {
+        Object columnNames = invoke(entityPersister(entityClass), "getIdentifierColumnNames");
+        if (columnNames != null) {
+            return singleColumn((String[]) columnNames, entityClass, "id");
+        }
+        Attribute<?, ?> idAttr = getSingleIdAttribute(metamodel.entity(entityClass));
+        Column column = getAnnotation(idAttr, Column.class);
+        return column == null || column.name().isEmpty() ? idAttr.getName() : column.name();
+    }
+
+    /**
+     * Resolves the column of a basic attribute or the foreign key column of a reference. The path starts at an
+     * attribute of the entity and may traverse embedded attributes.
+     */
+    String getColumnName(Class<?> entityClass, List<Attribute<?, ?>> path) {
+        String propertyPath = path.stream().map(Attribute::getName).collect(Collectors.joining("."));
+        Object columnNames = invoke(entityPersister(entityClass), "getPropertyColumnNames",
+            new Class<?>[] {String.class}, propertyPath);
+        if (columnNames != null) {
+            return singleColumn((String[]) columnNames, entityClass, propertyPath);
+        }
+        Attribute<?, ?> leaf = path.get(path.size() - 1);
+        if (leaf.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+            JoinColumn joinColumn = getAnnotation(leaf, JoinColumn.class);
+            return joinColumn == null || joinColumn.name().isEmpty()
+                ? leaf.getName() + "_" + getIdColumnName(leaf.getJavaType()) : joinColumn.name();
+        }
+        // The outermost attribute override wins
+        for (int i = 0; i < path.size() - 1; i++) {
+            String overriddenPath = path.subList(i + 1, path.size()).stream()
+                .map(Attribute::getName).collect(Collectors.joining("."));
+            for (AttributeOverride attributeOverride : getAttributeOverrides(path.get(i))) {
+                if (attributeOverride.name().equals(overriddenPath)) {
+                    return attributeOverride.column().name();
+                }
+            }
+        }
+        Column column = getAnnotation(leaf, Column.class);
+        return column == null || column.name().isEmpty() ? leaf.getName() : column.name();
+    }
+
+    /**
+     * Resolves the discriminator column and the discriminator value as SQL literal, or returns {@code null} if the
+     * entity has no discriminator column.
+     */
+    @Nullable
+    String[] getDiscriminator(Class<?> entityClass) {
+        Object persister = entityPersister(entityClass);
+        if (persister != null) {
+            Object columnName = invoke(persister, "getDiscriminatorColumnName");
+            Object sqlValue = invoke(persister, "getDiscriminatorSQLValue");
+            return columnName == null || sqlValue == null
+                ? null : new String[] {(String) columnName, (String) sqlValue};
+        }
+        Class<?> rootEntityClass = getRootEntityClass(entityClass);
+        DiscriminatorColumn discriminatorColumn = rootEntityClass.getAnnotation(DiscriminatorColumn.class);
+        boolean hasSubclasses = metamodel.getEntities().stream()
+            .anyMatch(entityType -> entityType.getJavaType() != rootEntityClass
+                && rootEntityClass.isAssignableFrom(entityType.getJavaType()));
+        if (!isSingleTableInheritance(entityClass) || discriminatorColumn == null && !hasSubclasses) {
+            return null;
+        }
+        DiscriminatorValue discriminatorValue = entityClass.getAnnotation(DiscriminatorValue.class);
+        String value = discriminatorValue == null ? getEntityName(entityClass) : discriminatorValue.value();
+        return new String[] {
+            discriminatorColumn == null || discriminatorColumn.name().isEmpty() ? "DTYPE" : discriminatorColumn.name(),
+            "'" + value.replace("'", "''") + "'"
+        };
+    }
+
+    String getCollectionTableName(Class<?> entityClass, PluralAttribute<?, ?, ?> attribute) {
+        Object tableName = invoke(collectionPersister(entityClass, attribute), "getTableName");
+        if (tableName != null) {
+            return (String) tableName;
+        }
+        if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.ELEMENT_COLLECTION) {
+            CollectionTable collectionTable = getAnnotation(attribute, CollectionTable.class);
+            return collectionTable == null || collectionTable.name().isEmpty()
+                ? getEntityName(entityClass) + "_" + attribute.getName() : collectionTable.name();
+        }
+        if (hasElementJoinColumn(attribute)) {
+            return getTableName(attribute.getElementType().getJavaType());
+        }
+        JoinTable joinTable = getAnnotation(attribute, JoinTable.class);
+        return joinTable == null || joinTable.name().isEmpty()
+            ? getTableName(entityClass) + "_" + getTableName(attribute.getElementType().getJavaType())
+            : joinTable.name();
+    }
+
+    String getCollectionKeyColumnName(Class<?> entityClass, PluralAttribute<?, ?, ?> attribute) {
+        Object columnNames = invoke(collectionPersister(entityClass, attribute), "getKeyColumnNames");
+        if (columnNames != null) {
+            return singleColumn((String[]) columnNames, entityClass, attribute.getName());
+        }
+        if (hasElementJoinColumn(attribute)) {
+            JoinColumn joinColumn = getAnnotation(attribute, JoinColumn.class);
+            return joinColumn.name().isEmpty()
+                ? attribute.getName() + "_" + getIdColumnName(entityClass) : joinColumn.name();
+        }
+        JoinColumn[] joinColumns = attribute.getPersistentAttributeType()
+            == Attribute.PersistentAttributeType.ELEMENT_COLLECTION
+            ? getJoinColumns(getAnnotation(attribute, CollectionTable.class))
+            : getJoinColumns(getAnnotation(attribute, JoinTable.class), false);
+        if (joinColumns.length > 0 && !joinColumns[0].name().isEmpty()) {
+            return joinColumns[0].name();
+        }
+        String inverseAttributeName = findInverseAttributeName(attribute);
+        return (inverseAttributeName == null ? getEntityName(entityClass) : inverseAttributeName)
+            + "_" + getIdColumnName(entityClass);
+    }
+
+    String getCollectionElementColumnName(Class<?> entityClass, PluralAttribute<?, ?, ?> attribute) {
+        Object columnNames = invoke(collectionPersister(entityClass, attribute), "getElementColumnNames");
+        if (columnNames != null) {
+            return singleColumn((String[]) columnNames, entityClass, attribute.getName());
+        }
+        if (attribute.getElementType().getPersistenceType() == Type.PersistenceType.BASIC) {
+            Column column = getAnnotation(attribute, Column.class);
+            return column == null || column.name().isEmpty() ? attribute.getName() : column.name();
+        }
+        if (hasElementJoinColumn(attribute)) {
+            return getIdColumnName(attribute.getElementType().getJavaType());
+        }
+        JoinColumn[] inverseJoinColumns = getJoinColumns(getAnnotation(attribute, JoinTable.class), true);
+        return inverseJoinColumns.length > 0 && !inverseJoinColumns[0].name().isEmpty()
+            ? inverseJoinColumns[0].name()
+            : attribute.getName() + "_" + getIdColumnName(attribute.getElementType().getJavaType());
+    }
+
+    /**
+     * Resolves the map key or order column of a collection, or returns {@code null} if the collection has none.
+     */
+    @Nullable
+    String getCollectionIndexColumnName(Class<?> entityClass, PluralAttribute<?, ?, ?> attribute) {
+        Object persister = collectionPersister(entityClass, attribute);
+        if (persister != null) {
+            if (!Boolean.TRUE.equals(invoke(persister, "hasIndex"))) {
+                return null;
+            }
+            return singleColumn((String[]) invoke(persister, "getIndexColumnNames"), entityClass, attribute.getName());
+        }
+        if (attribute.getCollectionType() == PluralAttribute.CollectionType.MAP) {
+            MapKeyColumn mapKeyColumn = getAnnotation(attribute, MapKeyColumn.class);
+            return mapKeyColumn == null || mapKeyColumn.name().isEmpty()
+                ? attribute.getName() + "_KEY" : mapKeyColumn.name();
+        }
+        OrderColumn orderColumn = getAnnotation(attribute, OrderColumn.class);
+        if (orderColumn == null) {
+            return null;
+        }
+        return orderColumn.name().isEmpty() ? attribute.getName() + "_ORDER" : orderColumn.name();
+    }
+
+    /**
+     * Returns whether the elements of a collection are stored in a collection or join table. Unidirectional
+     * {@code ONE_TO_MANY} associations with a join column are not, see {@link #hasElementJoinColumn(PluralAttribute)}.
+     */
+    static boolean hasCollectionTable(PluralAttribute<?, ?, ?> attribute) {
+        switch (attribute.getPersistentAttributeType()) {
+            case ELEMENT_COLLECTION:
+                return true;
+            case MANY_TO_MANY:
+                return resolveMappedBy(attribute.getJavaMember()) == null;
+            case ONE_TO_MANY:
+                return resolveMappedBy(attribute.getJavaMember()) == null && !hasElementJoinColumn(attribute);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns whether a collection is a unidirectional {@code ONE_TO_MANY} association with a join column, i.e. the
+     * owner's id is stored in a foreign key column of the table of the referenced entity. Like the JPA provider,
+     * writers set this column with an {@code UPDATE} once the referenced rows exist. The collection table names of
+     * such a collection resolve to the referenced table, its foreign key column and its id column.
+     */
+    static boolean hasElementJoinColumn(PluralAttribute<?, ?, ?> attribute) {
+        return attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.ONE_TO_MANY
+            && resolveMappedBy(attribute.getJavaMember()) == null
+            && getAnnotation(attribute, JoinColumn.class) != null;
+    }
+
+    static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        }
+        return Character.class;
+    }
+
+    @Nullable
+    private String findInverseAttributeName(PluralAttribute<?, ?, ?> attribute) {
+        if (attribute.getElementType().getPersistenceType() != Type.PersistenceType.ENTITY) {
+            return null;
+        }
+        EntityType<?> elementType = metamodel.entity(attribute.getElementType().getJavaType());
+        return elementType.getAttributes().stream()
+            .filter(attr -> attribute.getName().equals(resolveMappedBy(attr.getJavaMember())))
+            .map(Attribute::getName)
+            .findAny()
+            .orElse(null);
+    }
+
+    @Nullable
+    private Object entityPersister(Class<?> entityClass) {
+        return entityPersisterMethod == null ? null : invoke(metamodel, entityPersisterMethod, entityClass);
+    }
+
+    @Nullable
+    private Object collectionPersister(Class<?> entityClass, PluralAttribute<?, ?, ?> attribute) {
+        if (collectionPersisterMethod == null) {
+            return null;
+        }
+        // Collections of mapped superclasses belong to the entity, inherited entity collections to the declaring
+        // entity
+        Class<?> declaringClass = attribute.getDeclaringType().getJavaType();
+        for (Class<?> ownerClass : Arrays.asList(entityClass, declaringClass)) {
+            Object persister = invoke(
+                metamodel, collectionPersisterMethod, ownerClass.getName() + "." + attribute.getName());
+            if (persister != null) {
+                return persister;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSingleTableInheritance(Class<?> entityClass) {
+        Inheritance inheritance = getRootEntityClass(entityClass).getAnnotation(Inheritance.class);
+        return inheritance == null || inheritance.strategy() == InheritanceType.SINGLE_TABLE;
+    }
+
+    private static Class<?> getRootEntityClass(Class<?> entityClass) {
+        Class<?> rootEntityClass = entityClass;
+        for (Class<?> type = entityClass.getSuperclass(); type != null; type = type.getSuperclass()) {
+            if (type.isAnnotationPresent(Entity.class)) {
+                rootEntityClass = type;
+            }
+        }
+        return rootEntityClass;
+    }
+
+    private static String getEntityName(Class<?> entityClass) {
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        return entity == null || entity.name().isEmpty() ? entityClass.getSimpleName() : entity.name();
+    }
+
+    private static List<AttributeOverride> getAttributeOverrides(Attribute<?, ?> attribute) {
+        List<AttributeOverride> attributeOverrides = new ArrayList<>();
+        AttributeOverride attributeOverride = getAnnotation(attribute, AttributeOverride.class);
+        if (attributeOverride != null) {
+            attributeOverrides.add(attributeOverride);
+        }
+        AttributeOverrides container = getAnnotation(attribute, AttributeOverrides.class);
+        if (container != null) {
+            attributeOverrides.addAll(Arrays.asList(container.value()));
+        }
+        return attributeOverrides;
+    }
+
+    private static JoinColumn[] getJoinColumns(@Nullable CollectionTable collectionTable) {
+        return collectionTable == null ? new JoinColumn[0] : collectionTable.joinColumns();
+    }
+
+    private static JoinColumn[] getJoinColumns(@Nullable JoinTable joinTable, boolean inverse) {
+        if (joinTable == null) {
+            return new JoinColumn[0];
+        }
+        return inverse ? joinTable.inverseJoinColumns() : joinTable.joinColumns();
+    }
+
+    private static String singleColumn(String[] columnNames, Class<?> entityClass, String path) {
+        if (columnNames.length != 1) {
+            throw new IllegalArgumentException(String.format(
+                "%s#%s is mapped to %d columns, only single columns are supported",
+                entityClass.getName(), path, columnNames.length));
+        }
+        return columnNames[0];
+    }
+
+    @Nullable
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Object invoke(@Nullable Object target, String methodName) {
+        return invoke(target, methodName, new Class<?>[0]);
+    }
+
+    @Nullable
+    private static Object invoke(@Nullable Object target, String methodName, Class<?>[] parameterTypes,
+                                 Object... args) {
+        if (target == null) {
+            return null;
+        }
+        Method method = findMethod(target.getClass(), methodName, parameterTypes);
+        return method == null ? null : invoke(target, method, args);
+    }
+
+    @Nullable
+    private static Object invoke(Object target, Method method, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // E.g. an unknown collection role, fall back to the annotations
+            LOG.trace(null, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.mobecker.instancio.jpa.util.JpaMetamodelUtil;
+import com.mobecker.instancio.jpa.util.WeakIdentityMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Metamodel analysis results that are expensive to derive and identical in every JVM that uses the same
+ * metamodel: the depths predicted by {@link EntityGraphMinDepthPredictor} and the {@code mappedBy} values of
+ * all associations that {@link EntityGraphAssociationFixer} and the insert ordering of
+ * {@link AbstractEntityGraphPersister} rely on. Once an analysis has been created for a metamodel via
+ * {@link #of(Metamodel)} or {@link #of(Metamodel, Path)}, these components use it instead of recomputing the
+ * results.
+ *
+ * <p>A snapshot of the analysis can be stored in a directory, e.g. below {@code target/}, so that subsequent
+ * JVMs, e.g. forked test JVMs, load it instead of analysing the metamodel again. Snapshots are keyed by a
+ * fingerprint of the metamodel that covers the managed types, their attributes and the annotations of the
+ * managed types and attributes, see {@link #fingerprint(Metamodel)}. A snapshot is only used if the fingerprint
+ * matches. Mappings declared in {@code orm.xml} are not covered by the fingerprint.
+ *
+ * @see com.mobecker.instancio.jpa.setting.JpaKeys#METAMODEL_SNAPSHOT_DIRECTORY
+ * @since 2.1.0
+ */
+public final class MetamodelAnalysis {
+
+    // Increment when the analysis or the snapshot format changes
+    private static final int FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_FILE_PREFIX = "instancio-jpa-metamodel-";
+    private static final String SNAPSHOT_FILE_SUFFIX = ".properties";
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String DEPTH_KEY_PREFIX = "depth.";
+    private static final String ATTRIBUTE_DEPTH_KEY_PREFIX = "attributeDepth.";
+    private static final String MAPPED_BY_KEY_PREFIX = "mappedBy.";
+    private static final WeakIdentityMap<Metamodel, MetamodelAnalysis> ANALYSES = new WeakIdentityMap<>();
+
+    private final String fingerprint;
+    private final Map<String, Integer> requiredDepths;
+    private final Map<String, Integer> attributeRequiredDepths;
+    private final Map<String, String> mappedBy;
+
+    private MetamodelAnalysis(String fingerprint, Map<String, Integer> requiredDepths,
+                              Map<String, Integer> attributeRequiredDepths, Map<String, String> mappedBy) {
+        this.fingerprint = fingerprint;
+        this.requiredDepths = requiredDepths;
+        this.attributeRequiredDepths = attributeRequiredDepths;
+        this.mappedBy = mappedBy;
+    }
+
+    /**
+     * Returns the analysis for the given metamodel. The metamodel is analysed once per metamodel instance.
+     *
+     * @param metamodel JPA metamodel
+     * @return the metamodel analysis
+     */
+    public static MetamodelAnalysis of(Metamodel metamodel) {
+        synchronized (ANALYSES) {
+            MetamodelAnalysis analysis = ANALYSES.get(metamodel);
+            if (analysis == null) {
+                analysis = analyse(metamodel, fingerprint(metamodel));
+                ANALYSES.put(metamodel, analysis);
+            }
+            return analysis;
+        }
+    }
+
+    /**
+     * Returns the analysis for the given metamodel. If the analysis has not been created yet in this JVM, it is
+     * loaded from the snapshot in {@code snapshotDirectory} whose fingerprint matches the metamodel. If there is
+     * no such snapshot, the metamodel is analysed and the snapshot is written.
+     *
+     * @param metamodel JPA metamodel
+     * @param snapshotDirectory directory containing the snapshots, created if it does not exist
+     * @return the metamodel analysis
+     * @throws RuntimeException if the snapshot cannot be written
+     */
+    public static MetamodelAnalysis of(Metamodel metamodel, Path snapshotDirectory) {
+        synchronized (ANALYSES) {
+            MetamodelAnalysis analysis = ANALYSES.get(metamodel);
+            if (analysis == null) {
+                String fingerprint = fingerprint(metamodel);
+                Path snapshotFile =
+                    snapshotDirectory.resolve(SNAPSHOT_FILE_PREFIX + fingerprint + SNAPSHOT_FILE_SUFFIX);
+                analysis = load(snapshotFile, fingerprint);
+                if (analysis == null) {
+                    analysis = analyse(metamodel, fingerprint);
+                    analysis.store(snapshotFile);
+                }
+                ANALYSES.put(metamodel, analysis);
+            }
+            return analysis;
+        }
+    }
+
+    /**
+     * Returns the analysis that has been created for the given metamodel in this JVM, if any.
+     *
+     * @param metamodel JPA metamodel
+     * @return the metamodel analysis or {@code null}
+     */
+    @Nullable
+    static MetamodelAnalysis find(Metamodel metamodel) {
+        synchronized (ANALYSES) {
+            return ANALYSES.get(metamodel);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the given metamodel. The fingerprint covers the managed types with their
+     * persistence types and annotations and the attributes of the managed types with their persistent attribute
+     * types, Java types, optionality and annotations.
+     *
+     * @param metamodel JPA metamodel
+     * @return hex encoded SHA-256 fingerprint
+     */
+    public static String fingerprint(Metamodel metamodel) {
+        List<String> lines = new ArrayList<>();
+        for (ManagedType<?> managedType : metamodel.getManagedTypes()) {
+            Class<?> managedClass = managedType.getJavaType();
+            lines.add(managedClass.getName() + "|" + managedType.getPersistenceType() + "|"
+                + annotations(managedClass));
+            for (Attribute<?, ?> attribute : managedType.getAttributes()) {
+                StringBuilder line = new StringBuilder(managedClass.getName())
+                    .append('#').append(attribute.getName())
+                    .append('|').append(attribute.getDeclaringType().getJavaType().getName())
+                    .append('|').append(attribute.getPersistentAttributeType())
+                    .append('|').append(attribute.getJavaType().getName());
+                if (attribute instanceof SingularAttribute<?, ?>) {
+                    line.append('|').append(((SingularAttribute<?, ?>) attribute).isOptional());
+                }
+                Member member = attribute.getJavaMember();
+                if (member instanceof AnnotatedElement) {
+                    line.append('|').append(annotations((AnnotatedElement) member));
+                }
+                lines.add(line.toString());
+            }
+        }
+        Collections.sort(lines);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes(UTF_8));
+        for (String line : lines) {
+            digest.update((byte) '\n');
+            digest.update(line.getBytes(UTF_8));
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Returns the fingerprint of the analysed metamodel.
+     *
+     * @return the fingerprint, see {@link #fingerprint(Metamodel)}
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the depth predicted by {@link EntityGraphMinDepthPredictor#predictRequiredDepth(Class)}.
+     *
+     * @param entityClass JPA entity class
+     * @return the predicted depth or {@code null} if the class is not an entity of the analysed metamodel
+     */
+    @Nullable
+    public Integer getRequiredDepth(Class<?> entityClass) {
+        return requiredDepths.get(entityClass.getName());
+    }
+
+    /**
+     * Returns the depth predicted by {@link EntityGraphMinDepthPredictor#predictRequiredDepth(Attribute)}.
+     *
+     * @param attribute JPA attribute
+     * @return the predicted depth or {@code null} if the attribute is not part of the analysed metamodel
+     */
+    @Nullable
+    public Integer getRequiredDepth(Attribute<?, ?> attribute) {
+        return attributeRequiredDepths.get(attributeKey(attribute));
+    }
+
+    /**
+     * Returns the {@code mappedBy} value of an association, see
+     * {@link JpaMetamodelUtil#resolveMappedBy(Member)}.
+     *
+     * @param attribute JPA attribute
+     * @return the {@code mappedBy} value or {@code null} if the attribute is not the inverse side of an
+     *     association
+     */
+    @Nullable
+    public String getMappedBy(Attribute<?, ?> attribute) {
+        return mappedBy.get(attributeKey(attribute));
+    }
+
+    private static MetamodelAnalysis analyse(Metamodel metamodel, String fingerprint) {
+        EntityGraphMinDepthPredictor entityGraphMinDepthPredictor = new EntityGraphMinDepthPredictor(metamodel);
+        Map<String, Integer> requiredDepths = new HashMap<>();
+        for (EntityType<?> entityType : metamodel.getEntities()) {
+            requiredDepths.put(entityType.getJavaType().getName(),
+                entityGraphMinDepthPredictor.predictRequiredDepth(entityType.getJavaType()));
+        }
+        Map<String, Integer> attributeRequiredDepths = new HashMap<>();
+        Map<String, String> mappedBy = new HashMap<>();
+        for (ManagedType<?> managedType : metamodel.getManagedTypes()) {
+            for (Attribute<?, ?> attribute : managedType.getAttributes()) {
+                String attributeKey = attributeKey(attribute);
+                if (attributeRequiredDepths.containsKey(attributeKey)) {
+                    continue;
+                }
+                attributeRequiredDepths.put(attributeKey, entityGraphMinDepthPredictor.predictRequiredDepth(attribute));
+                String attributeMappedBy = attribute.getJavaMember() == null
+                    ? null : JpaMetamodelUtil.resolveMappedBy(attribute.getJavaMember());
+                if (attributeMappedBy != null) {
+                    mappedBy.put(attributeKey, attributeMappedBy);
+                }
+            }
+        }
+        return new MetamodelAnalysis(fingerprint, requiredDepths, attributeRequiredDepths, mappedBy);
+    }
+
+    @Nullable
+    private static MetamodelAnalysis load(Path snapshotFile, String fingerprint) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(snapshotFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            // An unreadable snapshot is replaced
+            return null;
+        }
+        if (!fingerprint.equals(properties.getProperty(FINGERPRINT_KEY))) {
+            return null;
+        }
+        Map<String, Integer> requiredDepths = new HashMap<>();
+        Map<String, Integer> attributeRequiredDepths = new HashMap<>();
+        Map<String, String> mappedBy = new HashMap<>();
+        try {
+            for (String key : properties.stringPropertyNames()) {
+                String value = properties.getProperty(key);
+                if (key.startsWith(DEPTH_KEY_PREFIX)) {
+                    requiredDepths.put(key.substring(DEPTH_KEY_PREFIX.length()), Integer.parseInt(value));
+                } else if (key.startsWith(ATTRIBUTE_DEPTH_KEY_PREFIX)) {
+                    attributeRequiredDepths.put(
+                        key.substring(ATTRIBUTE_DEPTH_KEY_PREFIX.length()), Integer.parseInt(value));
+                } else if (key.startsWith(MAPPED_BY_KEY_PREFIX)) {
+                    mappedBy.put(key.substring(MAPPED_BY_KEY_PREFIX.length()), value);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new MetamodelAnalysis(fingerprint, requiredDepths, attributeRequiredDepths, mappedBy);
+    }
+
+    private void store(Path snapshotFile) {
+        Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT_KEY, fingerprint);
+        requiredDepths.forEach((key, depth) -> properties.setProperty(DEPTH_KEY_PREFIX + key, depth.toString()));
+        attributeRequiredDepths.forEach(
+            (key, depth) -> properties.setProperty(ATTRIBUTE_DEPTH_KEY_PREFIX + key, depth.toString()));
+        mappedBy.forEach((key, value) -> properties.setProperty(MAPPED_BY_KEY_PREFIX + key, value));
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            // Concurrent JVMs may store the same snapshot, so the file is replaced atomically
+            Path tempFile = Files.createTempFile(snapshotFile.getParent(), SNAPSHOT_FILE_PREFIX, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                properties.store(outputStream, null);
+            }
+            try {
+                Files.move(tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String attributeKey(Attribute<?, ?> attribute) {
+        return attribute.getDeclaringType().getJavaType().getName() + "#" + attribute.getName();
+    }
+
+    private static String annotations(AnnotatedElement annotatedElement) {
+        return Arrays.stream(annotatedElement.getDeclaredAnnotations())
+            .map(Annotation::toString)
+            .sorted()
+            .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import com.mobecker.instancio.jpa.util.JpaNullabilityIndex;
+import com.mobecker.instancio.jpa.util.WeakIdentityMap;
+import java.lang.reflect.Modifier;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.instancio.support.Global;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms up instancio-jpa for a metamodel on a background thread, see {@link InstancioJpa#warmUp(Metamodel)}.
+ */
+final class MetamodelWarmUp {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetamodelWarmUp.class);
+    // Number of generate, shrink and fix cycles per entity
+    private static final int CYCLES = 3;
+    private static final WeakIdentityMap<Metamodel, CompletableFuture<Void>> WARM_UPS = new WeakIdentityMap<>();
+
+    private MetamodelWarmUp() { }
+
+    static CompletableFuture<Void> start(Metamodel metamodel) {
+        synchronized (WARM_UPS) {
+            CompletableFuture<Void> warmUp = WARM_UPS.get(metamodel);
+            if (warmUp == null) {
+                warmUp = new CompletableFuture<>();
+                WARM_UPS.put(metamodel, warmUp);
+                CompletableFuture<Void> future = warmUp;
+                Thread thread = new Thread(() -> {
+                    try {
+                        warmUp(metamodel);
+                        future.complete(null);
+                    } catch (RuntimeException | Error e) {
+                        future.completeExceptionally(e);
+                    }
+                }, "instancio-jpa-warm-up");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            return warmUp;
+        }
+    }
+
+    private static void warmUp(Metamodel metamodel) {
+        final long start = System.nanoTime();
+        String metamodelSnapshotDirectory =
+            Global.getPropertiesFileSettings().get(JpaKeys.METAMODEL_SNAPSHOT_DIRECTORY);
+        if (metamodelSnapshotDirectory == null) {
+            MetamodelAnalysis.of(metamodel);
+        } else {
+            MetamodelAnalysis.of(metamodel, Paths.get(metamodelSnapshotDirectory));
+        }
+        JpaNullabilityIndex.of(metamodel);
+        for (EntityType<?> entityType : metamodel.getEntities()) {
+            Class<?> entityClass = entityType.getJavaType();
+            if (Modifier.isAbstract(entityClass.getModifiers())) {
+                continue;
+            }
+            try {
+                Model<?> model = jpaModel(entityClass, metamodel).build();
+                for (int i = 0; i < CYCLES; i++) {
+                    Instancio.create(model);
+                }
+            } catch (RuntimeException e) {
+                // Entities that cannot be generated with the default configuration are not warmed up
+                LOG.debug("Skipping warm-up of {}", entityClass.getName(), e);
+            }
+        }
+        LOG.debug("Warmed up {} entities in {} ms", metamodel.getEntities().size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+}
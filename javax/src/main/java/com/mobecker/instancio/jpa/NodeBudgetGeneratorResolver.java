@@ -0,0 +1,242 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import org.instancio.Node;
+import org.instancio.Random;
+import org.instancio.generator.AfterGenerate;
+import org.instancio.generator.Generator;
+import org.instancio.generator.GeneratorSpec;
+import org.instancio.generator.Hints;
+import org.instancio.generator.hints.CollectionHint;
+import org.instancio.generator.hints.MapHint;
+import org.instancio.generators.Generators;
+
+/**
+ * Enforces a budget on the number of entity and embeddable instances that are created per root, see
+ * {@link com.mobecker.instancio.jpa.setting.JpaKeys#MAX_NODES}. Once the budget is exhausted, optional references
+ * are set to {@code null} and collections of entities or embeddables are left empty. Mandatory references are
+ * always created so that the generated graph stays persistable. The budget is reset whenever a root is generated,
+ * so each root of {@code Instancio.ofList} or {@code Instancio.stream} gets a budget of its own.
+ *
+ * <p>Attributes for which generators are supplied via the Instancio API, e.g. attributes configured via
+ * {@link InstancioJpa.Builder#withCollectionSize(Class, String, int, int)}, are not subject to the budget.
+ *
+ * @since 2.1.0
+ */
+public class NodeBudgetGeneratorResolver implements JpaAttributeGeneratorResolver {
+
+    private final int maxNodes;
+    private final int collectionMinSize;
+    private final int collectionMaxSize;
+    private final int mapMinSize;
+    private final int mapMaxSize;
+    // Includes the root node
+    private int usedNodes = 1;
+
+    /**
+     * Create new {@link NodeBudgetGeneratorResolver}.
+     *
+     * @param maxNodes maximum number of entity and embeddable instances to create
+     * @param collectionMinSize minimum size of generated collections
+     * @param collectionMaxSize maximum size of generated collections
+     * @param mapMinSize minimum size of generated maps
+     * @param mapMaxSize maximum size of generated maps
+     */
+    public NodeBudgetGeneratorResolver(
+        int maxNodes, int collectionMinSize, int collectionMaxSize, int mapMinSize, int mapMaxSize) {
+        this.maxNodes = maxNodes;
+        this.collectionMinSize = collectionMinSize;
+        this.collectionMaxSize = collectionMaxSize;
+        this.mapMinSize = mapMinSize;
+        this.mapMaxSize = mapMaxSize;
+    }
+
+    @Override
+    public GeneratorSpec<?> getGenerator(
+        Node node, Generators generators, Attribute<?, ?> attribute, GeneratorResolverContext context) {
+        Class<?> targetClass = node.getTargetClass();
+        if (attribute instanceof SingularAttribute<?, ?>) {
+            switch (attribute.getPersistentAttributeType()) {
+                case MANY_TO_ONE:
+                case ONE_TO_ONE:
+                case EMBEDDED:
+                    Constructor<?> constructor = findNoArgConstructor(targetClass);
+                    return constructor == null ? null : new ReferenceGenerator(constructor,
+                        ((SingularAttribute<?, ?>) attribute).isOptional()
+                        && attribute.getDeclaringType().getPersistenceType() == Type.PersistenceType.ENTITY);
+                default:
+                    return null;
+            }
+        } else if (attribute instanceof PluralAttribute<?, ?, ?>
+            && ((PluralAttribute<?, ?, ?>) attribute).getElementType().getPersistenceType()
+            != Type.PersistenceType.BASIC) {
+            Supplier<Object> collectionFactory = collectionFactory(targetClass);
+            if (collectionFactory == null) {
+                return null;
+            } else if (((PluralAttribute<?, ?, ?>) attribute).getCollectionType()
+                == PluralAttribute.CollectionType.MAP) {
+                return new CollectionGenerator(collectionFactory, true, mapMinSize, mapMaxSize);
+            }
+            return new CollectionGenerator(collectionFactory, false, collectionMinSize, collectionMaxSize);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a generator for a root node that resets the budget before creating the root.
+     *
+     * @param node the root node
+     * @return the generator or {@code null} if the root cannot be created via a no-arg constructor
+     */
+    @Nullable
+    public GeneratorSpec<?> getRootGenerator(Node node) {
+        Constructor<?> constructor = findNoArgConstructor(node.getTargetClass());
+        return constructor == null ? null : new RootGenerator(constructor);
+    }
+
+    @Nullable
+    private static Supplier<Object> collectionFactory(Class<?> collectionType) {
+        if (collectionType.isAssignableFrom(ArrayList.class)) {
+            return ArrayList::new;
+        } else if (collectionType.isAssignableFrom(HashSet.class)) {
+            return HashSet::new;
+        } else if (collectionType.isAssignableFrom(TreeSet.class)) {
+            return TreeSet::new;
+        } else if (collectionType.isAssignableFrom(HashMap.class)) {
+            return HashMap::new;
+        } else if (collectionType.isAssignableFrom(TreeMap.class)) {
+            return TreeMap::new;
+        }
+        Constructor<?> constructor = findNoArgConstructor(collectionType);
+        return constructor == null ? null : () -> newInstance(constructor);
+    }
+
+    private static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Nullable
+    private static Constructor<?> findNoArgConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private final class RootGenerator implements Generator<Object> {
+        private final Constructor<?> constructor;
+
+        private RootGenerator(Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        public Object generate(Random random) {
+            usedNodes = 1;
+            return newInstance(constructor);
+        }
+
+        @Override
+        public Hints hints() {
+            return Hints.afterGenerate(AfterGenerate.POPULATE_ALL);
+        }
+    }
+
+    private final class ReferenceGenerator implements Generator<Object> {
+        private final Constructor<?> constructor;
+        private final boolean optional;
+
+        private ReferenceGenerator(Constructor<?> constructor, boolean optional) {
+            this.constructor = constructor;
+            this.optional = optional;
+        }
+
+        @Override
+        public Object generate(Random random) {
+            if (optional && usedNodes >= maxNodes) {
+                return null;
+            }
+            usedNodes++;
+            return newInstance(constructor);
+        }
+
+        @Override
+        public Hints hints() {
+            return Hints.afterGenerate(AfterGenerate.POPULATE_ALL);
+        }
+    }
+
+    private final class CollectionGenerator implements Generator<Object> {
+        private final Supplier<Object> collectionFactory;
+        private final boolean map;
+        private final int minSize;
+        private final int maxSize;
+        private int size;
+
+        private CollectionGenerator(Supplier<Object> collectionFactory, boolean map, int minSize, int maxSize) {
+            this.collectionFactory = collectionFactory;
+            this.map = map;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public Object generate(Random random) {
+            size = Math.max(0, Math.min(random.intRange(minSize, maxSize), maxNodes - usedNodes));
+            usedNodes += size;
+            return collectionFactory.get();
+        }
+
+        @Override
+        public Hints hints() {
+            Hints.Builder hints = Hints.builder().afterGenerate(AfterGenerate.POPULATE_ALL);
+            if (map) {
+                hints.with(MapHint.builder().generateEntries(size).build());
+            } else {
+                hints.with(CollectionHint.builder().generateElements(size).build());
+            }
+            return hints.build();
+        }
+    }
+}
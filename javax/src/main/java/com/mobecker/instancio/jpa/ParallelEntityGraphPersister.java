@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+/**
+ * Persists a batch of entity roots in parallel. The roots are split into independent groups by an
+ * {@link EntityGraphPartitioner} and the groups are distributed over {@code parallelism} writers, balancing the
+ * number of roots per writer. Each writer persists its share with an {@link EntityGraphPersister} using its own
+ * {@link EntityManager} in a single transaction. Entities that are shared between roots always end up in the same
+ * writer.
+ *
+ * <p>The writers commit independently of each other. If a writer fails, the transactions of the other writers
+ * may already have been committed.
+ *
+ * @since 2.1.0
+ */
+public class ParallelEntityGraphPersister {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int parallelism;
+    private final EntityGraphPartitioner entityGraphPartitioner;
+
+    /**
+     * Create new {@link ParallelEntityGraphPersister}.
+     *
+     * @param entityManagerFactory JPA entity manager factory used to create an entity manager per writer
+     * @param parallelism maximum number of concurrent writers
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     */
+    public ParallelEntityGraphPersister(EntityManagerFactory entityManagerFactory, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.parallelism = parallelism;
+        this.entityGraphPartitioner = new EntityGraphPartitioner(entityManagerFactory.getMetamodel());
+    }
+
+    /**
+     * See {@link ParallelEntityGraphPersister}. Blocks until all writers have finished.
+     *
+     * @param roots JPA entity roots
+     * @return the number of writers that were used
+     */
+    public int persistAll(Iterable<?> roots) {
+        List<List<Object>> writerShares = distribute(entityGraphPartitioner.partition(roots));
+        if (writerShares.size() == 1) {
+            persistInTransaction(writerShares.get(0));
+            return 1;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(writerShares.size(), runnable -> {
+            Thread thread = new Thread(runnable, "instancio-jpa-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(writerShares.size());
+            for (List<Object> writerShare : writerShares) {
+                futures.add(executorService.submit(() -> persistInTransaction(writerShare)));
+            }
+            RuntimeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        return writerShares.size();
+    }
+
+    private List<List<Object>> distribute(List<List<Object>> partitions) {
+        int writerCount = Math.max(1, Math.min(parallelism, partitions.size()));
+        List<List<Object>> writerShares = new ArrayList<>(writerCount);
+        for (int i = 0; i < writerCount; i++) {
+            writerShares.add(new ArrayList<>());
+        }
+        partitions.sort(Comparator.comparingInt((List<Object> partition) -> partition.size()).reversed());
+        for (List<Object> partition : partitions) {
+            writerShares.stream()
+                .min(Comparator.comparingInt(List::size))
+                .get()
+                .addAll(partition);
+        }
+        return writerShares;
+    }
+
+    private void persistInTransaction(List<Object> roots) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction tx = entityManager.getTransaction();
+        try {
+            tx.begin();
+            EntityGraphPersister persister = new EntityGraphPersister(entityManager);
+            roots.forEach(persister::persist);
+            tx.commit();
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+
+import com.mobecker.instancio.jpa.generator.ReferenceDistribution;
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.lang.reflect.Modifier;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.LongFunction;
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.metamodel.EntityType;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.instancio.settings.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Populates a whole schema with a given number of rows per entity type, e.g. 500k customers, 5M orders and 20M order
+ * lines. Instead of generating the entity graph of a root, the entity types are populated one after another in
+ * foreign key dependency order, see {@link AbstractEntityGraphPersister#computeDependencyLevels(java.util.Collection)}.
+ * Each entity type is generated with a minimal entity graph: optional references outside the populated entity types
+ * are {@code null} and collections are empty. {@code MANY_TO_ONE} references to entity types of lower dependency
+ * levels are references to ids sampled uniformly from the rows populated before, see
+ * {@link InstancioJpa.Builder#withReferenceIds(Class, List, EntityManager)}. The rows are persisted with an
+ * {@link EntityGraphPersister} in transactions of {@code batchSize} roots, after which the {@link EntityManager} is
+ * cleared. Each batch is generated by its own Instancio invocation, which continues the sequences of assigned ids and
+ * unique values of the batches before, see {@link JpaKeys#UNIQUE_VALUE_OFFSET}.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *   SchemaPopulator.populator(entityManagerFactory)
+ *       .withRowCount(Customer.class, 500_000)
+ *       .withRowCount(Order.class, 5_000_000)
+ *       .withRowCount(OrderLine.class, 20_000_000)
+ *       .build()
+ *       .populate();
+ * }</pre>
+ *
+ * <p>The row counts are exact as long as the populated entity types do not reference each other within a cycle and
+ * mandatory references to other entity types do not lead back to populated entity types. Entity types that are
+ * mandatory but have no row count are generated along with the referencing rows. Memory is bounded by the batch size
+ * and the ids of the populated rows, which are kept as primitive {@code long} values unless they form a contiguous
+ * range. Populated entity types must have a {@code Long}, {@code Integer} or {@code Short} id.
+ *
+ * @since 2.1.0
+ */
+public final class SchemaPopulator {
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaPopulator.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<Class<?>, Long> rowCounts;
+    private final Map<Class<?>, Map<String, ReferenceDistribution>> referenceDistributions;
+    private final int batchSize;
+    @Nullable
+    private final Settings settings;
+
+    private SchemaPopulator(Builder builder) {
+        this.entityManagerFactory = builder.entityManagerFactory;
+        this.rowCounts = new LinkedHashMap<>(builder.rowCounts);
+        this.referenceDistributions = new LinkedHashMap<>(builder.referenceDistributions);
+        this.batchSize = builder.batchSize;
+        this.settings = builder.settings;
+    }
+
+    /**
+     * Creates a builder for a schema populator.
+     *
+     * @param entityManagerFactory JPA entity manager factory
+     * @return SchemaPopulator builder reference
+     */
+    public static Builder populator(EntityManagerFactory entityManagerFactory) {
+        return new Builder(entityManagerFactory);
+    }
+
+    /**
+     * Populates all entity types with their row counts and blocks until all rows have been committed. Transactions
+     * of batches that have been committed before a failure are not rolled back.
+     *
+     * @return number of persisted rows of the populated entity types
+     */
+    public long populate() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            EntityGraphPersister persister = new EntityGraphPersister(entityManager);
+            Map<Class<?>, IdPool> idPools = new HashMap<>();
+            long persistedRows = 0;
+            for (Set<Class<?>> dependencyLevel : persister.computeDependencyLevels(rowCounts.keySet())) {
+                for (Class<?> entityClass : dependencyLevel) {
+                    IdPool idPool = populate(entityManager, persister, entityClass, idPools);
+                    idPools.put(entityClass, idPool);
+                    persistedRows += idPool.size;
+                }
+            }
+            return persistedRows;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private <T> IdPool populate(EntityManager entityManager, EntityGraphPersister persister, Class<T> entityClass,
+                                Map<Class<?>, IdPool> idPools) {
+        InstancioJpa.Builder<T> modelBuilder = jpaModel(entityClass, entityManagerFactory.getMetamodel())
+            .withEntityGraph(entityManager.createEntityGraph(entityClass));
+        if (settings != null) {
+            modelBuilder.withSettings(settings);
+        }
+        idPools.forEach((referencedClass, idPool) -> idPool.applyTo(modelBuilder, referencedClass, entityManager));
+        referenceDistributions.forEach((managedClass, distributions) -> distributions.forEach(
+            (attributeName, distribution) ->
+                modelBuilder.withReferenceDistribution(managedClass, attributeName, distribution)));
+        Model<T> model = modelBuilder.build();
+
+        long rowCount = rowCounts.get(entityClass);
+        LOG.debug("Populating {} rows of {}", rowCount, entityClass.getName());
+        PersistenceUnitUtil persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        IdPool idPool = new IdPool(
+            entityManagerFactory.getMetamodel().entity(entityClass).getIdType().getJavaType(), rowCount);
+        for (long persisted = 0; persisted < rowCount; persisted += batchSize) {
+            // Each batch starts the sequences of assigned ids and unique values anew
+            List<T> roots = Instancio.ofList(model)
+                .size((int) Math.min(batchSize, rowCount - persisted))
+                .withSetting(JpaKeys.UNIQUE_VALUE_OFFSET, persisted)
+                .create();
+            EntityTransaction tx = entityManager.getTransaction();
+            tx.begin();
+            try {
+                roots.forEach(persister::persist);
+                tx.commit();
+            } finally {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+            }
+            roots.forEach(root -> idPool.add(((Number) persistenceUnitUtil.getIdentifier(root)).longValue()));
+            entityManager.clear();
+        }
+        return idPool;
+    }
+
+    /**
+     * The ids of the populated rows of an entity type.
+     */
+    private static final class IdPool {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final LongFunction<Object> idConverter;
+        private long[] ids;
+        private int size;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+
+        IdPool(Class<?> idType, long rowCount) {
+            if (idType == Long.class || idType == long.class) {
+                idConverter = id -> id;
+            } else if (idType == Integer.class || idType == int.class) {
+                idConverter = id -> (int) id;
+            } else if (idType == Short.class || idType == short.class) {
+                idConverter = id -> (short) id;
+            } else {
+                throw new IllegalArgumentException("Unsupported id type " + idType.getName());
+            }
+            this.ids = new long[(int) Math.min(rowCount, INITIAL_CAPACITY)];
+        }
+
+        static boolean isSupportedIdType(Class<?> idType) {
+            return idType == Long.class || idType == long.class || idType == Integer.class || idType == int.class
+                || idType == Short.class || idType == short.class;
+        }
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, (int) Math.min((long) ids.length * 2, Integer.MAX_VALUE));
+            }
+            ids[size++] = id;
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+
+        void applyTo(InstancioJpa.Builder<?> modelBuilder, Class<?> entityClass, EntityManager entityManager) {
+            if (size == 0) {
+                return;
+            }
+            if (maxId - minId + 1 == size) {
+                // Distinct ids that fill their range
+                modelBuilder.withReferenceIds(entityClass, minId, maxId, entityManager);
+            } else {
+                modelBuilder.withReferenceIds(entityClass, new IdList(), entityManager);
+            }
+        }
+
+        /**
+         * A view of the ids that boxes them on access only.
+         */
+        private final class IdList extends AbstractList<Object> implements RandomAccess {
+            @Override
+            public Object get(int index) {
+                return idConverter.apply(ids[index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+    }
+
+    /**
+     * Builder for constructing a {@link SchemaPopulator}.
+     */
+    public static final class Builder {
+
+        private final EntityManagerFactory entityManagerFactory;
+        private final Map<Class<?>, Long> rowCounts = new LinkedHashMap<>();
+        private final Map<Class<?>, Map<String, ReferenceDistribution>> referenceDistributions =
+            new LinkedHashMap<>();
+        private int batchSize = 1000;
+        private Settings settings;
+
+        private Builder(EntityManagerFactory entityManagerFactory) {
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        /**
+         * Sets the number of rows to populate for an entity type. The row count does not include rows of subtypes.
+         *
+         * @param entityClass concrete JPA entity class with a {@code Long}, {@code Integer} or {@code Short} id
+         * @param rowCount number of rows
+         * @return SchemaPopulator builder reference
+         * @throws IllegalArgumentException if {@code entityClass} is not a concrete entity class or its id type is
+         *     not supported, or if {@code rowCount} is negative or greater than {@link Integer#MAX_VALUE}
+         */
+        public Builder withRowCount(Class<?> entityClass, long rowCount) {
+            EntityType<?> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+            if (Modifier.isAbstract(entityClass.getModifiers())) {
+                throw new IllegalArgumentException(entityClass.getName() + " is abstract");
+            }
+            if (!IdPool.isSupportedIdType(entityType.getIdType().getJavaType())) {
+                throw new IllegalArgumentException(
+                    "Unsupported id type " + entityType.getIdType().getJavaType().getName() + " of "
+                        + entityClass.getName());
+            }
+            if (rowCount < 0 || rowCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("rowCount must be in the range [0, " + Integer.MAX_VALUE + "]");
+            }
+            rowCounts.put(entityClass, rowCount);
+            return this;
+        }
+
+        /**
+         * Sets the distribution of the references to the populated rows of the referenced entity type, see
+         * {@link InstancioJpa.Builder#withReferenceDistribution(Class, String, ReferenceDistribution)}. References
+         * are distributed uniformly by default.
+         *
+         * @param managedClass JPA entity or embeddable class that declares or inherits the attribute
+         * @param attributeName name of the {@code MANY_TO_ONE} or mapped {@code ONE_TO_MANY} attribute
+         * @param distribution distribution of the references over the referenced rows
+         * @return SchemaPopulator builder reference
+         */
+        public Builder withReferenceDistribution(
+            Class<?> managedClass, String attributeName, ReferenceDistribution distribution
+        ) {
+            referenceDistributions.computeIfAbsent(managedClass, k -> new LinkedHashMap<>())
+                .put(attributeName, distribution);
+            return this;
+        }
+
+        /**
+         * Sets the number of roots persisted per transaction. The {@link EntityManager} is cleared after each
+         * batch. Defaults to 1000.
+         *
+         * @param batchSize number of roots per transaction
+         * @return SchemaPopulator builder reference
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Settings} of the models that generate the rows, see
+         * {@link InstancioJpa.Builder#withSettings(Settings)}.
+         *
+         * @param settings to use
+         * @return SchemaPopulator builder reference
+         */
+        public Builder withSettings(Settings settings) {
+            this.settings = settings;
+            return this;
+        }
+
+        /**
+         * Creates the schema populator.
+         *
+         * @return the configured schema populator
+         * @throws IllegalArgumentException if the batch size is not positive
+         */
+        public SchemaPopulator build() {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            return new SchemaPopulator(this);
+        }
+    }
+}
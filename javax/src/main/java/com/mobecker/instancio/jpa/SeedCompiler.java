@@ -0,0 +1,383 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.hasCollectionTable;
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.hasElementJoinColumn;
+import static com.mobecker.instancio.jpa.JdbcMappingResolver.wrap;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getAnnotation;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getSingleIdAttribute;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.isInsertable;
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.resolveMappedBy;
+
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.persistence.Convert;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Compiles the generation of rows of an entity table into a single set-based {@code INSERT ... SELECT} statement
+ * that generates all values inside the database, so that no value has to be transferred over JDBC. The values follow
+ * the rules of {@link InstancioJpa#jpaModel(Class, Metamodel)}:
+ * <ul>
+ *     <li>Numeric ids and {@code @Column(unique = true)} attributes are drawn from a sequence that continues after
+ *     the largest id in the table, see {@link UniqueValueGeneratorResolver}.</li>
+ *     <li>Strings have Instancio's default length and are at most as long as their column, see
+ *     {@link StringGeneratorResolver}.</li>
+ *     <li>{@code MANY_TO_ONE} references point to a random id of the referenced entity type. The id range is taken
+ *     from {@link Builder#withReferenceIdRange(Class, long, long)} or queried from the referenced table, so the ids
+ *     within the range must be contiguous.</li>
+ *     <li>Numeric versions are initialized with 0.</li>
+ * </ul>
+ * All other basic attributes get random values of their type. The SQL expressions are provided by a
+ * {@link SeedDialect}, {@link H2SeedDialect} by default.
+ *
+ * <p>Only simple tables can be pushed down into the database. Entities that are mapped to multiple tables, that
+ * have a non-numeric or composite id, collection tables, owning {@code ONE_TO_ONE} associations or attributes with
+ * attribute converters or unsupported types are generated in Java instead and written with
+ * {@link JdbcEntityGraphWriter}, see {@link CompiledSeed#getFallbackReasons()}. Note that the Java fallback
+ * generates whole entity graphs, i.e. it also inserts new referenced entities.
+ *
+ * <p>Example:
+ * <pre>{@code
+ *     SeedCompiler compiler = SeedCompiler.compiler(metamodel)
+ *         .withReferenceIdRange(Customer.class, 1, 10_000)
+ *         .build();
+ *     compiler.compile(Order.class).execute(connection, 10_000_000);
+ * }</pre>
+ *
+ * @since 2.1.0
+ */
+public final class SeedCompiler {
+
+    // Instancio's default string length and number range
+    private static final int DEFAULT_STRING_MIN_LENGTH = 3;
+    private static final int DEFAULT_STRING_MAX_LENGTH = 10;
+    private static final long DEFAULT_MIN_NUMBER = 1;
+    private static final long DEFAULT_MAX_NUMBER = 10_000;
+
+    private final Metamodel metamodel;
+    private final SeedDialect dialect;
+    private final Map<Class<?>, long[]> referenceIdRanges;
+    private final JdbcMappingResolver mappingResolver;
+
+    private SeedCompiler(Builder builder) {
+        this.metamodel = builder.metamodel;
+        this.dialect = builder.dialect;
+        this.referenceIdRanges = new HashMap<>(builder.referenceIdRanges);
+        this.mappingResolver = new JdbcMappingResolver(metamodel);
+    }
+
+    /**
+     * Creates a builder for a seed compiler.
+     *
+     * @param metamodel JPA metamodel
+     * @return SeedCompiler builder reference
+     */
+    public static Builder compiler(Metamodel metamodel) {
+        return new Builder(Objects.requireNonNull(metamodel, "Metamodel must not be null"));
+    }
+
+    /**
+     * Compiles the generation of rows of the given entity type. If the generation cannot be pushed down into the
+     * database, the returned seed generates the rows in Java.
+     *
+     * @param entityClass JPA entity class
+     * @return the compiled seed
+     */
+    public CompiledSeed compile(Class<?> entityClass) {
+        EntityType<?> entityType = metamodel.entity(entityClass);
+        Compilation compilation = new Compilation(entityClass);
+        if (Modifier.isAbstract(entityClass.getModifiers())) {
+            compilation.fallbackReasons.add(entityClass.getName() + " is abstract");
+        }
+        try {
+            if (mappingResolver.getTableSpan(entityClass) != 1) {
+                compilation.fallbackReasons.add(entityClass.getName() + " is mapped to multiple tables");
+            } else if (!isNumericId(entityType)) {
+                compilation.fallbackReasons.add(entityClass.getName() + " has no numeric id");
+            } else {
+                compileTable(compilation, entityType);
+            }
+        } catch (IllegalArgumentException e) {
+            compilation.fallbackReasons.add(e.getMessage());
+        }
+        if (!compilation.fallbackReasons.isEmpty()) {
+            return new CompiledSeed(entityClass, metamodel, dialect, mappingResolver, compilation.fallbackReasons);
+        }
+        return new CompiledSeed(entityClass, metamodel, dialect, mappingResolver, compilation.columns,
+            compilation.expressions, referenceIdRanges);
+    }
+
+    private void compileTable(Compilation compilation, EntityType<?> entityType) {
+        Class<?> entityClass = compilation.entityClass;
+        compilation.columns.add(mappingResolver.getIdColumnName(entityClass));
+        compilation.expressions.add(CompiledSeed.ExecutionContext::getIdExpression);
+        String[] discriminator = mappingResolver.getDiscriminator(entityClass);
+        if (discriminator != null) {
+            compilation.columns.add(discriminator[0]);
+            compilation.expressions.add(context -> discriminator[1]);
+        }
+        for (SingularAttribute<?, ?> attr : entityType.getSingularAttributes()) {
+            if (!attr.isId()) {
+                compileAttribute(compilation, Collections.singletonList(attr));
+            }
+        }
+        for (PluralAttribute<?, ?, ?> attr : entityType.getPluralAttributes()) {
+            if (!isInsertable(attr)) {
+                continue;
+            }
+            if (hasCollectionTable(attr)) {
+                compilation.fallbackReasons.add(String.format(
+                    "%s#%s is stored in a collection table", entityClass.getName(), attr.getName()));
+            } else if (hasElementJoinColumn(attr)) {
+                compilation.fallbackReasons.add(String.format(
+                    "%s#%s is stored in a join column of the referenced table", entityClass.getName(),
+                    attr.getName()));
+            }
+        }
+    }
+
+    private void compileAttribute(Compilation compilation, List<Attribute<?, ?>> path) {
+        Attribute<?, ?> attr = path.get(path.size() - 1);
+        if (!isInsertable(attr)) {
+            return;
+        }
+        String attrName = attr.getDeclaringType().getJavaType().getName() + "#" + attr.getName();
+        switch (attr.getPersistentAttributeType()) {
+            case BASIC:
+                Function<CompiledSeed.ExecutionContext, String> expression =
+                    compileBasic((SingularAttribute<?, ?>) attr);
+                if (expression == null) {
+                    compilation.fallbackReasons.add(String.format(
+                        "%s has a converter or an unsupported type %s", attrName, attr.getJavaType().getName()));
+                } else {
+                    compilation.columns.add(mappingResolver.getColumnName(compilation.entityClass, path));
+                    compilation.expressions.add(expression);
+                }
+                break;
+            case EMBEDDED:
+                ManagedType<?> embeddableType = metamodel.embeddable(attr.getJavaType());
+                if (!embeddableType.getPluralAttributes().isEmpty()) {
+                    compilation.fallbackReasons.add(attrName + " is an embeddable with collections");
+                }
+                for (SingularAttribute<?, ?> embeddedAttr : embeddableType.getSingularAttributes()) {
+                    List<Attribute<?, ?>> embeddedPath = new ArrayList<>(path);
+                    embeddedPath.add(embeddedAttr);
+                    compileAttribute(compilation, embeddedPath);
+                }
+                break;
+            case ONE_TO_ONE:
+                if (resolveMappedBy(attr.getJavaMember()) == null) {
+                    compilation.fallbackReasons.add(attrName + " is an owning ONE_TO_ONE association");
+                }
+                break;
+            case MANY_TO_ONE:
+                Class<?> targetClass = attr.getJavaType();
+                if (!isNumericId(metamodel.entity(targetClass))) {
+                    compilation.fallbackReasons.add(attrName + " references an entity without numeric id");
+                    break;
+                }
+                boolean optional = ((SingularAttribute<?, ?>) attr).isOptional();
+                compilation.columns.add(mappingResolver.getColumnName(compilation.entityClass, path));
+                compilation.expressions.add(context -> {
+                    long[] idRange = context.getReferenceIdRange(targetClass);
+                    if (idRange == null) {
+                        if (!optional) {
+                            throw new IllegalStateException(String.format(
+                                "Cannot generate mandatory reference %s because there are no %s rows", attrName,
+                                targetClass.getName()));
+                        }
+                        return "null";
+                    }
+                    return dialect.randomInteger(String.valueOf(idRange[0]), String.valueOf(idRange[1]));
+                });
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Nullable
+    private Function<CompiledSeed.ExecutionContext, String> compileBasic(SingularAttribute<?, ?> attr) {
+        Convert convert = getAnnotation(attr, Convert.class);
+        if (convert != null && !convert.disableConversion()) {
+            return null;
+        }
+        Class<?> type = wrap(attr.getJavaType());
+        if (attr.isVersion() && Number.class.isAssignableFrom(type)) {
+            return context -> "0";
+        }
+        if (UniqueValueGeneratorResolver.isBasicUnique(attr)) {
+            if (type == String.class) {
+                return context -> dialect.toVarchar(context.getIdExpression());
+            } else if (type == Long.class || type == Integer.class) {
+                return CompiledSeed.ExecutionContext::getIdExpression;
+            }
+            return null;
+        }
+        String expression = compileRandomValue(attr, type);
+        return expression == null ? null : context -> expression;
+    }
+
+    @Nullable
+    private String compileRandomValue(SingularAttribute<?, ?> attr, Class<?> type) {
+        if (type == String.class) {
+            Integer columnLength = StringGeneratorResolver.getColumnLength(attr);
+            // Capped by the column length like in StringGeneratorResolver
+            int maxLength = columnLength == null
+                ? DEFAULT_STRING_MAX_LENGTH : Math.min(columnLength, DEFAULT_STRING_MAX_LENGTH);
+            return dialect.randomString(Math.min(DEFAULT_STRING_MIN_LENGTH, maxLength), maxLength);
+        } else if (type == Long.class || type == Integer.class || type == Short.class || type == BigInteger.class) {
+            return dialect.randomInteger(String.valueOf(DEFAULT_MIN_NUMBER), String.valueOf(DEFAULT_MAX_NUMBER));
+        } else if (type == Byte.class) {
+            return dialect.randomInteger(String.valueOf(DEFAULT_MIN_NUMBER), String.valueOf(Byte.MAX_VALUE));
+        } else if (type == Double.class || type == Float.class || type == BigDecimal.class) {
+            return dialect.randomDecimal(DEFAULT_MIN_NUMBER, DEFAULT_MAX_NUMBER);
+        } else if (type == Boolean.class) {
+            return dialect.randomBoolean();
+        } else if (type == Character.class) {
+            return dialect.randomString(1, 1);
+        } else if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            Enumerated enumerated = getAnnotation(attr, Enumerated.class);
+            if (enumerated != null && enumerated.value() == EnumType.STRING) {
+                List<String> literals = new ArrayList<>(constants.length);
+                for (Object constant : constants) {
+                    literals.add(dialect.stringLiteral(((Enum<?>) constant).name()));
+                }
+                return dialect.randomChoice(literals);
+            }
+            return dialect.randomInteger("0", String.valueOf(constants.length - 1));
+        }
+        TemporalType temporalType = getTemporalType(attr, type);
+        return temporalType == null ? null : dialect.randomTemporal(temporalType);
+    }
+
+    @Nullable
+    private static TemporalType getTemporalType(SingularAttribute<?, ?> attr, Class<?> type) {
+        if (type == LocalDate.class || type == java.sql.Date.class) {
+            return TemporalType.DATE;
+        } else if (type == LocalTime.class || type == java.sql.Time.class) {
+            return TemporalType.TIME;
+        } else if (type == LocalDateTime.class || type == Instant.class || type == OffsetDateTime.class
+            || type == ZonedDateTime.class || type == java.sql.Timestamp.class) {
+            return TemporalType.TIMESTAMP;
+        } else if (type == Date.class || type == Calendar.class) {
+            Temporal temporal = getAnnotation(attr, Temporal.class);
+            return temporal == null ? TemporalType.TIMESTAMP : temporal.value();
+        }
+        return null;
+    }
+
+    private static boolean isNumericId(EntityType<?> entityType) {
+        if (!entityType.hasSingleIdAttribute()) {
+            return false;
+        }
+        Class<?> idType = wrap(getSingleIdAttribute(entityType).getJavaType());
+        return idType == Long.class || idType == Integer.class;
+    }
+
+    /**
+     * Builder for {@link SeedCompiler}.
+     */
+    public static final class Builder {
+        private final Metamodel metamodel;
+        private final Map<Class<?>, long[]> referenceIdRanges = new HashMap<>();
+        private SeedDialect dialect = new H2SeedDialect();
+
+        private Builder(Metamodel metamodel) {
+            this.metamodel = metamodel;
+        }
+
+        /**
+         * Sets the dialect that provides the SQL expressions, {@link H2SeedDialect} by default.
+         *
+         * @param dialect the seed dialect
+         * @return SeedCompiler builder reference
+         */
+        public Builder withDialect(SeedDialect dialect) {
+            this.dialect = Objects.requireNonNull(dialect, "Dialect must not be null");
+            return this;
+        }
+
+        /**
+         * Sets the ids that references to the given entity type are drawn from. Every id in the range must exist.
+         * By default, the range between the smallest and the largest id in the referenced table is used.
+         *
+         * @param entityClass the referenced JPA entity class
+         * @param minId the smallest id, inclusive
+         * @param maxId the largest id, inclusive
+         * @return SeedCompiler builder reference
+         * @throws IllegalArgumentException if {@code maxId} is smaller than {@code minId}
+         */
+        public Builder withReferenceIdRange(Class<?> entityClass, long minId, long maxId) {
+            if (maxId < minId) {
+                throw new IllegalArgumentException(String.format(
+                    "Invalid id range [%d, %d] for %s", minId, maxId, entityClass.getName()));
+            }
+            referenceIdRanges.put(entityClass, new long[] {minId, maxId});
+            return this;
+        }
+
+        /**
+         * Builds the seed compiler.
+         *
+         * @return the seed compiler
+         */
+        public SeedCompiler build() {
+            return new SeedCompiler(this);
+        }
+    }
+
+    private static final class Compilation {
+        private final Class<?> entityClass;
+        private final List<String> columns = new ArrayList<>();
+        private final List<Function<CompiledSeed.ExecutionContext, String>> expressions = new ArrayList<>();
+        private final List<String> fallbackReasons = new ArrayList<>();
+
+        private Compilation(Class<?> entityClass) {
+            this.entityClass = entityClass;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa;
+
+import java.util.List;
+import javax.persistence.TemporalType;
+
+/**
+ * The SQL expressions that {@link SeedCompiler} uses to generate rows inside the database. All methods return SQL
+ * fragments that are evaluated once per generated row, except for {@link #rowSource(long)}.
+ *
+ * @see H2SeedDialect
+ * @since 2.1.0
+ */
+public interface SeedDialect {
+
+    /**
+     * Returns a table expression for the {@code FROM} clause that produces the given number of rows.
+     *
+     * @param rowCount the number of rows
+     * @return the table expression
+     */
+    String rowSource(long rowCount);
+
+    /**
+     * Returns an expression for the number of the current row of the {@link #rowSource(long)}, starting at 1.
+     *
+     * @return the row number expression
+     */
+    String rowNumber();
+
+    /**
+     * Returns an expression for a random integer between {@code min} and {@code max}, both inclusive.
+     *
+     * @param min SQL expression of the lower bound
+     * @param max SQL expression of the upper bound
+     * @return the random integer expression
+     */
+    String randomInteger(String min, String max);
+
+    /**
+     * Returns an expression for a random decimal number between {@code min} and {@code max}.
+     *
+     * @param min the lower bound
+     * @param max the upper bound
+     * @return the random decimal expression
+     */
+    String randomDecimal(long min, long max);
+
+    /**
+     * Returns an expression for a random boolean.
+     *
+     * @return the random boolean expression
+     */
+    String randomBoolean();
+
+    /**
+     * Returns an expression for a random string with a length between {@code minLength} and {@code maxLength}.
+     *
+     * @param minLength the minimum length
+     * @param maxLength the maximum length
+     * @return the random string expression
+     */
+    String randomString(int minLength, int maxLength);
+
+    /**
+     * Returns an expression for a random point in time in the past of the given temporal type.
+     *
+     * @param temporalType the temporal type of the column
+     * @return the random temporal expression
+     */
+    String randomTemporal(TemporalType temporalType);
+
+    /**
+     * Returns an expression that converts the given numeric expression to a string.
+     *
+     * @param expression SQL expression
+     * @return the string expression
+     */
+    String toVarchar(String expression);
+
+    /**
+     * Returns an expression that picks one of the given SQL literals at random.
+     *
+     * @param literals SQL literals
+     * @return the expression
+     */
+    default String randomChoice(List<String> literals) {
+        StringBuilder sb = new StringBuilder("case ")
+            .append(randomInteger("0", String.valueOf(literals.size() - 1)));
+        for (int i = 0; i < literals.size(); i++) {
+            sb.append(" when ").append(i).append(" then ").append(literals.get(i));
+        }
+        return sb.append(" end").toString();
+    }
+
+    /**
+     * Returns the given string as SQL literal.
+     *
+     * @param value the string value
+     * @return the SQL literal
+     */
+    default String stringLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
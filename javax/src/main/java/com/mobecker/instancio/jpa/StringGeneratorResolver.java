@@ -51,7 +51,7 @@ public class StringGeneratorResolver implements JpaAttributeGeneratorResolver {
         return String.class.equals(attribute.getJavaType());
     }
 
-    private static Integer getColumnLength(Attribute<?, ?> attribute) {
+    static Integer getColumnLength(Attribute<?, ?> attribute) {
         Column column = getAnnotation(attribute, Column.class);
         return column == null ? null : column.length();
     }
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import javax.annotation.Nullable;
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
 import javax.persistence.metamodel.Attribute;
@@ -55,6 +56,26 @@ public class UniqueValueGeneratorResolver implements JpaAttributeGeneratorResolv
         SEQ_GENERATORS = Collections.unmodifiableMap(sequenceGenerators);
     }
 
+    private final long offset;
+
+    /**
+     * Create new {@link UniqueValueGeneratorResolver} whose sequences start at 1.
+     */
+    public UniqueValueGeneratorResolver() {
+        this(0);
+    }
+
+    /**
+     * Create new {@link UniqueValueGeneratorResolver} whose sequences start after the given offset, see
+     * {@link com.mobecker.instancio.jpa.setting.JpaKeys#UNIQUE_VALUE_OFFSET}.
+     *
+     * @param offset offset of the sequences
+     * @since 2.1.0
+     */
+    public UniqueValueGeneratorResolver(long offset) {
+        this.offset = offset;
+    }
+
     @Override
     public Generator<?> getGenerator(
         Node node, Generators generators, Attribute<?, ?> attribute, GeneratorResolverContext context) {
@@ -64,7 +85,7 @@ public class UniqueValueGeneratorResolver implements JpaAttributeGeneratorResolv
         return null;
     }
 
-    private static boolean isBasicUnique(Attribute<?, ?> attribute) {
+    static boolean isBasicUnique(Attribute<?, ?> attribute) {
         if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
             Column column = getAnnotation(attribute, Column.class);
             return column != null && column.unique();
@@ -72,7 +93,7 @@ public class UniqueValueGeneratorResolver implements JpaAttributeGeneratorResolv
         return false;
     }
 
-    private static boolean isNonGeneratedIdAttribute(Attribute<?, ?> attribute) {
+    static boolean isNonGeneratedIdAttribute(Attribute<?, ?> attribute) {
         ManagedType<?> declaringType = attribute.getDeclaringType();
         if (declaringType instanceof IdentifiableType) {
             SingularAttribute<?, ?> idAttr = resolveIdAttribute(
@@ -89,23 +110,40 @@ public class UniqueValueGeneratorResolver implements JpaAttributeGeneratorResolv
         if (generator != null) {
             return generator;
         }
-        generator = instantiateIdGenerator(fieldType);
+        generator = instantiateIdGenerator(fieldType, offset);
         if (generator != null) {
             contextualGenerators.put(node, generator);
         }
         return generator;
     }
 
-    private static Generator<?> instantiateIdGenerator(Class<?> fieldType) {
+    @Nullable
+    static Generator<?> instantiateIdGenerator(Class<?> fieldType) {
+        return instantiateIdGenerator(fieldType, 0);
+    }
+
+    @Nullable
+    static Generator<?> instantiateIdGenerator(Class<?> fieldType, long offset) {
         Class<?> generatorClass = SEQ_GENERATORS.get(fieldType);
         if (generatorClass != null) {
+            Generator<?> generator;
             try {
                 Constructor<?> constructor = generatorClass.getConstructor();
-                return (Generator<?>) constructor.newInstance();
+                generator = (Generator<?>) constructor.newInstance();
             } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
                      | InvocationTargetException e) {
                 throw new RuntimeException(e);
             }
+            if (offset != 0) {
+                if (generator instanceof LongSequenceGenerator) {
+                    ((LongSequenceGenerator) generator).start(offset + 1);
+                } else if (generator instanceof IntegerSequenceGenerator) {
+                    ((IntegerSequenceGenerator) generator).start(Math.toIntExact(offset + 1));
+                } else {
+                    ((StringSequenceGenerator) generator).start(offset + 1);
+                }
+            }
+            return generator;
         }
         return null;
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.generator;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.instancio.Random;
+import org.instancio.generator.AfterGenerate;
+import org.instancio.generator.Generator;
+import org.instancio.generator.Hints;
+
+/**
+ * A generator for references to existing entities. The generator samples an id from an id range or an id list
+ * according to a {@link ReferenceDistribution} and creates the reference with a reference factory, typically
+ * {@link javax.persistence.EntityManager#getReference(Class, Object)}. Created references are not populated by
+ * Instancio.
+ *
+ * @param <T> type of the referenced entity
+ * @since 2.1.0
+ */
+public class EntityReferenceGenerator<T> implements Generator<T> {
+    private final Function<Random, Object> idSampler;
+    private final Function<Object, ? extends T> referenceFactory;
+
+    /**
+     * Creates a new {@link EntityReferenceGenerator} that samples ids uniformly from a range.
+     *
+     * @param minId minimum id, inclusive
+     * @param maxId maximum id, inclusive
+     * @param idType type of the id, one of {@code Long}, {@code Integer} or {@code Short} or their primitive types
+     * @param referenceFactory function that creates the reference for an id
+     * @throws IllegalArgumentException if {@code maxId} is less than {@code minId}, if the range exceeds the
+     *     values of {@code idType} or if {@code idType} is not supported
+     */
+    public EntityReferenceGenerator(long minId, long maxId, Class<?> idType,
+                                    Function<Object, ? extends T> referenceFactory) {
+        this(minId, maxId, idType, ReferenceDistribution.uniform(), referenceFactory);
+    }
+
+    /**
+     * Creates a new {@link EntityReferenceGenerator} that samples ids from a range according to the given
+     * distribution. The key index of an id is its offset from {@code minId}.
+     *
+     * @param minId minimum id, inclusive
+     * @param maxId maximum id, inclusive
+     * @param idType type of the id, one of {@code Long}, {@code Integer} or {@code Short} or their primitive types
+     * @param distribution distribution of the references over the ids
+     * @param referenceFactory function that creates the reference for an id
+     * @throws IllegalArgumentException if {@code maxId} is less than {@code minId}, if the range exceeds the
+     *     values of {@code idType}, if {@code idType} is not supported or if the range is too large for the
+     *     distribution
+     */
+    public EntityReferenceGenerator(long minId, long maxId, Class<?> idType, ReferenceDistribution distribution,
+                                    Function<Object, ? extends T> referenceFactory) {
+        if (maxId < minId) {
+            throw new IllegalArgumentException("maxId must not be less than minId");
+        }
+        if (maxId - minId + 1 <= 0) {
+            throw new IllegalArgumentException("Id range is too large");
+        }
+        final Function<Long, Object> idConverter;
+        final long minValue;
+        final long maxValue;
+        if (idType == Long.class || idType == long.class) {
+            idConverter = id -> id;
+            minValue = Long.MIN_VALUE;
+            maxValue = Long.MAX_VALUE;
+        } else if (idType == Integer.class || idType == int.class) {
+            idConverter = Long::intValue;
+            minValue = Integer.MIN_VALUE;
+            maxValue = Integer.MAX_VALUE;
+        } else if (idType == Short.class || idType == short.class) {
+            idConverter = Long::shortValue;
+            minValue = Short.MIN_VALUE;
+            maxValue = Short.MAX_VALUE;
+        } else {
+            throw new IllegalArgumentException("Id ranges are not supported for id type " + idType.getName());
+        }
+        if (minId < minValue || maxId > maxValue) {
+            throw new IllegalArgumentException(String.format(
+                "Id range [%d, %d] exceeds the values of id type %s", minId, maxId, idType.getName()));
+        }
+        ToLongFunction<Random> indexSampler = distribution.createSampler(maxId - minId + 1);
+        this.idSampler = random -> idConverter.apply(minId + indexSampler.applyAsLong(random));
+        this.referenceFactory = referenceFactory;
+    }
+
+    /**
+     * Creates a new {@link EntityReferenceGenerator} that samples ids uniformly from a list. The list is not copied,
+     * so large id lists can be backed by primitive arrays, and must not be modified while the generator is in use.
+     *
+     * @param ids the ids to sample from, must be of the id type of the referenced entity and support fast random
+     *     access
+     * @param referenceFactory function that creates the reference for an id
+     * @throws IllegalArgumentException if {@code ids} is empty
+     */
+    public EntityReferenceGenerator(List<?> ids, Function<Object, ? extends T> referenceFactory) {
+        this(ids, ReferenceDistribution.uniform(), referenceFactory);
+    }
+
+    /**
+     * Creates a new {@link EntityReferenceGenerator} that samples ids from a list according to the given
+     * distribution. The key index of an id is its position in the list. The list is not copied and must not be
+     * modified while the generator is in use.
+     *
+     * @param ids the ids to sample from, must be of the id type of the referenced entity and support fast random
+     *     access
+     * @param distribution distribution of the references over the ids
+     * @param referenceFactory function that creates the reference for an id
+     * @throws IllegalArgumentException if {@code ids} is empty
+     */
+    public EntityReferenceGenerator(List<?> ids, ReferenceDistribution distribution,
+                                    Function<Object, ? extends T> referenceFactory) {
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("ids must not be empty");
+        }
+        ToLongFunction<Random> indexSampler = distribution.createSampler(ids.size());
+        this.idSampler = random -> ids.get((int) indexSampler.applyAsLong(random));
+        this.referenceFactory = referenceFactory;
+    }
+
+    @Override
+    public T generate(Random random) {
+        return referenceFactory.apply(idSampler.apply(random));
+    }
+
+    @Override
+    public Hints hints() {
+        return Hints.afterGenerate(AfterGenerate.DO_NOT_MODIFY);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.generator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import org.instancio.Random;
+import org.instancio.generator.AfterGenerate;
+import org.instancio.generator.Generator;
+import org.instancio.generator.Hints;
+
+/**
+ * A generator for optional references that creates an empty instance of the referenced type with a given
+ * probability and {@code null} otherwise. Created instances are populated by Instancio.
+ *
+ * @param <T> type of the referenced object
+ * @since 2.1.0
+ */
+public class PopulationProbabilityGenerator<T> implements Generator<T> {
+    private final Constructor<T> constructor;
+    private final double probability;
+
+    /**
+     * Creates a new {@link PopulationProbabilityGenerator}.
+     *
+     * @param type the referenced type, must have a no-arg constructor
+     * @param probability probability in the range {@code [0, 1]} with which an instance is created
+     * @throws IllegalArgumentException if {@code type} has no no-arg constructor or {@code probability} is out of
+     *     range
+     */
+    public PopulationProbabilityGenerator(Class<T> type, double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability must be in the range [0, 1]");
+        }
+        try {
+            this.constructor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No no-arg constructor found for " + type.getName(), e);
+        }
+        if (!constructor.isAccessible()) {
+            constructor.setAccessible(true);
+        }
+        this.probability = probability;
+    }
+
+    @Override
+    public T generate(Random random) {
+        if (!random.trueOrFalse(probability)) {
+            return null;
+        }
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Hints hints() {
+        return Hints.afterGenerate(AfterGenerate.POPULATE_ALL);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.generator;
+
+import com.mobecker.instancio.jpa.util.AliasTable;
+import java.util.function.ToLongFunction;
+import org.instancio.Random;
+
+/**
+ * The distribution of references over the referenced keys, e.g. the distribution of orders over customers. Keys
+ * are identified by their index in {@code [0, keyCount)}, which is the position of the id in the id range or id list
+ * the references are sampled from. Skewed distributions favor keys with low indexes.
+ *
+ * @since 2.1.0
+ */
+public abstract class ReferenceDistribution {
+
+    private static final ReferenceDistribution UNIFORM = new ReferenceDistribution() {
+        @Override
+        public ToLongFunction<Random> createSampler(long keyCount) {
+            checkKeyCount(keyCount);
+            return random -> random.longRange(0, keyCount - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "uniform()";
+        }
+    };
+
+    ReferenceDistribution() { }
+
+    /**
+     * Returns the distribution that references every key with the same probability.
+     *
+     * @return the uniform distribution
+     */
+    public static ReferenceDistribution uniform() {
+        return UNIFORM;
+    }
+
+    /**
+     * Returns a Zipf distribution that references the key with index {@code i} with a probability proportional to
+     * {@code 1 / (i + 1)^exponent}. For example, with an exponent of 1, the first key is referenced twice as often
+     * as the second. The sampler holds an {@link AliasTable} with one column per key, which takes 12 bytes per key
+     * and samples in constant time.
+     *
+     * @param exponent non-negative exponent, {@code 0} yields the uniform distribution
+     * @return the Zipf distribution
+     * @throws IllegalArgumentException if {@code exponent} is negative or not finite
+     */
+    public static ReferenceDistribution zipf(double exponent) {
+        if (!(exponent >= 0) || Double.isInfinite(exponent)) {
+            throw new IllegalArgumentException("exponent must be non-negative and finite");
+        }
+        return new ReferenceDistribution() {
+            @Override
+            public ToLongFunction<Random> createSampler(long keyCount) {
+                checkKeyCount(keyCount);
+                if (keyCount > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Zipf distributions support at most " + Integer.MAX_VALUE
+                        + " keys");
+                }
+                double[] weights = new double[(int) keyCount];
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] = 1 / Math.pow(i + 1, exponent);
+                }
+                AliasTable aliasTable = AliasTable.of(weights);
+                return random -> aliasTable.sample(random.intRange(0, aliasTable.size() - 1),
+                    random.doubleRange(0, 1));
+            }
+
+            @Override
+            public String toString() {
+                return "zipf(" + exponent + ")";
+            }
+        };
+    }
+
+    /**
+     * Returns a distribution with a hot set of keys that receives a fixed fraction of the references, e.g. 20% of
+     * the customers own 80% of the orders. The hot set consists of the keys with the lowest indexes. Within the hot
+     * set and within the remaining keys, the references are distributed uniformly.
+     *
+     * @param hotKeyFraction fraction of the keys in the hot set, in the range {@code (0, 1]}
+     * @param hotReferenceFraction fraction of the references to keys in the hot set, in the range {@code [0, 1]}
+     * @return the hot set distribution
+     * @throws IllegalArgumentException if a fraction is out of range
+     */
+    public static ReferenceDistribution hotSet(double hotKeyFraction, double hotReferenceFraction) {
+        if (!(hotKeyFraction > 0 && hotKeyFraction <= 1)) {
+            throw new IllegalArgumentException("hotKeyFraction must be in the range (0, 1]");
+        }
+        if (!(hotReferenceFraction >= 0 && hotReferenceFraction <= 1)) {
+            throw new IllegalArgumentException("hotReferenceFraction must be in the range [0, 1]");
+        }
+        return new ReferenceDistribution() {
+            @Override
+            public ToLongFunction<Random> createSampler(long keyCount) {
+                checkKeyCount(keyCount);
+                long hotKeyCount = Math.max(1, Math.min(keyCount, Math.round(keyCount * hotKeyFraction)));
+                if (hotKeyCount == keyCount) {
+                    return random -> random.longRange(0, keyCount - 1);
+                }
+                return random -> random.doubleRange(0, 1) < hotReferenceFraction
+                    ? random.longRange(0, hotKeyCount - 1) : random.longRange(hotKeyCount, keyCount - 1);
+            }
+
+            @Override
+            public String toString() {
+                return "hotSet(" + hotKeyFraction + ", " + hotReferenceFraction + ")";
+            }
+        };
+    }
+
+    /**
+     * Creates a sampler of key indexes. The sampler is thread-safe and samples in constant time.
+     *
+     * @param keyCount number of keys
+     * @return function that samples a key index in {@code [0, keyCount)} from a random source
+     * @throws IllegalArgumentException if {@code keyCount} is not positive or not supported by the distribution
+     */
+    public abstract ToLongFunction<Random> createSampler(long keyCount);
+
+    private static void checkKeyCount(long keyCount) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("keyCount must be positive");
+        }
+    }
+}
@@ -36,6 +36,18 @@ public class StringSequenceGenerator extends AbstractGenerator<String> {
         super(Global.generatorContext());
     }
 
+    /**
+     * Sets the first value of the sequence.
+     *
+     * @param start first value of the sequence
+     * @return this generator
+     * @since 2.1.0
+     */
+    public StringSequenceGenerator start(long start) {
+        longSequenceGenerator.start(start);
+        return this;
+    }
+
     @Override
     public String apiMethod() {
         return "stringSeq()";
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.generator;
+
+import com.mobecker.instancio.jpa.util.AliasTable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.instancio.Instancio;
+import org.instancio.Random;
+import org.instancio.generator.Generator;
+import org.instancio.settings.Settings;
+
+/**
+ * A generator for basic values that samples from a dictionary of a fixed number of distinct values, optionally with
+ * frequency weights and a ratio of {@code null} values. This gives columns a production-like number of distinct
+ * values, which drives the selectivity of indexes, and is cheaper than generating a fresh value per row.
+ *
+ * <p>The dictionary is created by Instancio on first use with the given settings and seed, so every generator with
+ * the same arguments uses the same dictionary, e.g. in independent seeding jobs. Weighted values are sampled in
+ * constant time from an {@link AliasTable}.
+ *
+ * @param <T> type of the values
+ * @since 2.1.0
+ */
+public class ValuePoolGenerator<T> implements Generator<T> {
+    // Gives up on types whose value space is too small for the number of distinct values
+    private static final int CANDIDATES_PER_VALUE = 10;
+    private static final int MIN_CANDIDATES = 100;
+
+    private final Class<T> valueType;
+    private final int distinctValues;
+    @Nullable
+    private final AliasTable frequencies;
+    private final double nullRatio;
+    private final Settings settings;
+    private final long seed;
+    private volatile List<T> dictionary;
+
+    /**
+     * Creates a new {@link ValuePoolGenerator} that samples the distinct values uniformly.
+     *
+     * @param valueType type of the values
+     * @param distinctValues number of distinct values
+     * @param nullRatio ratio of {@code null} values in the range {@code [0, 1]}
+     * @param settings settings to generate the dictionary with, e.g. string lengths
+     * @param seed seed to generate the dictionary with
+     * @throws IllegalArgumentException if {@code distinctValues} is not positive or {@code nullRatio} is out of
+     *     range
+     */
+    public ValuePoolGenerator(Class<T> valueType, int distinctValues, double nullRatio, Settings settings, long seed) {
+        this(valueType, distinctValues, null, nullRatio, settings, seed);
+    }
+
+    /**
+     * Creates a new {@link ValuePoolGenerator} that samples the distinct values according to frequency weights.
+     * Value {@code i} of the dictionary is sampled with a probability proportional to {@code weights[i]}.
+     *
+     * @param valueType type of the values
+     * @param weights non-negative frequency weights, one per distinct value
+     * @param nullRatio ratio of {@code null} values in the range {@code [0, 1]}
+     * @param settings settings to generate the dictionary with, e.g. string lengths
+     * @param seed seed to generate the dictionary with
+     * @throws IllegalArgumentException if the weights are empty, negative, not finite or sum up to zero, or if
+     *     {@code nullRatio} is out of range
+     */
+    public ValuePoolGenerator(Class<T> valueType, double[] weights, double nullRatio, Settings settings, long seed) {
+        this(valueType, weights.length, AliasTable.of(weights), nullRatio, settings, seed);
+    }
+
+    private ValuePoolGenerator(Class<T> valueType, int distinctValues, @Nullable AliasTable frequencies,
+                               double nullRatio, Settings settings, long seed) {
+        if (distinctValues <= 0) {
+            throw new IllegalArgumentException("distinctValues must be positive");
+        }
+        if (!(nullRatio >= 0 && nullRatio <= 1)) {
+            throw new IllegalArgumentException("nullRatio must be in the range [0, 1]");
+        }
+        this.valueType = valueType;
+        this.distinctValues = distinctValues;
+        this.frequencies = frequencies;
+        this.nullRatio = nullRatio;
+        this.settings = settings;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the dictionary of distinct values, creating it if necessary.
+     *
+     * @return the distinct values
+     * @throws IllegalStateException if the value type does not have enough distinct values
+     */
+    public List<T> getDictionary() {
+        List<T> dictionary = this.dictionary;
+        if (dictionary == null) {
+            synchronized (this) {
+                dictionary = this.dictionary;
+                if (dictionary == null) {
+                    dictionary = createDictionary();
+                    this.dictionary = dictionary;
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    private List<T> createDictionary() {
+        Set<T> values = new LinkedHashSet<>();
+        Iterator<T> candidates = Instancio.of(valueType).withSettings(settings).withSeed(seed).stream().iterator();
+        long maxCandidates = Math.max(MIN_CANDIDATES, (long) distinctValues * CANDIDATES_PER_VALUE);
+        for (long i = 0; i < maxCandidates && values.size() < distinctValues; i++) {
+            values.add(candidates.next());
+        }
+        if (values.size() < distinctValues) {
+            throw new IllegalStateException(String.format(
+                "Cannot generate %d distinct values of %s, found %d", distinctValues, valueType.getName(),
+                values.size()));
+        }
+        return new ArrayList<>(values);
+    }
+
+    @Override
+    public T generate(Random random) {
+        if (nullRatio > 0 && random.trueOrFalse(nullRatio)) {
+            return null;
+        }
+        List<T> dictionary = getDictionary();
+        int column = random.intRange(0, distinctValues - 1);
+        return dictionary.get(frequencies == null
+            ? column : frequencies.sample(column, random.doubleRange(0, 1)));
+    }
+}
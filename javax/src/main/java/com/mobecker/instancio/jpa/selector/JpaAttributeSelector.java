@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.selector;
+
+import java.util.function.Predicate;
+import org.instancio.internal.nodes.InternalNode;
+
+/**
+ * An Instancio selector that selects a JPA attribute of an entity or embeddable type, including the attribute
+ * of subtypes that inherit it.
+ *
+ * @since 2.1.0
+ */
+public final class JpaAttributeSelector extends PredicateSelectorImpl {
+
+    private JpaAttributeSelector(Predicate<InternalNode> nodePredicate, String apiInvocationDescription) {
+        super(nodePredicate, apiInvocationDescription);
+    }
+
+    /**
+     * Creates new {@link JpaAttributeSelector}.
+     *
+     * @param managedClass JPA entity or embeddable class
+     * @param attributeName name of the JPA attribute
+     * @return selector that selects the given JPA attribute
+     * @see JpaAttributeSelector
+     */
+    public static JpaAttributeSelector jpaAttribute(Class<?> managedClass, String attributeName) {
+        return new JpaAttributeSelector(node -> {
+            InternalNode parent = node.getParent();
+            return parent != null && parent.getTargetClass() != null && node.getField() != null
+                && node.getField().getName().equals(attributeName)
+                && managedClass.isAssignableFrom(parent.getTargetClass());
+        }, String.format("jpaAttribute(%s, \"%s\")", managedClass.getSimpleName(), attributeName));
+    }
+}
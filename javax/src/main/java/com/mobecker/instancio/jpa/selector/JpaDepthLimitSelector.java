@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.selector;
+
+import com.mobecker.instancio.jpa.EntityGraphMinDepthPredictor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import org.instancio.internal.nodes.InternalNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An Instancio selector that selects optional JPA associations whose values cannot be generated in a persistable
+ * way within a given max depth, i.e. associations whose declaring node's depth relative to the entity root plus
+ * the depth predicted by {@link EntityGraphMinDepthPredictor#predictRequiredDepth(Attribute)} exceeds the max
+ * depth.
+ * Generating such associations is wasted effort because {@link com.mobecker.instancio.jpa.EntityGraphShrinker}
+ * prunes them afterwards.
+ *
+ * @since 2.1.0
+ */
+public final class JpaDepthLimitSelector extends PredicateSelectorImpl {
+    private static final Logger LOG = LoggerFactory.getLogger(JpaDepthLimitSelector.class);
+
+    private JpaDepthLimitSelector(
+        final Predicate<InternalNode> nodePredicate, final String apiInvocationDescription
+    ) {
+        super(nodePredicate, apiInvocationDescription);
+    }
+
+    /**
+     * Creates new {@link JpaDepthLimitSelector} that selects optional references, i.e. optional
+     * {@code MANY_TO_ONE}, {@code ONE_TO_ONE} and embedded attributes of entities, that exceed the max depth.
+     *
+     * @param metamodel JPA metamodel
+     * @param maxDepth max depth used for generation
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects optional references that exceed the max depth
+     * @see JpaDepthLimitSelector
+     */
+    public static JpaDepthLimitSelector jpaDepthLimitedReference(
+        Metamodel metamodel, int maxDepth, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        return new JpaDepthLimitSelector(
+            depthLimitPredicate(metamodel, maxDepth, excludedAttributes, JpaDepthLimitSelector::isOptionalReference),
+            "jpaDepthLimitedReference()");
+    }
+
+    /**
+     * Creates new {@link JpaDepthLimitSelector} that selects {@code ONE_TO_MANY} and {@code MANY_TO_MANY}
+     * collection attributes, except for maps, whose elements exceed the max depth.
+     *
+     * @param metamodel JPA metamodel
+     * @param maxDepth max depth used for generation
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects collections whose elements exceed the max depth
+     * @see JpaDepthLimitSelector
+     */
+    public static JpaDepthLimitSelector jpaDepthLimitedCollection(
+        Metamodel metamodel, int maxDepth, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        return new JpaDepthLimitSelector(
+            depthLimitPredicate(metamodel, maxDepth, excludedAttributes,
+                attr -> isAssociationCollection(attr)
+                    && ((PluralAttribute<?, ?, ?>) attr).getCollectionType() != PluralAttribute.CollectionType.MAP),
+            "jpaDepthLimitedCollection()");
+    }
+
+    /**
+     * Creates new {@link JpaDepthLimitSelector} that selects {@code ONE_TO_MANY} and {@code MANY_TO_MANY} map
+     * attributes whose values exceed the max depth.
+     *
+     * @param metamodel JPA metamodel
+     * @param maxDepth max depth used for generation
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects maps whose values exceed the max depth
+     * @see JpaDepthLimitSelector
+     */
+    public static JpaDepthLimitSelector jpaDepthLimitedMap(
+        Metamodel metamodel, int maxDepth, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        return new JpaDepthLimitSelector(
+            depthLimitPredicate(metamodel, maxDepth, excludedAttributes,
+                attr -> isAssociationCollection(attr)
+                    && ((PluralAttribute<?, ?, ?>) attr).getCollectionType() == PluralAttribute.CollectionType.MAP),
+            "jpaDepthLimitedMap()");
+    }
+
+    private static Predicate<InternalNode> depthLimitPredicate(
+        Metamodel metamodel, int maxDepth, BiPredicate<Class<?>, String> excludedAttributes,
+        Predicate<Attribute<?, ?>> attributePredicate
+    ) {
+        EntityGraphMinDepthPredictor entityGraphMinDepthPredictor = new EntityGraphMinDepthPredictor(metamodel);
+        Map<Attribute<?, ?>, Integer> requiredDepths = new ConcurrentHashMap<>();
+        return node -> {
+            InternalNode parent = node.getParent();
+            if (parent == null || parent.getTargetClass() == null || node.getField() == null) {
+                return false;
+            }
+            Attribute<?, ?> attr;
+            try {
+                ManagedType<?> managedType = metamodel.managedType(parent.getTargetClass());
+                attr = managedType.getAttribute(node.getField().getName());
+            } catch (IllegalArgumentException e) {
+                LOG.trace(null, e);
+                return false;
+            }
+            return attributePredicate.test(attr)
+                && !excludedAttributes.test(parent.getTargetClass(), attr.getName())
+                && parent.getDepth() - rootDepth(metamodel, parent) + requiredDepths.computeIfAbsent(
+                    attr, entityGraphMinDepthPredictor::predictRequiredDepth) > maxDepth;
+        };
+    }
+
+    // The entity root is not the Instancio root if entities are created via Instancio.ofList(), Instancio.stream()
+    // and the like, so depths are measured relative to the outermost managed type.
+    private static int rootDepth(Metamodel metamodel, InternalNode node) {
+        int rootDepth = node.getDepth();
+        for (InternalNode ancestor = node.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (ancestor.getTargetClass() != null && isManagedType(metamodel, ancestor.getTargetClass())) {
+                rootDepth = ancestor.getDepth();
+            }
+        }
+        return rootDepth;
+    }
+
+    private static boolean isManagedType(Metamodel metamodel, Class<?> type) {
+        try {
+            metamodel.managedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOptionalReference(Attribute<?, ?> attr) {
+        switch (attr.getPersistentAttributeType()) {
+            case MANY_TO_ONE:
+            case ONE_TO_ONE:
+            case EMBEDDED:
+                return ((SingularAttribute<?, ?>) attr).isOptional()
+                    && attr.getDeclaringType().getPersistenceType() == Type.PersistenceType.ENTITY;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAssociationCollection(Attribute<?, ?> attr) {
+        return attr.getPersistentAttributeType() == Attribute.PersistentAttributeType.ONE_TO_MANY
+            || attr.getPersistentAttributeType() == Attribute.PersistentAttributeType.MANY_TO_MANY;
+    }
+}
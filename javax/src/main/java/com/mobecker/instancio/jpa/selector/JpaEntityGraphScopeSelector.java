@@ -0,0 +1,194 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.selector;
+
+import com.mobecker.instancio.jpa.util.EntityGraphScope;
+import com.mobecker.instancio.jpa.util.JpaNullabilityIndex;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import org.instancio.internal.nodes.InternalNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An Instancio selector that selects JPA associations outside an {@link EntityGraphScope}. The scope is resolved
+ * by following the attribute names from the outermost managed type down to the node. Mandatory references are
+ * never selected, but everything below a mandatory reference that is not in scope is out of scope as well.
+ *
+ * @since 2.1.0
+ */
+public final class JpaEntityGraphScopeSelector extends PredicateSelectorImpl {
+    private static final Logger LOG = LoggerFactory.getLogger(JpaEntityGraphScopeSelector.class);
+
+    private JpaEntityGraphScopeSelector(
+        final Predicate<InternalNode> nodePredicate, final String apiInvocationDescription
+    ) {
+        super(nodePredicate, apiInvocationDescription);
+    }
+
+    /**
+     * Creates new {@link JpaEntityGraphScopeSelector} that selects optional references, i.e. optional
+     * {@code MANY_TO_ONE} and {@code ONE_TO_ONE} attributes, that are not in scope. The optionality is resolved
+     * with the {@link JpaNullabilityIndex} of the concrete owner class.
+     *
+     * @param metamodel JPA metamodel
+     * @param scope scope of the entity root
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects optional references that are not in scope
+     * @see JpaEntityGraphScopeSelector
+     */
+    public static JpaEntityGraphScopeSelector jpaOutOfScopeReference(
+        Metamodel metamodel, EntityGraphScope scope, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        JpaNullabilityIndex nullabilityIndex = JpaNullabilityIndex.of(metamodel);
+        return new JpaEntityGraphScopeSelector(
+            outOfScopePredicate(metamodel, scope, excludedAttributes,
+                (attr, node) -> isOptionalReference(metamodel, nullabilityIndex, attr, node)),
+            "jpaOutOfScopeReference()");
+    }
+
+    /**
+     * Creates new {@link JpaEntityGraphScopeSelector} that selects {@code ONE_TO_MANY}, {@code MANY_TO_MANY} and
+     * element collection attributes, except for maps, that are not in scope.
+     *
+     * @param metamodel JPA metamodel
+     * @param scope scope of the entity root
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects collections that are not in scope
+     * @see JpaEntityGraphScopeSelector
+     */
+    public static JpaEntityGraphScopeSelector jpaOutOfScopeCollection(
+        Metamodel metamodel, EntityGraphScope scope, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        return new JpaEntityGraphScopeSelector(
+            outOfScopePredicate(metamodel, scope, excludedAttributes,
+                (attr, node) -> attr instanceof PluralAttribute<?, ?, ?>
+                    && ((PluralAttribute<?, ?, ?>) attr).getCollectionType() != PluralAttribute.CollectionType.MAP),
+            "jpaOutOfScopeCollection()");
+    }
+
+    /**
+     * Creates new {@link JpaEntityGraphScopeSelector} that selects {@code ONE_TO_MANY}, {@code MANY_TO_MANY} and
+     * element collection map attributes that are not in scope.
+     *
+     * @param metamodel JPA metamodel
+     * @param scope scope of the entity root
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects maps that are not in scope
+     * @see JpaEntityGraphScopeSelector
+     */
+    public static JpaEntityGraphScopeSelector jpaOutOfScopeMap(
+        Metamodel metamodel, EntityGraphScope scope, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        return new JpaEntityGraphScopeSelector(
+            outOfScopePredicate(metamodel, scope, excludedAttributes,
+                (attr, node) -> attr instanceof PluralAttribute<?, ?, ?>
+                    && ((PluralAttribute<?, ?, ?>) attr).getCollectionType() == PluralAttribute.CollectionType.MAP),
+            "jpaOutOfScopeMap()");
+    }
+
+    private static Predicate<InternalNode> outOfScopePredicate(
+        Metamodel metamodel, EntityGraphScope scope, BiPredicate<Class<?>, String> excludedAttributes,
+        BiPredicate<Attribute<?, ?>, InternalNode> attributePredicate
+    ) {
+        return node -> {
+            InternalNode parent = node.getParent();
+            if (parent == null || parent.getTargetClass() == null || node.getField() == null) {
+                return false;
+            }
+            Attribute<?, ?> attr;
+            try {
+                ManagedType<?> managedType = metamodel.managedType(parent.getTargetClass());
+                attr = managedType.getAttribute(node.getField().getName());
+            } catch (IllegalArgumentException e) {
+                LOG.trace(null, e);
+                return false;
+            }
+            if (!attributePredicate.test(attr, node)
+                || excludedAttributes.test(parent.getTargetClass(), attr.getName())) {
+                return false;
+            }
+            return !isInScope(metamodel, scope, node);
+        };
+    }
+
+    /**
+     * Returns true if the attribute of the given node is in scope. The node must have a parent and a field.
+     */
+    static boolean isInScope(Metamodel metamodel, EntityGraphScope scope, InternalNode node) {
+        EntityGraphScope parentScope = resolveScope(metamodel, scope, node.getParent());
+        return parentScope != null && parentScope.getAttributeScope(node.getField().getName()) != null;
+    }
+
+    // The entity root is not the Instancio root if entities are created via Instancio.ofList(), Instancio.stream()
+    // and the like, so the scope is resolved relative to the outermost managed type.
+    @Nullable
+    private static EntityGraphScope resolveScope(Metamodel metamodel, EntityGraphScope rootScope, InternalNode node) {
+        InternalNode root = node;
+        for (InternalNode ancestor = node.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (ancestor.getTargetClass() != null && isManagedType(metamodel, ancestor.getTargetClass())) {
+                root = ancestor;
+            }
+        }
+        // Collection elements, map keys and map values have no field
+        Deque<String> attributeNames = new ArrayDeque<>();
+        for (InternalNode current = node; current != root; current = current.getParent()) {
+            if (current.getField() != null) {
+                attributeNames.push(current.getField().getName());
+            }
+        }
+        EntityGraphScope scope = rootScope;
+        while (scope != null && !attributeNames.isEmpty()) {
+            scope = scope.getAttributeScope(attributeNames.pop());
+        }
+        return scope;
+    }
+
+    private static boolean isManagedType(Metamodel metamodel, Class<?> type) {
+        try {
+            metamodel.managedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOptionalReference(
+        Metamodel metamodel, JpaNullabilityIndex nullabilityIndex, Attribute<?, ?> attr, InternalNode node
+    ) {
+        switch (attr.getPersistentAttributeType()) {
+            case MANY_TO_ONE:
+            case ONE_TO_ONE:
+                Boolean optional = JpaOptionalAttributeSelector.resolveIndexedOptionality(
+                    metamodel, nullabilityIndex, node);
+                return optional == null ? ((SingularAttribute<?, ?>) attr).isOptional() : optional;
+            default:
+                return false;
+        }
+    }
+}
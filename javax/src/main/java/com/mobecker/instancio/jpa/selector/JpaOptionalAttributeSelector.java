@@ -16,12 +16,17 @@
 
 package com.mobecker.instancio.jpa.selector;
 
+import com.mobecker.instancio.jpa.util.EntityGraphScope;
+import com.mobecker.instancio.jpa.util.JpaNullabilityIndex;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import javax.annotation.Nullable;
 import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.ManagedType;
 import javax.persistence.metamodel.Metamodel;
 import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
 import org.instancio.internal.nodes.InternalNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,20 +40,56 @@ public final class JpaOptionalAttributeSelector extends PredicateSelectorImpl {
     private static final Logger LOG = LoggerFactory.getLogger(JpaOptionalAttributeSelector.class);
 
     private static final Function<Metamodel, Predicate<InternalNode>> JPA_OPTIONAL_ATTRIBUTE_PREDICATE
-        = metamodel -> node -> {
-            InternalNode parent = node.getParent();
-            if (parent != null && parent.getTargetClass() != null && node.getField() != null) {
-                try {
-                    ManagedType<?> managedType = metamodel.managedType(parent.getTargetClass());
-                    Attribute<?, ?> attr = managedType.getAttribute(node.getField().getName());
-                    return attr.isCollection() || ((SingularAttribute<?, ?>) attr).isOptional();
-                } catch (IllegalArgumentException e) {
-                    LOG.trace(null, e);
-                    return false;
+        = metamodel -> {
+            JpaNullabilityIndex nullabilityIndex = JpaNullabilityIndex.of(metamodel);
+            return node -> {
+                InternalNode parent = node.getParent();
+                if (parent != null && parent.getTargetClass() != null && node.getField() != null) {
+                    try {
+                        ManagedType<?> managedType = metamodel.managedType(parent.getTargetClass());
+                        Attribute<?, ?> attr = managedType.getAttribute(node.getField().getName());
+                        if (attr.isCollection()) {
+                            return true;
+                        }
+                        Boolean optional = resolveIndexedOptionality(metamodel, nullabilityIndex, node);
+                        return optional == null ? ((SingularAttribute<?, ?>) attr).isOptional() : optional;
+                    } catch (IllegalArgumentException e) {
+                        LOG.trace(null, e);
+                        return false;
+                    }
                 }
+                return false;
+            };
+        };
+
+    /**
+     * Resolves the optionality of a node from the {@link JpaNullabilityIndex} by walking up the embeddable
+     * ancestors of the node to the owning entity.
+     */
+    @Nullable
+    static Boolean resolveIndexedOptionality(
+        Metamodel metamodel, JpaNullabilityIndex nullabilityIndex, InternalNode node
+    ) {
+        StringBuilder path = new StringBuilder(node.getField().getName());
+        InternalNode parent = node.getParent();
+        while (isEmbeddable(metamodel, parent.getTargetClass())) {
+            if (parent.getField() == null || parent.getParent() == null
+                || parent.getParent().getTargetClass() == null) {
+                return null;
             }
+            path.insert(0, '.').insert(0, parent.getField().getName());
+            parent = parent.getParent();
+        }
+        return nullabilityIndex.isOptional(parent.getTargetClass(), path.toString());
+    }
+
+    private static boolean isEmbeddable(Metamodel metamodel, Class<?> type) {
+        try {
+            return metamodel.managedType(type).getPersistenceType() == Type.PersistenceType.EMBEDDABLE;
+        } catch (IllegalArgumentException e) {
             return false;
-        };
+        }
+    }
 
     private JpaOptionalAttributeSelector(
         final Predicate<InternalNode> nodePredicate, final String apiInvocationDescription
@@ -67,4 +108,50 @@ public final class JpaOptionalAttributeSelector extends PredicateSelectorImpl {
         return new JpaOptionalAttributeSelector(
             JPA_OPTIONAL_ATTRIBUTE_PREDICATE.apply(metamodel), "jpaOptionalAttribute()");
     }
+
+    /**
+     * Creates new {@link JpaOptionalAttributeSelector} that does not select excluded attributes.
+     *
+     * @param metamodel JPA metamodel
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects JPA optional attributes that are not excluded
+     * @see JpaOptionalAttributeSelector
+     * @since 2.1.0
+     */
+    public static JpaOptionalAttributeSelector jpaOptionalAttribute(
+        Metamodel metamodel, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        Predicate<InternalNode> optionalAttributePredicate = JPA_OPTIONAL_ATTRIBUTE_PREDICATE.apply(metamodel);
+        return new JpaOptionalAttributeSelector(
+            node -> optionalAttributePredicate.test(node)
+                && !excludedAttributes.test(node.getParent().getTargetClass(), node.getField().getName()),
+            "jpaOptionalAttribute()");
+    }
+
+    /**
+     * Creates new {@link JpaOptionalAttributeSelector} that does neither select excluded attributes nor attributes
+     * in the given {@link EntityGraphScope}. Collections are not selected either, since the scope determines
+     * whether they are generated or empty.
+     *
+     * @param metamodel JPA metamodel
+     * @param scope scope of the entity root
+     * @param excludedAttributes predicate that receives the class declaring a node and the node's attribute name
+     *                           and returns true if the attribute should not be selected
+     * @return selector that selects JPA optional attributes except collections that are neither excluded nor in scope
+     * @see JpaOptionalAttributeSelector
+     * @since 2.1.0
+     */
+    public static JpaOptionalAttributeSelector jpaOptionalAttribute(
+        Metamodel metamodel, EntityGraphScope scope, BiPredicate<Class<?>, String> excludedAttributes
+    ) {
+        Predicate<InternalNode> optionalAttributePredicate = JPA_OPTIONAL_ATTRIBUTE_PREDICATE.apply(metamodel);
+        return new JpaOptionalAttributeSelector(
+            node -> optionalAttributePredicate.test(node)
+                && !excludedAttributes.test(node.getParent().getTargetClass(), node.getField().getName())
+                && !metamodel.managedType(node.getParent().getTargetClass())
+                    .getAttribute(node.getField().getName()).isCollection()
+                && !JpaEntityGraphScopeSelector.isInScope(metamodel, scope, node),
+            "jpaOptionalAttribute()");
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.selector;
+
+import java.util.function.Predicate;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Metamodel;
+import org.instancio.internal.nodes.InternalNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An Instancio selector that selects the {@code MANY_TO_ONE} attributes of entities and embeddables that reference a
+ * given entity class.
+ *
+ * @since 2.1.0
+ */
+public final class JpaReferenceSelector extends PredicateSelectorImpl {
+    private static final Logger LOG = LoggerFactory.getLogger(JpaReferenceSelector.class);
+
+    private JpaReferenceSelector(final Predicate<InternalNode> nodePredicate, final String apiInvocationDescription) {
+        super(nodePredicate, apiInvocationDescription);
+    }
+
+    /**
+     * Creates new {@link JpaReferenceSelector}.
+     *
+     * @param metamodel JPA metamodel
+     * @param targetClass referenced JPA entity class
+     * @return selector that selects {@code MANY_TO_ONE} attributes referencing {@code targetClass}
+     * @see JpaReferenceSelector
+     */
+    public static JpaReferenceSelector jpaReference(Metamodel metamodel, Class<?> targetClass) {
+        return new JpaReferenceSelector(node -> {
+            InternalNode parent = node.getParent();
+            if (parent == null || parent.getTargetClass() == null || node.getField() == null
+                || node.getTargetClass() != targetClass) {
+                return false;
+            }
+            try {
+                Attribute<?, ?> attr = metamodel.managedType(parent.getTargetClass())
+                    .getAttribute(node.getField().getName());
+                return attr.getPersistentAttributeType() == Attribute.PersistentAttributeType.MANY_TO_ONE;
+            } catch (IllegalArgumentException e) {
+                LOG.trace(null, e);
+                return false;
+            }
+        }, String.format("jpaReference(%s)", targetClass.getSimpleName()));
+    }
+}
@@ -61,6 +61,34 @@ public final class JpaKeys {
     public static final SettingKey<Boolean> ENABLE_GENERATOR_PROVIDERS = register(
         "jpa.enableGeneratorProviders", Boolean.class, true, false, false);
 
+    /**
+     * Specifies whether models created via
+     * {@link com.mobecker.instancio.jpa.InstancioJpa#jpaModel(Class, Metamodel)} should skip the generation of
+     * optional associations that cannot be persisted within the max depth, see
+     * {@link com.mobecker.instancio.jpa.selector.JpaDepthLimitSelector}. Such associations would be pruned by
+     * {@link com.mobecker.instancio.jpa.EntityGraphShrinker} after generation anyway. Note that this changes the
+     * generated graphs compared to earlier versions, which expanded optional associations up to the max depth; set
+     * it to false to restore that behavior.
+     * default is true; property name {@code jpa.limitAssociationDepth}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<Boolean> LIMIT_ASSOCIATION_DEPTH = register(
+        "jpa.limitAssociationDepth", Boolean.class, Boolean.TRUE, false, false);
+
+    /**
+     * Specifies whether models created via
+     * {@link com.mobecker.instancio.jpa.InstancioJpa#jpaModel(Class, Metamodel)} should only populate mandatory
+     * attributes and associations. Optional attributes, optional references and collections are set to
+     * {@code null}, which yields the smallest persistable entity graph. Attributes configured via
+     * {@link #COLLECTION_SIZES} or {@link #POPULATION_PROBABILITIES} are still populated accordingly.
+     * default is false; property name {@code jpa.minimalGraph}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<Boolean> MINIMAL_GRAPH = register(
+        "jpa.minimalGraph", Boolean.class, Boolean.FALSE, false, false);
+
     /**
      * A list of fully qualified Java type names with an optional field part to represent nodes that should not
      * be handled by the built-in generators provided by instancio-jpa. This is useful if you provide your own
@@ -74,6 +102,87 @@ public final class JpaKeys {
     public static final SettingKey<String> GENERATOR_PROVIDER_EXCLUSIONS = register(
         "jpa.generatorProviderExclusions", String.class, null, true, false);
 
+    /**
+     * A list of collection size ranges for individual JPA collection attributes. Each entry consists of a fully
+     * qualified entity or embeddable type name, a {@code #}, the attribute name, a {@code :} and either a size
+     * range {@code min-max} or a fixed size, e.g. {@code fqn.Order#items:0-3,fqn.Customer#addresses:1}. Takes
+     * precedence over the global Instancio collection size settings for these attributes.
+     * default is null; property name {@code jpa.collectionSizes}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<String> COLLECTION_SIZES = register(
+        "jpa.collectionSizes", String.class, null, true, false);
+
+    /**
+     * A list of population probabilities for individual optional JPA references. Each entry consists of a fully
+     * qualified entity or embeddable type name, a {@code #}, the attribute name, a {@code :} and the probability
+     * in the range {@code [0, 1]} with which the reference is populated, e.g. {@code fqn.Order#coupon:0.2}.
+     * default is null; property name {@code jpa.populationProbabilities}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<String> POPULATION_PROBABILITIES = register(
+        "jpa.populationProbabilities", String.class, null, true, false);
+
+    /**
+     * A list of value cardinalities for individual basic JPA attributes. Each entry consists of a fully qualified
+     * entity or embeddable type name, a {@code #}, the attribute name, a {@code :} and the number of distinct values,
+     * optionally followed by a {@code /} and the ratio of {@code null} values, e.g.
+     * {@code fqn.Customer#country:50,fqn.Customer#nickname:1000/0.3}. See
+     * {@link com.mobecker.instancio.jpa.InstancioJpa.Builder#withValueCardinality(Class, String, int, double)}.
+     * default is null; property name {@code jpa.valueCardinalities}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<String> VALUE_CARDINALITIES = register(
+        "jpa.valueCardinalities", String.class, null, true, false);
+
+    /**
+     * The maximum number of entity and embeddable instances to create per root, including the root itself, so
+     * each root of {@code Instancio.ofList} or {@code Instancio.stream} gets the full budget. Once the budget is
+     * exhausted, optional references are left {@code null} and collections of entities or embeddables are left
+     * empty; mandatory references are still created. Use
+     * {@link com.mobecker.instancio.jpa.EntityGraphSizeEstimator} to estimate the size of the generated graphs.
+     * default is null, i.e. unlimited; property name {@code jpa.maxNodes}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<Integer> MAX_NODES = register(
+        "jpa.maxNodes", Integer.class, null, true, false);
+
+    /**
+     * Directory for snapshots of the {@link com.mobecker.instancio.jpa.MetamodelAnalysis}. If set, the analysis
+     * of the metamodel is loaded from a snapshot with a matching metamodel fingerprint instead of being recomputed,
+     * or stored for subsequent JVMs if there is none, e.g. {@code target/instancio-jpa}.
+     * default is null, i.e. no snapshots; property name {@code jpa.metamodelSnapshotDirectory}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<String> METAMODEL_SNAPSHOT_DIRECTORY = register(
+        "jpa.metamodelSnapshotDirectory", String.class, null, true, false);
+
+    /**
+     * Whether to warm up instancio-jpa for the metamodel on a background thread when Instancio initializes the
+     * instancio-jpa service provider, see {@link com.mobecker.instancio.jpa.InstancioJpa#warmUp(Metamodel)}.
+     * default is false; property name {@code jpa.warmUp}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<Boolean> WARM_UP = register(
+        "jpa.warmUp", Boolean.class, Boolean.FALSE, false, false);
+
+    /**
+     * Offset of the sequences that generate unique values and ids that are not generated by the JPA provider, i.e.
+     * the sequences start at {@code offset + 1} instead of {@code 1}. Allows Instancio invocations that each start
+     * their sequences anew to generate disjoint values, e.g. {@code chunkIndex * chunkSize} for chunks of roots.
+     * default is 0; property name {@code jpa.uniqueValueOffset}.
+     *
+     * @since 2.1.0
+     */
+    public static final SettingKey<Long> UNIQUE_VALUE_OFFSET = register(
+        "jpa.uniqueValueOffset", Long.class, 0L, false, false);
+
     /**
      * Get a list of all JpaKeys.
      *
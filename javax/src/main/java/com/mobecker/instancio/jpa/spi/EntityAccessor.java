@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.spi;
+
+import javax.annotation.Nullable;
+
+/**
+ * Provides direct access to the persistent attributes of a JPA entity, embeddable or mapped superclass and to
+ * the mapping metadata instancio-jpa needs, without reflection. Implementations are usually generated at compile
+ * time by the {@code instancio-jpa-processor} annotation processor and are discovered at runtime via
+ * {@link java.util.ServiceLoader}. For classes or attributes not covered by an accessor, instancio-jpa falls
+ * back to reflection.
+ *
+ * @see com.mobecker.instancio.jpa.util.EntityAccessors
+ * @since 2.1.0
+ */
+public interface EntityAccessor {
+
+    /**
+     * Returns the class whose instances this accessor reads and writes.
+     *
+     * @return the entity, embeddable or mapped superclass class
+     */
+    Class<?> getManagedClass();
+
+    /**
+     * Checks whether the accessor covers the given attribute, i.e. whether {@link #getMappedBy(String)} and
+     * {@link #isInsertable(String)} provide information for it.
+     *
+     * @param attributeName the attribute name
+     * @return true if the attribute is covered, else false
+     */
+    boolean hasAttribute(String attributeName);
+
+    /**
+     * Checks whether {@link #getValue(Object, String)} supports the given attribute.
+     *
+     * @param attributeName the attribute name
+     * @return true if the attribute value can be read, else false
+     */
+    boolean isReadable(String attributeName);
+
+    /**
+     * Checks whether {@link #setValue(Object, String, Object)} supports the given attribute.
+     *
+     * @param attributeName the attribute name
+     * @return true if the attribute value can be written, else false
+     */
+    boolean isWritable(String attributeName);
+
+    /**
+     * Reads the value of an attribute.
+     *
+     * @param instance instance of the managed class
+     * @param attributeName the attribute name
+     * @return the attribute value
+     * @throws IllegalArgumentException if the attribute is not readable
+     */
+    @Nullable
+    Object getValue(Object instance, String attributeName);
+
+    /**
+     * Writes the value of an attribute.
+     *
+     * @param instance instance of the managed class
+     * @param attributeName the attribute name
+     * @param value the attribute value
+     * @throws IllegalArgumentException if the attribute is not writable
+     */
+    void setValue(Object instance, String attributeName, @Nullable Object value);
+
+    /**
+     * Returns the {@code mappedBy} value of the association mapping of an attribute.
+     *
+     * @param attributeName the attribute name
+     * @return the {@code mappedBy} value, or {@code null} if the attribute is not the inverse side of an
+     *     association
+     */
+    @Nullable
+    String getMappedBy(String attributeName);
+
+    /**
+     * Checks whether an attribute is insertable according to its {@code @Column} and {@code @JoinColumn}
+     * mappings.
+     *
+     * @param attributeName the attribute name
+     * @return true if the attribute is insertable, else false
+     */
+    boolean isInsertable(String attributeName);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.util;
+
+/**
+ * An alias table for sampling indexes from a discrete distribution in constant time, built with Vose's alias
+ * method in linear time. The table consists of one column per index. Each column holds the probability of
+ * its own index and an alias index that is sampled otherwise.
+ *
+ * <p>This class is immutable and thread-safe.
+ *
+ * @since 2.1.0
+ */
+public final class AliasTable {
+
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    private AliasTable(double[] probabilities, int[] aliases) {
+        this.probabilities = probabilities;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Creates an alias table for the distribution given by the weights. Index {@code i} is sampled with probability
+     * {@code weights[i] / sum(weights)}.
+     *
+     * @param weights non-negative weights, not all zero
+     * @return the alias table
+     * @throws IllegalArgumentException if {@code weights} is empty, contains a negative or non-finite weight or
+     *     sums up to zero
+     */
+    public static AliasTable of(double[] weights) {
+        int n = weights.length;
+        double sum = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be non-negative and finite");
+            }
+            sum += weight;
+        }
+        if (n == 0 || sum <= 0) {
+            throw new IllegalArgumentException("Weights must not be empty and must not sum up to zero");
+        }
+        double[] probabilities = new double[n];
+        int[] aliases = new int[n];
+        // Indexes whose scaled probability is below respectively above the average, used as stacks
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < n; i++) {
+            probabilities[i] = weights[i] * n / sum;
+            if (probabilities[i] < 1) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            aliases[less] = more;
+            probabilities[more] = probabilities[more] + probabilities[less] - 1;
+            if (probabilities[more] < 1) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+        // Remaining columns are full up to rounding errors
+        while (largeSize > 0) {
+            probabilities[large[--largeSize]] = 1;
+        }
+        while (smallSize > 0) {
+            probabilities[small[--smallSize]] = 1;
+        }
+        return new AliasTable(probabilities, aliases);
+    }
+
+    /**
+     * Returns the number of indexes of the distribution.
+     *
+     * @return the number of indexes
+     */
+    public int size() {
+        return probabilities.length;
+    }
+
+    /**
+     * Samples an index given a uniformly distributed column and coin.
+     *
+     * @param column column in the range {@code [0, size())}, sampled uniformly
+     * @param coin value in the range {@code [0, 1)}, sampled uniformly
+     * @return the sampled index
+     */
+    public int sample(int column, double coin) {
+        return coin < probabilities[column] ? column : aliases[column];
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.util;
+
+import com.blazebit.reflection.ReflectionUtils;
+import com.mobecker.instancio.jpa.spi.EntityAccessor;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.annotation.Nullable;
+import javax.persistence.metamodel.Attribute;
+
+/**
+ * Reads and writes the value of an attribute of a managed class. Uses the generated {@link EntityAccessor} of the
+ * class if it can read or write the attribute, see {@link EntityAccessors}, otherwise the getter or setter, and the
+ * field if there is no getter or setter. Getter, setter and field are resolved when they are first needed, so an
+ * instance that is kept for all instances of the class resolves them only once.
+ *
+ * @since 2.1.0
+ */
+public final class AttributeAccessor {
+
+    private final Class<?> managedClass;
+    private final Attribute<?, ?> attribute;
+    @Nullable
+    private final EntityAccessor entityAccessor;
+    private final boolean readableViaEntityAccessor;
+    private final boolean writableViaEntityAccessor;
+    @Nullable
+    private AccessibleObject reader;
+    @Nullable
+    private AccessibleObject writer;
+
+    /**
+     * Create new {@link AttributeAccessor}.
+     *
+     * @param managedClass the class of the instances whose attribute values are accessed
+     * @param attribute JPA attribute declared or inherited by {@code managedClass}
+     */
+    public AttributeAccessor(Class<?> managedClass, Attribute<?, ?> attribute) {
+        this.managedClass = managedClass;
+        this.attribute = attribute;
+        this.entityAccessor = EntityAccessors.get(managedClass);
+        this.readableViaEntityAccessor = entityAccessor != null && entityAccessor.isReadable(attribute.getName());
+        this.writableViaEntityAccessor = entityAccessor != null && entityAccessor.isWritable(attribute.getName());
+    }
+
+    /**
+     * Returns the attribute value of the given instance.
+     *
+     * @param target instance of the managed class
+     * @return the attribute value
+     */
+    @Nullable
+    public Object get(Object target) {
+        if (readableViaEntityAccessor) {
+            return entityAccessor.getValue(target, attribute.getName());
+        }
+        if (reader == null) {
+            reader = resolve(ReflectionUtils.getGetter(managedClass, attribute.getName()));
+        }
+        try {
+            return reader instanceof Method ? ((Method) reader).invoke(target) : ((Field) reader).get(target);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sets the attribute value of the given instance.
+     *
+     * @param target instance of the managed class
+     * @param value the attribute value to set
+     */
+    public void set(Object target, @Nullable Object value) {
+        if (writableViaEntityAccessor) {
+            entityAccessor.setValue(target, attribute.getName(), value);
+            return;
+        }
+        if (writer == null) {
+            writer = resolve(ReflectionUtils.getSetter(managedClass, attribute.getName()));
+        }
+        try {
+            if (writer instanceof Method) {
+                ((Method) writer).invoke(target, value);
+            } else {
+                ((Field) writer).set(target, value);
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private AccessibleObject resolve(@Nullable Method method) {
+        AccessibleObject member = method;
+        if (member == null) {
+            Class<?> declaringClass = attribute.getDeclaringType().getJavaType();
+            try {
+                member = declaringClass.getDeclaredField(attribute.getName());
+            } catch (NoSuchFieldException e) {
+                throw new IllegalArgumentException(String.format(
+                    "Cannot access attribute %s#%s", declaringClass.getName(), attribute.getName()), e);
+            }
+        }
+        if (!member.isAccessible()) {
+            member.setAccessible(true);
+        }
+        return member;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.util;
+
+import com.mobecker.instancio.jpa.spi.EntityAccessor;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import javax.annotation.Nullable;
+
+/**
+ * Registry of the {@link EntityAccessor}s that are available via {@link ServiceLoader}. The accessors are loaded
+ * once, using the context class loader of the thread that first accesses the registry.
+ *
+ * @since 2.1.0
+ */
+public final class EntityAccessors {
+
+    private EntityAccessors() { }
+
+    /**
+     * Returns the accessor for the given class.
+     *
+     * @param managedClass the entity, embeddable or mapped superclass class
+     * @return the accessor, or {@code null} if there is none
+     */
+    @Nullable
+    public static EntityAccessor get(Class<?> managedClass) {
+        return Holder.ACCESSORS.get(managedClass);
+    }
+
+    /**
+     * Returns all available accessors by managed class.
+     *
+     * @return the available accessors
+     */
+    public static Map<Class<?>, EntityAccessor> getAll() {
+        return Holder.ACCESSORS;
+    }
+
+    private static final class Holder {
+        private static final Map<Class<?>, EntityAccessor> ACCESSORS = load();
+
+        private static Map<Class<?>, EntityAccessor> load() {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Map<Class<?>, EntityAccessor> accessors = new HashMap<>();
+            for (EntityAccessor accessor : ServiceLoader.load(EntityAccessor.class,
+                classLoader == null ? EntityAccessors.class.getClassLoader() : classLoader)) {
+                accessors.put(accessor.getManagedClass(), accessor);
+            }
+            return Collections.unmodifiableMap(accessors);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.persistence.AttributeNode;
+import javax.persistence.Entity;
+import javax.persistence.EntityGraph;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.NamedSubgraph;
+import javax.persistence.Subgraph;
+
+/**
+ * The attributes of a JPA entity graph as a tree of attribute names. Each node of the tree describes the
+ * attributes of a managed type that are in scope, and for each of these attributes the scope of the referenced
+ * type. Subgraphs for different subtypes of an attribute are merged, key subgraphs of map attributes are not taken
+ * into account. Named subgraphs may refer to each other recursively, in which case the tree is cyclic.
+ *
+ * @since 2.1.0
+ */
+public final class EntityGraphScope {
+
+    private static final EntityGraphScope ALL_ATTRIBUTES = new EntityGraphScope(null);
+
+    // null if all attributes are in scope
+    private final Map<String, EntityGraphScope> attributeScopes;
+
+    private EntityGraphScope(@Nullable Map<String, EntityGraphScope> attributeScopes) {
+        this.attributeScopes = attributeScopes;
+    }
+
+    /**
+     * Creates the scope of the given entity graph, e.g. a graph obtained via
+     * {@link javax.persistence.EntityManager#getEntityGraph(String)} or created via
+     * {@link javax.persistence.EntityManager#createEntityGraph(Class)}.
+     *
+     * @param entityGraph JPA entity graph
+     * @return the scope of the entity graph
+     */
+    public static EntityGraphScope of(EntityGraph<?> entityGraph) {
+        return ofAttributeNodes(entityGraph.getAttributeNodes());
+    }
+
+    /**
+     * Creates the scope of the entity graph declared via {@link NamedEntityGraph} on the given entity class or one
+     * of its superclasses.
+     *
+     * @param entityClass JPA entity class
+     * @param graphName name of the entity graph, the entity name for graphs without explicit name
+     * @return the scope of the entity graph
+     * @throws IllegalArgumentException if no entity graph with the given name is declared
+     */
+    public static EntityGraphScope ofNamedEntityGraph(Class<?> entityClass, String graphName) {
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (NamedEntityGraph namedEntityGraph : findNamedEntityGraphs(type)) {
+                String name = namedEntityGraph.name().isEmpty() ? entityName(type) : namedEntityGraph.name();
+                if (name.equals(graphName)) {
+                    return ofAnnotation(namedEntityGraph);
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+            "No named entity graph '%s' found for %s", graphName, entityClass.getName()));
+    }
+
+    /**
+     * Resolves the scope of the type referenced by the given attribute.
+     *
+     * @param attributeName JPA attribute name
+     * @return the scope of the referenced type, or {@code null} if the attribute is not in scope
+     */
+    @Nullable
+    public EntityGraphScope getAttributeScope(String attributeName) {
+        return attributeScopes == null ? this : attributeScopes.get(attributeName);
+    }
+
+    /**
+     * Returns the names of the attributes in scope.
+     *
+     * @return the attribute names, or {@code null} if all attributes are in scope
+     */
+    @Nullable
+    public Set<String> getAttributeNames() {
+        return attributeScopes == null ? null : Collections.unmodifiableSet(attributeScopes.keySet());
+    }
+
+    private static EntityGraphScope ofAttributeNodes(List<AttributeNode<?>> attributeNodes) {
+        Map<String, EntityGraphScope> attributeScopes = new LinkedHashMap<>();
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            List<AttributeNode<?>> subgraphAttributeNodes = new ArrayList<>();
+            for (Subgraph<?> subgraph : attributeNode.getSubgraphs().values()) {
+                subgraphAttributeNodes.addAll(subgraph.getAttributeNodes());
+            }
+            attributeScopes.put(attributeNode.getAttributeName(), ofAttributeNodes(subgraphAttributeNodes));
+        }
+        return new EntityGraphScope(attributeScopes);
+    }
+
+    private static EntityGraphScope ofAnnotation(NamedEntityGraph namedEntityGraph) {
+        if (namedEntityGraph.includeAllAttributes()) {
+            return ALL_ATTRIBUTES;
+        }
+        // Create the scopes of all named subgraphs first, so that subgraphs can refer to each other. Subgraphs with
+        // the same name for different subtypes are merged.
+        Map<String, EntityGraphScope> subgraphScopes = new HashMap<>();
+        for (NamedSubgraph namedSubgraph : namedEntityGraph.subgraphs()) {
+            subgraphScopes.computeIfAbsent(namedSubgraph.name(), name -> new EntityGraphScope(new LinkedHashMap<>()));
+        }
+        for (NamedSubgraph namedSubgraph : namedEntityGraph.subgraphs()) {
+            addNamedAttributeNodes(subgraphScopes.get(namedSubgraph.name()).attributeScopes,
+                namedSubgraph.attributeNodes(), subgraphScopes);
+        }
+        Map<String, EntityGraphScope> attributeScopes = new LinkedHashMap<>();
+        addNamedAttributeNodes(attributeScopes, namedEntityGraph.attributeNodes(), subgraphScopes);
+        return new EntityGraphScope(attributeScopes);
+    }
+
+    private static void addNamedAttributeNodes(Map<String, EntityGraphScope> attributeScopes,
+                                               NamedAttributeNode[] namedAttributeNodes,
+                                               Map<String, EntityGraphScope> subgraphScopes) {
+        for (NamedAttributeNode namedAttributeNode : namedAttributeNodes) {
+            EntityGraphScope subgraphScope = subgraphScopes.get(namedAttributeNode.subgraph());
+            if (!namedAttributeNode.subgraph().isEmpty() && subgraphScope == null) {
+                throw new IllegalArgumentException(String.format(
+                    "Subgraph '%s' of attribute node '%s' is not declared", namedAttributeNode.subgraph(),
+                    namedAttributeNode.value()));
+            }
+            attributeScopes.put(namedAttributeNode.value(), subgraphScope == null
+                ? new EntityGraphScope(Collections.emptyMap()) : subgraphScope);
+        }
+    }
+
+    private static List<NamedEntityGraph> findNamedEntityGraphs(Class<?> type) {
+        List<NamedEntityGraph> namedEntityGraphs = new ArrayList<>();
+        NamedEntityGraph namedEntityGraph = type.getAnnotation(NamedEntityGraph.class);
+        if (namedEntityGraph != null) {
+            namedEntityGraphs.add(namedEntityGraph);
+        }
+        NamedEntityGraphs container = type.getAnnotation(NamedEntityGraphs.class);
+        if (container != null) {
+            namedEntityGraphs.addAll(Arrays.asList(container.value()));
+        }
+        return namedEntityGraphs;
+    }
+
+    private static String entityName(Class<?> type) {
+        Entity entity = type.getAnnotation(Entity.class);
+        return entity == null || entity.name().isEmpty() ? type.getSimpleName() : entity.name();
+    }
+}
@@ -16,12 +16,14 @@
 
 package com.mobecker.instancio.jpa.util;
 
-import com.blazebit.reflection.ReflectionUtils;
+import com.mobecker.instancio.jpa.spi.EntityAccessor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import javax.annotation.Nullable;
 import javax.persistence.Column;
 import javax.persistence.JoinColumn;
@@ -30,6 +32,8 @@ import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
 import javax.persistence.metamodel.SingularAttribute;
 
 /**
@@ -41,6 +45,7 @@ import javax.persistence.metamodel.SingularAttribute;
 public final class JpaMetamodelUtil {
 
     private static final Class<Annotation> HIBERNATE_TENANT_ID_ANNOTATION;
+    private static final WeakIdentityMap<Metamodel, Set<Class<?>>> MANAGED_JAVA_TYPES = new WeakIdentityMap<>();
 
     static {
         Class<Annotation> tenantIdAnnotation;
@@ -55,7 +60,8 @@ public final class JpaMetamodelUtil {
     private JpaMetamodelUtil() { }
 
     /**
-     * Resolves the value of {@code attribute} against the {@code entity}.
+     * Resolves the value of {@code attribute} against the {@code entity}. Uses the generated
+     * {@link EntityAccessor} of the entity class if available, see {@link AttributeAccessor}.
      *
      * @param entity JPA entity
      * @param attribute JPA attribute
@@ -64,31 +70,12 @@ public final class JpaMetamodelUtil {
      */
     @Nullable
     public static Object resolveAttributeValue(Object entity, Attribute<?, ?> attribute) {
-        Method getter = ReflectionUtils.getGetter(entity.getClass(), attribute.getName());
-        if (getter == null) {
-            try {
-                Field field = attribute.getDeclaringType().getJavaType().getDeclaredField(attribute.getName());
-                if (!field.isAccessible()) {
-                    field.setAccessible(true);
-                }
-                return field.get(entity);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
-        } else {
-            try {
-                if (!getter.isAccessible()) {
-                    getter.setAccessible(true);
-                }
-                return getter.invoke(entity);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        return new AttributeAccessor(entity.getClass(), attribute).get(entity);
     }
 
     /**
-     * Sets the provided {@code value} for the {@code attribute} on the target {@code entity}.
+     * Sets the provided {@code value} for the {@code attribute} on the target {@code entity}. Uses the generated
+     * {@link EntityAccessor} of the entity class if available, see {@link AttributeAccessor}.
      *
      * @param target the target JPA entity
      * @param attribute the JPA attribute to set
@@ -96,27 +83,7 @@ public final class JpaMetamodelUtil {
      * @since 1.0.0
      */
     public static void setAttributeValue(Object target, Attribute<?, ?> attribute, @Nullable Object value) {
-        Method setter = ReflectionUtils.getSetter(target.getClass(), attribute.getName());
-        if (setter == null) {
-            try {
-                Field field = attribute.getDeclaringType().getJavaType().getDeclaredField(attribute.getName());
-                if (!field.isAccessible()) {
-                    field.setAccessible(true);
-                }
-                field.set(target, value);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
-        } else {
-            try {
-                if (!setter.isAccessible()) {
-                    setter.setAccessible(true);
-                }
-                setter.invoke(target, value);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        new AttributeAccessor(target.getClass(), attribute).set(target, value);
     }
 
     /**
@@ -128,6 +95,11 @@ public final class JpaMetamodelUtil {
      * @since 1.0.0
      */
     public static String resolveMappedBy(Member member) {
+        EntityAccessor accessor = EntityAccessors.get(member.getDeclaringClass());
+        String attributeName = member instanceof Method ? propertyName((Method) member) : member.getName();
+        if (accessor != null && accessor.hasAttribute(attributeName)) {
+            return accessor.getMappedBy(attributeName);
+        }
         if (member instanceof Field) {
             return resolveMappedBy((Field) member);
         } else if (member instanceof Method) {
@@ -163,6 +135,15 @@ public final class JpaMetamodelUtil {
         return manyToMany == null ? null : nullIfEmpty(manyToMany.mappedBy());
     }
 
+    private static String propertyName(Method getter) {
+        String name = getter.getName();
+        int prefixLength = name.startsWith("is") ? 2 : name.startsWith("get") ? 3 : 0;
+        if (prefixLength == 0 || name.length() == prefixLength) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(prefixLength)) + name.substring(prefixLength + 1);
+    }
+
     private static String nullIfEmpty(String s) {
         return s.isEmpty() ? null : s;
     }
@@ -249,8 +230,66 @@ public final class JpaMetamodelUtil {
      * @since 1.1.0
      */
     public static boolean isInsertable(Attribute<?, ?> attribute) {
+        EntityAccessor accessor = EntityAccessors.get(attribute.getDeclaringType().getJavaType());
+        if (accessor != null && accessor.hasAttribute(attribute.getName())) {
+            return accessor.isInsertable(attribute.getName());
+        }
         Column column = getAnnotation(attribute, Column.class);
         JoinColumn joinColumn = getAnnotation(attribute, JoinColumn.class);
         return (column == null || column.insertable()) && (joinColumn == null || joinColumn.insertable());
     }
+
+    /**
+     * Checks if an entity reference is an uninitialized proxy, such as a reference obtained via
+     * {@link javax.persistence.EntityManager#getReference(Class, Object)}. Proxy classes are subclasses of entity
+     * classes that are not part of the JPA metamodel. Proxies refer to existing entities and must neither be
+     * traversed nor modified.
+     *
+     * @param metamodel JPA metamodel
+     * @param reference entity reference
+     * @return true if the class of the reference is not a managed type, else false
+     *
+     * @since 2.1.0
+     */
+    public static boolean isProxy(Metamodel metamodel, Object reference) {
+        return isProxy(getManagedJavaTypes(metamodel), reference);
+    }
+
+    /**
+     * Checks if an entity reference is an uninitialized proxy, see {@link #isProxy(Metamodel, Object)}. Graph
+     * walkers resolve the managed Java types once via {@link #getManagedJavaTypes(Metamodel)} and use this method
+     * for every visited reference.
+     *
+     * @param managedJavaTypes Java types of the managed types of the JPA metamodel
+     * @param reference entity reference
+     * @return true if the class of the reference is not a managed type, else false
+     *
+     * @since 2.1.0
+     */
+    public static boolean isProxy(Set<Class<?>> managedJavaTypes, Object reference) {
+        return !managedJavaTypes.contains(reference.getClass());
+    }
+
+    /**
+     * Returns the Java types of the managed types of the metamodel. The set is computed once per metamodel.
+     *
+     * @param metamodel JPA metamodel
+     * @return an unmodifiable set of the Java types of all managed types
+     *
+     * @since 2.1.0
+     */
+    public static Set<Class<?>> getManagedJavaTypes(Metamodel metamodel) {
+        synchronized (MANAGED_JAVA_TYPES) {
+            Set<Class<?>> managedJavaTypes = MANAGED_JAVA_TYPES.get(metamodel);
+            if (managedJavaTypes == null) {
+                Set<Class<?>> javaTypes = new HashSet<>();
+                for (ManagedType<?> managedType : metamodel.getManagedTypes()) {
+                    javaTypes.add(managedType.getJavaType());
+                }
+                managedJavaTypes = Collections.unmodifiableSet(javaTypes);
+                MANAGED_JAVA_TYPES.put(metamodel, managedJavaTypes);
+            }
+            return managedJavaTypes;
+        }
+    }
 }
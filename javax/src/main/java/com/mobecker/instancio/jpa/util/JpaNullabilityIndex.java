@@ -0,0 +1,176 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.util;
+
+import static com.mobecker.instancio.jpa.util.JpaMetamodelUtil.getAnnotation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Nullability of the singular attributes of all JPA entities, including the attributes inherited from mapped
+ * superclasses and the attributes of embeddables, resolved per concrete entity from the mapping annotations
+ * {@code @Column(nullable)}, {@code @JoinColumn(nullable)}, {@code @Basic(optional)},
+ * {@code @ManyToOne(optional)}, {@code @OneToOne(optional)} and {@code @AttributeOverride}. Unlike the JPA
+ * metamodel, the index is reliable for attributes declared by embeddables and mapped superclasses, see
+ * {@link com.mobecker.instancio.jpa.EntityGraphMinDepthPredictor}.
+ *
+ * <p>Attributes are identified by their path relative to the entity, e.g. {@code address.city} for the
+ * attribute {@code city} of the embedded attribute {@code address}. An embedded attribute is optional if all of
+ * its attributes are optional. Mappings declared in {@code orm.xml} are not taken into account.
+ *
+ * @since 2.1.0
+ */
+public final class JpaNullabilityIndex {
+
+    private static final WeakIdentityMap<Metamodel, JpaNullabilityIndex> INDEXES = new WeakIdentityMap<>();
+
+    private final Map<Class<?>, Map<String, Boolean>> optionalAttributes = new HashMap<>();
+
+    /**
+     * Builds a new {@link JpaNullabilityIndex} for all entities of the given metamodel.
+     *
+     * @param metamodel JPA metamodel
+     */
+    public JpaNullabilityIndex(Metamodel metamodel) {
+        for (EntityType<?> entityType : metamodel.getEntities()) {
+            Map<String, Boolean> entityOptionalAttributes = new HashMap<>();
+            index(metamodel, entityType, "", classAttributeOverrides(entityType.getJavaType()),
+                entityOptionalAttributes);
+            optionalAttributes.put(entityType.getJavaType(), entityOptionalAttributes);
+        }
+    }
+
+    /**
+     * Returns the index for the given metamodel. The index is built once per metamodel.
+     *
+     * @param metamodel JPA metamodel
+     * @return the nullability index
+     */
+    public static JpaNullabilityIndex of(Metamodel metamodel) {
+        synchronized (INDEXES) {
+            JpaNullabilityIndex index = INDEXES.get(metamodel);
+            if (index == null) {
+                index = new JpaNullabilityIndex(metamodel);
+                INDEXES.put(metamodel, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Checks whether an attribute of an entity is optional.
+     *
+     * @param entityClass JPA entity class
+     * @param attributePath path of the singular attribute relative to the entity
+     * @return true if the attribute is optional, false if it is mandatory or {@code null} if the index does not
+     *     contain the attribute
+     */
+    @Nullable
+    public Boolean isOptional(Class<?> entityClass, String attributePath) {
+        Map<String, Boolean> entityOptionalAttributes = optionalAttributes.get(entityClass);
+        return entityOptionalAttributes == null ? null : entityOptionalAttributes.get(attributePath);
+    }
+
+    private static boolean index(Metamodel metamodel, ManagedType<?> managedType, String pathPrefix,
+                                 Map<String, Column> columnOverrides, Map<String, Boolean> result) {
+        boolean allOptional = true;
+        for (Attribute<?, ?> attr : managedType.getAttributes()) {
+            if (!(attr instanceof SingularAttribute<?, ?>)) {
+                continue;
+            }
+            SingularAttribute<?, ?> singularAttr = (SingularAttribute<?, ?>) attr;
+            String path = pathPrefix + attr.getName();
+            boolean optional;
+            switch (attr.getPersistentAttributeType()) {
+                case EMBEDDED:
+                    // Overrides declared further out take precedence
+                    Map<String, Column> nestedColumnOverrides = new HashMap<>(columnOverrides);
+                    for (AttributeOverride override : attributeOverrides(attr)) {
+                        nestedColumnOverrides.putIfAbsent(path + "." + override.name(), override.column());
+                    }
+                    optional = index(metamodel, metamodel.embeddable(attr.getJavaType()), path + ".",
+                        nestedColumnOverrides, result) && !singularAttr.isId();
+                    break;
+                case MANY_TO_ONE:
+                case ONE_TO_ONE:
+                    ManyToOne manyToOne = getAnnotation(attr, ManyToOne.class);
+                    OneToOne oneToOne = getAnnotation(attr, OneToOne.class);
+                    JoinColumn joinColumn = getAnnotation(attr, JoinColumn.class);
+                    optional = !singularAttr.isId()
+                        && (manyToOne == null || manyToOne.optional())
+                        && (oneToOne == null || oneToOne.optional())
+                        && (joinColumn == null || joinColumn.nullable());
+                    break;
+                default:
+                    Column column = columnOverrides.containsKey(path)
+                        ? columnOverrides.get(path) : getAnnotation(attr, Column.class);
+                    Basic basic = getAnnotation(attr, Basic.class);
+                    optional = !singularAttr.isId()
+                        && !attr.getJavaType().isPrimitive()
+                        && (column == null || column.nullable())
+                        && (basic == null || basic.optional());
+                    break;
+            }
+            result.put(path, optional);
+            allOptional &= optional;
+        }
+        return allOptional;
+    }
+
+    private static Map<String, Column> classAttributeOverrides(Class<?> entityClass) {
+        // Overrides declared on subclasses take precedence
+        Map<String, Column> columnOverrides = new HashMap<>();
+        for (Class<?> clazz = entityClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            AttributeOverride override = clazz.getAnnotation(AttributeOverride.class);
+            AttributeOverrides overrides = clazz.getAnnotation(AttributeOverrides.class);
+            if (override != null) {
+                columnOverrides.putIfAbsent(override.name(), override.column());
+            }
+            if (overrides != null) {
+                for (AttributeOverride nestedOverride : overrides.value()) {
+                    columnOverrides.putIfAbsent(nestedOverride.name(), nestedOverride.column());
+                }
+            }
+        }
+        return columnOverrides;
+    }
+
+    private static Iterable<AttributeOverride> attributeOverrides(Attribute<?, ?> attr) {
+        AttributeOverride override = getAnnotation(attr, AttributeOverride.class);
+        AttributeOverrides overrides = getAnnotation(attr, AttributeOverrides.class);
+        if (override != null) {
+            return Collections.singletonList(override);
+        }
+        return overrides == null ? Collections.emptyList() : Arrays.asList(overrides.value());
+    }
+}
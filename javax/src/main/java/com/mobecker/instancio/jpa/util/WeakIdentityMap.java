@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A map that compares keys by identity and only holds weak references to its keys. Entries are removed once their
+ * key has been garbage collected. This allows tracking per-object metadata for JPA entities without relying on
+ * their {@code equals} / {@code hashCode} implementations and without preventing them from being collected.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @since 2.1.0
+ */
+public final class WeakIdentityMap<K, V> {
+
+    private final Map<IdentityWeakReference<K>, V> map = new HashMap<>();
+    private final ReferenceQueue<K> referenceQueue = new ReferenceQueue<>();
+
+    /**
+     * Associates the given value with the given key.
+     *
+     * @param key the key, compared by identity
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        expungeStaleEntries();
+        map.put(new IdentityWeakReference<>(key, referenceQueue), value);
+    }
+
+    /**
+     * Returns the value associated with the given key.
+     *
+     * @param key the key, compared by identity
+     * @return the associated value or {@code null} if there is no mapping for the key
+     */
+    @Nullable
+    public V get(K key) {
+        expungeStaleEntries();
+        return map.get(new IdentityWeakReference<>(key, null));
+    }
+
+    /**
+     * Checks whether a mapping for the given key exists.
+     *
+     * @param key the key, compared by identity
+     * @return true if a mapping exists, else false
+     */
+    public boolean containsKey(K key) {
+        expungeStaleEntries();
+        return map.containsKey(new IdentityWeakReference<>(key, null));
+    }
+
+    /**
+     * Returns the number of live entries in this map.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        expungeStaleEntries();
+        return map.size();
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends K> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            map.remove(reference);
+        }
+    }
+
+    private static final class IdentityWeakReference<T> extends WeakReference<T> {
+
+        private final int hashCode;
+
+        IdentityWeakReference(T referent, @Nullable ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+            this.hashCode = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IdentityWeakReference<?>)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityWeakReference<?>) obj).get();
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mobecker.instancio.jpa.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates an {@code EntityAccessor} implementation for every JPA entity, embeddable and mapped superclass of
+ * the compiled sources, plus the {@link java.util.ServiceLoader} registration that makes them available to
+ * instancio-jpa at runtime. The accessors call getters and setters or access fields directly instead of using
+ * reflection and carry the {@code mappedBy} and insertability information of the mapping annotations. Attributes
+ * that cannot be accessed from the package of the managed class, e.g. private fields without accessors, are left
+ * to the reflective fallback of instancio-jpa.
+ *
+ * <p>Both the {@code javax.persistence} and the {@code jakarta.persistence} annotations are supported.
+ *
+ * @since 2.1.0
+ */
+@SupportedAnnotationTypes({
+    "javax.persistence.Entity", "javax.persistence.Embeddable", "javax.persistence.MappedSuperclass",
+    "jakarta.persistence.Entity", "jakarta.persistence.Embeddable", "jakarta.persistence.MappedSuperclass"
+})
+public class EntityAccessorProcessor extends AbstractProcessor {
+
+    private static final String ACCESSOR_INTERFACE = "com.mobecker.instancio.jpa.spi.EntityAccessor";
+    private static final String ACCESSOR_SUFFIX = "_InstancioJpaAccessor";
+    private static final List<String> PERSISTENCE_PACKAGES =
+        Arrays.asList("javax.persistence.", "jakarta.persistence.");
+
+    private final Set<String> accessorClassNames = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS && isAccessible((TypeElement) element)) {
+                    generateAccessor((TypeElement) element);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !accessorClassNames.isEmpty()) {
+            writeServiceRegistration();
+        }
+        return false;
+    }
+
+    private void generateAccessor(TypeElement managedType) {
+        String packageName = packageOf(managedType).getQualifiedName().toString();
+        String accessorSimpleName = binarySimpleName(managedType) + ACCESSOR_SUFFIX;
+        String accessorClassName = packageName.isEmpty() ? accessorSimpleName : packageName + "." + accessorSimpleName;
+        if (!accessorClassNames.add(accessorClassName)) {
+            return;
+        }
+        List<AttributeModel> attributes = collectAttributes(managedType, packageName);
+        try {
+            JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(accessorClassName, managedType);
+            try (Writer writer = sourceFile.openWriter()) {
+                writer.write(renderAccessor(managedType, packageName, accessorSimpleName, attributes));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Cannot generate entity accessor: " + e.getMessage(), managedType);
+        }
+    }
+
+    private List<AttributeModel> collectAttributes(TypeElement managedType, String packageName) {
+        Map<String, AttributeModel> attributes = new LinkedHashMap<>();
+        // Persistent attributes are declared by the managed type and its entity and mapped superclass ancestors
+        for (TypeElement current = managedType; current != null; current = superclassOf(current)) {
+            if (current != managedType && !hasPersistenceAnnotation(current, "Entity")
+                && !hasPersistenceAnnotation(current, "MappedSuperclass")) {
+                break;
+            }
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!field.getModifiers().contains(Modifier.STATIC)
+                    && !field.getModifiers().contains(Modifier.TRANSIENT)
+                    && !hasPersistenceAnnotation(field, "Transient")) {
+                    attributes.computeIfAbsent(field.getSimpleName().toString(), AttributeModel::new)
+                        .mappingElements.add(field);
+                }
+            }
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                String propertyName = propertyName(method);
+                if (propertyName != null && !method.getModifiers().contains(Modifier.STATIC)
+                    && hasAnyPersistenceAnnotation(method) && !hasPersistenceAnnotation(method, "Transient")) {
+                    attributes.computeIfAbsent(propertyName, AttributeModel::new).mappingElements.add(method);
+                }
+            }
+        }
+
+        List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(managedType);
+        for (AttributeModel attribute : attributes.values()) {
+            String capitalizedName = Character.toUpperCase(attribute.name.charAt(0)) + attribute.name.substring(1);
+            VariableElement field = attribute.mappingElements.stream()
+                .filter(element -> element.getKind() == ElementKind.FIELD)
+                .map(VariableElement.class::cast)
+                .findFirst()
+                .orElse(null);
+            for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+                if (method.getModifiers().contains(Modifier.STATIC) || !isAccessibleFrom(method, packageName)) {
+                    continue;
+                }
+                String methodName = method.getSimpleName().toString();
+                if (method.getParameters().isEmpty() && (methodName.equals("get" + capitalizedName)
+                    || methodName.equals("is" + capitalizedName)
+                    && method.getReturnType().getKind() == TypeKind.BOOLEAN)) {
+                    attribute.readExpression = "typed." + methodName + "()";
+                } else if (method.getParameters().size() == 1 && methodName.equals("set" + capitalizedName)) {
+                    attribute.writeStatement = "typed." + methodName + "(("
+                        + castType(method.getParameters().get(0).asType()) + ") value)";
+                }
+            }
+            if (field != null && isAccessibleFrom(field, packageName)) {
+                if (attribute.readExpression == null) {
+                    attribute.readExpression = "typed." + attribute.name;
+                }
+                if (attribute.writeStatement == null && !field.getModifiers().contains(Modifier.FINAL)) {
+                    attribute.writeStatement = "typed." + attribute.name + " = (" + castType(field.asType())
+                        + ") value";
+                }
+            }
+            for (Element mappingElement : attribute.mappingElements) {
+                for (String annotationName : Arrays.asList("OneToOne", "OneToMany", "ManyToMany")) {
+                    Object mappedBy = annotationValue(mappingElement, annotationName, "mappedBy");
+                    if (mappedBy != null && !mappedBy.toString().isEmpty()) {
+                        attribute.mappedBy = mappedBy.toString();
+                    }
+                }
+                for (String annotationName : Arrays.asList("Column", "JoinColumn")) {
+                    if (Boolean.FALSE.equals(annotationValue(mappingElement, annotationName, "insertable"))) {
+                        attribute.insertable = false;
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(attributes.values());
+    }
+
+    private String renderAccessor(TypeElement managedType, String packageName, String accessorSimpleName,
+                                  List<AttributeModel> attributes) {
+        final String managedTypeName = processingEnv.getTypeUtils().erasure(managedType.asType()).toString();
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("/**\n * Generated by instancio-jpa-processor.\n */\n")
+            .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+            .append("public final class ").append(accessorSimpleName).append(" implements ")
+            .append(ACCESSOR_INTERFACE).append(" {\n\n");
+        appendNameSet(sb, "ATTRIBUTES", attributes.stream().map(attr -> attr.name));
+        appendNameSet(sb, "READABLE_ATTRIBUTES",
+            attributes.stream().filter(attr -> attr.readExpression != null).map(attr -> attr.name));
+        appendNameSet(sb, "WRITABLE_ATTRIBUTES",
+            attributes.stream().filter(attr -> attr.writeStatement != null).map(attr -> attr.name));
+        appendNameSet(sb, "NON_INSERTABLE_ATTRIBUTES",
+            attributes.stream().filter(attr -> !attr.insertable).map(attr -> attr.name));
+
+        sb.append("\n    @Override\n    public Class<?> getManagedClass() {\n        return ")
+            .append(managedTypeName).append(".class;\n    }\n\n");
+        sb.append("    @Override\n    public boolean hasAttribute(String attributeName) {\n")
+            .append("        return ATTRIBUTES.contains(attributeName);\n    }\n\n");
+        sb.append("    @Override\n    public boolean isReadable(String attributeName) {\n")
+            .append("        return READABLE_ATTRIBUTES.contains(attributeName);\n    }\n\n");
+        sb.append("    @Override\n    public boolean isWritable(String attributeName) {\n")
+            .append("        return WRITABLE_ATTRIBUTES.contains(attributeName);\n    }\n\n");
+
+        sb.append("    @Override\n    public Object getValue(Object instance, String attributeName) {\n")
+            .append("        ").append(managedTypeName).append(" typed = (").append(managedTypeName)
+            .append(") instance;\n        switch (attributeName) {\n");
+        for (AttributeModel attribute : attributes) {
+            if (attribute.readExpression != null) {
+                sb.append("            case \"").append(attribute.name).append("\":\n                return ")
+                    .append(attribute.readExpression).append(";\n");
+            }
+        }
+        sb.append("            default:\n                throw new IllegalArgumentException(\"Attribute '\" + ")
+            .append("attributeName + \"' is not readable\");\n        }\n    }\n\n");
+
+        sb.append("    @Override\n    public void setValue(Object instance, String attributeName, Object value) {\n")
+            .append("        ").append(managedTypeName).append(" typed = (").append(managedTypeName)
+            .append(") instance;\n        switch (attributeName) {\n");
+        for (AttributeModel attribute : attributes) {
+            if (attribute.writeStatement != null) {
+                sb.append("            case \"").append(attribute.name).append("\":\n                ")
+                    .append(attribute.writeStatement).append(";\n                return;\n");
+            }
+        }
+        sb.append("            default:\n                throw new IllegalArgumentException(\"Attribute '\" + ")
+            .append("attributeName + \"' is not writable\");\n        }\n    }\n\n");
+
+        sb.append("    @Override\n    public String getMappedBy(String attributeName) {\n")
+            .append("        switch (attributeName) {\n");
+        for (AttributeModel attribute : attributes) {
+            if (attribute.mappedBy != null) {
+                sb.append("            case \"").append(attribute.name).append("\":\n                return \"")
+                    .append(escape(attribute.mappedBy)).append("\";\n");
+            }
+        }
+        sb.append("            default:\n                return null;\n        }\n    }\n\n");
+
+        sb.append("    @Override\n    public boolean isInsertable(String attributeName) {\n")
+            .append("        return !NON_INSERTABLE_ATTRIBUTES.contains(attributeName);\n    }\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendNameSet(StringBuilder sb, String constantName, java.util.stream.Stream<String> names) {
+        sb.append("    private static final java.util.Set<String> ").append(constantName)
+            .append(" = new java.util.HashSet<>(java.util.Arrays.asList(")
+            .append(names.map(name -> "\"" + name + "\"").collect(Collectors.joining(", ")))
+            .append("));\n");
+    }
+
+    private void writeServiceRegistration() {
+        try {
+            FileObject serviceFile = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + ACCESSOR_INTERFACE);
+            try (Writer writer = serviceFile.openWriter()) {
+                for (String accessorClassName : accessorClassNames) {
+                    writer.write(accessorClassName);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Cannot register entity accessors: " + e.getMessage());
+        }
+    }
+
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static boolean isAccessible(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        } else if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
+            return true;
+        }
+        return type.getNestingKind() == NestingKind.MEMBER && type.getModifiers().contains(Modifier.STATIC)
+            && isAccessible((TypeElement) type.getEnclosingElement());
+    }
+
+    private static boolean isAccessibleFrom(Element member, String packageName) {
+        if (member.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        } else if (member.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return packageOf(member).getQualifiedName().contentEquals(packageName);
+    }
+
+    private static PackageElement packageOf(Element element) {
+        Element current = element;
+        while (current.getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return (PackageElement) current;
+    }
+
+    private static String binarySimpleName(TypeElement type) {
+        if (type.getNestingKind() == NestingKind.MEMBER) {
+            return binarySimpleName((TypeElement) type.getEnclosingElement()) + "_" + type.getSimpleName();
+        }
+        return type.getSimpleName().toString();
+    }
+
+    private static TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+    }
+
+    private static String propertyName(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        int prefixLength = name.startsWith("get") ? 3 : name.startsWith("is") ? 2 : 0;
+        if (prefixLength == 0 || name.length() == prefixLength || !method.getParameters().isEmpty()) {
+            return null;
+        }
+        return Character.toLowerCase(name.charAt(prefixLength)) + name.substring(prefixLength + 1);
+    }
+
+    private static boolean hasAnyPersistenceAnnotation(Element element) {
+        return element.getAnnotationMirrors().stream()
+            .map(mirror -> ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString())
+            .anyMatch(name -> PERSISTENCE_PACKAGES.stream().anyMatch(name::startsWith));
+    }
+
+    private static boolean hasPersistenceAnnotation(Element element, String simpleName) {
+        return findPersistenceAnnotation(element, simpleName) != null;
+    }
+
+    private static AnnotationMirror findPersistenceAnnotation(Element element, String simpleName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            String name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            for (String persistencePackage : PERSISTENCE_PACKAGES) {
+                if (name.equals(persistencePackage + simpleName)) {
+                    return mirror;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object annotationValue(Element element, String annotationSimpleName, String attributeName) {
+        AnnotationMirror mirror = findPersistenceAnnotation(element, annotationSimpleName);
+        if (mirror == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+            : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attributeName)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static final class AttributeModel {
+        private final String name;
+        private final List<Element> mappingElements = new ArrayList<>();
+        private String readExpression;
+        private String writeStatement;
+        private String mappedBy;
+        private boolean insertable = true;
+
+        private AttributeModel(String name) {
+            this.name = name;
+        }
+    }
+}
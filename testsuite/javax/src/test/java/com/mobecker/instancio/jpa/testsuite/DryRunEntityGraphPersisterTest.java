@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.mobecker.instancio.jpa.DryRunEntityGraphPersister;
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import com.mobecker.instancio.jpa.InsertPlan;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class DryRunEntityGraphPersisterTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("DryRunEntityGraphPersisterTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void insertPlan() {
+        // Given
+        DryRunCustomer customer = new DryRunCustomer();
+        DryRunTag tag = new DryRunTag();
+        List<DryRunOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            DryRunOrder order = new DryRunOrder();
+            order.setCustomer(customer);
+            order.getTags().add(tag);
+            order.getLabels().add("a");
+            order.getLabels().add("b");
+            for (int j = 0; j < 3; j++) {
+                DryRunOrderLine line = new DryRunOrderLine();
+                line.setOrder(order);
+                order.getLines().add(line);
+            }
+            orders.add(order);
+        }
+        DryRunEntityGraphPersister dryRun = new DryRunEntityGraphPersister(emf.getMetamodel(), 4);
+
+        // When
+        orders.forEach(dryRun::persist);
+        InsertPlan insertPlan = dryRun.getInsertPlan();
+
+        // Then
+        assertThat(insertPlan.getDependencyLevels()).hasSize(3);
+        assertThat(insertPlan.getDependencyLevels().get(0)).containsExactlyInAnyOrder(
+            DryRunCustomer.class, DryRunTag.class);
+        assertThat(insertPlan.getDependencyLevels().get(1)).containsExactly(DryRunOrder.class);
+        assertThat(insertPlan.getDependencyLevels().get(2)).containsExactly(DryRunOrderLine.class);
+        assertThat(insertPlan.getRowCounts()).containsOnly(
+            entry(DryRunCustomer.class, 1L),
+            entry(DryRunTag.class, 1L),
+            entry(DryRunOrder.class, 2L),
+            entry(DryRunOrderLine.class, 6L));
+        assertThat(insertPlan.getCollectionRowCounts()).containsOnly(
+            entry(DryRunOrder.class.getName() + "#labels", 4L),
+            entry(DryRunOrder.class.getName() + "#tags", 2L));
+        assertThat(insertPlan.getTotalRowCount()).isEqualTo(16);
+        assertThat(insertPlan.getBatchCounts()).containsEntry(DryRunOrderLine.class, 2L);
+        assertThat(insertPlan.getTotalBatchCount()).isEqualTo(7);
+        // Long ids and foreign keys take 8 bytes, strings their column length
+        assertThat(insertPlan.getEstimatedBytes()).containsOnly(
+            entry(DryRunCustomer.class, 8L + 50),
+            entry(DryRunTag.class, 8L + 10),
+            entry(DryRunOrder.class, 2 * (8L + 8)),
+            entry(DryRunOrderLine.class, 6 * (8L + 8 + 4)));
+        assertThat(insertPlan.getCollectionEstimatedBytes()).containsOnly(
+            entry(DryRunOrder.class.getName() + "#labels", 4 * (8L + 20)),
+            entry(DryRunOrder.class.getName() + "#tags", 2 * (8L + 8)));
+    }
+
+    @Test
+    void insertPlanMatchesPersistedRows() {
+        // Given
+        List<DryRunOrder> orders = Instancio.ofList(jpaModel(DryRunOrder.class, emf.getMetamodel()).build())
+            .size(10)
+            .create();
+        DryRunEntityGraphPersister dryRun = new DryRunEntityGraphPersister(emf.getMetamodel(), 50);
+        orders.forEach(dryRun::persist);
+        InsertPlan insertPlan = dryRun.getInsertPlan();
+
+        // When
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            EntityGraphPersister persister = new EntityGraphPersister(em);
+            orders.forEach(persister::persist);
+            em.flush();
+
+            // Then
+            for (Map.Entry<Class<?>, Long> rowCount : insertPlan.getRowCounts().entrySet()) {
+                assertThat(em.createQuery("select count(e) from " + rowCount.getKey().getName() + " e", Long.class)
+                    .getSingleResult()).isEqualTo(rowCount.getValue());
+            }
+            em.getTransaction().rollback();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class DryRunCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @Column(length = 50)
+        private String name;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class DryRunOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private DryRunCustomer customer;
+        @OneToMany(mappedBy = "order")
+        private List<DryRunOrderLine> lines = new ArrayList<>();
+        @ManyToMany
+        private Set<DryRunTag> tags = new HashSet<>();
+        @ElementCollection
+        @Column(length = 20)
+        private Set<String> labels = new HashSet<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class DryRunOrderLine {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne
+        private DryRunOrder order;
+        private int quantity;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class DryRunTag {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @Column(length = 10)
+        private String label;
+    }
+}
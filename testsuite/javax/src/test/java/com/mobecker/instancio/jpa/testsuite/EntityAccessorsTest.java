@@ -0,0 +1,164 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.spi.EntityAccessor;
+import com.mobecker.instancio.jpa.util.EntityAccessors;
+import com.mobecker.instancio.jpa.util.JpaMetamodelUtil;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import javax.persistence.metamodel.ManagedType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityAccessorsTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityAccessorsTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void generatedAccessor() {
+        // When
+        EntityAccessor accessor = EntityAccessors.get(AccessorOrder.class);
+
+        // Then
+        assertThat(accessor).isNotNull();
+        assertThat(accessor.getManagedClass()).isEqualTo(AccessorOrder.class);
+        assertThat(accessor.hasAttribute("id")).isTrue();
+        assertThat(accessor.hasAttribute("note")).isTrue();
+        assertThat(accessor.hasAttribute("computed")).isFalse();
+        assertThat(accessor.isReadable("number")).isTrue();
+        assertThat(accessor.isWritable("number")).isTrue();
+        assertThat(accessor.isReadable("note")).isFalse();
+        assertThat(accessor.isWritable("note")).isFalse();
+        assertThat(accessor.getMappedBy("lines")).isEqualTo("order");
+        assertThat(accessor.getMappedBy("status")).isNull();
+        assertThat(accessor.isInsertable("status")).isFalse();
+        assertThat(accessor.isInsertable("number")).isTrue();
+    }
+
+    @Test
+    void readAndWriteViaGeneratedAccessor() {
+        // Given
+        EntityAccessor accessor = EntityAccessors.get(AccessorOrder.class);
+        AccessorOrder order = new AccessorOrder();
+        List<AccessorOrderLine> lines = new ArrayList<>();
+
+        // When
+        accessor.setValue(order, "id", 1L);
+        accessor.setValue(order, "number", "A-1");
+        accessor.setValue(order, "lines", lines);
+
+        // Then
+        assertThat(order.getId()).isEqualTo(1L);
+        assertThat(order.number).isEqualTo("A-1");
+        assertThat(order.getLines()).isSameAs(lines);
+        assertThat(accessor.getValue(order, "id")).isEqualTo(1L);
+        assertThat(accessor.getValue(order, "number")).isEqualTo("A-1");
+    }
+
+    @Test
+    void jpaMetamodelUtilFallsBackToReflection() {
+        // Given
+        ManagedType<AccessorOrder> managedType = emf.getMetamodel().managedType(AccessorOrder.class);
+        AccessorOrder order = new AccessorOrder();
+
+        // When
+        JpaMetamodelUtil.setAttributeValue(order, managedType.getAttribute("number"), "A-1");
+        JpaMetamodelUtil.setAttributeValue(order, managedType.getAttribute("note"), "fragile");
+
+        // Then
+        assertThat(JpaMetamodelUtil.resolveAttributeValue(order, managedType.getAttribute("number")))
+            .isEqualTo("A-1");
+        assertThat(JpaMetamodelUtil.resolveAttributeValue(order, managedType.getAttribute("note")))
+            .isEqualTo("fragile");
+        assertThat(JpaMetamodelUtil.isInsertable(managedType.getAttribute("status"))).isFalse();
+        assertThat(JpaMetamodelUtil.isInsertable(managedType.getAttribute("note"))).isTrue();
+    }
+
+    @MappedSuperclass
+    static class AccessorBase {
+        @Id
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    @Entity
+    static class AccessorOrder extends AccessorBase {
+        String number;
+        @Column(insertable = false)
+        private String status;
+        // Neither getter nor setter, accessed via reflection
+        private String note;
+        @OneToMany(mappedBy = "order")
+        private List<AccessorOrderLine> lines = new ArrayList<>();
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public List<AccessorOrderLine> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<AccessorOrderLine> lines) {
+            this.lines = lines;
+        }
+
+        public String getComputed() {
+            return number + status;
+        }
+    }
+
+    @Entity
+    static class AccessorOrderLine {
+        @Id
+        private Long id;
+        @ManyToOne
+        private AccessorOrder order;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.EntityGraphCompleter;
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityGraphCompleterTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityGraphCompleterTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void completeShallowGraph() {
+        // Given
+        CompletedInvoice invoice = Instancio.create(jpaModel(CompletedInvoice.class, emf.getMetamodel())
+            .withMaxDepth(1)
+            .withEntityGraphCompleter(EntityGraphCompleter.generating(emf.getMetamodel()))
+            .build());
+
+        // Then
+        assertThat(invoice.getAccount()).isNotNull();
+        assertThat(invoice.getAccount().getName()).isNotNull();
+        assertThat(invoice.getAccount().getBank()).isNotNull();
+        assertThat(invoice.getAccount().getBank().getBic()).isNotNull();
+        persist(invoice);
+    }
+
+    @Test
+    void completeFromPool() {
+        // Given
+        CompletedBank bank = new CompletedBank();
+        bank.setId(-1L);
+        bank.setBic("POOLBIC");
+        persist(bank);
+        CompletedAccount account = new CompletedAccount();
+        account.setId(-2L);
+        account.setName("account");
+        CompletedInvoice invoice = new CompletedInvoice();
+        invoice.setId(-3L);
+        invoice.setAccount(account);
+        EntityGraphCompleter completer = new EntityGraphCompleter(emf.getMetamodel(),
+            type -> type == CompletedBank.class ? bank : null);
+
+        // When
+        completer.complete(invoice);
+
+        // Then
+        assertThat(invoice.getAccount()).isSameAs(account);
+        assertThat(account.getBank()).isSameAs(bank);
+    }
+
+    @Test
+    void leaveReferenceIfSupplierReturnsNull() {
+        // Given
+        CompletedInvoice invoice = new CompletedInvoice();
+
+        // When
+        new EntityGraphCompleter(emf.getMetamodel(), type -> null).complete(invoice);
+
+        // Then
+        assertThat(invoice.getAccount()).isNull();
+    }
+
+    private static void persist(Object entity) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            new EntityGraphPersister(em).persist(entity);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CompletedInvoice {
+        @Id
+        private Long id;
+        @ManyToOne(optional = false)
+        private CompletedAccount account;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CompletedAccount {
+        @Id
+        private Long id;
+        @Column(nullable = false)
+        private String name;
+        @ManyToOne(optional = false)
+        private CompletedBank bank;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CompletedBank {
+        @Id
+        private Long id;
+        @Column(nullable = false)
+        private String bic;
+    }
+}
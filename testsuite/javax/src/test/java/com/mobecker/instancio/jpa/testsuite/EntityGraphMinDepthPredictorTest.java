@@ -124,6 +124,45 @@ class EntityGraphMinDepthPredictorTest {
         assertThat(predictedMaxDepth).isEqualTo(1);
     }
 
+    @Test
+    void embeddable_optionalReference() {
+        // When
+        int predictedMaxDepth = entityGraphMinDepthPredictor.predictRequiredDepth(EmbeddableParent6.class);
+
+        // Then
+        assertThat(predictedMaxDepth).isEqualTo(2);
+    }
+
+    @Test
+    void association_optionalManyToOne() {
+        // When
+        int predictedDepth = entityGraphMinDepthPredictor.predictRequiredDepth(
+            emf.getMetamodel().entity(OrderItemWithOptionalOrder.class).getAttribute("order"));
+
+        // Then
+        assertThat(predictedDepth).isEqualTo(2);
+    }
+
+    @Test
+    void association_oneToManyIgnoresBackReference() {
+        // When
+        int predictedDepth = entityGraphMinDepthPredictor.predictRequiredDepth(
+            emf.getMetamodel().entity(Order.class).getAttribute("orderItems"));
+
+        // Then
+        assertThat(predictedDepth).isEqualTo(3);
+    }
+
+    @Test
+    void association_basic() {
+        // When
+        int predictedDepth = entityGraphMinDepthPredictor.predictRequiredDepth(
+            emf.getMetamodel().entity(Order.class).getAttribute("id"));
+
+        // Then
+        assertThat(predictedDepth).isEqualTo(0);
+    }
+
     @Entity
     @Getter
     @Setter
@@ -234,4 +273,24 @@ class EntityGraphMinDepthPredictorTest {
         @AttributeOverride(name = "nested.name", column = @Column(nullable = true))
         private EmbeddableWithNestedEmbeddableWithMandatoryComponent embeddable;
     }
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class EmbeddableWithOptionalReference {
+        @Column(nullable = false)
+        private String name;
+        @ManyToOne
+        private OrderItem orderItem;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class EmbeddableParent6 {
+        @Id
+        private Long id;
+        @Embedded
+        private EmbeddableWithOptionalReference embeddable;
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.EntityGraphPartitioner;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityGraphPartitionerTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityGraphPartitionerTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void partitionBySharedManyToOne() {
+        // Given
+        PartitionCustomer customer1 = new PartitionCustomer();
+        PartitionCustomer customer2 = new PartitionCustomer();
+        PartitionOrder order1 = order(customer1);
+        PartitionOrder order2 = order(customer2);
+        PartitionOrder order3 = order(customer1);
+        PartitionOrder order4 = order(null);
+
+        // When
+        List<List<Object>> partitions = new EntityGraphPartitioner(emf.getMetamodel())
+            .partition(Arrays.asList(order1, order2, order3, order4));
+
+        // Then
+        assertThat(partitions).containsExactly(
+            Arrays.asList(order1, order3),
+            Arrays.asList(order2),
+            Arrays.asList(order4)
+        );
+    }
+
+    @Test
+    void partitionByCollectionElement() {
+        // Given
+        PartitionCustomer customer = new PartitionCustomer();
+        PartitionOrder order1 = new PartitionOrder();
+        PartitionOrder order2 = order(new PartitionCustomer());
+        customer.getOrders().add(order1);
+
+        // When
+        List<List<Object>> partitions = new EntityGraphPartitioner(emf.getMetamodel())
+            .partition(Arrays.asList(order1, order2, customer, order1));
+
+        // Then
+        assertThat(partitions).containsExactly(
+            Arrays.asList(order1, customer),
+            Arrays.asList(order2)
+        );
+    }
+
+    private static PartitionOrder order(PartitionCustomer customer) {
+        PartitionOrder order = new PartitionOrder();
+        order.setCustomer(customer);
+        return order;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PartitionCustomer {
+        @Id
+        private Long id;
+        @OneToMany(mappedBy = "customer")
+        private Set<PartitionOrder> orders = new HashSet<>(0);
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PartitionOrder {
+        @Id
+        private Long id;
+        @ManyToOne
+        private PartitionCustomer customer;
+    }
+}
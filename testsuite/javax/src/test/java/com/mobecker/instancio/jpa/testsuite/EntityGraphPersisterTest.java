@@ -22,6 +22,7 @@ import static org.instancio.Select.fields;
 import com.mobecker.instancio.jpa.EntityGraphPersister;
 import com.mobecker.instancio.jpa.setting.JpaKeys;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import javax.persistence.AttributeOverride;
@@ -162,6 +163,32 @@ class EntityGraphPersisterTest {
         assertThat(actual.getOrder().getId()).isEqualTo(persistedOrder.getId());
     }
 
+    @Test
+    void streamingPersist() {
+        // Given
+        Customer customer = Instancio.of(jpaModel(Customer.class, emf.getMetamodel()).build()).create();
+        List<CustomerOrder> orders = Instancio.ofList(jpaModel(CustomerOrder.class, emf.getMetamodel()).build())
+            .size(5)
+            .create();
+        orders.forEach(order -> order.setCustomer(customer));
+        EntityGraphPersister streamingPersister = new EntityGraphPersister(entityManager, 2);
+
+        // When
+        doInTransaction(() -> {
+            orders.forEach(streamingPersister::persist);
+            assertThat(entityManager.contains(orders.get(0))).isFalse();
+            assertThat(entityManager.contains(orders.get(4))).isTrue();
+        });
+
+        // Then
+        Long orderCount = doInTransaction(() -> entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + CustomerOrder.class.getName() + " o WHERE o.customer.id = :customerId",
+                Long.class)
+            .setParameter("customerId", customer.getId())
+            .getSingleResult());
+        assertThat(orderCount).isEqualTo(5);
+    }
+
     private <V> V doInTransaction(Callable<V> callable) {
         EntityTransaction tx = null;
         try {
@@ -312,4 +339,25 @@ class EntityGraphPersisterTest {
             }
         }
     }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Customer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CustomerOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private Customer customer;
+    }
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityGraphScopeTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityGraphScopeTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void namedEntityGraph() {
+        // When
+        List<ScopedOrder> orders = Instancio.ofList(jpaModel(ScopedOrder.class, emf.getMetamodel())
+            .withEntityGraph("ScopedOrder.lines")
+            .build()).size(20).create();
+
+        // Then
+        assertThat(orders).allSatisfy(order -> {
+            // Mandatory references are generated, but nothing beyond their mandatory attributes
+            assertThat(order.getCustomer()).isNotNull();
+            assertThat(order.getCustomer().getAddress()).isNull();
+            assertThat(order.getShippingAddress()).isNull();
+            assertThat(order.getTags()).isEmpty();
+            assertThat(order.getAttributes()).isEmpty();
+            assertThat(order.getLines()).isNotEmpty().allSatisfy(line -> {
+                assertThat(line.getOrder()).isSameAs(order);
+                assertThat(line.getProduct()).isNotNull();
+                assertThat(line.getShippingAddress()).isNull();
+            });
+        });
+        persist(orders);
+    }
+
+    @Test
+    void entityGraph() {
+        // Given
+        EntityManager em = emf.createEntityManager();
+        EntityGraph<ScopedOrder> entityGraph;
+        try {
+            entityGraph = em.createEntityGraph(ScopedOrder.class);
+            entityGraph.addAttributeNodes("shippingAddress", "tags");
+            entityGraph.addSubgraph("customer").addAttributeNodes("address");
+        } finally {
+            em.close();
+        }
+
+        // When
+        List<ScopedOrder> orders = Instancio.ofList(jpaModel(ScopedOrder.class, emf.getMetamodel())
+            .withEntityGraph(entityGraph)
+            .build()).size(20).create();
+
+        // Then
+        assertThat(orders).allSatisfy(order -> {
+            assertThat(order.getShippingAddress()).isNotNull();
+            assertThat(order.getCustomer().getAddress()).isNotNull();
+            assertThat(order.getTags()).isNotEmpty();
+            assertThat(order.getLines()).isEmpty();
+            assertThat(order.getAttributes()).isEmpty();
+        });
+        persist(orders);
+    }
+
+    @Test
+    void inheritedAndOverriddenOptionality() {
+        // Given
+        EntityManager em = emf.createEntityManager();
+        EntityGraph<ScopedInvoice> entityGraph;
+        try {
+            entityGraph = em.createEntityGraph(ScopedInvoice.class);
+        } finally {
+            em.close();
+        }
+
+        // When
+        List<ScopedInvoice> invoices = Instancio.ofList(jpaModel(ScopedInvoice.class, emf.getMetamodel())
+            .withEntityGraph(entityGraph)
+            .build()).size(20).create();
+
+        // Then
+        assertThat(invoices).allSatisfy(invoice -> {
+            // Optional reference declared on the mapped superclass
+            assertThat(invoice.getBillingAddress()).isNull();
+            // Optional by the metamodel, but mandatory by its join column
+            assertThat(invoice.getCustomer()).isNotNull();
+        });
+        persist(invoices);
+    }
+
+    @Test
+    void unknownNamedEntityGraph() {
+        assertThatThrownBy(() -> jpaModel(ScopedOrder.class, emf.getMetamodel()).withEntityGraph("unknown"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("unknown");
+    }
+
+    private static void persist(List<?> orders) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            EntityGraphPersister persister = new EntityGraphPersister(em);
+            orders.forEach(persister::persist);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    @NamedEntityGraph(
+        name = "ScopedOrder.lines",
+        attributeNodes = @NamedAttributeNode(value = "lines", subgraph = "lines"),
+        subgraphs = @NamedSubgraph(name = "lines", attributeNodes = @NamedAttributeNode("product"))
+    )
+    public static class ScopedOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private ScopedCustomer customer;
+        @ManyToOne
+        private ScopedAddress shippingAddress;
+        @OneToMany(mappedBy = "order")
+        private List<ScopedOrderLine> lines = new ArrayList<>();
+        @ManyToMany
+        private Set<ScopedTag> tags = new HashSet<>();
+        @ElementCollection
+        private Map<String, String> attributes = new HashMap<>();
+    }
+
+    @MappedSuperclass
+    @Getter
+    @Setter
+    public static class ScopedDocument {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne
+        private ScopedAddress billingAddress;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ScopedInvoice extends ScopedDocument {
+        @ManyToOne
+        @JoinColumn(nullable = false)
+        private ScopedCustomer customer;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ScopedOrderLine {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne
+        private ScopedOrder order;
+        @ManyToOne
+        private ScopedProduct product;
+        @ManyToOne
+        private ScopedAddress shippingAddress;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ScopedProduct {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ScopedCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+        @ManyToOne
+        private ScopedAddress address;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ScopedAddress {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String city;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ScopedTag {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String label;
+    }
+}
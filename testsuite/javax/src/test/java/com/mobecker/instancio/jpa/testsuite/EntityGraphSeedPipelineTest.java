@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.EntityGraphSeedPipeline;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityGraphSeedPipelineTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityGraphSeedPipelineTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void run() {
+        // Given
+        Model<PipelineOrderItem> model = jpaModel(PipelineOrderItem.class, emf.getMetamodel()).build();
+        EntityGraphSeedPipeline pipeline = EntityGraphSeedPipeline.pipeline(emf, () -> Instancio.create(model))
+            .withGeneratorThreads(3)
+            .withWriterThreads(2)
+            .withQueueCapacity(4)
+            .withBatchSize(7)
+            .withVirtualThreads(true)
+            .build();
+        long itemCountBefore = countItems();
+
+        // When
+        long persisted = pipeline.run(50);
+
+        // Then
+        assertThat(persisted).isEqualTo(50);
+        assertThat(countItems() - itemCountBefore).isEqualTo(50);
+    }
+
+    @Test
+    void runPropagatesGeneratorFailure() {
+        // Given
+        IllegalStateException generatorFailure = new IllegalStateException("generator failure");
+        EntityGraphSeedPipeline pipeline = EntityGraphSeedPipeline.pipeline(emf, () -> {
+            throw generatorFailure;
+        }).build();
+
+        // When / Then
+        assertThatThrownBy(() -> pipeline.run(10)).isSameAs(generatorFailure);
+    }
+
+    private static long countItems() {
+        EntityManager entityManager = emf.createEntityManager();
+        try {
+            return entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + PipelineOrderItem.class.getName() + " i", Long.class).getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PipelineOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String description;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PipelineOrderItem {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private PipelineOrder order;
+    }
+}
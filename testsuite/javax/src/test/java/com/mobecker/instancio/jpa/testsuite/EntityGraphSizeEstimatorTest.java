@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.mobecker.instancio.jpa.EntityGraphSizeEstimator;
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.settings.Keys;
+import org.instancio.settings.Settings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityGraphSizeEstimatorTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityGraphSizeEstimatorTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void estimateNodeCounts() {
+        // Given
+        Settings settings = Settings.create()
+            .set(JpaKeys.USE_JPA_NULLABILITY, false)
+            .set(JpaKeys.LIMIT_ASSOCIATION_DEPTH, false)
+            .set(Keys.COLLECTION_MIN_SIZE, 2)
+            .set(Keys.COLLECTION_MAX_SIZE, 4);
+
+        // When
+        Map<Class<?>, Double> nodeCounts = new EntityGraphSizeEstimator(emf.getMetamodel())
+            .estimateNodeCounts(EstimatedOrder.class, 2, settings);
+
+        // Then
+        assertThat(nodeCounts).containsOnlyKeys(EstimatedOrder.class, EstimatedOrderItem.class,
+            EstimatedCustomer.class);
+        assertThat(nodeCounts.get(EstimatedOrder.class)).isEqualTo(1);
+        assertThat(nodeCounts.get(EstimatedCustomer.class)).isEqualTo(1);
+        assertThat(nodeCounts.get(EstimatedOrderItem.class)).isEqualTo(3);
+    }
+
+    @Test
+    void estimateNodeCountsWithAssociationDepthLimit() {
+        // Given
+        Settings settings = Settings.create().set(JpaKeys.USE_JPA_NULLABILITY, false);
+
+        // When
+        Map<Class<?>, Double> nodeCounts = new EntityGraphSizeEstimator(emf.getMetamodel())
+            .estimateNodeCounts(EstimatedOrder.class, 2, settings);
+
+        // Then
+        assertThat(nodeCounts).containsOnlyKeys(EstimatedOrder.class, EstimatedCustomer.class);
+    }
+
+    @Test
+    void estimateNodeCountsForMinimalGraph() {
+        // Given
+        Settings settings = Settings.create().set(JpaKeys.MINIMAL_GRAPH, true);
+
+        // When
+        double totalNodeCount = new EntityGraphSizeEstimator(emf.getMetamodel())
+            .estimateTotalNodeCount(EstimatedOrderItem.class, 3, settings);
+
+        // Then
+        assertThat(totalNodeCount).isEqualTo(2);
+    }
+
+    @Test
+    void estimateNodeCountsBeyondCollectionDepth() {
+        // Given
+        Settings settings = Settings.create().set(JpaKeys.LIMIT_ASSOCIATION_DEPTH, false);
+
+        // When
+        Map<Class<?>, Double> nodeCounts = new EntityGraphSizeEstimator(emf.getMetamodel())
+            .estimateNodeCounts(EstimatedOrder.class, 1, settings);
+
+        // Then
+        assertThat(nodeCounts).containsOnlyKeys(EstimatedOrder.class, EstimatedCustomer.class);
+        assertThat(nodeCounts.get(EstimatedCustomer.class)).isCloseTo(5.0 / 6, within(1e-9));
+    }
+
+    @Test
+    void estimateNodeCountsWithCollectionSizes() {
+        // Given
+        Settings settings = Settings.create()
+            .set(JpaKeys.COLLECTION_SIZES, EstimatedOrder.class.getName() + "#items:10")
+            .set(JpaKeys.POPULATION_PROBABILITIES, EstimatedOrder.class.getName() + "#customer:0");
+
+        // When
+        double totalNodeCount = new EntityGraphSizeEstimator(emf.getMetamodel())
+            .estimateTotalNodeCount(EstimatedOrder.class, 3, settings);
+
+        // Then
+        assertThat(totalNodeCount).isEqualTo(11);
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class EstimatedOrder {
+        @Id
+        private Long id;
+        @OneToMany(mappedBy = "order")
+        private List<EstimatedOrderItem> items = new ArrayList<>(0);
+        @ManyToOne
+        private EstimatedCustomer customer;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class EstimatedOrderItem {
+        @Id
+        private Long id;
+        @ManyToOne(optional = false)
+        private EstimatedOrder order;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class EstimatedCustomer {
+        @Id
+        private Long id;
+        private String name;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import com.mobecker.instancio.jpa.EntityGraphTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityGraphTemplateTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityGraphTemplateTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void copy() {
+        // Given
+        TemplateOrder templateOrder = createTemplateOrder();
+        EntityGraphTemplate<TemplateOrder> template = EntityGraphTemplate.template(templateOrder, emf.getMetamodel())
+            .build();
+
+        // When
+        List<TemplateOrder> copies = template.copies(10);
+
+        // Then
+        assertThat(copies).allSatisfy(copy -> {
+            assertThat(copy).isNotSameAs(templateOrder);
+            assertThat(copy.getDescription()).isEqualTo(templateOrder.getDescription());
+            assertThat(copy.getCustomer()).isNotSameAs(templateOrder.getCustomer());
+            assertThat(copy.getCustomer().getName()).isEqualTo(templateOrder.getCustomer().getName());
+            assertThat(copy.getLines()).hasSize(2).allSatisfy(line -> {
+                assertThat(line.getOrder()).isSameAs(copy);
+                assertThat(line.getProduct().getId()).isNull();
+            });
+            // Entities shared within the template are shared within the copy
+            assertThat(copy.getLines().get(0).getProduct()).isSameAs(copy.getLines().get(1).getProduct())
+                .isNotSameAs(templateOrder.getLines().get(0).getProduct());
+        });
+        List<TemplateOrder> allOrders = new ArrayList<>(copies);
+        allOrders.add(templateOrder);
+        assertThat(allOrders.stream().map(TemplateOrder::getId)).doesNotHaveDuplicates();
+        assertThat(allOrders.stream().map(TemplateOrder::getOrderNumber)).doesNotHaveDuplicates();
+        assertThat(allOrders.stream().flatMap(order -> order.getLines().stream()).map(TemplateOrderLine::getId))
+            .doesNotHaveDuplicates();
+        assertThat(allOrders.stream().map(order -> order.getCustomer().getEmail())).doesNotHaveDuplicates();
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            EntityGraphPersister persister = new EntityGraphPersister(em);
+            allOrders.forEach(persister::persist);
+            em.getTransaction().commit();
+            assertThat(em.createQuery("select count(o) from " + TemplateOrder.class.getName() + " o", Long.class)
+                .getSingleResult()).isEqualTo(11);
+            assertThat(em.createQuery("select count(p) from " + TemplateProduct.class.getName() + " p", Long.class)
+                .getSingleResult()).isEqualTo(11);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void withVariedAttribute() {
+        // Given
+        AtomicInteger counter = new AtomicInteger();
+        EntityGraphTemplate<TemplateOrder> template = EntityGraphTemplate.template(
+                createTemplateOrder(), emf.getMetamodel())
+            .withVariedAttribute(TemplateOrder.class, "description", () -> "Order " + counter.incrementAndGet())
+            .build();
+
+        // When
+        List<TemplateOrder> copies = template.copies(3);
+
+        // Then
+        assertThat(copies.stream().map(TemplateOrder::getDescription).collect(Collectors.toList()))
+            .containsExactly("Order 1", "Order 2", "Order 3");
+    }
+
+    @Test
+    void uniqueAttributeWithUnsupportedType() {
+        // Given
+        TemplateTag tag = Instancio.create(jpaModel(TemplateTag.class, emf.getMetamodel()).build());
+
+        // When / Then
+        assertThatThrownBy(() -> EntityGraphTemplate.template(tag, emf.getMetamodel()).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("TemplateTag#id");
+        assertThat(EntityGraphTemplate.template(tag, emf.getMetamodel())
+            .withVariedAttribute(TemplateTag.class, "id", UUID::randomUUID)
+            .build()
+            .copy()
+            .getId()).isNotNull().isNotEqualTo(tag.getId());
+    }
+
+    @Test
+    void sharedReferenceIds() {
+        // Given
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (long id = 1001; id <= 1003; id++) {
+                TemplateCustomer customer = new TemplateCustomer();
+                customer.setId(id);
+                customer.setName("Customer " + id);
+                customer.setEmail("customer" + id + "@example.com");
+                em.persist(customer);
+            }
+            em.getTransaction().commit();
+            em.clear();
+            TemplateOrder templateOrder = Instancio.create(jpaModel(TemplateOrder.class, emf.getMetamodel())
+                .withReferenceIds(TemplateCustomer.class, 1001, 1003, em)
+                .build());
+
+            // When
+            List<TemplateOrder> copies = EntityGraphTemplate.template(templateOrder, emf.getMetamodel())
+                .build()
+                .copies(3);
+
+            // Then
+            assertThat(emf.getPersistenceUnitUtil().isLoaded(templateOrder.getCustomer())).isFalse();
+            assertThat(copies).allSatisfy(copy -> {
+                assertThat(copy).isNotSameAs(templateOrder);
+                assertThat(copy.getCustomer()).isSameAs(templateOrder.getCustomer());
+            });
+        } finally {
+            em.close();
+        }
+    }
+
+    private static TemplateOrder createTemplateOrder() {
+        TemplateOrder templateOrder = Instancio.create(jpaModel(TemplateOrder.class, emf.getMetamodel())
+            .withMaxDepth(3)
+            .withCollectionSize(TemplateOrder.class, "lines", 2, 2)
+            .build());
+        templateOrder.getLines().get(1).setProduct(templateOrder.getLines().get(0).getProduct());
+        // Collides with the first sequence value, which must be skipped
+        templateOrder.setOrderNumber("1");
+        templateOrder.getCustomer().setEmail("1");
+        return templateOrder;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class TemplateOrder {
+        @Id
+        private Long id;
+        @Column(unique = true)
+        private String orderNumber;
+        private String description;
+        @ManyToOne(optional = false)
+        private TemplateCustomer customer;
+        @OneToMany(mappedBy = "order")
+        private List<TemplateOrderLine> lines = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class TemplateOrderLine {
+        @Id
+        private Long id;
+        @ManyToOne
+        private TemplateOrder order;
+        @ManyToOne(optional = false)
+        private TemplateProduct product;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class TemplateProduct {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class TemplateCustomer {
+        @Id
+        private Long id;
+        private String name;
+        @Column(unique = true)
+        private String email;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class TemplateTag {
+        @Id
+        private UUID id;
+    }
+}
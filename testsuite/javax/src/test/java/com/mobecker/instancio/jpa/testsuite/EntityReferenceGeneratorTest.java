@@ -0,0 +1,200 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class EntityReferenceGeneratorTest {
+
+    private static EntityManagerFactory emf;
+    private static List<Long> storeIds;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("EntityReferenceGeneratorTestPu");
+        storeIds = new ArrayList<>();
+        inTransaction(em -> {
+            ReferencedRegion region = new ReferencedRegion();
+            region.setName("region");
+            em.persist(region);
+            for (int i = 0; i < 5; i++) {
+                ReferencedStore store = new ReferencedStore();
+                store.setName("store" + i);
+                store.setRegion(region);
+                em.persist(store);
+                storeIds.add(store.getId());
+            }
+        });
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void referenceIdRange() {
+        // Given
+        long minId = storeIds.get(1);
+        long maxId = storeIds.get(3);
+        long regionCount = count(ReferencedRegion.class);
+        long storeCount = count(ReferencedStore.class);
+        List<ReferencingSale> sales = new ArrayList<>();
+
+        // When
+        inTransaction(em -> {
+            Model<ReferencingSale> saleModel = jpaModel(ReferencingSale.class, emf.getMetamodel())
+                .withReferenceIds(ReferencedStore.class, minId, maxId, em)
+                .build();
+            sales.addAll(Instancio.ofList(saleModel).size(50).create());
+            EntityGraphPersister persister = new EntityGraphPersister(em);
+            sales.forEach(persister::persist);
+            // Then
+            assertThat(sales).allSatisfy(sale -> {
+                assertThat(emf.getPersistenceUnitUtil().isLoaded(sale.getStore())).isFalse();
+                assertThat(sale.getStore().getId()).isBetween(minId, maxId);
+            });
+        });
+
+        // Then
+        assertThat(count(ReferencedRegion.class)).isEqualTo(regionCount);
+        assertThat(count(ReferencedStore.class)).isEqualTo(storeCount);
+        EntityManager em = emf.createEntityManager();
+        try {
+            assertThat(sales).allSatisfy(sale -> assertThat(
+                em.find(ReferencingSale.class, sale.getId()).getStore().getId()).isBetween(minId, maxId));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void referenceIdList() {
+        // Given
+        List<Long> ids = Arrays.asList(storeIds.get(0), storeIds.get(4));
+        long storeCount = count(ReferencedStore.class);
+
+        // When
+        inTransaction(em -> {
+            List<ReferencingSale> sales = Instancio.ofList(jpaModel(ReferencingSale.class, emf.getMetamodel())
+                    .withReferenceIds(ReferencedStore.class, ids, em)
+                    .build())
+                .size(20)
+                .create();
+            EntityGraphPersister persister = new EntityGraphPersister(em);
+            sales.forEach(persister::persist);
+
+            // Then
+            assertThat(sales).allSatisfy(sale -> assertThat(sale.getStore().getId()).isIn(ids));
+        });
+        assertThat(count(ReferencedStore.class)).isEqualTo(storeCount);
+    }
+
+    @Test
+    void invalidIdRange() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            assertThatThrownBy(() -> jpaModel(ReferencingSale.class, emf.getMetamodel())
+                .withReferenceIds(ReferencedStore.class, 10, 1, em))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> jpaModel(ReferencingSale.class, emf.getMetamodel())
+                .withReferenceIds(ReferencedStore.class, new ArrayList<>(), em))
+                .isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long count(Class<?> entityClass) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(e) from " + entityClass.getName() + " e", Long.class)
+                .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void inTransaction(Consumer<EntityManager> action) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            action.accept(em);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ReferencedRegion {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ReferencedStore {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+        @ManyToOne(optional = false)
+        private ReferencedRegion region;
+        @OneToMany(mappedBy = "store")
+        private List<ReferencingSale> sales = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ReferencingSale {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private int quantity;
+        @ManyToOne(optional = false)
+        private ReferencedStore store;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.HibernateStatelessEntityGraphPersister;
+import java.util.List;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class HibernateStatelessEntityGraphPersisterTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("HibernateStatelessEntityGraphPersisterTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void isAvailable() {
+        assertThat(HibernateStatelessEntityGraphPersister.isAvailable()).isTrue();
+    }
+
+    @Test
+    void persistAll() {
+        // Given
+        List<StatelessOrderItem> items = Instancio.ofList(
+                jpaModel(StatelessOrderItem.class, emf.getMetamodel()).build())
+            .size(10)
+            .create();
+        StatelessOrder sharedOrder = items.get(0).getOrder();
+        items.subList(0, 5).forEach(item -> item.setOrder(sharedOrder));
+        HibernateStatelessEntityGraphPersister persister = new HibernateStatelessEntityGraphPersister(emf, 5);
+
+        // When
+        persister.persistAll(items);
+
+        // Then
+        EntityManager entityManager = emf.createEntityManager();
+        try {
+            Long itemCount = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + StatelessOrderItem.class.getName() + " i", Long.class).getSingleResult();
+            Long orderCount = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + StatelessOrder.class.getName() + " o", Long.class).getSingleResult();
+            assertThat(itemCount).isEqualTo(10);
+            assertThat(orderCount).isEqualTo(6);
+            assertThat(entityManager.find(StatelessOrderItem.class, items.get(4).getId()).getOrder().getId())
+                .isEqualTo(sharedOrder.getId());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    void retryAfterFailure() {
+        // Given
+        List<StatelessCartItem> items = Instancio.ofList(
+                jpaModel(StatelessCartItem.class, emf.getMetamodel()).build())
+            .size(5)
+            .create();
+        HibernateStatelessEntityGraphPersister persister = new HibernateStatelessEntityGraphPersister(emf, 5);
+        Iterable<StatelessCartItem> failingRoots = () -> items.stream()
+            .peek(item -> {
+                if (item == items.get(3)) {
+                    throw new IllegalStateException("failure");
+                }
+            })
+            .iterator();
+        assertThatThrownBy(() -> persister.persistAll(failingRoots)).isInstanceOf(IllegalStateException.class);
+
+        // When
+        persister.persistAll(items);
+
+        // Then
+        EntityManager entityManager = emf.createEntityManager();
+        try {
+            Long itemCount = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + StatelessCartItem.class.getName() + " i", Long.class).getSingleResult();
+            Long cartCount = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + StatelessCart.class.getName() + " c", Long.class).getSingleResult();
+            assertThat(itemCount).isEqualTo(5);
+            assertThat(cartCount).isEqualTo(5);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class StatelessOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String description;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class StatelessOrderItem {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private StatelessOrder order;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class StatelessCart {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String description;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class StatelessCartItem {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private StatelessCart cart;
+    }
+}
@@ -19,10 +19,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.mobecker.instancio.jpa.setting.JpaKeys;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
 import javax.persistence.Persistence;
 import lombok.Getter;
 import lombok.Setter;
@@ -138,15 +142,64 @@ class InstancioJpaServiceProviderTest {
             .withSettings(Settings.from(baseSettings)
                 .set(Keys.STRING_MIN_LENGTH, OrderWithColumnLength.COLUMN_LENGTH + 1))
             .toModel());
-        OrderWithColumnLength orderWithoutGeneratorProviders = Instancio.create(Instancio.of(OrderWithColumnLength.class)
-            .withSettings(Settings.from(baseSettings)
-                .set(Keys.STRING_MIN_LENGTH, OrderWithColumnLength.COLUMN_LENGTH + 1)
-                .set(JpaKeys.ENABLE_GENERATOR_PROVIDERS, false))
-            .toModel());
+        OrderWithColumnLength orderWithoutGeneratorProviders = Instancio.create(
+            Instancio.of(OrderWithColumnLength.class)
+                .withSettings(Settings.from(baseSettings)
+                    .set(Keys.STRING_MIN_LENGTH, OrderWithColumnLength.COLUMN_LENGTH + 1)
+                    .set(JpaKeys.ENABLE_GENERATOR_PROVIDERS, false))
+                .toModel());
         assertThat(orderWithGeneratorProviders.getName()).hasSizeLessThanOrEqualTo(OrderWithColumnLength.COLUMN_LENGTH);
         assertThat(orderWithoutGeneratorProviders.getName()).hasSizeGreaterThan(OrderWithColumnLength.COLUMN_LENGTH);
     }
 
+    @Test
+    void maxNodes() {
+        // Given
+        Settings settings = JpaKeys.defaults(emf.getMetamodel())
+            .set(JpaKeys.MAX_NODES, 5)
+            .set(Keys.COLLECTION_MIN_SIZE, 10)
+            .set(Keys.COLLECTION_MAX_SIZE, 10);
+
+        // When
+        List<OrderWithItems> orders = Stream.generate(() -> Instancio.of(OrderWithItems.class)
+                .withSettings(settings)
+                .create())
+            .limit(2)
+            .collect(Collectors.toList());
+
+        // Then
+        assertThat(orders).allSatisfy(order -> {
+            assertThat(order.getItems()).doesNotContainNull();
+            assertThat(1 + order.getItems().size() + (order.getOwner() == null ? 0 : 1)).isEqualTo(5);
+        });
+    }
+
+    @Test
+    void maxNodesPerRoot() {
+        // Given
+        Settings settings = JpaKeys.defaults(emf.getMetamodel())
+            .set(JpaKeys.MAX_NODES, 5)
+            .set(Keys.COLLECTION_MIN_SIZE, 10)
+            .set(Keys.COLLECTION_MAX_SIZE, 10);
+
+        // When
+        List<OrderWithItems> listedOrders = Instancio.ofList(OrderWithItems.class)
+            .size(3)
+            .withSettings(settings)
+            .create();
+        List<OrderWithItems> streamedOrders = Instancio.of(OrderWithItems.class)
+            .withSettings(settings)
+            .stream()
+            .limit(3)
+            .collect(Collectors.toList());
+
+        // Then
+        assertThat(listedOrders).hasSize(3).allSatisfy(order ->
+            assertThat(1 + order.getItems().size() + (order.getOwner() == null ? 0 : 1)).isEqualTo(5));
+        assertThat(streamedOrders).hasSize(3).allSatisfy(order ->
+            assertThat(1 + order.getItems().size() + (order.getOwner() == null ? 0 : 1)).isEqualTo(5));
+    }
+
     @Entity
     @Getter
     @Setter
@@ -192,4 +245,32 @@ class InstancioJpaServiceProviderTest {
         @Column(length = COLUMN_LENGTH)
         private String name;
     }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class OrderWithItems {
+        @Id
+        private Long id;
+        @OneToMany
+        private List<OrderItem> items;
+        @ManyToOne
+        private OrderOwner owner;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class OrderItem {
+        @Id
+        private Long id;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class OrderOwner {
+        @Id
+        private Long id;
+    }
 }
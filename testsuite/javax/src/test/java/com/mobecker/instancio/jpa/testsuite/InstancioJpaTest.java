@@ -18,15 +18,22 @@ package com.mobecker.instancio.jpa.testsuite;
 import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.mobecker.instancio.jpa.InstancioJpa;
 import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import javax.persistence.Entity;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Id;
+import javax.persistence.ManyToOne;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.OneToMany;
 import javax.persistence.Persistence;
 import lombok.Getter;
 import lombok.Setter;
@@ -78,6 +85,16 @@ class InstancioJpaTest {
         assertThat(orderSet).doesNotContainNull().hasSize(2);
     }
 
+    @Test
+    void warmUp() {
+        // When
+        CompletableFuture<Void> warmUp = InstancioJpa.warmUp(emf.getMetamodel());
+
+        // Then
+        assertThat(warmUp).succeedsWithin(Duration.ofSeconds(30));
+        assertThat(InstancioJpa.warmUp(emf.getMetamodel())).isSameAs(warmUp);
+    }
+
     @Test
     void onComplete_single() {
         // When
@@ -110,6 +127,135 @@ class InstancioJpaTest {
         assertThatNoException().isThrownBy(() -> Instancio.create(orderModel));
     }
 
+    @Test
+    void withCollectionSize() {
+        // Given
+        Model<Customer> customerModel = jpaModel(Customer.class, emf.getMetamodel())
+            .withMaxDepth(2)
+            .withCollectionSize(Customer.class, "purchases", 2, 3)
+            .build();
+
+        // When
+        List<Customer> customers = Instancio.ofList(customerModel).size(20).create();
+
+        // Then
+        assertThat(customers).allSatisfy(customer -> assertThat(customer.getPurchases()).hasSizeBetween(2, 3));
+    }
+
+    @Test
+    void collectionSizesSetting() {
+        // Given
+        Model<Customer> customerModel = jpaModel(Customer.class, emf.getMetamodel())
+            .withMaxDepth(2)
+            .withSettings(Settings.create().set(JpaKeys.COLLECTION_SIZES, Customer.class.getName() + "#purchases:4"))
+            .build();
+
+        // When
+        List<Customer> customers = Instancio.ofList(customerModel).size(20).create();
+
+        // Then
+        assertThat(customers).allSatisfy(customer -> assertThat(customer.getPurchases()).hasSize(4));
+    }
+
+    @Test
+    void withPopulationProbability() {
+        // Given
+        Model<Customer> neverPopulated = jpaModel(Customer.class, emf.getMetamodel())
+            .withPopulationProbability(Customer.class, "voucher", 0)
+            .build();
+        Model<Customer> alwaysPopulated = jpaModel(Customer.class, emf.getMetamodel())
+            .withSettings(Settings.create()
+                .set(JpaKeys.POPULATION_PROBABILITIES, Customer.class.getName() + "#voucher:1"))
+            .build();
+
+        // When
+        List<Customer> customersWithoutVoucher = Instancio.ofList(neverPopulated).size(20).create();
+        List<Customer> customersWithVoucher = Instancio.ofList(alwaysPopulated).size(20).create();
+
+        // Then
+        assertThat(customersWithoutVoucher).allSatisfy(customer -> assertThat(customer.getVoucher()).isNull());
+        assertThat(customersWithVoucher).allSatisfy(customer -> assertThat(customer.getVoucher()).isNotNull());
+    }
+
+    @Test
+    void withPopulationProbabilityForCollection() {
+        // Given
+        InstancioJpa.Builder<Customer> builder = jpaModel(Customer.class, emf.getMetamodel())
+            .withPopulationProbability(Customer.class, "purchases", 0.5);
+
+        // When / Then
+        assertThatThrownBy(builder::build).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void limitAssociationDepth() {
+        // Given
+        Model<Shipment> shipmentModel = jpaModel(Shipment.class, emf.getMetamodel())
+            .withSettings(Settings.create().set(JpaKeys.USE_JPA_NULLABILITY, false))
+            .build();
+
+        // When
+        List<Shipment> shipments = Instancio.ofList(shipmentModel).size(5).create();
+
+        // Then
+        assertThat(shipments).allSatisfy(shipment -> {
+            assertThat(shipment.getDepot().getRegion()).isNotNull();
+            assertThat(shipment.getRegion()).isNotNull();
+            assertThat(shipment.getRegions()).isNotEmpty();
+            assertThat(shipment.getCarrier()).isNull();
+            assertThat(shipment.getCarriers()).isNotNull().isEmpty();
+        });
+    }
+
+    @Test
+    void limitAssociationDepth_profiledAttributeIsNotLimited() {
+        // Given
+        Model<Shipment> shipmentModel = jpaModel(Shipment.class, emf.getMetamodel())
+            .withMaxDepth(5)
+            .withSettings(Settings.create().set(JpaKeys.USE_JPA_NULLABILITY, false))
+            .withCollectionSize(Shipment.class, "carriers", 1, 1)
+            .build();
+
+        // When
+        Shipment shipment = Instancio.create(shipmentModel);
+
+        // Then
+        assertThat(shipment.getCarriers()).hasSize(1);
+    }
+
+    @Test
+    void minimalGraph() {
+        // Given
+        Model<Shipment> shipmentModel = jpaModel(Shipment.class, emf.getMetamodel())
+            .withSettings(Settings.create().set(JpaKeys.MINIMAL_GRAPH, true))
+            .withCollectionSize(Shipment.class, "regions", 1, 1)
+            .build();
+
+        // When
+        List<Shipment> shipments = Instancio.ofList(shipmentModel).size(5).create();
+
+        // Then
+        assertThat(shipments).allSatisfy(shipment -> {
+            assertThat(shipment.getDepot().getRegion()).isNotNull();
+            assertThat(shipment.getRegions()).hasSize(1);
+            assertThat(shipment.getRegion()).isNull();
+            assertThat(shipment.getCarrier()).isNull();
+            assertThat(shipment.getCarriers()).isNull();
+        });
+    }
+
+    @Test
+    void minimalGraph_optionalBasicAttribute() {
+        // When
+        Voucher voucher = Instancio.create(jpaModel(Voucher.class, emf.getMetamodel())
+            .withSettings(Settings.create().set(JpaKeys.MINIMAL_GRAPH, true))
+            .build());
+
+        // Then
+        assertThat(voucher.getId()).isNotNull();
+        assertThat(voucher.getCode()).isNull();
+    }
+
     @MappedSuperclass
     @Getter
     @Setter
@@ -124,4 +270,81 @@ class InstancioJpaTest {
         @Id
         private Long id;
     }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Customer {
+        @Id
+        private Long id;
+        @OneToMany(mappedBy = "customer")
+        private List<Purchase> purchases = new ArrayList<>(0);
+        @ManyToOne
+        private Voucher voucher;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Purchase {
+        @Id
+        private Long id;
+        @ManyToOne
+        private Customer customer;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Voucher {
+        @Id
+        private Long id;
+        private String code;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Shipment {
+        @Id
+        private Long id;
+        @ManyToOne(optional = false)
+        private Depot depot;
+        @ManyToOne
+        private Carrier carrier;
+        @ManyToOne
+        private Region region;
+        @OneToMany
+        private List<Carrier> carriers = new ArrayList<>(0);
+        @OneToMany
+        private List<Region> regions = new ArrayList<>(0);
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Carrier {
+        @Id
+        private Long id;
+        @ManyToOne(optional = false)
+        private Depot depot;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Depot {
+        @Id
+        private Long id;
+        @ManyToOne(optional = false)
+        private Region region;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class Region {
+        @Id
+        private Long id;
+    }
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.DryRunEntityGraphPersister;
+import com.mobecker.instancio.jpa.InsertPlan;
+import com.mobecker.instancio.jpa.JdbcEntityGraphWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.MapKeyColumn;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderColumn;
+import javax.persistence.Persistence;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Version;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class JdbcEntityGraphWriterTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:dbname;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("JdbcEntityGraphWriterTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void writeAll() throws SQLException {
+        // Given
+        JdbcCustomer customer = new JdbcCustomer();
+        customer.setName("customer");
+        customer.setStatus(JdbcStatus.ACTIVE);
+        customer.setAddress(new JdbcAddress());
+        customer.getAddress().setCity("city");
+        customer.getAddress().setZip("12345");
+        JdbcTag tag = new JdbcTag();
+        tag.setCode("tag-" + System.nanoTime());
+        List<JdbcOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            JdbcOrder order = new JdbcOrder();
+            order.setCustomer(customer);
+            order.setPriority(JdbcStatus.INACTIVE);
+            order.setCreatedAt(new Date(1_000_000L * i));
+            order.getTags().add(tag);
+            order.getLabels().add("a");
+            order.getLabels().add("b");
+            order.getNotes().add("first");
+            order.getNotes().add("second");
+            order.getQuantities().put("item", i);
+            for (int j = 0; j < 3; j++) {
+                JdbcOrderLine line = new JdbcOrderLine();
+                line.setOrder(order);
+                line.setQuantity(j);
+                order.getLines().add(line);
+            }
+            for (int j = 0; j < 2; j++) {
+                JdbcShipment shipment = new JdbcShipment();
+                shipment.setTrackingNumber("tracking-" + i + "-" + j);
+                order.getShipments().add(shipment);
+            }
+            orders.add(order);
+        }
+
+        DryRunEntityGraphPersister dryRun = new DryRunEntityGraphPersister(emf.getMetamodel(), 2);
+        orders.forEach(dryRun::persist);
+        long shipmentsBefore = countShipments();
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            new JdbcEntityGraphWriter(connection, emf.getMetamodel(), 2).writeAll(orders);
+        }
+
+        // Then
+        // The shipments of an order are written by updating their join column
+        assertThat(countShipments() - shipmentsBefore).isEqualTo(10)
+            .isEqualTo(dryRun.getInsertPlan().getCollectionRowCounts().get(JdbcOrder.class.getName() + "#shipments"));
+        EntityManager em = emf.createEntityManager();
+        try {
+            assertThat(customer.getId()).isNotNull();
+            JdbcCustomer readCustomer = em.find(JdbcCustomer.class, customer.getId());
+            assertThat(readCustomer.getName()).isEqualTo("customer");
+            assertThat(readCustomer.getStatus()).isEqualTo(JdbcStatus.ACTIVE);
+            assertThat(readCustomer.getAddress().getCity()).isEqualTo("city");
+            assertThat(readCustomer.getAddress().getZip()).isEqualTo("12345");
+            assertThat(readCustomer.getVersion()).isEqualTo(0L);
+            for (int i = 0; i < orders.size(); i++) {
+                JdbcOrder readOrder = em.find(JdbcOrder.class, orders.get(i).getId());
+                assertThat(readOrder.getCustomer().getId()).isEqualTo(customer.getId());
+                assertThat(readOrder.getPriority()).isEqualTo(JdbcStatus.INACTIVE);
+                assertThat(readOrder.getCreatedAt().getTime()).isEqualTo(1_000_000L * i);
+                assertThat(readOrder.getTags()).extracting(JdbcTag::getCode).containsExactly(tag.getCode());
+                assertThat(readOrder.getLabels()).containsExactlyInAnyOrder("a", "b");
+                assertThat(readOrder.getNotes()).containsExactly("first", "second");
+                assertThat(readOrder.getQuantities()).containsOnlyKeys("item").containsValue(i);
+                assertThat(readOrder.getLines()).extracting(JdbcOrderLine::getQuantity)
+                    .containsExactlyInAnyOrder(0, 1, 2);
+                assertThat(readOrder.getShipments()).extracting(JdbcShipment::getTrackingNumber)
+                    .containsExactly("tracking-" + i + "-0", "tracking-" + i + "-1");
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void writeAllMatchesInsertPlan() throws SQLException {
+        // Given
+        List<JdbcOrder> orders = Instancio.ofList(jpaModel(JdbcOrder.class, emf.getMetamodel()).build())
+            .size(20)
+            .create();
+        DryRunEntityGraphPersister dryRun = new DryRunEntityGraphPersister(emf.getMetamodel(), 1);
+        orders.forEach(dryRun::persist);
+        InsertPlan insertPlan = dryRun.getInsertPlan();
+        Map<Class<?>, Long> countsBefore = countRows(insertPlan.getRowCounts().keySet());
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            connection.setAutoCommit(false);
+            new JdbcEntityGraphWriter(connection, emf.getMetamodel(), 7).writeAll(orders);
+            connection.commit();
+        }
+
+        // Then
+        Map<Class<?>, Long> countsAfter = countRows(insertPlan.getRowCounts().keySet());
+        for (Map.Entry<Class<?>, Long> rowCount : insertPlan.getRowCounts().entrySet()) {
+            assertThat(countsAfter.get(rowCount.getKey()) - countsBefore.get(rowCount.getKey()))
+                .isEqualTo(rowCount.getValue());
+        }
+    }
+
+    @Test
+    void rowsPerStatementMustBePositive() {
+        assertThatThrownBy(() -> new JdbcEntityGraphWriter(null, emf.getMetamodel(), 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<Class<?>, Long> countRows(Set<Class<?>> entityClasses) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Map<Class<?>, Long> counts = new HashMap<>();
+            for (Class<?> entityClass : entityClasses) {
+                counts.put(entityClass, em.createQuery(
+                    "select count(e) from " + entityClass.getName() + " e", Long.class).getSingleResult());
+            }
+            return counts;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long countShipments() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(s) from " + JdbcOrder.class.getName() + " o join o.shipments s",
+                Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    public enum JdbcStatus {
+        ACTIVE, INACTIVE
+    }
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class JdbcAddress {
+        private String city;
+        @Column(name = "zip_code")
+        private String zip;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class JdbcCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @Version
+        private long version;
+        private String name;
+        @Enumerated(EnumType.STRING)
+        private JdbcStatus status;
+        @Embedded
+        private JdbcAddress address;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class JdbcOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private JdbcCustomer customer;
+        private JdbcStatus priority;
+        @Temporal(TemporalType.TIMESTAMP)
+        private Date createdAt;
+        @OneToMany(mappedBy = "order")
+        private List<JdbcOrderLine> lines = new ArrayList<>();
+        @ManyToMany
+        private Set<JdbcTag> tags = new HashSet<>();
+        @ElementCollection
+        private Set<String> labels = new HashSet<>();
+        @ElementCollection
+        @OrderColumn
+        private List<String> notes = new ArrayList<>();
+        @ElementCollection
+        @MapKeyColumn(name = "item")
+        private Map<String, Integer> quantities = new HashMap<>();
+        @OneToMany
+        @JoinColumn(name = "shipment_order_id")
+        @OrderColumn(name = "shipment_index")
+        private List<JdbcShipment> shipments = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class JdbcOrderLine {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne
+        private JdbcOrder order;
+        private int quantity;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class JdbcShipment {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String trackingNumber;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class JdbcTag {
+        @Id
+        private String code;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.util.JpaNullabilityIndex;
+import javax.persistence.AttributeOverride;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class JpaNullabilityIndexTest {
+
+    private static EntityManagerFactory emf;
+    private static JpaNullabilityIndex nullabilityIndex;
+
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("JpaNullabilityIndexTestPu");
+        nullabilityIndex = JpaNullabilityIndex.of(emf.getMetamodel());
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void sameIndexPerMetamodel() {
+        assertThat(JpaNullabilityIndex.of(emf.getMetamodel())).isSameAs(nullabilityIndex);
+    }
+
+    @Test
+    void mappedSuperclassAttribute() {
+        assertThat(nullabilityIndex.isOptional(InheritingEntity.class, "code")).isTrue();
+        assertThat(nullabilityIndex.isOptional(InheritingEntity.class, "id")).isFalse();
+    }
+
+    @Test
+    void mappedSuperclassAttributeOverride() {
+        assertThat(nullabilityIndex.isOptional(OverridingEntity.class, "code")).isFalse();
+    }
+
+    @Test
+    void embeddableAttribute() {
+        assertThat(nullabilityIndex.isOptional(EmbeddingEntity.class, "address.city")).isTrue();
+        assertThat(nullabilityIndex.isOptional(EmbeddingEntity.class, "address.zip")).isFalse();
+        assertThat(nullabilityIndex.isOptional(EmbeddingEntity.class, "address")).isFalse();
+    }
+
+    @Test
+    void embeddableAttributeOverride() {
+        assertThat(nullabilityIndex.isOptional(OverridingEmbeddingEntity.class, "address.zip")).isTrue();
+        assertThat(nullabilityIndex.isOptional(OverridingEmbeddingEntity.class, "address")).isTrue();
+    }
+
+    @Test
+    void references() {
+        assertThat(nullabilityIndex.isOptional(ReferencingEntity.class, "optionalReference")).isTrue();
+        assertThat(nullabilityIndex.isOptional(ReferencingEntity.class, "mandatoryReference")).isFalse();
+        assertThat(nullabilityIndex.isOptional(ReferencingEntity.class, "mandatoryJoinColumn")).isFalse();
+        assertThat(nullabilityIndex.isOptional(ReferencingEntity.class, "mandatoryBasic")).isFalse();
+    }
+
+    @Test
+    void unknownAttribute() {
+        assertThat(nullabilityIndex.isOptional(ReferencingEntity.class, "unknown")).isNull();
+        assertThat(nullabilityIndex.isOptional(NullabilityAddress.class, "zip")).isNull();
+    }
+
+    @MappedSuperclass
+    @Getter
+    @Setter
+    public static class NullabilityBase {
+        @Id
+        private Long id;
+        private String code;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    @AttributeOverride(name = "code", column = @Column(nullable = false))
+    public static class OverridingEntity extends NullabilityBase {
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class InheritingEntity extends NullabilityBase {
+    }
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class NullabilityAddress {
+        private String city;
+        @Column(nullable = false)
+        private String zip;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class EmbeddingEntity {
+        @Id
+        private Long id;
+        @Embedded
+        private NullabilityAddress address;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class OverridingEmbeddingEntity {
+        @Id
+        private Long id;
+        @Embedded
+        @AttributeOverride(name = "zip", column = @Column(name = "zip", nullable = true))
+        private NullabilityAddress address;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ReferencingEntity {
+        @Id
+        private Long id;
+        @ManyToOne
+        private InheritingEntity optionalReference;
+        @ManyToOne(optional = false)
+        private InheritingEntity mandatoryReference;
+        @ManyToOne
+        @JoinColumn(nullable = false)
+        private InheritingEntity mandatoryJoinColumn;
+        @Basic(optional = false)
+        private String mandatoryBasic;
+    }
+}
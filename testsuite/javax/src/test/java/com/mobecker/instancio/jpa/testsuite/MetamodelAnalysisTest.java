@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.EntityGraphMinDepthPredictor;
+import com.mobecker.instancio.jpa.MetamodelAnalysis;
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Metamodel;
+import org.instancio.settings.Settings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetamodelAnalysisTest {
+
+    @TempDir
+    Path snapshotDirectory;
+
+    @Test
+    void analyse() {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("MetamodelAnalysisTestPu");
+        try {
+            // Given
+            Metamodel metamodel = emf.getMetamodel();
+            EntityGraphMinDepthPredictor predictor = new EntityGraphMinDepthPredictor(metamodel);
+            Attribute<?, ?> customerAttribute = metamodel.entity(AnalysedOrder.class).getAttribute("customer");
+            int predictedDepth = predictor.predictRequiredDepth(AnalysedOrder.class);
+            int predictedCustomerDepth = predictor.predictRequiredDepth(customerAttribute);
+
+            // When
+            MetamodelAnalysis analysis = MetamodelAnalysis.of(metamodel);
+
+            // Then
+            assertThat(analysis.getRequiredDepth(AnalysedOrder.class)).isEqualTo(predictedDepth);
+            assertThat(analysis.getRequiredDepth(customerAttribute)).isEqualTo(predictedCustomerDepth);
+            assertThat(analysis.getMappedBy(metamodel.entity(AnalysedOrder.class).getAttribute("lines")))
+                .isEqualTo("order");
+            assertThat(analysis.getMappedBy(metamodel.entity(AnalysedOrderLine.class).getAttribute("order")))
+                .isNull();
+            assertThat(MetamodelAnalysis.of(metamodel)).isSameAs(analysis);
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    void loadSnapshotWithMatchingFingerprint() throws IOException {
+        // Given
+        EntityManagerFactory emf1 = Persistence.createEntityManagerFactory("MetamodelAnalysisTestPu");
+        EntityManagerFactory emf2 = Persistence.createEntityManagerFactory("MetamodelAnalysisTestPu");
+        try {
+            MetamodelAnalysis storedAnalysis = MetamodelAnalysis.of(emf1.getMetamodel(), snapshotDirectory);
+            Path snapshotFile = snapshotDirectory.resolve(
+                "instancio-jpa-metamodel-" + storedAnalysis.getFingerprint() + ".properties");
+            // Alter the snapshot to verify that it is loaded instead of recomputed
+            Properties snapshot = new Properties();
+            try (InputStream inputStream = Files.newInputStream(snapshotFile)) {
+                snapshot.load(inputStream);
+            }
+            snapshot.setProperty("depth." + AnalysedOrder.class.getName(), "42");
+            try (OutputStream outputStream = Files.newOutputStream(snapshotFile)) {
+                snapshot.store(outputStream, null);
+            }
+
+            // When
+            MetamodelAnalysis loadedAnalysis = MetamodelAnalysis.of(emf2.getMetamodel(), snapshotDirectory);
+
+            // Then
+            assertThat(MetamodelAnalysis.fingerprint(emf2.getMetamodel())).isEqualTo(storedAnalysis.getFingerprint());
+            assertThat(loadedAnalysis.getRequiredDepth(AnalysedOrder.class)).isEqualTo(42);
+            assertThat(new EntityGraphMinDepthPredictor(emf2.getMetamodel()).predictRequiredDepth(AnalysedOrder.class))
+                .isEqualTo(42);
+        } finally {
+            emf1.close();
+            emf2.close();
+        }
+    }
+
+    @Test
+    void storeSnapshotOnBuild() throws IOException {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("MetamodelAnalysisTestPu");
+        try {
+            // When
+            jpaModel(AnalysedOrder.class, emf.getMetamodel())
+                .withSettings(Settings.create()
+                    .set(JpaKeys.METAMODEL_SNAPSHOT_DIRECTORY, snapshotDirectory.toString()))
+                .build();
+
+            // Then
+            try (Stream<Path> files = Files.list(snapshotDirectory)) {
+                assertThat(files).containsExactly(snapshotDirectory.resolve(
+                    "instancio-jpa-metamodel-" + MetamodelAnalysis.fingerprint(emf.getMetamodel()) + ".properties"));
+            }
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Entity
+    static class AnalysedOrder {
+        @Id
+        private Long id;
+        @ManyToOne(optional = false)
+        private AnalysedCustomer customer;
+        @OneToMany(mappedBy = "order")
+        private List<AnalysedOrderLine> lines = new ArrayList<>();
+    }
+
+    @Entity
+    static class AnalysedOrderLine {
+        @Id
+        private Long id;
+        @ManyToOne
+        private AnalysedOrder order;
+    }
+
+    @Entity
+    static class AnalysedCustomer {
+        @Id
+        private Long id;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.ParallelEntityGraphPersister;
+import java.util.List;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelEntityGraphPersisterTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("ParallelEntityGraphPersisterTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void persistAll() {
+        // Given
+        List<ParallelOrderItem> items = Instancio.ofList(
+                jpaModel(ParallelOrderItem.class, emf.getMetamodel()).build())
+            .size(20)
+            .create();
+        ParallelOrder sharedOrder = items.get(0).getOrder();
+        items.subList(0, 10).forEach(item -> item.setOrder(sharedOrder));
+        ParallelEntityGraphPersister persister = new ParallelEntityGraphPersister(emf, 4);
+
+        // When
+        int writerCount = persister.persistAll(items);
+
+        // Then
+        assertThat(writerCount).isEqualTo(4);
+        EntityManager entityManager = emf.createEntityManager();
+        try {
+            Long itemCount = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + ParallelOrderItem.class.getName() + " i", Long.class).getSingleResult();
+            Long orderCount = entityManager.createQuery(
+                "SELECT COUNT(*) FROM " + ParallelOrder.class.getName() + " o", Long.class).getSingleResult();
+            assertThat(itemCount).isEqualTo(20);
+            assertThat(orderCount).isEqualTo(11);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ParallelOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String description;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class ParallelOrderItem {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private ParallelOrder order;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.mobecker.instancio.jpa.generator.ReferenceDistribution;
+import com.mobecker.instancio.jpa.util.AliasTable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ReferenceDistributionTest {
+
+    private static EntityManagerFactory emf;
+    private static List<Long> customerIds;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("ReferenceDistributionTestPu");
+        customerIds = new ArrayList<>();
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < 10; i++) {
+                SkewedCustomer customer = new SkewedCustomer();
+                customer.setName("customer" + i);
+                em.persist(customer);
+                customerIds.add(customer.getId());
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void aliasTable() {
+        // Given
+        AliasTable aliasTable = AliasTable.of(new double[] {1, 2, 3, 4});
+        Random random = new Random(42);
+        int[] counts = new int[aliasTable.size()];
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            counts[aliasTable.sample(random.nextInt(aliasTable.size()), random.nextDouble())]++;
+        }
+
+        // Then
+        for (int i = 0; i < counts.length; i++) {
+            assertThat(counts[i] / 100_000d).isCloseTo((i + 1) / 10d, within(0.01));
+        }
+    }
+
+    @Test
+    void hotSetOfOneToMany() {
+        // Given
+        EntityManager em = emf.createEntityManager();
+        List<SkewedOrder> orders;
+        try {
+            Model<SkewedOrder> orderModel = jpaModel(SkewedOrder.class, emf.getMetamodel())
+                .withReferenceIds(SkewedCustomer.class, customerIds, em)
+                .withReferenceDistribution(SkewedCustomer.class, "orders", ReferenceDistribution.hotSet(0.2, 0.8))
+                .build();
+
+            // When
+            orders = Instancio.ofList(orderModel).size(5000).withSeed(42).create();
+        } finally {
+            em.close();
+        }
+
+        // Then
+        long hotOrders = orders.stream()
+            .filter(order -> customerIds.subList(0, 2).contains(order.getCustomer().getId()))
+            .count();
+        assertThat(hotOrders / 5000d).isCloseTo(0.8, within(0.03));
+        assertThat(orders).allSatisfy(order -> assertThat(order.getCustomer().getId()).isIn(customerIds));
+    }
+
+    @Test
+    void zipfOfManyToOne() {
+        // Given
+        EntityManager em = emf.createEntityManager();
+        List<SkewedOrder> orders;
+        try {
+            Model<SkewedOrder> orderModel = jpaModel(SkewedOrder.class, emf.getMetamodel())
+                .withReferenceIds(SkewedCustomer.class, customerIds.get(0), customerIds.get(9), em)
+                .withReferenceDistribution(SkewedOrder.class, "customer", ReferenceDistribution.zipf(1))
+                .build();
+
+            // When
+            orders = Instancio.ofList(orderModel).size(5000).withSeed(42).create();
+        } finally {
+            em.close();
+        }
+
+        // Then
+        Map<Long, Long> ordersPerCustomer = orders.stream()
+            .collect(Collectors.groupingBy(order -> order.getCustomer().getId(), Collectors.counting()));
+        // 1 / H(10) of the orders reference the first customer
+        assertThat(ordersPerCustomer.get(customerIds.get(0)) / 5000d).isCloseTo(0.341, within(0.03));
+        assertThat(ordersPerCustomer.get(customerIds.get(0))).isGreaterThan(ordersPerCustomer.get(customerIds.get(1)));
+        assertThat(ordersPerCustomer.get(customerIds.get(1))).isGreaterThan(ordersPerCustomer.get(customerIds.get(9)));
+    }
+
+    @Test
+    void uniformWithoutDistribution() {
+        // Given
+        EntityManager em = emf.createEntityManager();
+        List<SkewedOrder> orders;
+        try {
+            // When
+            orders = Instancio.ofList(jpaModel(SkewedOrder.class, emf.getMetamodel())
+                    .withReferenceIds(SkewedCustomer.class, customerIds, em)
+                    .build())
+                .size(5000)
+                .withSeed(42)
+                .create();
+        } finally {
+            em.close();
+        }
+
+        // Then
+        Map<Long, Long> ordersPerCustomer = orders.stream()
+            .collect(Collectors.groupingBy(order -> order.getCustomer().getId(), Collectors.counting()));
+        assertThat(ordersPerCustomer).hasSize(10);
+        assertThat(ordersPerCustomer.values()).allSatisfy(count -> assertThat(count).isBetween(400L, 600L));
+    }
+
+    @Test
+    void invalidDistribution() {
+        assertThatThrownBy(() -> ReferenceDistribution.zipf(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ReferenceDistribution.hotSet(0, 0.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ReferenceDistribution.hotSet(0.2, 1.5))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ReferenceDistribution.uniform().createSampler(0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AliasTable.of(new double[0])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AliasTable.of(new double[] {1, -1})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> jpaModel(SkewedOrder.class, emf.getMetamodel())
+            .withReferenceDistribution(SkewedOrder.class, "quantity", ReferenceDistribution.uniform()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> jpaModel(SkewedOrder.class, emf.getMetamodel())
+            .withReferenceDistribution(SkewedCustomer.class, "notes", ReferenceDistribution.uniform()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SkewedCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+        @OneToMany(mappedBy = "customer")
+        private List<SkewedOrder> orders = new ArrayList<>();
+        @OneToMany
+        private List<SkewedNote> notes = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SkewedOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private int quantity;
+        @ManyToOne(optional = false)
+        private SkewedCustomer customer;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SkewedNote {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String text;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.SchemaPopulator;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SchemaPopulatorTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("SchemaPopulatorTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void populate() {
+        // Given
+        long customerCount = count("select count(c) from " + PopulatedCustomer.class.getName() + " c");
+        long orderCount = count("select count(o) from " + PopulatedOrder.class.getName() + " o");
+        long orderLineCount = count("select count(l) from " + PopulatedOrderLine.class.getName() + " l");
+        long productCount = count("select count(p) from " + PopulatedProduct.class.getName() + " p");
+        SchemaPopulator populator = SchemaPopulator.populator(emf)
+            .withRowCount(PopulatedOrderLine.class, 300)
+            .withRowCount(PopulatedOrder.class, 100)
+            .withRowCount(PopulatedCustomer.class, 20)
+            .withBatchSize(30)
+            .build();
+
+        // When
+        long persistedRows = populator.populate();
+
+        // Then
+        assertThat(persistedRows).isEqualTo(420);
+        assertThat(count("select count(c) from " + PopulatedCustomer.class.getName() + " c"))
+            .isEqualTo(customerCount + 20);
+        assertThat(count("select count(o) from " + PopulatedOrder.class.getName() + " o"))
+            .isEqualTo(orderCount + 100);
+        assertThat(count("select count(l) from " + PopulatedOrderLine.class.getName() + " l"))
+            .isEqualTo(orderLineCount + 300);
+        // Products have no row count and are generated along with the order lines
+        assertThat(count("select count(p) from " + PopulatedProduct.class.getName() + " p"))
+            .isEqualTo(productCount + 300);
+        // Orders reference a sample of the customers
+        assertThat(count("select count(distinct o.customer) from " + PopulatedOrder.class.getName() + " o"))
+            .isBetween(2L, customerCount + 20);
+    }
+
+    @Test
+    void populateAssignedIdsInSeveralBatches() {
+        // Given
+        SchemaPopulator populator = SchemaPopulator.populator(emf)
+            .withRowCount(PopulatedSupplier.class, 100)
+            .withBatchSize(30)
+            .build();
+
+        // When
+        long persistedRows = populator.populate();
+
+        // Then
+        assertThat(persistedRows).isEqualTo(100);
+        assertThat(count("select count(distinct s.id) from " + PopulatedSupplier.class.getName() + " s"))
+            .isEqualTo(100);
+        assertThat(count("select count(distinct s.code) from " + PopulatedSupplier.class.getName() + " s"))
+            .isEqualTo(100);
+    }
+
+    @Test
+    void invalidConfiguration() {
+        assertThatThrownBy(() -> SchemaPopulator.populator(emf).withRowCount(PopulatedOrder.class, -1))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SchemaPopulator.populator(emf).withRowCount(String.class, 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SchemaPopulator.populator(emf).withBatchSize(0).build())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long count(String query) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery(query, Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    // Assigned ids do not form a contiguous range
+    @Entity
+    @Getter
+    @Setter
+    public static class PopulatedCustomer {
+        @Id
+        private Long id;
+        private String name;
+        @OneToMany(mappedBy = "customer")
+        private List<PopulatedOrder> orders = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PopulatedOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String description;
+        @ManyToOne(optional = false)
+        private PopulatedCustomer customer;
+        @OneToMany(mappedBy = "order")
+        private List<PopulatedOrderLine> lines = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PopulatedOrderLine {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private int quantity;
+        @ManyToOne(optional = false)
+        private PopulatedOrder order;
+        @ManyToOne(optional = false)
+        private PopulatedProduct product;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PopulatedSupplier {
+        @Id
+        private Long id;
+        @Column(unique = true, nullable = false)
+        private String code;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PopulatedProduct {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.cli.SeedCommand;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeedCommandTest {
+
+    private static EntityManagerFactory emf;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("SeedCommandTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void seedWithCheckpoint() throws IOException {
+        // Given
+        Path checkpoint = tempDir.resolve("seed.checkpoint");
+        long orderCount = count(CommandOrder.class);
+        long customerCount = count(CommandCustomer.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        int exitCode = run(out, "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=230",
+            "--seed", "42", "--batch-size", "50", "--threads", "2", "--checkpoint", checkpoint.toString());
+
+        // Then
+        assertThat(exitCode).isZero();
+        assertThat(count(CommandOrder.class)).isEqualTo(orderCount + 230);
+        assertThat(count(CommandCustomer.class)).isEqualTo(customerCount + 230);
+        assertThat(loadProperties(checkpoint))
+            .containsEntry("seed", "42")
+            .containsEntry("batchSize", "50")
+            .containsEntry("chunks." + CommandOrder.class.getName(), "0-4");
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+            .contains("with seed 42")
+            .contains(CommandOrder.class.getName() + ": 230 rows")
+            .contains(CommandCustomer.class.getName() + ": 230 rows");
+    }
+
+    @Test
+    void resumeFromCheckpoint() throws IOException {
+        // Given
+        Path checkpoint = tempDir.resolve("seed.checkpoint");
+        Files.write(checkpoint, Arrays.asList(
+            "seed=7", "batchSize=50", "chunks." + CommandOrder.class.getName() + "=0-1,3"));
+        long orderCount = count(CommandOrder.class);
+
+        // When
+        int exitCode = run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=250",
+            "--batch-size", "50", "--checkpoint", checkpoint.toString());
+
+        // Then
+        assertThat(exitCode).isZero();
+        assertThat(count(CommandOrder.class)).isEqualTo(orderCount + 100);
+        assertThat(loadProperties(checkpoint))
+            .containsEntry("seed", "7")
+            .containsEntry("chunks." + CommandOrder.class.getName(), "0-4");
+    }
+
+    @Test
+    void resumedRunProducesSameRoots() {
+        // Given
+        Path checkpoint = tempDir.resolve("seed.checkpoint");
+        long maxIdBefore = maxOrderId();
+        run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=230", "--seed", "11", "--batch-size", "50");
+        List<String> uninterruptedRoots = orderDescriptions(maxIdBefore);
+        maxIdBefore = maxOrderId();
+
+        // When
+        run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=100", "--seed", "11", "--batch-size", "50",
+            "--checkpoint", checkpoint.toString());
+        int exitCode = run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=230", "--batch-size", "50", "--threads", "3",
+            "--checkpoint", checkpoint.toString());
+
+        // Then
+        assertThat(exitCode).isZero();
+        assertThat(uninterruptedRoots).hasSize(230);
+        assertThat(orderDescriptions(maxIdBefore)).isEqualTo(uninterruptedRoots);
+    }
+
+    @Test
+    void assignedIdsSpanningSeveralChunks() {
+        // Given
+        long couponCount = count(CommandCoupon.class);
+
+        // When
+        int exitCode = run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandCoupon.class.getName() + "=120", "--seed", "3", "--batch-size", "50",
+            "--threads", "2");
+
+        // Then
+        assertThat(exitCode).isZero();
+        assertThat(count(CommandCoupon.class)).isEqualTo(couponCount + 120);
+        assertThat(countDistinctCouponCodes()).isEqualTo(couponCount + 120);
+    }
+
+    @Test
+    void checkpointWithDifferentSeed() throws IOException {
+        // Given
+        Path checkpoint = tempDir.resolve("seed.checkpoint");
+        Files.write(checkpoint, Arrays.asList("seed=7", "batchSize=50"));
+
+        // When
+        int exitCode = run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=10",
+            "--seed", "8", "--batch-size", "50", "--checkpoint", checkpoint.toString());
+
+        // Then
+        assertThat(exitCode).isEqualTo(1);
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThat(run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu")).isEqualTo(2);
+        assertThat(run(new ByteArrayOutputStream(), "--persistence-unit", "SeedCommandTestPu",
+            "--entity", CommandOrder.class.getName() + "=0")).isEqualTo(2);
+        assertThat(run(new ByteArrayOutputStream(), "--help")).isZero();
+    }
+
+    private static int run(ByteArrayOutputStream out, String... args) {
+        return SeedCommand.run(args, new PrintStream(out, true), new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static Properties loadProperties(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static long maxOrderId() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select coalesce(max(o.id), 0) from " + CommandOrder.class.getName() + " o",
+                Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static List<String> orderDescriptions(long minIdExclusive) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select o.description || '/' || o.customer.name from " + CommandOrder.class.getName()
+                    + " o where o.id > :minId order by o.description, o.customer.name", String.class)
+                .setParameter("minId", minIdExclusive)
+                .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long countDistinctCouponCodes() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(distinct c.code) from " + CommandCoupon.class.getName() + " c",
+                Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long count(Class<?> entityClass) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(e) from " + entityClass.getName() + " e", Long.class)
+                .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CommandCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CommandOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String description;
+        @ManyToOne(optional = false)
+        private CommandCustomer customer;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class CommandCoupon {
+        @Id
+        private Long id;
+        @Column(unique = true, nullable = false)
+        private String code;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.mobecker.instancio.jpa.CompiledSeed;
+import com.mobecker.instancio.jpa.H2SeedDialect;
+import com.mobecker.instancio.jpa.SeedCompiler;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Version;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SeedCompilerTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:dbname;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("SeedCompilerTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void pushDown() throws SQLException {
+        // Given
+        CompiledSeed seed = SeedCompiler.compiler(emf.getMetamodel()).build().compile(SeedCustomer.class);
+        long countBefore = count("select count(c) from " + SeedCustomer.class.getName() + " c");
+        long maxIdBefore = count("select coalesce(max(c.id), 0) from " + SeedCustomer.class.getName() + " c");
+
+        // When
+        long insertedRows;
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            insertedRows = seed.execute(connection, 1000);
+        }
+
+        // Then
+        assertThat(seed.isPushedDown()).isTrue();
+        assertThat(insertedRows).isEqualTo(1000);
+        assertThat(count("select count(c) from " + SeedCustomer.class.getName() + " c"))
+            .isEqualTo(countBefore + 1000);
+        assertThat(count("select count(distinct c.code) from " + SeedCustomer.class.getName() + " c"))
+            .isEqualTo(countBefore + 1000);
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<SeedCustomer> customers = em.createQuery(
+                    "select c from " + SeedCustomer.class.getName() + " c where c.id > :maxIdBefore",
+                    SeedCustomer.class)
+                .setParameter("maxIdBefore", maxIdBefore)
+                .getResultList();
+            assertThat(customers).hasSize(1000);
+            assertThat(customers).allSatisfy(customer -> {
+                assertThat(customer.getName()).hasSizeBetween(3, 20);
+                assertThat(customer.getStatus()).isNotNull();
+                assertThat(customer.getBirthday()).isBefore(LocalDate.now().plusDays(1));
+                assertThat(customer.getBalance()).isBetween(BigDecimal.ONE, BigDecimal.valueOf(10_000));
+                assertThat(customer.getVersion()).isZero();
+            });
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void pushDownReferences() throws SQLException {
+        // Given
+        SeedCompiler compiler = SeedCompiler.compiler(emf.getMetamodel()).build();
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            compiler.compile(SeedCustomer.class).execute(connection, 100);
+            compiler.compile(SeedPurchase.class).execute(connection, 5000);
+        }
+
+        // Then
+        assertThat(count("select count(p) from " + SeedPurchase.class.getName() + " p join p.customer c"))
+            .isEqualTo(count("select count(p) from " + SeedPurchase.class.getName() + " p"));
+    }
+
+    @Test
+    void referenceIdRange() throws SQLException {
+        // Given
+        SeedCompiler compiler = SeedCompiler.compiler(emf.getMetamodel()).build();
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            compiler.compile(SeedCustomer.class).execute(connection, 1);
+        }
+        long customerId = count("select max(c.id) from " + SeedCustomer.class.getName() + " c");
+        SeedCompiler rangeCompiler = SeedCompiler.compiler(emf.getMetamodel())
+            .withReferenceIdRange(SeedCustomer.class, customerId, customerId)
+            .build();
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            rangeCompiler.compile(SeedPurchase.class).execute(connection, 100);
+        }
+
+        // Then
+        assertThat(count("select count(p) from " + SeedPurchase.class.getName() + " p where p.customer.id = "
+            + customerId)).isEqualTo(100);
+    }
+
+    @Test
+    void longStringColumns() throws SQLException {
+        // Given
+        CompiledSeed seed = SeedCompiler.compiler(emf.getMetamodel()).build().compile(SeedDocument.class);
+        long maxIdBefore = count("select coalesce(max(d.id), 0) from " + SeedDocument.class.getName() + " d");
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            seed.execute(connection, 100);
+        }
+
+        // Then
+        assertThat(seed.isPushedDown()).isTrue();
+        assertThat(new H2SeedDialect().randomString(3, Integer.MAX_VALUE)).contains("), 67108864), ");
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<SeedDocument> documents = em.createQuery(
+                    "select d from " + SeedDocument.class.getName() + " d where d.id > :maxIdBefore",
+                    SeedDocument.class)
+                .setParameter("maxIdBefore", maxIdBefore)
+                .getResultList();
+            assertThat(documents).hasSize(100).allSatisfy(document -> {
+                assertThat(document.getTitle()).hasSizeBetween(3, 10);
+                assertThat(document.getContent()).hasSizeBetween(3, 10);
+            });
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void fallback() throws SQLException {
+        // Given
+        CompiledSeed seed = SeedCompiler.compiler(emf.getMetamodel()).build().compile(SeedBasket.class);
+        long countBefore = count("select count(b) from " + SeedBasket.class.getName() + " b");
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            seed.execute(connection, 10);
+        }
+
+        // Then
+        assertThat(seed.isPushedDown()).isFalse();
+        assertThat(seed.getFallbackReasons()).containsExactly(
+            SeedBasket.class.getName() + "#labels is stored in a collection table");
+        assertThat(count("select count(b) from " + SeedBasket.class.getName() + " b")).isEqualTo(countBefore + 10);
+    }
+
+    @Test
+    void fallbackForJoinColumn() throws SQLException {
+        // Given
+        CompiledSeed seed = SeedCompiler.compiler(emf.getMetamodel()).build().compile(SeedCrate.class);
+        long countBefore = count("select count(c) from " + SeedCrate.class.getName() + " c");
+
+        // When
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            seed.execute(connection, 10);
+        }
+
+        // Then
+        assertThat(seed.isPushedDown()).isFalse();
+        assertThat(seed.getFallbackReasons()).containsExactly(
+            SeedCrate.class.getName() + "#bottles is stored in a join column of the referenced table");
+        assertThat(count("select count(c) from " + SeedCrate.class.getName() + " c")).isEqualTo(countBefore + 10);
+    }
+
+    @Test
+    void mandatoryReferenceToEmptyTable() throws SQLException {
+        CompiledSeed seed = SeedCompiler.compiler(emf.getMetamodel()).build().compile(SeedInvoice.class);
+        try (Connection connection = DriverManager.getConnection(JDBC_URL)) {
+            assertThatThrownBy(() -> seed.execute(connection, 10)).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    private static long count(String query) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery(query, Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    public enum SeedStatus {
+        NEW, ACTIVE, CLOSED
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @Version
+        private long version;
+        @Column(length = 20)
+        private String name;
+        @Column(unique = true)
+        private String code;
+        @Enumerated(EnumType.STRING)
+        private SeedStatus status;
+        private LocalDate birthday;
+        private BigDecimal balance;
+        private boolean active;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedPurchase {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private SeedCustomer customer;
+        private int quantity;
+        private SeedStatus status;
+        @Temporal(TemporalType.DATE)
+        private Date purchaseDate;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedDocument {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @Column
+        private String title;
+        @Lob
+        @Column(length = Integer.MAX_VALUE)
+        private String content;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedBasket {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ElementCollection
+        private Set<String> labels = new HashSet<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedInvoice {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private SeedSupplier supplier;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedSupplier {
+        @Id
+        @GeneratedValue
+        private Long id;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedCrate {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @OneToMany
+        @JoinColumn(name = "crate_id")
+        private List<SeedBottle> bottles = new ArrayList<>();
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class SeedBottle {
+        @Id
+        @GeneratedValue
+        private Long id;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import com.mobecker.instancio.jpa.InstancioJpa;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.Version;
+import org.instancio.Instancio;
+import org.instancio.Model;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Macro benchmark of the whole seeding pipeline, i.e. {@code jpaModel(...).build()}, generation including
+ * {@link com.mobecker.instancio.jpa.EntityGraphShrinker} and
+ * {@link com.mobecker.instancio.jpa.EntityGraphAssociationFixer}, and {@link EntityGraphPersister}, against in-memory
+ * and file-based H2. Only runs if the root counts are given, e.g.
+ * {@code -Dinstancio.jpa.benchmark.roots=10000,100000,1000000}. The databases can be restricted via
+ * {@code -Dinstancio.jpa.benchmark.databases=mem} or {@code file}. The results are written to
+ * {@code target/macro-benchmark/seeding-hibernate-<version>.json}.
+ */
+@EnabledIfSystemProperty(named = SeedingMacroBenchmarkTest.ROOTS_PROPERTY, matches = "\\d+(,\\d+)*")
+class SeedingMacroBenchmarkTest {
+
+    static final String ROOTS_PROPERTY = "instancio.jpa.benchmark.roots";
+    private static final String DATABASES_PROPERTY = "instancio.jpa.benchmark.databases";
+    private static final int ROOTS_PER_TRANSACTION = 1000;
+    private static final List<Class<?>> ENTITY_CLASSES = Arrays.asList(
+        BenchmarkCustomer.class, BenchmarkProduct.class, BenchmarkOrder.class, BenchmarkOrderLine.class);
+
+    @Test
+    void seed() throws IOException {
+        List<String> results = new ArrayList<>();
+        for (String database : System.getProperty(DATABASES_PROPERTY, "mem,file").split(",")) {
+            for (String roots : System.getProperty(ROOTS_PROPERTY).split(",")) {
+                results.add(run(database.trim(), Integer.parseInt(roots)));
+            }
+        }
+        writeResults(results);
+    }
+
+    private static String run(String database, int rootCount) {
+        EntityManagerFactory emf = createEntityManagerFactory(database);
+        try {
+            List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    heapPools.add(pool);
+                }
+            }
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            long start = System.nanoTime();
+
+            Model<BenchmarkOrder> model = jpaModel(BenchmarkOrder.class, emf.getMetamodel())
+                // Order -> lines -> product
+                .withMaxDepth(3)
+                .withCollectionSize(BenchmarkOrder.class, "lines", 1, 3)
+                .build();
+            long buildNanos = System.nanoTime() - start;
+            long generationNanos = 0;
+            long persistNanos = 0;
+            for (int persistedRoots = 0; persistedRoots < rootCount; persistedRoots += ROOTS_PER_TRANSACTION) {
+                long chunkStart = System.nanoTime();
+                List<BenchmarkOrder> roots = new ArrayList<>(ROOTS_PER_TRANSACTION);
+                for (int i = 0; i < Math.min(ROOTS_PER_TRANSACTION, rootCount - persistedRoots); i++) {
+                    roots.add(Instancio.create(model));
+                }
+                long persistStart = System.nanoTime();
+                generationNanos += persistStart - chunkStart;
+                persistInTransaction(emf, roots);
+                persistNanos += System.nanoTime() - persistStart;
+            }
+            long totalNanos = System.nanoTime() - start;
+
+            long gcMillis = gcMillis() - gcMillisBefore;
+            long gcCount = gcCount() - gcCountBefore;
+            long peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            long rows = countAndDropRows(emf, database);
+            assertThat(rows).isGreaterThanOrEqualTo(3L * rootCount);
+            return String.format(
+                "{\"database\": \"%s\", \"roots\": %d, \"rows\": %d, \"rowsPerSecond\": %.1f, \"buildMillis\": %d, "
+                    + "\"generationMillis\": %d, \"persistMillis\": %d, \"totalMillis\": %d, \"peakHeapBytes\": %d, "
+                    + "\"gcMillis\": %d, \"gcCount\": %d}",
+                database, rootCount, rows, rows * 1e9 / totalNanos, millis(buildNanos), millis(generationNanos),
+                millis(persistNanos), millis(totalNanos), peakHeapBytes, gcMillis, gcCount);
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static EntityManagerFactory createEntityManagerFactory(String database) {
+        String url;
+        if ("mem".equals(database)) {
+            url = "jdbc:h2:mem:macrobenchmark;DB_CLOSE_DELAY=-1";
+        } else if ("file".equals(database)) {
+            url = "jdbc:h2:file:" + Paths.get("target", "macro-benchmark", "h2", "seeding").toAbsolutePath();
+        } else {
+            throw new IllegalArgumentException("Unknown benchmark database: " + database);
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", url);
+        return Persistence.createEntityManagerFactory("SeedingMacroBenchmarkTestPu", properties);
+    }
+
+    private static void persistInTransaction(EntityManagerFactory emf, List<BenchmarkOrder> roots) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            EntityGraphPersister persister = new EntityGraphPersister(em);
+            roots.forEach(persister::persist);
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    private static long countAndDropRows(EntityManagerFactory emf, String database) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            long rows = 0;
+            for (Class<?> entityClass : ENTITY_CLASSES) {
+                rows += em.createQuery("select count(e) from " + entityClass.getName() + " e", Long.class)
+                    .getSingleResult();
+            }
+            if ("mem".equals(database)) {
+                // Release the memory of the in-memory database before the next run
+                em.getTransaction().begin();
+                em.createNativeQuery("DROP ALL OBJECTS").executeUpdate();
+                em.getTransaction().commit();
+            }
+            return rows;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void writeResults(List<String> results) throws IOException {
+        String version = InstancioJpa.class.getPackage().getImplementationVersion();
+        List<String> lines = new ArrayList<>();
+        lines.add("{");
+        lines.add(String.format("  \"instancioJpaVersion\": \"%s\",", version == null ? "unknown" : version));
+        lines.add(String.format("  \"hibernateVersion\": \"%s\",", Version.getVersionString()));
+        lines.add(String.format("  \"javaVersion\": \"%s\",", System.getProperty("java.version")));
+        lines.add(String.format("  \"maxHeapBytes\": %d,", Runtime.getRuntime().maxMemory()));
+        lines.add(String.format("  \"timestamp\": \"%s\",", Instant.now()));
+        lines.add("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            lines.add("    " + results.get(i) + (i + 1 < results.size() ? "," : ""));
+        }
+        lines.add("  ]");
+        lines.add("}");
+        Path resultFile = Paths.get("target", "macro-benchmark", "seeding-hibernate-" + Version.getVersionString()
+            + ".json");
+        Files.createDirectories(resultFile.getParent());
+        Files.write(resultFile, lines);
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+            .filter(count -> count > 0)
+            .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+            .filter(time -> time > 0)
+            .sum();
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class BenchmarkCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+        private String email;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class BenchmarkProduct {
+        @Id
+        @GeneratedValue
+        private Long id;
+        private String name;
+        private Long priceInCents;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class BenchmarkOrder {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @ManyToOne(optional = false)
+        private BenchmarkCustomer customer;
+        @OneToMany(mappedBy = "order")
+        private List<BenchmarkOrderLine> lines = new ArrayList<>();
+        private Instant orderedAt;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class BenchmarkOrderLine {
+        @Id
+        @GeneratedValue
+        private Long id;
+        // Set by EntityGraphAssociationFixer, a mandatory back reference would be pruned by the shrinker
+        @ManyToOne
+        private BenchmarkOrder order;
+        @ManyToOne(optional = false)
+        private BenchmarkProduct product;
+        private Integer quantity;
+    }
+}
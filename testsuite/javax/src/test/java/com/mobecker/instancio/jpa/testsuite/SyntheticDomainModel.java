@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+
+/**
+ * Generates synthetic JPA entity classes at runtime for scaling tests of the metamodel algorithms.
+ *
+ * <p>The entities {@code SyntheticEntity0} to {@code SyntheticEntity<n-1>} each have a {@code Long} id. The first
+ * {@code mandatoryChainLength} entities form a chain of mandatory {@code ManyToOne} references. In addition, every
+ * entity has {@code fanOut} optional {@code ManyToOne} references to entities with a higher index or, with
+ * probability {@code cycleDensity}, to entities with a lower or the same index, which closes cycles. With
+ * probability {@code inverseCollectionShare}, the target of an optional reference gets the inverse
+ * {@code OneToMany} collection.
+ */
+final class SyntheticDomainModel {
+
+    private static final String PACKAGE_NAME = SyntheticDomainModel.class.getPackage().getName() + ".synthetic";
+
+    private final List<Class<?>> entityClasses;
+    private final ClassLoader classLoader;
+
+    private SyntheticDomainModel(List<Class<?>> entityClasses, ClassLoader classLoader) {
+        this.entityClasses = entityClasses;
+        this.classLoader = classLoader;
+    }
+
+    static Builder builder(int entityCount) {
+        return new Builder(entityCount);
+    }
+
+    List<Class<?>> getEntityClasses() {
+        return entityClasses;
+    }
+
+    ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    static String entityClassName(int index) {
+        return PACKAGE_NAME + ".SyntheticEntity" + index;
+    }
+
+    static final class Builder {
+        private final int entityCount;
+        private int fanOut = 2;
+        private int mandatoryChainLength = 1;
+        private double cycleDensity = 0.1;
+        private double inverseCollectionShare = 0.3;
+        private long seed = 42;
+
+        private Builder(int entityCount) {
+            this.entityCount = entityCount;
+        }
+
+        Builder fanOut(int fanOut) {
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        Builder mandatoryChainLength(int mandatoryChainLength) {
+            this.mandatoryChainLength = mandatoryChainLength;
+            return this;
+        }
+
+        Builder cycleDensity(double cycleDensity) {
+            this.cycleDensity = cycleDensity;
+            return this;
+        }
+
+        Builder inverseCollectionShare(double inverseCollectionShare) {
+            this.inverseCollectionShare = inverseCollectionShare;
+            return this;
+        }
+
+        Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        SyntheticDomainModel build() {
+            if (mandatoryChainLength > entityCount) {
+                throw new IllegalArgumentException("mandatoryChainLength must not exceed entityCount");
+            }
+            Random random = new Random(seed);
+            List<TypeDescription> entityTypes = new ArrayList<>(entityCount);
+            List<DynamicType.Builder<?>> builders = new ArrayList<>(entityCount);
+            for (int i = 0; i < entityCount; i++) {
+                entityTypes.add(new TopLevelLatentType(entityClassName(i)));
+                builders.add(new ByteBuddy()
+                    .subclass(Object.class)
+                    .name(entityClassName(i))
+                    .annotateType(AnnotationDescription.Builder.ofType(Entity.class).build())
+                    .defineField("id", Long.class, Visibility.PRIVATE)
+                    .annotateField(AnnotationDescription.Builder.ofType(Id.class).build()));
+            }
+            for (int i = 0; i + 1 < mandatoryChainLength; i++) {
+                builders.set(i, builders.get(i)
+                    .defineField("mandatory", entityTypes.get(i + 1), Visibility.PRIVATE)
+                    .annotateField(AnnotationDescription.Builder.ofType(ManyToOne.class)
+                        .define("optional", false)
+                        .build()));
+            }
+            for (int i = 0; i < entityCount; i++) {
+                for (int k = 0; k < fanOut; k++) {
+                    int target = i + 1 < entityCount && random.nextDouble() >= cycleDensity
+                        ? i + 1 + random.nextInt(entityCount - i - 1)
+                        : random.nextInt(i + 1);
+                    String referenceName = "ref" + k;
+                    builders.set(i, builders.get(i)
+                        .defineField(referenceName, entityTypes.get(target), Visibility.PRIVATE)
+                        .annotateField(AnnotationDescription.Builder.ofType(ManyToOne.class).build()));
+                    if (random.nextDouble() < inverseCollectionShare) {
+                        builders.set(target, builders.get(target)
+                            .defineField("inverse" + i + "_" + k, TypeDescription.Generic.Builder.parameterizedType(
+                                TypeDescription.ForLoadedType.of(List.class), entityTypes.get(i)).build(),
+                                Visibility.PRIVATE)
+                            .annotateField(AnnotationDescription.Builder.ofType(OneToMany.class)
+                                .define("mappedBy", referenceName)
+                                .build()));
+                    }
+                }
+            }
+
+            DynamicType.Unloaded<?> root = builders.get(0).make();
+            List<DynamicType> others = new ArrayList<>(entityCount - 1);
+            for (int i = 1; i < entityCount; i++) {
+                others.add(builders.get(i).make());
+            }
+            DynamicType.Loaded<?> loaded = root.include(others)
+                .load(SyntheticDomainModel.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER);
+            List<Class<?>> entityClasses = new ArrayList<>(entityCount);
+            for (int i = 0; i < entityCount; i++) {
+                try {
+                    entityClasses.add(Class.forName(entityClassName(i), false, loaded.getLoaded().getClassLoader()));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return new SyntheticDomainModel(entityClasses, loaded.getLoaded().getClassLoader());
+        }
+    }
+
+    // A type that is referenced before it is defined; the synthetic entities are all top level types
+    private static final class TopLevelLatentType extends TypeDescription.Latent {
+        private TopLevelLatentType(String name) {
+            super(name, Visibility.PUBLIC.getMask(), TypeDescription.Generic.OBJECT);
+        }
+
+        @Override
+        public TypeDescription getDeclaringType() {
+            return null;
+        }
+    }
+}
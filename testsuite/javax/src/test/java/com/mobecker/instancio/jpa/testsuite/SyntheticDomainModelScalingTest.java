@@ -0,0 +1,190 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mobecker.instancio.jpa.EntityGraphAssociationFixer;
+import com.mobecker.instancio.jpa.EntityGraphMinDepthPredictor;
+import com.mobecker.instancio.jpa.EntityGraphPersister;
+import com.mobecker.instancio.jpa.EntityGraphShrinker;
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.metamodel.Metamodel;
+import org.hibernate.cfg.AvailableSettings;
+import org.instancio.Instancio;
+import org.instancio.settings.Keys;
+import org.instancio.settings.Settings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs the metamodel algorithms over synthetic domain models of increasing size and records the timings in
+ * {@code target/synthetic-domain-model-scaling.csv}. Larger domain models with hundreds of entity types only run if
+ * their sizes are given, e.g. {@code -Dinstancio.jpa.benchmark.entities=200,400,800}.
+ */
+class SyntheticDomainModelScalingTest {
+
+    private static final String ENTITIES_PROPERTY = "instancio.jpa.benchmark.entities";
+    private static final int MANDATORY_CHAIN_LENGTH = 4;
+    private static final int ROOT_COUNT = 10;
+    private static final List<String> RESULTS = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterAll
+    static void writeResults() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("entities,attributes,bootstrapMicros,predictorMicros,generationMicros,shrinkerMicros,fixerMicros,"
+            + "persisterMicros,nodes");
+        lines.addAll(RESULTS);
+        Path resultFile = Paths.get("target", "synthetic-domain-model-scaling.csv");
+        Files.createDirectories(resultFile.getParent());
+        Files.write(resultFile, lines);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {20, 40, 80})
+    void scaling(int entityCount) {
+        run(entityCount);
+    }
+
+    @ParameterizedTest
+    @MethodSource("largeEntityCounts")
+    @EnabledIfSystemProperty(named = ENTITIES_PROPERTY, matches = "\\d+(,\\d+)*")
+    void largeScaling(int entityCount) {
+        run(entityCount);
+    }
+
+    static IntStream largeEntityCounts() {
+        return Arrays.stream(System.getProperty(ENTITIES_PROPERTY).split(",")).mapToInt(Integer::parseInt);
+    }
+
+    private static void run(int entityCount) {
+        // Given
+        SyntheticDomainModel domainModel = SyntheticDomainModel.builder(entityCount)
+            .fanOut(2)
+            .mandatoryChainLength(MANDATORY_CHAIN_LENGTH)
+            .cycleDensity(0.2)
+            .inverseCollectionShare(0.3)
+            .build();
+        long start = System.nanoTime();
+        EntityManagerFactory emf = createEntityManagerFactory(domainModel, entityCount);
+        long bootstrapNanos = System.nanoTime() - start;
+        try {
+            Metamodel metamodel = emf.getMetamodel();
+            List<Class<?>> entityClasses = domainModel.getEntityClasses();
+            int attributeCount = metamodel.getEntities().stream().mapToInt(type -> type.getAttributes().size()).sum();
+
+            // When
+            start = System.nanoTime();
+            EntityGraphMinDepthPredictor predictor = new EntityGraphMinDepthPredictor(metamodel);
+            int[] requiredDepths = new int[entityCount];
+            for (int i = 0; i < entityCount; i++) {
+                requiredDepths[i] = predictor.predictRequiredDepth(entityClasses.get(i));
+            }
+            long predictorNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<?> roots = Instancio.ofList(jpaModel(entityClasses.get(0), metamodel)
+                    .withSettings(Settings.create()
+                        .set(Keys.COLLECTION_MIN_SIZE, 0)
+                        .set(Keys.COLLECTION_MAX_SIZE, 2)
+                        .set(JpaKeys.MAX_NODES, 200))
+                    .build())
+                .size(ROOT_COUNT)
+                .create();
+            long generationNanos = System.nanoTime() - start;
+
+            // The generated graphs have already been shrunk and fixed, the passes below measure the traversals
+            start = System.nanoTime();
+            EntityGraphShrinker shrinker = new EntityGraphShrinker(metamodel, null);
+            roots.forEach(shrinker::shrink);
+            long shrinkerNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            EntityGraphAssociationFixer fixer = new EntityGraphAssociationFixer(metamodel, null);
+            roots.forEach(fixer::fixAssociations);
+            long fixerNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                EntityGraphPersister persister = new EntityGraphPersister(em);
+                roots.forEach(persister::persist);
+                em.getTransaction().commit();
+            } finally {
+                em.close();
+            }
+            long persisterNanos = System.nanoTime() - start;
+
+            // Then
+            for (int i = 0; i + 1 < MANDATORY_CHAIN_LENGTH; i++) {
+                assertThat(requiredDepths[i]).isEqualTo(requiredDepths[i + 1] + 1);
+            }
+            long nodes = countEntities(emf, entityClasses);
+            assertThat(nodes).isGreaterThanOrEqualTo(ROOT_COUNT * MANDATORY_CHAIN_LENGTH);
+            RESULTS.add(String.format("%d,%d,%d,%d,%d,%d,%d,%d,%d", entityCount, attributeCount,
+                micros(bootstrapNanos), micros(predictorNanos), micros(generationNanos), micros(shrinkerNanos),
+                micros(fixerNanos), micros(persisterNanos), nodes));
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static EntityManagerFactory createEntityManagerFactory(SyntheticDomainModel domainModel, int entityCount) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:synthetic" + entityCount + ";DB_CLOSE_DELAY=-1");
+        properties.put(AvailableSettings.LOADED_CLASSES, domainModel.getEntityClasses());
+        properties.put(AvailableSettings.CLASSLOADERS, Collections.singletonList(domainModel.getClassLoader()));
+        return Persistence.createEntityManagerFactory("SyntheticDomainModelScalingTestPu", properties);
+    }
+
+    private static long countEntities(EntityManagerFactory emf, List<Class<?>> entityClasses) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            long count = 0;
+            for (Class<?> entityClass : entityClasses) {
+                count += em.createQuery("select count(e) from " + entityClass.getSimpleName() + " e", Long.class)
+                    .getSingleResult();
+            }
+            return count;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
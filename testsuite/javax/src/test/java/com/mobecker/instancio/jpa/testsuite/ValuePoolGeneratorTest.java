@@ -0,0 +1,198 @@
+/*
+ * Copyright 2023 - 2024 Moritz Becker.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobecker.instancio.jpa.testsuite;
+
+import static com.mobecker.instancio.jpa.InstancioJpa.jpaModel;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.mobecker.instancio.jpa.setting.JpaKeys;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Persistence;
+import lombok.Getter;
+import lombok.Setter;
+import org.instancio.Instancio;
+import org.instancio.settings.Settings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ValuePoolGeneratorTest {
+
+    private static EntityManagerFactory emf;
+
+    @BeforeAll
+    static void createEmf() {
+        emf = Persistence.createEntityManagerFactory("ValuePoolGeneratorTestPu");
+    }
+
+    @AfterAll
+    static void tearDownEmf() {
+        emf.close();
+    }
+
+    @Test
+    void withValueCardinality() {
+        // When
+        List<PooledCustomer> customers = Instancio.ofList(jpaModel(PooledCustomer.class, emf.getMetamodel())
+                .withValueCardinality(PooledCustomer.class, "countryCode", 20, 0)
+                .build())
+            .size(2000)
+            .create();
+
+        // Then
+        Set<String> countryCodes = customers.stream().map(PooledCustomer::getCountryCode).collect(Collectors.toSet());
+        assertThat(countryCodes).hasSize(20).allSatisfy(countryCode -> assertThat(countryCode).hasSize(2));
+    }
+
+    @Test
+    void withNullRatio() {
+        // When
+        List<PooledCustomer> customers = Instancio.ofList(jpaModel(PooledCustomer.class, emf.getMetamodel())
+                .withValueCardinality(PooledCustomer.class, "nickname", 100, 0.3)
+                .build())
+            .size(5000)
+            .withSeed(42)
+            .create();
+
+        // Then
+        long nullNicknames = customers.stream().filter(customer -> customer.getNickname() == null).count();
+        assertThat(nullNicknames / 5000d).isCloseTo(0.3, within(0.03));
+        assertThat(customers.stream().map(PooledCustomer::getNickname).filter(Objects::nonNull).distinct().count())
+            .isEqualTo(100);
+    }
+
+    @Test
+    void withValueWeights() {
+        // When
+        List<PooledCustomer> customers = Instancio.ofList(jpaModel(PooledCustomer.class, emf.getMetamodel())
+                .withValueWeights(PooledCustomer.class, "score", new double[] {8, 1, 1}, 0)
+                .build())
+            .size(5000)
+            .withSeed(42)
+            .create();
+
+        // Then
+        List<Long> frequencies = customers.stream()
+            .collect(Collectors.groupingBy(PooledCustomer::getScore, Collectors.counting()))
+            .values().stream()
+            .sorted()
+            .collect(Collectors.toList());
+        assertThat(frequencies).hasSize(3);
+        assertThat(frequencies.get(2) / 5000d).isCloseTo(0.8, within(0.03));
+    }
+
+    @Test
+    void sameDictionaryAcrossModels() {
+        // When
+        Set<String> firstCodes = Instancio.ofList(jpaModel(PooledCustomer.class, emf.getMetamodel())
+                .withValueCardinality(PooledCustomer.class, "countryCode", 5, 0)
+                .build())
+            .size(500)
+            .create()
+            .stream().map(PooledCustomer::getCountryCode).collect(Collectors.toSet());
+        Set<String> secondCodes = Instancio.ofList(jpaModel(PooledCustomer.class, emf.getMetamodel())
+                .withValueCardinality(PooledCustomer.class, "countryCode", 5, 0)
+                .build())
+            .size(500)
+            .create()
+            .stream().map(PooledCustomer::getCountryCode).collect(Collectors.toSet());
+
+        // Then
+        assertThat(firstCodes).hasSize(5).isEqualTo(secondCodes);
+    }
+
+    @Test
+    void valueCardinalitiesFromSettings() {
+        // When
+        List<PooledCustomer> customers = Instancio.ofList(jpaModel(PooledCustomer.class, emf.getMetamodel())
+                .withSettings(Settings.create()
+                    .set(JpaKeys.VALUE_CARDINALITIES, PooledCustomer.class.getName() + "#score:5"))
+                .build())
+            .size(500)
+            .create();
+
+        // Then
+        assertThat(customers.stream().map(PooledCustomer::getScore).distinct().count()).isEqualTo(5);
+    }
+
+    @Test
+    void invalidValueCardinality() {
+        assertThatThrownBy(() -> jpaModel(PooledCustomer.class, emf.getMetamodel())
+            .withValueCardinality(PooledCustomer.class, "score", 0, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> jpaModel(PooledCustomer.class, emf.getMetamodel())
+            .withValueWeights(PooledCustomer.class, "score", new double[0], 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> jpaModel(PooledCustomer.class, emf.getMetamodel())
+            .withValueCardinality(PooledCustomer.class, "rank", 10, 0.1)
+            .build())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> jpaModel(PooledCustomer.class, emf.getMetamodel())
+            .withValueCardinality(PooledCustomer.class, "email", 10, 0)
+            .build())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> jpaModel(PooledRegion.class, emf.getMetamodel())
+            .withValueCardinality(PooledRegion.class, "code", 10, 0)
+            .build())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Instancio.create(jpaModel(PooledCustomer.class, emf.getMetamodel())
+            .withValueCardinality(PooledCustomer.class, "status", 5, 0)
+            .build()))
+            .hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    public enum PooledStatus {
+        NEW, ACTIVE, CLOSED
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PooledCustomer {
+        @Id
+        @GeneratedValue
+        private Long id;
+        @Column(length = 2)
+        private String countryCode;
+        private String nickname;
+        private Integer score;
+        private int rank;
+        @Enumerated(EnumType.STRING)
+        private PooledStatus status;
+        @Column(unique = true)
+        private String email;
+    }
+
+    @Entity
+    @Getter
+    @Setter
+    public static class PooledRegion {
+        @Id
+        private String code;
+    }
+}